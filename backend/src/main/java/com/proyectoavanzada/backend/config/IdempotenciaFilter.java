@@ -0,0 +1,33 @@
+package com.proyectoavanzada.backend.config;
+
+import com.proyectoavanzada.backend.service.IdempotenciaService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.io.IOException;
+
+/**
+ * Conserva el cuerpo de las peticiones POST que llegan con la cabecera Idempotency-Key,
+ * para que IdempotenciaService calcule su huella después de que el controlador lo haya leído
+ */
+@Component
+public class IdempotenciaFilter extends OncePerRequestFilter {
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equalsIgnoreCase(request.getMethod())
+                || !StringUtils.hasText(request.getHeader(IdempotenciaService.CABECERA));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(new ContentCachingRequestWrapper(request), response);
+    }
+}
@@ -58,7 +58,11 @@ public class SecurityConfig {
                 // Endpoints públicos de productos (GET para ver productos)
                 .requestMatchers("/api/productos").permitAll()
                 .requestMatchers("/api/productos/activos").permitAll()
+                .requestMatchers("/api/productos/pagina").permitAll()
+                .requestMatchers("/api/productos/activos/pagina").permitAll()
+                .requestMatchers("/api/productos/facetas").permitAll()
                 .requestMatchers("/api/productos/{id}").permitAll()
+                .requestMatchers("/api/productos/{id}/disponibilidad").permitAll()
                 .requestMatchers("/api/productos/codigo/**").permitAll()
                 .requestMatchers("/api/productos/buscar").permitAll()
                 .requestMatchers("/api/productos/categoria/**").permitAll()
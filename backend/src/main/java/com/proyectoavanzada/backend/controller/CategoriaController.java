@@ -2,6 +2,7 @@ package com.proyectoavanzada.backend.controller;
 
 import com.proyectoavanzada.backend.model.Categoria;
 import com.proyectoavanzada.backend.service.CategoriaService;
+import com.proyectoavanzada.backend.service.VersionRecursosService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,6 +13,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -29,18 +31,26 @@ public class CategoriaController {
     @Autowired
     private CategoriaService categoriaService;
     
+    @Autowired
+    private VersionRecursosService versionRecursosService;
+    
     /**
      * Obtener todas las categorías
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> obtenerTodasLasCategorias() {
+    public ResponseEntity<Map<String, Object>> obtenerTodasLasCategorias(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.CATEGORIAS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             List<Categoria> categorias = categoriaService.obtenerTodasLasCategorias();
             response.put("success", true);
             response.put("data", categorias);
             response.put("total", categorias.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener categorías: " + e.getMessage());
@@ -52,14 +62,19 @@ public class CategoriaController {
      * Obtener todas las categorías activas
      */
     @GetMapping("/activas")
-    public ResponseEntity<Map<String, Object>> obtenerCategoriasActivas() {
+    public ResponseEntity<Map<String, Object>> obtenerCategoriasActivas(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.CATEGORIAS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             List<Categoria> categorias = categoriaService.obtenerCategoriasActivas();
             response.put("success", true);
             response.put("data", categorias);
             response.put("total", categorias.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener categorías activas: " + e.getMessage());
@@ -71,14 +86,19 @@ public class CategoriaController {
      * Obtener categorías activas ordenadas por nombre
      */
     @GetMapping("/activas-ordenadas")
-    public ResponseEntity<Map<String, Object>> obtenerCategoriasActivasOrdenadas() {
+    public ResponseEntity<Map<String, Object>> obtenerCategoriasActivasOrdenadas(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.CATEGORIAS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             List<Categoria> categorias = categoriaService.obtenerCategoriasActivasOrdenadas();
             response.put("success", true);
             response.put("data", categorias);
             response.put("total", categorias.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener categorías ordenadas: " + e.getMessage());
@@ -90,14 +110,19 @@ public class CategoriaController {
      * Obtener categoría por ID
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> obtenerCategoriaPorId(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> obtenerCategoriaPorId(@PathVariable Long id,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.CATEGORIAS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             Optional<Categoria> categoriaOpt = categoriaService.obtenerCategoriaPorId(id);
             if (categoriaOpt.isPresent()) {
                 response.put("success", true);
                 response.put("data", categoriaOpt.get());
-                return ResponseEntity.ok(response);
+                return ResponseEntity.ok().eTag(etag).body(response);
             } else {
                 response.put("success", false);
                 response.put("message", "Categoría no encontrada");
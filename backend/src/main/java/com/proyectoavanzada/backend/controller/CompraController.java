@@ -5,6 +5,8 @@ import com.proyectoavanzada.backend.model.DetalleCompra;
 import com.proyectoavanzada.backend.model.Proveedor;
 import com.proyectoavanzada.backend.model.Usuario;
 import com.proyectoavanzada.backend.service.CompraService;
+import com.proyectoavanzada.backend.service.ExportacionService;
+import com.proyectoavanzada.backend.service.IdempotenciaService;
 import com.proyectoavanzada.backend.service.ProveedorService;
 import com.proyectoavanzada.backend.service.UsuarioService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -15,11 +17,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -42,6 +46,12 @@ public class CompraController {
     @Autowired
     private UsuarioService usuarioService;
     
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+    
+    @Autowired
+    private ExportacionService exportacionService;
+    
     /**
      * Obtener todas las compras
      */
@@ -198,6 +208,23 @@ public class CompraController {
         }
     }
     
+    /**
+     * Exportar compras de un rango de fechas en CSV o NDJSON (opcionalmente comprimido con gzip).
+     * Las filas se escriben a medida que se leen, sin cargar el rango completo en memoria.
+     */
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarCompras(
+            @RequestParam String fechaInicio, 
+            @RequestParam String fechaFin,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean comprimir) {
+        LocalDateTime inicio = exportacionService.parsearFecha(fechaInicio);
+        LocalDateTime fin = exportacionService.parsearFecha(fechaFin);
+        String formatoExportacion = exportacionService.validarFormato(formato);
+        return exportacionService.respuesta("compras", formatoExportacion, comprimir,
+                salida -> exportacionService.exportarCompras(inicio, fin, formatoExportacion, comprimir, salida));
+    }
+    
     /**
      * Obtener compras pendientes
      */
@@ -278,33 +305,38 @@ public class CompraController {
      * Crear nueva compra
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> crearCompra(@Valid @RequestBody Compra compra) {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            System.out.println("=== RECIBIENDO COMPRA EN CONTROLLER ===");
-            System.out.println("Proveedor ID: " + (compra.getProveedor() != null ? compra.getProveedor().getId() : "NULL"));
-            System.out.println("Usuario ID: " + (compra.getUsuario() != null ? compra.getUsuario().getId() : "NULL"));
-            System.out.println("Detalles recibidos: " + (compra.getDetallesCompra() != null ? compra.getDetallesCompra().size() : 0));
-            if (compra.getDetallesCompra() != null && !compra.getDetallesCompra().isEmpty()) {
-                for (int i = 0; i < compra.getDetallesCompra().size(); i++) {
-                    DetalleCompra det = compra.getDetallesCompra().get(i);
-                    System.out.println("Detalle " + i + ": Producto ID=" + (det.getProducto() != null ? det.getProducto().getId() : "NULL") + 
-                                     ", Cantidad=" + det.getCantidad());
+    public ResponseEntity<?> crearCompra(@Valid @RequestBody Compra compra,
+            @RequestHeader(value = IdempotenciaService.CABECERA, required = false) String claveIdempotencia,
+            HttpServletRequest request) {
+        // Con Idempotency-Key, un reintento de la misma compra devuelve la respuesta original sin volver a crearla
+        return idempotenciaService.ejecutar(IdempotenciaService.COMPRAS, claveIdempotencia, request, () -> {
+            Map<String, Object> response = new HashMap<>();
+            try {
+                System.out.println("=== RECIBIENDO COMPRA EN CONTROLLER ===");
+                System.out.println("Proveedor ID: " + (compra.getProveedor() != null ? compra.getProveedor().getId() : "NULL"));
+                System.out.println("Usuario ID: " + (compra.getUsuario() != null ? compra.getUsuario().getId() : "NULL"));
+                System.out.println("Detalles recibidos: " + (compra.getDetallesCompra() != null ? compra.getDetallesCompra().size() : 0));
+                if (compra.getDetallesCompra() != null && !compra.getDetallesCompra().isEmpty()) {
+                    for (int i = 0; i < compra.getDetallesCompra().size(); i++) {
+                        DetalleCompra det = compra.getDetallesCompra().get(i);
+                        System.out.println("Detalle " + i + ": Producto ID=" + (det.getProducto() != null ? det.getProducto().getId() : "NULL") + 
+                                         ", Cantidad=" + det.getCantidad());
+                    }
                 }
-            }
             
-            Compra compraGuardada = compraService.crearCompra(compra);
-            response.put("success", true);
-            response.put("message", "Compra creada exitosamente");
-            response.put("data", compraGuardada);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
-        } catch (Exception e) {
-            System.err.println("ERROR en crearCompra: " + e.getMessage());
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("message", "Error al crear compra: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+                Compra compraGuardada = compraService.crearCompra(compra);
+                response.put("success", true);
+                response.put("message", "Compra creada exitosamente");
+                response.put("data", compraGuardada);
+                return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            } catch (Exception e) {
+                System.err.println("ERROR en crearCompra: " + e.getMessage());
+                e.printStackTrace();
+                response.put("success", false);
+                response.put("message", "Error al crear compra: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+        });
     }
     
     /**
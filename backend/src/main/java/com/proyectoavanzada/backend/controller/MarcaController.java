@@ -2,6 +2,7 @@ package com.proyectoavanzada.backend.controller;
 
 import com.proyectoavanzada.backend.model.Marca;
 import com.proyectoavanzada.backend.service.MarcaService;
+import com.proyectoavanzada.backend.service.VersionRecursosService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,6 +13,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -29,18 +31,26 @@ public class MarcaController {
     @Autowired
     private MarcaService marcaService;
     
+    @Autowired
+    private VersionRecursosService versionRecursosService;
+    
     /**
      * Obtener todas las marcas
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> obtenerTodasLasMarcas() {
+    public ResponseEntity<Map<String, Object>> obtenerTodasLasMarcas(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.MARCAS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             List<Marca> marcas = marcaService.obtenerTodasLasMarcas();
             response.put("success", true);
             response.put("data", marcas);
             response.put("total", marcas.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener marcas: " + e.getMessage());
@@ -52,14 +62,19 @@ public class MarcaController {
      * Obtener todas las marcas activas
      */
     @GetMapping("/activas")
-    public ResponseEntity<Map<String, Object>> obtenerMarcasActivas() {
+    public ResponseEntity<Map<String, Object>> obtenerMarcasActivas(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.MARCAS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             List<Marca> marcas = marcaService.obtenerMarcasActivas();
             response.put("success", true);
             response.put("data", marcas);
             response.put("total", marcas.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener marcas activas: " + e.getMessage());
@@ -71,14 +86,19 @@ public class MarcaController {
      * Obtener marcas activas ordenadas por nombre
      */
     @GetMapping("/activas-ordenadas")
-    public ResponseEntity<Map<String, Object>> obtenerMarcasActivasOrdenadas() {
+    public ResponseEntity<Map<String, Object>> obtenerMarcasActivasOrdenadas(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.MARCAS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             List<Marca> marcas = marcaService.obtenerMarcasActivasOrdenadas();
             response.put("success", true);
             response.put("data", marcas);
             response.put("total", marcas.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener marcas ordenadas: " + e.getMessage());
@@ -90,14 +110,19 @@ public class MarcaController {
      * Obtener marca por ID
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> obtenerMarcaPorId(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> obtenerMarcaPorId(@PathVariable Long id,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.MARCAS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             Optional<Marca> marcaOpt = marcaService.obtenerMarcaPorId(id);
             if (marcaOpt.isPresent()) {
                 response.put("success", true);
                 response.put("data", marcaOpt.get());
-                return ResponseEntity.ok(response);
+                return ResponseEntity.ok().eTag(etag).body(response);
             } else {
                 response.put("success", false);
                 response.put("message", "Marca no encontrada");
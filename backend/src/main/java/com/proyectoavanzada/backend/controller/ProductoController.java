@@ -1,11 +1,22 @@
 package com.proyectoavanzada.backend.controller;
 
+import com.proyectoavanzada.backend.dto.ConsultaFacetas;
+import com.proyectoavanzada.backend.dto.MatrizDisponibilidad;
+import com.proyectoavanzada.backend.dto.PaginaCursor;
+import com.proyectoavanzada.backend.dto.ProductoDetalle;
+import com.proyectoavanzada.backend.dto.ProductoResumen;
+import com.proyectoavanzada.backend.dto.ResultadoFacetas;
 import com.proyectoavanzada.backend.model.Producto;
 import com.proyectoavanzada.backend.model.Categoria;
 import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.service.ContadorVentasService;
+import com.proyectoavanzada.backend.service.IndiceFacetasProductos;
+import com.proyectoavanzada.backend.service.MonitorStockBajo;
+import com.proyectoavanzada.backend.service.PresentacionService;
 import com.proyectoavanzada.backend.service.ProductoService;
 import com.proyectoavanzada.backend.service.CategoriaService;
 import com.proyectoavanzada.backend.service.MarcaService;
+import com.proyectoavanzada.backend.service.VersionRecursosService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,11 +26,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +57,18 @@ public class ProductoController {
     @Autowired
     private com.proyectoavanzada.backend.service.InventarioService inventarioService;
     
+    @Autowired
+    private ContadorVentasService contadorVentasService;
+    
+    @Autowired
+    private MonitorStockBajo monitorStockBajo;
+    
+    @Autowired
+    private PresentacionService presentacionService;
+    
+    @Autowired
+    private VersionRecursosService versionRecursosService;
+    
     /**
      * Obtener todos los productos
      */
@@ -66,64 +93,23 @@ public class ProductoController {
         )
     })
     @GetMapping
-    public ResponseEntity<Map<String, Object>> obtenerTodosLosProductos() {
+    public ResponseEntity<Map<String, Object>> obtenerTodosLosProductos(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Producto> productos = productoService.obtenerTodosLosProductos();
+            List<ProductoResumen> productos = productoService.obtenerTodosLosProductos();
             
             // Agregar stock calculado desde inventario a cada producto
-            List<Map<String, Object>> productosConStock = productos.stream().map(producto -> {
-                Map<String, Object> productoMap = new HashMap<>();
-                productoMap.put("id", producto.getId());
-                productoMap.put("nombre", producto.getNombre());
-                productoMap.put("descripcion", producto.getDescripcion());
-                productoMap.put("codigoProducto", producto.getCodigoProducto());
-                productoMap.put("categoriaId", producto.getCategoriaId());
-                productoMap.put("marcaId", producto.getMarcaId());
-                productoMap.put("precioVenta", producto.getPrecioVenta());
-                productoMap.put("precioCompra", producto.getPrecioCompra());
-                productoMap.put("imagenPrincipal", producto.getImagenPrincipal());
-                productoMap.put("imagenesAdicionales", producto.getImagenesAdicionales());
-                productoMap.put("genero", producto.getGenero());
-                productoMap.put("edadTarget", producto.getEdadTarget());
-                productoMap.put("materialPrincipal", producto.getMaterialPrincipal());
-                productoMap.put("tipoSuela", producto.getTipoSuela());
-                productoMap.put("tecnologia", producto.getTecnologia());
-                productoMap.put("pesoGramos", producto.getPesoGramos());
-                productoMap.put("garantiaMeses", producto.getGarantiaMeses());
-                productoMap.put("stockMinimo", producto.getStockMinimo());
-                productoMap.put("esDestacado", producto.getEsDestacado());
-                productoMap.put("esNuevo", producto.getEsNuevo());
-                productoMap.put("descuentoPorcentaje", producto.getDescuentoPorcentaje());
-                productoMap.put("activo", producto.getActivo());
-                productoMap.put("fechaCreacion", producto.getFechaCreacion());
-                productoMap.put("fechaActualizacion", producto.getFechaActualizacion());
-                
-                // Calcular stock desde inventario
-                Integer stock = inventarioService.obtenerStockProducto(producto.getId());
-                productoMap.put("stock", stock);
-                
-                // Agregar información de categoría y marca si están disponibles
-                if (producto.getCategoria() != null) {
-                    Map<String, Object> categoriaMap = new HashMap<>();
-                    categoriaMap.put("id", producto.getCategoria().getId());
-                    categoriaMap.put("nombre", producto.getCategoria().getNombre());
-                    productoMap.put("categoria", categoriaMap);
-                }
-                if (producto.getMarca() != null) {
-                    Map<String, Object> marcaMap = new HashMap<>();
-                    marcaMap.put("id", producto.getMarca().getId());
-                    marcaMap.put("nombre", producto.getMarca().getNombre());
-                    productoMap.put("marca", marcaMap);
-                }
-                
-                return productoMap;
-            }).collect(java.util.stream.Collectors.toList());
+            List<ProductoResumen> productosConStock = completarStock(productos);
             
             response.put("success", true);
             response.put("data", productosConStock);
             response.put("total", productosConStock.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener productos: " + e.getMessage());
@@ -135,14 +121,19 @@ public class ProductoController {
      * Obtener todos los productos activos
      */
     @GetMapping("/activos")
-    public ResponseEntity<Map<String, Object>> obtenerProductosActivos() {
+    public ResponseEntity<Map<String, Object>> obtenerProductosActivos(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Producto> productos = productoService.obtenerProductosActivos();
+            List<ProductoResumen> productos = productoService.obtenerProductosActivos();
             response.put("success", true);
-            response.put("data", productos);
+            response.put("data", completarStock(productos));
             response.put("total", productos.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener productos activos: " + e.getMessage());
@@ -150,6 +141,106 @@ public class ProductoController {
         }
     }
     
+    /**
+     * Obtener productos paginados por cursor
+     */
+    @Operation(
+        summary = "Obtener productos paginados por cursor",
+        description = "Retorna una página de productos ordenada por ID. Para obtener la siguiente página se envía el cursor recibido en 'siguienteCursor'"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Página de productos obtenida exitosamente",
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(
+                    value = "{\"success\": true, \"data\": [], \"total\": 0, \"siguienteCursor\": null, \"hayMas\": false}"
+                )
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Cursor de paginación inválido"
+        )
+    })
+    @GetMapping("/pagina")
+    public ResponseEntity<Map<String, Object>> obtenerPaginaProductos(
+        @Parameter(description = "Cursor devuelto por la página anterior")
+        @RequestParam(required = false) String cursor,
+        @Parameter(description = "Cantidad de productos por página")
+        @RequestParam(required = false) Integer limite,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responderPaginaProductos(cursor, limite, false, ifNoneMatch);
+    }
+    
+    /**
+     * Obtener productos activos paginados por cursor
+     */
+    @GetMapping("/activos/pagina")
+    public ResponseEntity<Map<String, Object>> obtenerPaginaProductosActivos(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limite,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responderPaginaProductos(cursor, limite, true, ifNoneMatch);
+    }
+    
+    /**
+     * Buscar productos activos por facetas
+     */
+    @Operation(
+        summary = "Búsqueda por facetas",
+        description = "Filtra productos activos por género, edad, material, tecnología, tipo de suela, categoría, marca, precio y peso. " +
+                      "Los valores de una misma faceta se combinan con OR y las facetas entre sí con AND. " +
+                      "Retorna además la cantidad de productos para cada valor de cada faceta"
+    )
+    @GetMapping("/facetas")
+    public ResponseEntity<Map<String, Object>> buscarPorFacetas(
+        @RequestParam(required = false) List<String> genero,
+        @RequestParam(required = false) List<String> edadTarget,
+        @RequestParam(required = false) List<String> materialPrincipal,
+        @RequestParam(required = false) List<String> tecnologia,
+        @RequestParam(required = false) List<String> tipoSuela,
+        @RequestParam(required = false) List<Long> categoriaId,
+        @RequestParam(required = false) List<Long> marcaId,
+        @RequestParam(required = false) BigDecimal precioMin,
+        @RequestParam(required = false) BigDecimal precioMax,
+        @RequestParam(required = false) Integer pesoMin,
+        @RequestParam(required = false) Integer pesoMax,
+        @Parameter(description = "Cantidad máxima de productos a retornar")
+        @RequestParam(defaultValue = "50") int limite,
+        @Parameter(description = "Cantidad de productos a saltar")
+        @RequestParam(defaultValue = "0") int desplazamiento) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Map<String, java.util.Set<String>> filtros = new HashMap<>();
+            agregarFiltroFaceta(filtros, IndiceFacetasProductos.GENERO, genero);
+            agregarFiltroFaceta(filtros, IndiceFacetasProductos.EDAD_TARGET, edadTarget);
+            agregarFiltroFaceta(filtros, IndiceFacetasProductos.MATERIAL, materialPrincipal);
+            agregarFiltroFaceta(filtros, IndiceFacetasProductos.TECNOLOGIA, tecnologia);
+            agregarFiltroFaceta(filtros, IndiceFacetasProductos.TIPO_SUELA, tipoSuela);
+            agregarFiltroFaceta(filtros, IndiceFacetasProductos.CATEGORIA, categoriaId);
+            agregarFiltroFaceta(filtros, IndiceFacetasProductos.MARCA, marcaId);
+            
+            ResultadoFacetas resultado = productoService.buscarPorFacetas(
+                new ConsultaFacetas(filtros, precioMin, precioMax, pesoMin, pesoMax));
+            
+            int desde = Math.min(Math.max(desplazamiento, 0), resultado.total());
+            int hasta = Math.min(desde + Math.max(Math.min(limite, 100), 0), resultado.total());
+            List<ProductoResumen> productos = productoService.obtenerResumenesPorIds(resultado.productoIds().subList(desde, hasta));
+            
+            response.put("success", true);
+            response.put("data", completarStock(productos));
+            response.put("total", resultado.total());
+            response.put("facetas", resultado.conteos());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al buscar productos por facetas: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
     /**
      * Obtener producto por ID
      */
@@ -180,14 +271,19 @@ public class ProductoController {
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> obtenerProductoPorId(
         @Parameter(description = "ID del producto", required = true)
-        @PathVariable Long id) {
+        @PathVariable Long id,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
-            Optional<Producto> productoOpt = productoService.obtenerProductoPorId(id);
+            Optional<ProductoDetalle> productoOpt = productoService.obtenerProductoPorId(id);
             if (productoOpt.isPresent()) {
                 response.put("success", true);
                 response.put("data", productoOpt.get());
-                return ResponseEntity.ok(response);
+                return ResponseEntity.ok().eTag(etag).body(response);
             } else {
                 response.put("success", false);
                 response.put("message", "Producto no encontrado");
@@ -200,6 +296,25 @@ public class ProductoController {
         }
     }
     
+    /**
+     * Obtener la matriz de disponibilidad talla x color de un producto (presentación, stock y precio especial por celda)
+     */
+    @GetMapping("/{id}/disponibilidad")
+    public ResponseEntity<Map<String, Object>> obtenerDisponibilidadProducto(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            MatrizDisponibilidad matriz = presentacionService.obtenerMatrizDisponibilidad(id);
+            response.put("success", true);
+            response.put("data", matriz);
+            response.put("total", matriz.celdas().values().stream().mapToInt(Map::size).sum());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al obtener disponibilidad del producto: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
     /**
      * Obtener producto por código
      */
@@ -207,7 +322,7 @@ public class ProductoController {
     public ResponseEntity<Map<String, Object>> obtenerProductoPorCodigo(@PathVariable String codigoProducto) {
         Map<String, Object> response = new HashMap<>();
         try {
-            Optional<Producto> productoOpt = productoService.obtenerProductoPorCodigo(codigoProducto);
+            Optional<ProductoDetalle> productoOpt = productoService.obtenerProductoPorCodigo(codigoProducto);
             if (productoOpt.isPresent()) {
                 response.put("success", true);
                 response.put("data", productoOpt.get());
@@ -228,10 +343,13 @@ public class ProductoController {
      * Buscar productos por nombre
      */
     @GetMapping("/buscar")
-    public ResponseEntity<Map<String, Object>> buscarProductosPorNombre(@RequestParam String nombre) {
+    public ResponseEntity<Map<String, Object>> buscarProductosPorNombre(
+        @RequestParam String nombre,
+        @Parameter(description = "Cantidad máxima de resultados")
+        @RequestParam(defaultValue = "50") int limite) {
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Producto> productos = productoService.buscarProductosPorNombre(nombre);
+            List<Producto> productos = productoService.buscarProductosPorNombre(nombre, Math.min(limite, 100));
             response.put("success", true);
             response.put("data", productos);
             response.put("total", productos.size());
@@ -247,16 +365,21 @@ public class ProductoController {
      * Obtener productos por categoría
      */
     @GetMapping("/categoria/{categoriaId}")
-    public ResponseEntity<Map<String, Object>> obtenerProductosPorCategoria(@PathVariable Long categoriaId) {
+    public ResponseEntity<Map<String, Object>> obtenerProductosPorCategoria(@PathVariable Long categoriaId,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             Optional<Categoria> categoriaOpt = categoriaService.obtenerCategoriaPorId(categoriaId);
             if (categoriaOpt.isPresent()) {
-                List<Producto> productos = productoService.obtenerProductosPorCategoria(categoriaOpt.get());
+                List<ProductoResumen> productos = productoService.obtenerProductosPorCategoria(categoriaOpt.get());
                 response.put("success", true);
-                response.put("data", productos);
+                response.put("data", completarStock(productos));
                 response.put("total", productos.size());
-                return ResponseEntity.ok(response);
+                return ResponseEntity.ok().eTag(etag).body(response);
             } else {
                 response.put("success", false);
                 response.put("message", "Categoría no encontrada");
@@ -273,16 +396,21 @@ public class ProductoController {
      * Obtener productos por marca
      */
     @GetMapping("/marca/{marcaId}")
-    public ResponseEntity<Map<String, Object>> obtenerProductosPorMarca(@PathVariable Long marcaId) {
+    public ResponseEntity<Map<String, Object>> obtenerProductosPorMarca(@PathVariable Long marcaId,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
             Optional<Marca> marcaOpt = marcaService.obtenerMarcaPorId(marcaId);
             if (marcaOpt.isPresent()) {
-                List<Producto> productos = productoService.obtenerProductosPorMarca(marcaOpt.get());
+                List<ProductoResumen> productos = productoService.obtenerProductosPorMarca(marcaOpt.get());
                 response.put("success", true);
-                response.put("data", productos);
+                response.put("data", completarStock(productos));
                 response.put("total", productos.size());
-                return ResponseEntity.ok(response);
+                return ResponseEntity.ok().eTag(etag).body(response);
             } else {
                 response.put("success", false);
                 response.put("message", "Marca no encontrada");
@@ -299,14 +427,19 @@ public class ProductoController {
      * Obtener productos destacados
      */
     @GetMapping("/destacados")
-    public ResponseEntity<Map<String, Object>> obtenerProductosDestacados() {
+    public ResponseEntity<Map<String, Object>> obtenerProductosDestacados(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Producto> productos = productoService.obtenerProductosDestacados();
+            List<ProductoResumen> productos = productoService.obtenerProductosDestacados();
             response.put("success", true);
-            response.put("data", productos);
+            response.put("data", completarStock(productos));
             response.put("total", productos.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener productos destacados: " + e.getMessage());
@@ -318,14 +451,19 @@ public class ProductoController {
      * Obtener productos nuevos
      */
     @GetMapping("/nuevos")
-    public ResponseEntity<Map<String, Object>> obtenerProductosNuevos() {
+    public ResponseEntity<Map<String, Object>> obtenerProductosNuevos(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Producto> productos = productoService.obtenerProductosNuevos();
+            List<ProductoResumen> productos = productoService.obtenerProductosNuevos();
             response.put("success", true);
-            response.put("data", productos);
+            response.put("data", completarStock(productos));
             response.put("total", productos.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener productos nuevos: " + e.getMessage());
@@ -337,14 +475,19 @@ public class ProductoController {
      * Obtener productos con descuento
      */
     @GetMapping("/con-descuento")
-    public ResponseEntity<Map<String, Object>> obtenerProductosConDescuento() {
+    public ResponseEntity<Map<String, Object>> obtenerProductosConDescuento(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Producto> productos = productoService.obtenerProductosConDescuento();
+            List<ProductoResumen> productos = productoService.obtenerProductosConDescuento();
             response.put("success", true);
-            response.put("data", productos);
+            response.put("data", completarStock(productos));
             response.put("total", productos.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener productos con descuento: " + e.getMessage());
@@ -372,17 +515,58 @@ public class ProductoController {
     }
     
     /**
-     * Obtener productos más vendidos
+     * Reconciliar el monitor de stock bajo con la base de datos sin esperar la pasada periódica
+     */
+    @PostMapping("/stock-bajo/reconciliar")
+    public ResponseEntity<Map<String, Object>> reconciliarStockBajo() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int correcciones = monitorStockBajo.reconciliar();
+            Map<String, Object> estadisticas = monitorStockBajo.obtenerEstadisticas();
+            response.put("success", true);
+            response.put("data", estadisticas);
+            response.put("message", "Monitor de stock bajo reconciliado, registros corregidos: " + correcciones);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al reconciliar el stock bajo: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    /**
+     * Obtener productos más vendidos (de todos los tiempos, o en un periodo si se indican fechaInicio y fechaFin)
      */
     @GetMapping("/mas-vendidos")
-    public ResponseEntity<Map<String, Object>> obtenerProductosMasVendidos() {
+    public ResponseEntity<Map<String, Object>> obtenerProductosMasVendidos(
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String fechaInicio,
+            @RequestParam(required = false) String fechaFin) {
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Producto> productos = productoService.obtenerProductosMasVendidos();
+            List<Producto> productos;
+            if (fechaInicio != null || fechaFin != null) {
+                if (fechaInicio == null || fechaFin == null) {
+                    response.put("success", false);
+                    response.put("message", "Debe indicar fechaInicio y fechaFin para consultar un periodo");
+                    return ResponseEntity.badRequest().body(response);
+                }
+                Map<Long, Long> unidadesPorProducto = productoService.obtenerUnidadesMasVendidasPorPeriodo(
+                    LocalDate.parse(fechaInicio), LocalDate.parse(fechaFin), limite);
+                productos = productoService.obtenerProductosPorIds(new ArrayList<>(unidadesPorProducto.keySet()));
+                productos.removeIf(producto -> !Boolean.TRUE.equals(producto.getActivo()));
+                response.put("unidadesVendidas", unidadesPorProducto);
+            } else {
+                productos = productoService.obtenerProductosMasVendidos(limite);
+            }
             response.put("success", true);
             response.put("data", productos);
             response.put("total", productos.size());
             return ResponseEntity.ok(response);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Periodo inválido: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error al obtener productos más vendidos: " + e.getMessage());
@@ -390,6 +574,25 @@ public class ProductoController {
         }
     }
     
+    /**
+     * Recalcular los contadores de más vendidos a partir de las ventas registradas
+     */
+    @PostMapping("/mas-vendidos/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirContadoresVentas() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Map<String, Object> resultado = contadorVentasService.reconstruirContadores();
+            response.put("success", true);
+            response.put("data", resultado);
+            response.put("message", "Contadores de ventas reconstruidos exitosamente");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al reconstruir los contadores de ventas: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
     /**
      * Obtener productos por rango de precio
      */
@@ -739,4 +942,74 @@ public class ProductoController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+    
+    /**
+     * Obtener estadísticas de la caché del catálogo de productos
+     */
+    @GetMapping("/cache/estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasCache() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", productoService.obtenerEstadisticasCache());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al obtener estadísticas de caché: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    /**
+     * Construir la respuesta de una página de productos
+     */
+    private ResponseEntity<Map<String, Object>> responderPaginaProductos(String cursor, Integer limite, boolean soloActivos,
+                                                                         String ifNoneMatch) {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        if (versionRecursosService.coincideConIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        try {
+            PaginaCursor<ProductoResumen> pagina = productoService.obtenerPaginaProductos(cursor, limite, soloActivos);
+            List<ProductoResumen> productosConStock = completarStock(pagina.elementos());
+            
+            response.put("success", true);
+            response.put("data", productosConStock);
+            response.put("total", productosConStock.size());
+            response.put("siguienteCursor", pagina.siguienteCursor());
+            response.put("hayMas", pagina.hayMas());
+            return ResponseEntity.ok().eTag(etag).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al obtener productos: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    /**
+     * Agregar a la consulta los valores seleccionados de una faceta
+     */
+    private void agregarFiltroFaceta(Map<String, java.util.Set<String>> filtros, String faceta, List<?> valores) {
+        if (valores != null && !valores.isEmpty()) {
+            filtros.put(faceta, valores.stream().map(String::valueOf).collect(java.util.stream.Collectors.toSet()));
+        }
+    }
+    
+    /**
+     * Completar el stock de los resúmenes de productos, consultando el stock de todos en una sola consulta
+     */
+    private List<ProductoResumen> completarStock(List<ProductoResumen> productos) {
+        List<Long> productoIds = productos.stream()
+            .map(ProductoResumen::id)
+            .collect(java.util.stream.Collectors.toList());
+        Map<Long, Integer> stockPorProducto = inventarioService.obtenerStockProductos(productoIds);
+        return productos.stream()
+            .map(producto -> producto.conStock(stockPorProducto.getOrDefault(producto.id(), 0)))
+            .collect(java.util.stream.Collectors.toList());
+    }
 }
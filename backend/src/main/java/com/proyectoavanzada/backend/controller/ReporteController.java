@@ -1,8 +1,14 @@
 package com.proyectoavanzada.backend.controller;
 
+import com.proyectoavanzada.backend.dto.EstadoTrabajoReporte;
+import com.proyectoavanzada.backend.exception.BusinessException;
+import com.proyectoavanzada.backend.exception.ConflictException;
 import com.proyectoavanzada.backend.model.Reporte;
 import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.service.AlmacenReportesService;
+import com.proyectoavanzada.backend.service.AlmacenReportesService.ArchivoReporte;
 import com.proyectoavanzada.backend.service.ReporteService;
+import com.proyectoavanzada.backend.service.TrabajosReportesService;
 import com.proyectoavanzada.backend.service.UsuarioService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,18 +18,32 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/reportes")
@@ -36,6 +56,17 @@ public class ReporteController {
     @Autowired
     private UsuarioService usuarioService;
     
+    @Autowired
+    private TrabajosReportesService trabajosReportesService;
+    
+    @Autowired
+    private AlmacenReportesService almacenReportesService;
+    
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+    
     /**
      * Obtener todos los reportes
      */
@@ -281,92 +312,269 @@ public class ReporteController {
     }
     
     /**
-     * Generar reporte de ventas
+     * Pedir un reporte de ventas (agrupaciones: DIA, SEMANA o MES, PRODUCTO, CATEGORIA, MARCA, METODO_PAGO, VENDEDOR).
+     * Responde enseguida con el reporte en PROCESANDO; el avance se consulta en /trabajos/{id}
      */
     @PostMapping("/generar/ventas")
     public ResponseEntity<Map<String, Object>> generarReporteVentas(
             @RequestParam String fechaInicio,
             @RequestParam String fechaFin,
-            @RequestParam Long usuarioId) {
-        Map<String, Object> response = new HashMap<>();
-        try {
-            LocalDate inicio = LocalDate.parse(fechaInicio);
-            LocalDate fin = LocalDate.parse(fechaFin);
-            Optional<Usuario> usuarioOpt = usuarioService.obtenerUsuarioPorId(usuarioId);
-            
-            if (usuarioOpt.isPresent()) {
-                Reporte reporte = reporteService.generarReporteVentas(inicio, fin, usuarioOpt.get());
-                response.put("success", true);
-                response.put("message", "Reporte de ventas generado exitosamente");
-                response.put("data", reporte);
-                return ResponseEntity.ok(response);
-            } else {
-                response.put("success", false);
-                response.put("message", "Usuario no encontrado");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-            }
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error al generar reporte de ventas: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam Long usuarioId,
+            @RequestParam(required = false) List<String> agrupaciones,
+            @RequestParam(required = false) Integer prioridad) {
+        return enviarReporte("VENTAS", fechaInicio, fechaFin, usuarioId, agrupaciones, prioridad);
     }
     
     /**
-     * Generar reporte de compras
+     * Pedir un reporte de compras (agrupaciones: DIA, SEMANA o MES, PRODUCTO, CATEGORIA, MARCA, METODO_PAGO, PROVEEDOR).
+     * Responde enseguida con el reporte en PROCESANDO; el avance se consulta en /trabajos/{id}
      */
     @PostMapping("/generar/compras")
     public ResponseEntity<Map<String, Object>> generarReporteCompras(
             @RequestParam String fechaInicio,
             @RequestParam String fechaFin,
-            @RequestParam Long usuarioId) {
+            @RequestParam Long usuarioId,
+            @RequestParam(required = false) List<String> agrupaciones,
+            @RequestParam(required = false) Integer prioridad) {
+        return enviarReporte("COMPRAS", fechaInicio, fechaFin, usuarioId, agrupaciones, prioridad);
+    }
+    
+    /**
+     * Pedir un reporte de inventario (agrupaciones: PRODUCTO, CATEGORIA, MARCA).
+     * Responde enseguida con el reporte en PROCESANDO; el avance se consulta en /trabajos/{id}
+     */
+    @PostMapping("/generar/inventario")
+    public ResponseEntity<Map<String, Object>> generarReporteInventario(
+            @RequestParam Long usuarioId,
+            @RequestParam(required = false) List<String> agrupaciones,
+            @RequestParam(required = false) Integer prioridad) {
+        return enviarReporte("INVENTARIO", null, null, usuarioId, agrupaciones, prioridad);
+    }
+    
+    /**
+     * Listar los reportes en segundo plano de este servidor, opcionalmente de un usuario
+     */
+    @GetMapping("/trabajos")
+    public ResponseEntity<Map<String, Object>> listarTrabajos(@RequestParam(required = false) Long usuarioId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            LocalDate inicio = LocalDate.parse(fechaInicio);
-            LocalDate fin = LocalDate.parse(fechaFin);
-            Optional<Usuario> usuarioOpt = usuarioService.obtenerUsuarioPorId(usuarioId);
-            
-            if (usuarioOpt.isPresent()) {
-                Reporte reporte = reporteService.generarReporteCompras(inicio, fin, usuarioOpt.get());
-                response.put("success", true);
-                response.put("message", "Reporte de compras generado exitosamente");
-                response.put("data", reporte);
-                return ResponseEntity.ok(response);
-            } else {
+            List<EstadoTrabajoReporte> trabajos = trabajosReportesService.listar(usuarioId);
+            response.put("success", true);
+            response.put("data", trabajos);
+            response.put("total", trabajos.size());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al listar los reportes en proceso: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    /**
+     * Consultar el estado y avance de un reporte; con esperarSegundos la respuesta espera
+     * (hasta 60 segundos, sin ocupar el hilo de la petición) a que el reporte termine
+     */
+    @GetMapping("/trabajos/{id}")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> consultarTrabajo(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") long esperarSegundos) {
+        return trabajosReportesService.esperar(id, esperarSegundos).handle((estado, error) -> {
+            Map<String, Object> response = new HashMap<>();
+            if (error != null) {
                 response.put("success", false);
-                response.put("message", "Usuario no encontrado");
+                response.put("message", "Error al consultar el reporte: " + error.getMessage());
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            }
+            if (estado.isEmpty()) {
+                response.put("success", false);
+                response.put("message", "Reporte no encontrado");
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
+            response.put("success", true);
+            response.put("data", estado.get());
+            return ResponseEntity.ok(response);
+        });
+    }
+    
+    /**
+     * Cancelar un reporte en la cola o en generación
+     */
+    @PostMapping("/trabajos/{id}/cancelar")
+    public ResponseEntity<Map<String, Object>> cancelarTrabajo(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            EstadoTrabajoReporte estado = trabajosReportesService.cancelar(id);
+            response.put("success", true);
+            response.put("message", "PROCESANDO".equals(estado.estado())
+                    ? "Cancelación solicitada, el reporte se detiene en la próxima fila"
+                    : "Reporte en estado " + estado.estado());
+            response.put("data", estado);
+            return ResponseEntity.ok(response);
+        } catch (BusinessException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
         } catch (Exception e) {
             response.put("success", false);
-            response.put("message", "Error al generar reporte de compras: " + e.getMessage());
+            response.put("message", "Error al cancelar el reporte: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
     
     /**
-     * Generar reporte de inventario
+     * Descargar el archivo comprimido (gzip) con los resultados de un reporte.
+     * Acepta un rango de bytes (Range) para reanudar descargas; el archivo se envía con sendfile cuando
+     * el servidor lo permite, si no se copia por el canal del archivo sin leerlo entero.
      */
-    @PostMapping("/generar/inventario")
-    public ResponseEntity<Map<String, Object>> generarReporteInventario(@RequestParam Long usuarioId) {
+    @GetMapping("/{id}/archivo")
+    public void descargarArchivo(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Optional<ArchivoReporte> archivoOpt = reporteService.obtenerArchivo(id);
+        if (archivoOpt.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "Reporte sin resultados");
+            return;
+        }
+        ArchivoReporte archivo = archivoOpt.get();
+        long tamano = archivo.tamano();
+        // El contenido no cambia nunca para un mismo hash
+        String etag = "\"" + archivo.hash() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("reporte-" + id + AlmacenReportesService.EXTENSION).build().toString());
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        
+        long inicio = 0;
+        long fin = tamano - 1;
+        String rango = request.getHeader(HttpHeaders.RANGE);
+        String siRango = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rango != null && (siRango == null || etag.equals(siRango))) {
+            try {
+                List<HttpRange> rangos = HttpRange.parseRanges(rango);
+                if (rangos.size() != 1) {
+                    throw new IllegalArgumentException("Solo se admite un rango por petición");
+                }
+                inicio = rangos.get(0).getRangeStart(tamano);
+                fin = rangos.get(0).getRangeEnd(tamano);
+                // Un rango que empieza en el tamaño del archivo o después no tiene bytes que enviar
+                if (inicio >= tamano || inicio > fin) {
+                    throw new IllegalArgumentException("El rango pedido está fuera del archivo");
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), e.getMessage());
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamano);
+        }
+        response.setContentType("application/gzip");
+        enviarArchivo(archivo, inicio, fin - inicio + 1, request, response);
+    }
+    
+    /**
+     * Descargar el JSON de resultados de un reporte: si el cliente acepta gzip se envía el archivo tal cual
+     * con Content-Encoding: gzip, si no se descomprime mientras se envía
+     */
+    @GetMapping("/{id}/resultados")
+    public void descargarResultados(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Optional<ArchivoReporte> archivoOpt = reporteService.obtenerArchivo(id);
+        if (archivoOpt.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "Reporte sin resultados");
+            return;
+        }
+        ArchivoReporte archivo = archivoOpt.get();
+        response.setHeader(HttpHeaders.ETAG, "\"" + archivo.hash() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        String aceptaCodificacion = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (aceptaCodificacion != null && aceptaCodificacion.toLowerCase().contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            enviarArchivo(archivo, 0, archivo.tamano(), request, response);
+        } else {
+            almacenReportesService.copiarDescomprimido(archivo.url(), response.getOutputStream());
+        }
+    }
+    
+    /**
+     * Migrar al almacén los resultados que todavía están en la columna resultados de la tabla reportes
+     */
+    @PostMapping("/almacen/migrar")
+    public ResponseEntity<Map<String, Object>> migrarResultados(@RequestParam(defaultValue = "500") int limite) {
         Map<String, Object> response = new HashMap<>();
         try {
+            int migrados = reporteService.migrarResultadosLegados(Math.max(1, Math.min(limite, 10_000)));
+            response.put("success", true);
+            response.put("message", migrados + " reportes migrados al almacén");
+            response.put("data", Map.of("migrados", migrados));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al migrar los resultados: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    // Con Tomcat (conector NIO) el archivo lo envía el sistema operativo con sendfile al terminar la petición
+    private void enviarArchivo(ArchivoReporte archivo, long inicio, long longitud, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(longitud);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            request.setAttribute(SENDFILE_ARCHIVO, archivo.ruta().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, inicio + longitud);
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(archivo.ruta(), StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long enviados = 0;
+            while (enviados < longitud) {
+                long n = canal.transferTo(inicio + enviados, longitud - enviados, salida);
+                if (n <= 0) {
+                    break;
+                }
+                enviados += n;
+            }
+        }
+    }
+    
+    private ResponseEntity<Map<String, Object>> enviarReporte(String tipoReporte, String fechaInicio, String fechaFin,
+                                                              Long usuarioId, List<String> agrupaciones,
+                                                              Integer prioridad) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            LocalDate inicio = fechaInicio != null ? LocalDate.parse(fechaInicio) : null;
+            LocalDate fin = fechaFin != null ? LocalDate.parse(fechaFin) : null;
             Optional<Usuario> usuarioOpt = usuarioService.obtenerUsuarioPorId(usuarioId);
             
             if (usuarioOpt.isPresent()) {
-                Reporte reporte = reporteService.generarReporteInventario(usuarioOpt.get());
+                EstadoTrabajoReporte estado = trabajosReportesService.enviar(
+                        tipoReporte, inicio, fin, usuarioOpt.get(), agrupaciones, prioridad);
                 response.put("success", true);
-                response.put("message", "Reporte de inventario generado exitosamente");
-                response.put("data", reporte);
-                return ResponseEntity.ok(response);
+                response.put("message", "Reporte en proceso");
+                response.put("data", estado);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
             } else {
                 response.put("success", false);
                 response.put("message", "Usuario no encontrado");
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
+        } catch (BusinessException | DateTimeParseException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (ConflictException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
         } catch (Exception e) {
             response.put("success", false);
-            response.put("message", "Error al generar reporte de inventario: " + e.getMessage());
+            response.put("message", "Error al pedir el reporte: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
@@ -0,0 +1,92 @@
+package com.proyectoavanzada.backend.controller;
+
+import com.proyectoavanzada.backend.dto.ReservaStock;
+import com.proyectoavanzada.backend.dto.SolicitudReserva;
+import com.proyectoavanzada.backend.service.ReservaStockService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/reservas")
+@Tag(name = "Reservas de Stock", description = "Reservas temporales de stock entre el carrito y el pago")
+public class ReservaController {
+
+    @Autowired
+    private ReservaStockService reservaStockService;
+
+    /**
+     * Reservar stock hasta que se cree la venta o venza la reserva
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> reservar(@RequestBody SolicitudReserva solicitud) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ReservaStock reserva = reservaStockService.reservar(solicitud);
+            response.put("success", true);
+            response.put("message", "Reserva creada exitosamente");
+            response.put("data", reserva);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al crear la reserva: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    /**
+     * Obtener una reserva vigente
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> obtenerReserva(@PathVariable String id) {
+        Map<String, Object> response = new HashMap<>();
+        Optional<ReservaStock> reservaOpt = reservaStockService.obtenerReserva(id);
+        if (reservaOpt.isPresent()) {
+            response.put("success", true);
+            response.put("data", reservaOpt.get());
+            return ResponseEntity.ok(response);
+        }
+        response.put("success", false);
+        response.put("message", "Reserva no encontrada o vencida");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    /**
+     * Liberar una reserva antes de que venza
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> liberarReserva(@PathVariable String id) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            if (!reservaStockService.liberar(id)) {
+                response.put("success", false);
+                response.put("message", "Reserva no encontrada o vencida");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            response.put("success", true);
+            response.put("message", "Reserva liberada exitosamente");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al liberar la reserva: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    /**
+     * Estadísticas de las reservas en memoria de este nodo
+     */
+    @GetMapping("/estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticas() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", reservaStockService.obtenerEstadisticas());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,10 +1,20 @@
 package com.proyectoavanzada.backend.controller;
 
+import com.proyectoavanzada.backend.dto.ConsultaCuboVentas;
+import com.proyectoavanzada.backend.dto.ResultadoCambioEstado;
+import com.proyectoavanzada.backend.dto.ResultadoCuboVentas;
+import com.proyectoavanzada.backend.dto.ResultadoIngestaVentas;
+import com.proyectoavanzada.backend.dto.SolicitudCambioEstado;
+import com.proyectoavanzada.backend.exception.BusinessException;
 import com.proyectoavanzada.backend.model.Venta;
 import com.proyectoavanzada.backend.model.DetalleVenta;
 import com.proyectoavanzada.backend.model.Cliente;
 import com.proyectoavanzada.backend.model.Usuario;
 import com.proyectoavanzada.backend.service.VentaService;
+import com.proyectoavanzada.backend.service.CuboVentas;
+import com.proyectoavanzada.backend.service.ExportacionService;
+import com.proyectoavanzada.backend.service.IngestaVentasService;
+import com.proyectoavanzada.backend.service.IdempotenciaService;
 import com.proyectoavanzada.backend.service.ClienteService;
 import com.proyectoavanzada.backend.service.UsuarioService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -15,18 +25,25 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/ventas")
@@ -42,6 +59,15 @@ public class VentaController {
     @Autowired
     private UsuarioService usuarioService;
     
+    @Autowired
+    private IngestaVentasService ingestaVentasService;
+    
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+    
+    @Autowired
+    private ExportacionService exportacionService;
+    
     /**
      * Obtener todas las ventas
      */
@@ -179,6 +205,122 @@ public class VentaController {
         }
     }
     
+    /**
+     * Exportar ventas de un rango de fechas en CSV o NDJSON (opcionalmente comprimido con gzip).
+     * Las filas se escriben a medida que se leen, sin cargar el rango completo en memoria.
+     */
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarVentas(
+            @RequestParam String fechaInicio, 
+            @RequestParam String fechaFin,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean comprimir) {
+        LocalDateTime inicio = exportacionService.parsearFecha(fechaInicio);
+        LocalDateTime fin = exportacionService.parsearFecha(fechaFin);
+        String formatoExportacion = exportacionService.validarFormato(formato);
+        return exportacionService.respuesta("ventas", formatoExportacion, comprimir,
+                salida -> exportacionService.exportarVentas(inicio, fin, formatoExportacion, comprimir, salida));
+    }
+    
+    /**
+     * Exportar los detalles de las ventas de un rango de fechas en CSV o NDJSON (opcionalmente comprimido con gzip)
+     */
+    @GetMapping("/detalles/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarDetallesVenta(
+            @RequestParam String fechaInicio, 
+            @RequestParam String fechaFin,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean comprimir) {
+        LocalDateTime inicio = exportacionService.parsearFecha(fechaInicio);
+        LocalDateTime fin = exportacionService.parsearFecha(fechaFin);
+        String formatoExportacion = exportacionService.validarFormato(formato);
+        return exportacionService.respuesta("detalles_venta", formatoExportacion, comprimir,
+                salida -> exportacionService.exportarDetallesVenta(inicio, fin, formatoExportacion, comprimir, salida));
+    }
+    
+    /**
+     * Consultar el cubo de ventas en memoria
+     */
+    @Operation(
+        summary = "Cubo de ventas",
+        description = "Agrupa las líneas de las ventas vigentes por periodo (dia, semana o mes) y por categoria, marca, " +
+                      "genero, talla, color, metodoPago o vendedor, y las filtra por esas mismas dimensiones. " +
+                      "Se resuelve en memoria, sin consultar la base de datos; las ventas nuevas aparecen en segundos " +
+                      "y las cancelaciones y devoluciones con la recarga periódica del cubo"
+    )
+    @GetMapping("/cubo")
+    public ResponseEntity<Map<String, Object>> consultarCuboVentas(
+            @Parameter(description = "Periodo y dimensiones por las que se agrupa")
+            @RequestParam(required = false) List<String> agrupar,
+            @Parameter(description = "Primer día incluido (2024-01-01)")
+            @RequestParam(required = false) String fechaInicio,
+            @Parameter(description = "Último día incluido (2024-01-31)")
+            @RequestParam(required = false) String fechaFin,
+            @RequestParam(required = false) List<String> categoria,
+            @RequestParam(required = false) List<String> marca,
+            @RequestParam(required = false) List<String> genero,
+            @RequestParam(required = false) List<String> talla,
+            @RequestParam(required = false) List<String> color,
+            @RequestParam(required = false) List<String> metodoPago,
+            @Parameter(description = "Ids de los vendedores")
+            @RequestParam(required = false) List<Long> vendedor,
+            @Parameter(description = "Cantidad máxima de grupos a retornar, ordenados por monto")
+            @RequestParam(defaultValue = "100") int limite) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            LocalDate inicio = fechaInicio != null ? LocalDate.parse(fechaInicio) : null;
+            LocalDate fin = fechaFin != null ? LocalDate.parse(fechaFin) : null;
+            Map<String, Set<String>> filtros = new HashMap<>();
+            agregarFiltroCubo(filtros, CuboVentas.CATEGORIA, categoria);
+            agregarFiltroCubo(filtros, CuboVentas.MARCA, marca);
+            agregarFiltroCubo(filtros, CuboVentas.GENERO, genero);
+            agregarFiltroCubo(filtros, CuboVentas.TALLA, talla);
+            agregarFiltroCubo(filtros, CuboVentas.COLOR, color);
+            agregarFiltroCubo(filtros, CuboVentas.METODO_PAGO, metodoPago);
+            agregarFiltroCubo(filtros, CuboVentas.VENDEDOR, vendedor);
+            
+            ResultadoCuboVentas resultado = ventaService.consultarCuboVentas(
+                new ConsultaCuboVentas(agrupar, inicio, fin, filtros, limite));
+            response.put("success", true);
+            response.put("data", resultado.filas());
+            response.put("total", resultado.grupos());
+            response.put("lineasRecorridas", resultado.lineasRecorridas());
+            response.put("lineasSeleccionadas", resultado.lineasSeleccionadas());
+            response.put("microsegundos", resultado.microsegundos());
+            return ResponseEntity.ok(response);
+        } catch (BusinessException | DateTimeParseException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al consultar el cubo de ventas: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    /**
+     * Volver a cargar el cubo de ventas desde la base de datos
+     */
+    @Operation(
+        summary = "Recargar el cubo de ventas",
+        description = "Vuelve a cargar todas las líneas de venta vigentes, sin esperar a la recarga periódica"
+    )
+    @PostMapping("/cubo/recargar")
+    public ResponseEntity<Map<String, Object>> recargarCuboVentas() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("message", "Cubo de ventas recargado");
+            response.put("data", ventaService.recargarCuboVentas());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al recargar el cubo de ventas: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
     /**
      * Obtener ventas completadas
      */
@@ -259,18 +401,47 @@ public class VentaController {
      * Crear nueva venta
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> crearVenta(@RequestBody Venta venta) {
+    public ResponseEntity<?> crearVenta(@RequestBody Venta venta,
+            @RequestHeader(value = IdempotenciaService.CABECERA, required = false) String claveIdempotencia,
+            HttpServletRequest request) {
+        // Con Idempotency-Key, un reintento de la misma venta devuelve la respuesta original sin volver a crearla
+        return idempotenciaService.ejecutar(IdempotenciaService.VENTAS, claveIdempotencia, request, () -> {
+            Map<String, Object> response = new HashMap<>();
+            try {
+                // El servicio se encargará de validar y cargar los objetos necesarios
+                Venta ventaGuardada = ventaService.crearVenta(venta);
+                response.put("success", true);
+                response.put("message", "Venta creada exitosamente");
+                response.put("data", ventaGuardada);
+                return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            } catch (Exception e) {
+                response.put("success", false);
+                response.put("message", "Error al crear venta: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+        });
+    }
+    
+    /**
+     * Crear ventas en lote (sincronización de puntos de venta sin conexión).
+     * Recibe un arreglo JSON de ventas y devuelve el resultado de cada una.
+     */
+    @PostMapping("/lote")
+    public ResponseEntity<Map<String, Object>> crearVentasEnLote(InputStream cuerpo) {
         Map<String, Object> response = new HashMap<>();
         try {
-            // El servicio se encargará de validar y cargar los objetos necesarios
-            Venta ventaGuardada = ventaService.crearVenta(venta);
-            response.put("success", true);
-            response.put("message", "Venta creada exitosamente");
-            response.put("data", ventaGuardada);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            ResultadoIngestaVentas resultado = ingestaVentasService.ingerirVentas(cuerpo);
+            response.put("success", resultado.errorLectura() == null);
+            response.put("message", resultado.errorLectura() != null
+                    ? "Lote leído parcialmente: " + resultado.errorLectura()
+                    : "Ventas procesadas: " + resultado.creadas() + " creadas, " + resultado.rechazadas() + " rechazadas");
+            response.put("data", resultado);
+            return resultado.errorLectura() == null
+                    ? ResponseEntity.ok(response)
+                    : ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         } catch (Exception e) {
             response.put("success", false);
-            response.put("message", "Error al crear venta: " + e.getMessage());
+            response.put("message", "Error al crear ventas en lote: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
     }
@@ -370,6 +541,27 @@ public class VentaController {
         }
     }
     
+    /**
+     * Cambiar el estado de varias ventas en una sola transacción (por ejemplo, en el cierre del día).
+     * Devuelve el resultado de cada venta; las transiciones no permitidas se informan sin aplicar.
+     */
+    @PutMapping("/estado")
+    public ResponseEntity<Map<String, Object>> cambiarEstadoVentas(@RequestBody SolicitudCambioEstado solicitud) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ResultadoCambioEstado resultado = ventaService.cambiarEstadoVentas(solicitud.ventaIds(), solicitud.estado());
+            response.put("success", true);
+            response.put("message", "Ventas procesadas: " + resultado.aplicadas() + " cambiadas, "
+                    + resultado.sinCambios() + " sin cambios, " + resultado.rechazadas() + " rechazadas");
+            response.put("data", resultado);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error al cambiar el estado de las ventas: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+    
     /**
      * Agregar detalle a venta
      */
@@ -496,4 +688,10 @@ public class VentaController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+    
+    private void agregarFiltroCubo(Map<String, Set<String>> filtros, String dimension, List<?> valores) {
+        if (valores != null && !valores.isEmpty()) {
+            filtros.put(dimension, valores.stream().map(String::valueOf).collect(Collectors.toSet()));
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consulta sobre el cubo de ventas en memoria.
+ * Los valores de una misma dimensión se combinan con OR y las distintas dimensiones con AND.
+ * @param agrupaciones periodo (dia, semana o mes) y dimensiones por las que se agrupa; vacía para un único total
+ * @param desde primer día incluido, null para no limitar
+ * @param hasta último día incluido, null para no limitar
+ * @param filtros valores seleccionados por dimensión (categoria, marca, genero, talla, color, metodoPago, vendedor)
+ * @param limite cantidad máxima de grupos a retornar, ordenados por monto de mayor a menor
+ */
+public record ConsultaCuboVentas(List<String> agrupaciones,
+                                 LocalDate desde,
+                                 LocalDate hasta,
+                                 Map<String, Set<String>> filtros,
+                                 int limite) {
+}
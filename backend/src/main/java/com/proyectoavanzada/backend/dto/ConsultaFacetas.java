@@ -0,0 +1,21 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consulta sobre el índice de facetas de productos.
+ * Los valores de una misma faceta se combinan con OR y las distintas facetas con AND.
+ * @param filtros valores seleccionados por faceta (genero, edadTarget, materialPrincipal, tecnologia, tipoSuela, categoriaId, marcaId)
+ * @param precioMin precio de venta mínimo, null para no filtrar
+ * @param precioMax precio de venta máximo, null para no filtrar
+ * @param pesoMin peso mínimo en gramos, null para no filtrar
+ * @param pesoMax peso máximo en gramos, null para no filtrar
+ */
+public record ConsultaFacetas(Map<String, Set<String>> filtros,
+                              BigDecimal precioMin,
+                              BigDecimal precioMax,
+                              Integer pesoMin,
+                              Integer pesoMax) {
+}
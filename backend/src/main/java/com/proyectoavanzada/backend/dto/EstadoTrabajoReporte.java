@@ -0,0 +1,22 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado de un reporte que se genera en segundo plano
+ * @param reporteId id del reporte en la tabla reportes
+ * @param tipoReporte VENTAS, COMPRAS o INVENTARIO
+ * @param usuarioId usuario que pidió el reporte
+ * @param estado PROCESANDO, GENERADO, ERROR o CANCELADO
+ * @param progreso avance de 0 a 100
+ * @param prioridad prioridad en la cola, de 0 a 9 (mayor se atiende antes)
+ * @param posicionEnCola trabajos que se atienden antes que este, o null si ya empezó o terminó
+ * @param enviado momento en que se pidió
+ * @param iniciado momento en que un hilo lo tomó, o null si sigue en la cola
+ * @param terminado momento en que terminó, o null si sigue en curso
+ * @param mensaje motivo del error o de la cancelación
+ */
+public record EstadoTrabajoReporte(Long reporteId, String tipoReporte, Long usuarioId, String estado, int progreso,
+                                   int prioridad, Integer posicionEnCola, LocalDateTime enviado,
+                                   LocalDateTime iniciado, LocalDateTime terminado, String mensaje) {
+}
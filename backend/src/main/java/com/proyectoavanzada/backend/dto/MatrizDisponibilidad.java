@@ -0,0 +1,22 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disponibilidad de un producto por talla y color, para armar la página de detalle en una sola llamada
+ * @param productoId id del producto
+ * @param tallas tallas con al menos una presentación activa, en orden
+ * @param colores colores con al menos una presentación activa, en orden
+ * @param celdas talla -> color -> presentación; las combinaciones que no existen no aparecen
+ */
+public record MatrizDisponibilidad(Long productoId, List<String> tallas, List<String> colores,
+                                   Map<String, Map<String, Celda>> celdas) {
+
+    /**
+     * Presentación de una combinación de talla y color
+     */
+    public record Celda(Long presentacionId, Integer stockDisponible, BigDecimal precioEspecial) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.util.List;
+
+/**
+ * Página de resultados obtenida con paginación por cursor (keyset)
+ * @param elementos elementos de la página ordenados por id
+ * @param siguienteCursor token opaco para pedir la siguiente página, null si no hay más
+ * @param hayMas indica si existen más elementos después de esta página
+ */
+public record PaginaCursor<T>(List<T> elementos, String siguienteCursor, boolean hayMas) {
+}
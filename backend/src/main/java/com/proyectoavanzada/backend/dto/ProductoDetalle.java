@@ -0,0 +1,61 @@
+package com.proyectoavanzada.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.proyectoavanzada.backend.model.Producto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Vista de solo lectura de un producto para las consultas por id y por código.
+ * Es lo que guarda la caché del catálogo en lugar de la entidad, que es mutable y la compartirían todos los hilos;
+ * la categoría y la marca van como referencia (id y nombre), igual que en ProductoResumen.
+ */
+public record ProductoDetalle(
+    Long id,
+    String nombre,
+    String descripcion,
+    String codigoProducto,
+    Long categoriaId,
+    Long marcaId,
+    BigDecimal precioVenta,
+    BigDecimal precioCompra,
+    BigDecimal precioConDescuento,
+    String imagenPrincipal,
+    String imagenesAdicionales,
+    String genero,
+    String edadTarget,
+    String materialPrincipal,
+    String tipoSuela,
+    String tecnologia,
+    Integer pesoGramos,
+    Integer garantiaMeses,
+    Integer stockMinimo,
+    Boolean esDestacado,
+    Boolean esNuevo,
+    BigDecimal descuentoPorcentaje,
+    Long unidadesVendidas,
+    Boolean activo,
+    LocalDateTime fechaCreacion,
+    LocalDateTime fechaActualizacion,
+    @JsonInclude(JsonInclude.Include.NON_NULL) ProductoResumen.Referencia categoria,
+    @JsonInclude(JsonInclude.Include.NON_NULL) ProductoResumen.Referencia marca) {
+
+    /**
+     * Copiar los datos de la entidad (la categoría y la marca deben estar cargadas)
+     */
+    public static ProductoDetalle desde(Producto producto) {
+        return new ProductoDetalle(producto.getId(), producto.getNombre(), producto.getDescripcion(),
+            producto.getCodigoProducto(), producto.getCategoriaId(), producto.getMarcaId(), producto.getPrecioVenta(),
+            producto.getPrecioCompra(), producto.getPrecioConDescuento(), producto.getImagenPrincipal(),
+            producto.getImagenesAdicionales(), producto.getGenero(), producto.getEdadTarget(),
+            producto.getMaterialPrincipal(), producto.getTipoSuela(), producto.getTecnologia(), producto.getPesoGramos(),
+            producto.getGarantiaMeses(), producto.getStockMinimo(), producto.getEsDestacado(), producto.getEsNuevo(),
+            producto.getDescuentoPorcentaje(), producto.getUnidadesVendidas(), producto.getActivo(),
+            producto.getFechaCreacion(), producto.getFechaActualizacion(),
+            producto.getCategoria() != null
+                ? new ProductoResumen.Referencia(producto.getCategoria().getId(), producto.getCategoria().getNombre()) : null,
+            producto.getMarca() != null
+                ? new ProductoResumen.Referencia(producto.getMarca().getId(), producto.getMarca().getNombre()) : null);
+    }
+}
@@ -0,0 +1,73 @@
+package com.proyectoavanzada.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Vista de solo lectura de un producto para los listados del catálogo.
+ * Se llena con proyecciones JPQL que leen solo estas columnas y el nombre de la categoría y la marca,
+ * sin hidratar entidades; el stock se completa después con una consulta agrupada sobre inventario.
+ */
+public record ProductoResumen(
+    Long id,
+    String nombre,
+    String descripcion,
+    String codigoProducto,
+    Long categoriaId,
+    Long marcaId,
+    BigDecimal precioVenta,
+    BigDecimal precioCompra,
+    String imagenPrincipal,
+    String imagenesAdicionales,
+    String genero,
+    String edadTarget,
+    String materialPrincipal,
+    String tipoSuela,
+    String tecnologia,
+    Integer pesoGramos,
+    Integer garantiaMeses,
+    Integer stockMinimo,
+    Boolean esDestacado,
+    Boolean esNuevo,
+    BigDecimal descuentoPorcentaje,
+    Boolean activo,
+    LocalDateTime fechaCreacion,
+    LocalDateTime fechaActualizacion,
+    Integer stock,
+    @JsonInclude(JsonInclude.Include.NON_NULL) Referencia categoria,
+    @JsonInclude(JsonInclude.Include.NON_NULL) Referencia marca) {
+
+    /**
+     * Id y nombre de la categoría o marca del producto
+     */
+    public record Referencia(Long id, String nombre) {
+    }
+
+    /**
+     * Constructor usado por las proyecciones de ProductoRepository (el stock queda en 0 hasta completarlo)
+     */
+    public ProductoResumen(Long id, String nombre, String descripcion, String codigoProducto,
+                           BigDecimal precioVenta, BigDecimal precioCompra, String imagenPrincipal, String imagenesAdicionales,
+                           String genero, String edadTarget, String materialPrincipal, String tipoSuela, String tecnologia,
+                           Integer pesoGramos, Integer garantiaMeses, Integer stockMinimo, Boolean esDestacado, Boolean esNuevo,
+                           BigDecimal descuentoPorcentaje, Boolean activo, LocalDateTime fechaCreacion, LocalDateTime fechaActualizacion,
+                           Long categoriaId, String categoriaNombre, Long marcaId, String marcaNombre) {
+        this(id, nombre, descripcion, codigoProducto, categoriaId, marcaId, precioVenta, precioCompra, imagenPrincipal,
+             imagenesAdicionales, genero, edadTarget, materialPrincipal, tipoSuela, tecnologia, pesoGramos, garantiaMeses,
+             stockMinimo, esDestacado, esNuevo, descuentoPorcentaje, activo, fechaCreacion, fechaActualizacion, 0,
+             categoriaId != null ? new Referencia(categoriaId, categoriaNombre) : null,
+             marcaId != null ? new Referencia(marcaId, marcaNombre) : null);
+    }
+
+    /**
+     * Copia del resumen con el stock calculado desde inventario
+     */
+    public ProductoResumen conStock(Integer stock) {
+        return new ProductoResumen(id, nombre, descripcion, codigoProducto, categoriaId, marcaId, precioVenta, precioCompra,
+            imagenPrincipal, imagenesAdicionales, genero, edadTarget, materialPrincipal, tipoSuela, tecnologia, pesoGramos,
+            garantiaMeses, stockMinimo, esDestacado, esNuevo, descuentoPorcentaje, activo, fechaCreacion, fechaActualizacion,
+            stock, categoria, marca);
+    }
+}
@@ -0,0 +1,13 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reserva de stock vigente
+ * @param id identificador a enviar como reservaId al crear la venta
+ * @param lineas unidades reservadas, agrupadas por presentación o producto
+ * @param expiraEn instante en que la reserva se libera si no se usó
+ */
+public record ReservaStock(String id, List<SolicitudReserva.Linea> lineas, Instant expiraEn) {
+}
@@ -0,0 +1,24 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de un cambio de estado en lote de ventas
+ * @param estado estado destino pedido
+ * @param solicitadas ventas distintas incluidas en el pedido
+ * @param aplicadas ventas que cambiaron de estado
+ * @param sinCambios ventas que ya estaban en el estado destino
+ * @param rechazadas ventas inexistentes, eliminadas o con una transición no permitida
+ * @param resultados resultado de cada venta, en el orden en que llegaron
+ */
+public record ResultadoCambioEstado(String estado, int solicitadas, int aplicadas, int sinCambios, int rechazadas,
+                                    List<Linea> resultados) {
+
+    /**
+     * Resultado de una venta del pedido
+     * @param estadoAnterior estado de la venta antes del cambio, o null si no existe
+     * @param mensaje motivo del rechazo o aviso de que no hubo cambios, o null si se aplicó
+     */
+    public record Linea(Long ventaId, String estadoAnterior, boolean exito, String mensaje) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de una consulta sobre el cubo de ventas
+ * @param filas un mapa por grupo con los valores de las agrupaciones, lineas, unidades y monto
+ * @param grupos cantidad total de grupos, antes de aplicar el límite
+ * @param lineasRecorridas líneas de venta cargadas en el cubo al momento de la consulta
+ * @param lineasSeleccionadas líneas que cumplen el rango de fechas y los filtros
+ * @param microsegundos duración del recorrido y la agregación
+ */
+public record ResultadoCuboVentas(List<Map<String, Object>> filas,
+                                  int grupos,
+                                  long lineasRecorridas,
+                                  long lineasSeleccionadas,
+                                  long microsegundos) {
+}
@@ -0,0 +1,13 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de una búsqueda por facetas
+ * @param productoIds ids de los productos que cumplen la consulta, ordenados por id
+ * @param total cantidad total de productos que cumplen la consulta
+ * @param conteos cantidad de productos por cada valor de cada faceta, aplicando el resto de filtros
+ */
+public record ResultadoFacetas(List<Long> productoIds, int total, Map<String, Map<String, Integer>> conteos) {
+}
@@ -0,0 +1,26 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de la carga en lote de ventas sincronizadas desde los puntos de venta
+ * @param recibidas ventas leídas del cuerpo de la petición
+ * @param creadas ventas guardadas
+ * @param rechazadas ventas que no se guardaron; el motivo está en su resultado
+ * @param milisegundos duración de la carga
+ * @param errorLectura motivo por el que se dejó de leer el cuerpo, o null si se leyó completo
+ * @param resultados resultado de cada venta, en el orden en que llegaron
+ */
+public record ResultadoIngestaVentas(int recibidas, int creadas, int rechazadas, long milisegundos,
+                                     String errorLectura, List<Linea> resultados) {
+
+    /**
+     * Resultado de una venta del lote
+     * @param indice posición de la venta en el arreglo recibido, desde 0
+     * @param numeroVenta número asignado o recibido
+     * @param ventaId id de la venta creada, o null si se rechazó
+     * @param mensaje motivo del rechazo, o null si se creó
+     */
+    public record Linea(int indice, String numeroVenta, Long ventaId, boolean exito, String mensaje) {
+    }
+}
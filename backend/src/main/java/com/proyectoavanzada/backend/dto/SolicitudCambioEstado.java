@@ -0,0 +1,11 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.util.List;
+
+/**
+ * Pedido de cambio de estado de varias ventas a la vez (por ejemplo, en el cierre del día)
+ * @param ventaIds ventas a cambiar; los ids repetidos se procesan una vez
+ * @param estado estado destino: COMPLETADA, CANCELADA o DEVUELTA
+ */
+public record SolicitudCambioEstado(List<Long> ventaIds, String estado) {
+}
@@ -0,0 +1,17 @@
+package com.proyectoavanzada.backend.dto;
+
+import java.util.List;
+
+/**
+ * Pedido de reserva de stock para el tiempo entre el carrito y el pago
+ * @param lineas unidades a reservar por presentación, o por producto si la línea no tiene presentación
+ * @param ttlSegundos duración de la reserva; si no se indica se usa la duración configurada
+ */
+public record SolicitudReserva(List<Linea> lineas, Long ttlSegundos) {
+
+    /**
+     * Unidades de una presentación o de un producto sin presentación
+     */
+    public record Linea(Long productoId, Long presentacionId, Integer cantidad) {
+    }
+}
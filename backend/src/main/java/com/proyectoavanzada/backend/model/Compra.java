@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -11,8 +12,21 @@ import java.util.List;
 
 @Entity
 @Table(name = "compras")
+@NamedEntityGraph(name = Compra.GRAFO_DETALLES,
+    attributeNodes = {
+        @NamedAttributeNode("proveedor"),
+        @NamedAttributeNode("usuario"),
+        @NamedAttributeNode(value = "detallesCompra", subgraph = "detalle")
+    },
+    subgraphs = {
+        @NamedSubgraph(name = "detalle", attributeNodes = @NamedAttributeNode(value = "producto", subgraph = "producto")),
+        @NamedSubgraph(name = "producto", attributeNodes = {@NamedAttributeNode("categoria"), @NamedAttributeNode("marca")})
+    })
 public class Compra {
     
+    // Compras con proveedor, usuario, detalles y el producto, categoría y marca de cada detalle, en una sola consulta
+    public static final String GRAFO_DETALLES = "Compra.detalles";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -73,6 +87,7 @@ public class Compra {
     
     // Relaciones
     @OneToMany(mappedBy = "compra", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "compra"})
     private List<DetalleCompra> detallesCompra;
     
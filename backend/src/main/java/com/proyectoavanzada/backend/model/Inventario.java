@@ -3,11 +3,15 @@ package com.proyectoavanzada.backend.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "inventario")
+// Solo se escriben las columnas modificadas: el stock se mueve con UPDATE condicionales (MovimientoStockService)
+// y guardar la entidad por otro cambio no debe reescribirlo con el valor leído antes
+@DynamicUpdate
 public class Inventario {
     
     @Id
@@ -1,9 +1,11 @@
 package com.proyectoavanzada.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -11,6 +13,9 @@ import java.util.List;
 
 @Entity
 @Table(name = "presentaciones")
+// Solo se escriben las columnas modificadas: el stock se mueve con UPDATE condicionales (MovimientoStockService)
+// y guardar la entidad por otro cambio no debe reescribirlo con el valor leído antes
+@DynamicUpdate
 public class Presentacion {
     
     @Id
@@ -36,7 +41,7 @@ public class Presentacion {
     @Column(name = "imagen_url")
     private String imagenUrl;
     
-    @Positive(message = "El stock debe ser mayor o igual a 0")
+    @PositiveOrZero(message = "El stock debe ser mayor o igual a 0")
     @Column(name = "stock_disponible")
     private Integer stockDisponible = 0;
     
@@ -67,6 +72,11 @@ public class Presentacion {
     @Column(name = "material_especifico")
     private String materialEspecifico; // Material específico de esta presentación
     
+    // Contador de unidades vendidas; solo se modifica con actualizaciones atómicas desde ContadorVentasService
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "unidades_vendidas", insertable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long unidadesVendidas = 0L;
+    
     // Relaciones
     @OneToMany(mappedBy = "presentacion", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<DetalleCompra> detallesCompra;
@@ -219,6 +229,14 @@ public class Presentacion {
         this.materialEspecifico = materialEspecifico;
     }
     
+    public Long getUnidadesVendidas() {
+        return unidadesVendidas;
+    }
+    
+    public void setUnidadesVendidas(Long unidadesVendidas) {
+        this.unidadesVendidas = unidadesVendidas;
+    }
+    
     public List<DetalleCompra> getDetallesCompra() {
         return detallesCompra;
     }
@@ -1,6 +1,7 @@
 package com.proyectoavanzada.backend.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -96,6 +97,11 @@ public class Producto {
     @Column(name = "descuento_porcentaje")
     private BigDecimal descuentoPorcentaje = BigDecimal.ZERO;
     
+    // Contador de unidades vendidas; solo se modifica con actualizaciones atómicas desde ContadorVentasService
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "unidades_vendidas", insertable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long unidadesVendidas = 0L;
+    
     // Relaciones
     @OneToMany(mappedBy = "producto", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
@@ -330,6 +336,14 @@ public class Producto {
         this.descuentoPorcentaje = descuentoPorcentaje;
     }
     
+    public Long getUnidadesVendidas() {
+        return unidadesVendidas;
+    }
+    
+    public void setUnidadesVendidas(Long unidadesVendidas) {
+        this.unidadesVendidas = unidadesVendidas;
+    }
+    
     public List<Presentacion> getPresentaciones() {
         return presentaciones;
     }
@@ -1,5 +1,6 @@
 package com.proyectoavanzada.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -37,29 +38,35 @@ public class Reporte {
     @NotNull(message = "El usuario que genera el reporte es obligatorio")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
     private Usuario usuario;
     
     @Column(name = "parametros", columnDefinition = "TEXT")
     private String parametros; // JSON con parámetros del reporte
     
-    @Column(name = "resultados", columnDefinition = "LONGTEXT")
-    private String resultados; // JSON con los resultados del reporte
+    // El JSON de resultados se guarda comprimido en el almacén de reportes (archivoUrl); aquí solo queda
+    // al generar el reporte, para devolverlo en la misma respuesta
+    @Transient
+    private String resultados;
     
     @Column(name = "estado")
-    private String estado = "GENERADO"; // GENERADO, PROCESANDO, ERROR
+    private String estado = "GENERADO"; // GENERADO, PROCESANDO, ERROR, CANCELADO
     
     @Column(name = "archivo_url")
-    private String archivoUrl; // URL del archivo generado (PDF, Excel, etc.)
+    private String archivoUrl; // URL del archivo generado (almacen://reportes/<sha256>.json.gz para los JSON)
     
     @Column(name = "formato")
     private String formato; // PDF, EXCEL, CSV, JSON
     
     @Column(name = "tamaño_archivo")
-    private Long tamañoArchivo; // Tamaño en bytes
+    private Long tamañoArchivo; // Tamaño en bytes (comprimido en el almacén)
     
     @Column(name = "activo")
     private Boolean activo = true;
     
+    @Column(name = "nodo", length = 100)
+    private String nodo; // Nodo del backend que genera el reporte en segundo plano (reportes.trabajos.nodo)
+    
     // Constructores
     public Reporte() {
         this.fechaGeneracion = LocalDateTime.now();
@@ -193,6 +200,14 @@ public class Reporte {
         this.activo = activo;
     }
     
+    public String getNodo() {
+        return nodo;
+    }
+    
+    public void setNodo(String nodo) {
+        this.nodo = nodo;
+    }
+    
     // Métodos de negocio
     public boolean esGenerado() {
         return "GENERADO".equals(estado);
@@ -0,0 +1,116 @@
+package com.proyectoavanzada.backend.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Cantidad y monto de las ventas por día, método de pago, vendedor, estado y si la venta está activa.
+ * Se mantiene desde ContadorVentasService en la misma transacción que cada venta y sus cambios de estado,
+ * y permite sumar los totales de un rango sin recorrer la tabla ventas.
+ */
+@Entity
+@Table(name = "resumen_ventas_diario",
+       uniqueConstraints = @UniqueConstraint(name = "uk_resumen_ventas_diario",
+                                             columnNames = {"fecha", "metodo_pago", "usuario_id", "estado", "activo"}),
+       indexes = @Index(name = "idx_resumen_ventas_diario_usuario", columnList = "usuario_id, fecha"))
+public class ResumenVentaDiario {
+    
+    // Valor de metodo_pago y estado cuando la venta no los tiene (forman parte de la clave única)
+    public static final String SIN_VALOR = "";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+    
+    @Column(name = "metodo_pago", nullable = false)
+    private String metodoPago = SIN_VALOR;
+    
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+    
+    @Column(name = "estado", nullable = false)
+    private String estado = SIN_VALOR;
+    
+    @Column(name = "activo", nullable = false)
+    private Boolean activo = true;
+    
+    @Column(name = "cantidad_ventas", nullable = false)
+    private Long cantidadVentas = 0L;
+    
+    @Column(name = "monto_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal montoTotal = BigDecimal.ZERO;
+    
+    // Constructores
+    public ResumenVentaDiario() {
+    }
+    
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public LocalDate getFecha() {
+        return fecha;
+    }
+    
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+    
+    public String getMetodoPago() {
+        return metodoPago;
+    }
+    
+    public void setMetodoPago(String metodoPago) {
+        this.metodoPago = metodoPago;
+    }
+    
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+    
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+    
+    public String getEstado() {
+        return estado;
+    }
+    
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+    
+    public Boolean getActivo() {
+        return activo;
+    }
+    
+    public void setActivo(Boolean activo) {
+        this.activo = activo;
+    }
+    
+    public Long getCantidadVentas() {
+        return cantidadVentas;
+    }
+    
+    public void setCantidadVentas(Long cantidadVentas) {
+        this.cantidadVentas = cantidadVentas;
+    }
+    
+    public BigDecimal getMontoTotal() {
+        return montoTotal;
+    }
+    
+    public void setMontoTotal(BigDecimal montoTotal) {
+        this.montoTotal = montoTotal;
+    }
+}
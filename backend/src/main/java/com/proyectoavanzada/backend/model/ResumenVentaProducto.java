@@ -0,0 +1,99 @@
+package com.proyectoavanzada.backend.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Unidades y monto vendidos por día, producto y presentación.
+ * Se mantiene desde ContadorVentasService y permite consultar los más vendidos de un periodo sin recorrer detalles_venta.
+ */
+@Entity
+@Table(name = "resumen_ventas_producto",
+       uniqueConstraints = @UniqueConstraint(name = "uk_resumen_ventas_producto",
+                                             columnNames = {"fecha", "producto_id", "presentacion_id"}),
+       indexes = @Index(name = "idx_resumen_ventas_producto_fecha", columnList = "fecha, producto_id"))
+public class ResumenVentaProducto {
+    
+    // Valor de presentacion_id para las líneas vendidas sin presentación (forma parte de la clave única)
+    public static final long SIN_PRESENTACION = 0L;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+    
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+    
+    @Column(name = "presentacion_id", nullable = false)
+    private Long presentacionId = SIN_PRESENTACION;
+    
+    @Column(name = "unidades_vendidas", nullable = false)
+    private Long unidadesVendidas = 0L;
+    
+    @Column(name = "monto_vendido", nullable = false, precision = 14, scale = 2)
+    private BigDecimal montoVendido = BigDecimal.ZERO;
+    
+    // Constructores
+    public ResumenVentaProducto() {
+    }
+    
+    public ResumenVentaProducto(LocalDate fecha, Long productoId, Long presentacionId) {
+        this.fecha = fecha;
+        this.productoId = productoId;
+        this.presentacionId = presentacionId;
+    }
+    
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public LocalDate getFecha() {
+        return fecha;
+    }
+    
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+    
+    public Long getProductoId() {
+        return productoId;
+    }
+    
+    public void setProductoId(Long productoId) {
+        this.productoId = productoId;
+    }
+    
+    public Long getPresentacionId() {
+        return presentacionId;
+    }
+    
+    public void setPresentacionId(Long presentacionId) {
+        this.presentacionId = presentacionId;
+    }
+    
+    public Long getUnidadesVendidas() {
+        return unidadesVendidas;
+    }
+    
+    public void setUnidadesVendidas(Long unidadesVendidas) {
+        this.unidadesVendidas = unidadesVendidas;
+    }
+    
+    public BigDecimal getMontoVendido() {
+        return montoVendido;
+    }
+    
+    public void setMontoVendido(BigDecimal montoVendido) {
+        this.montoVendido = montoVendido;
+    }
+}
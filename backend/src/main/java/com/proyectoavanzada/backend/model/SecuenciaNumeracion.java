@@ -0,0 +1,47 @@
+package com.proyectoavanzada.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Siguiente número libre de una numeración de documentos (ventas, compras).
+ * NumeracionService reserva bloques de números avanzando esta fila con una sentencia UPDATE,
+ * así que cada nodo del backend numera desde su bloque sin consultar la base de datos.
+ */
+@Entity
+@Table(name = "secuencias_numeracion")
+public class SecuenciaNumeracion {
+
+    @Id
+    @Column(name = "nombre", length = 50)
+    private String nombre;
+
+    // Primer número que todavía no se reservó
+    @Column(name = "siguiente", nullable = false)
+    private Long siguiente;
+
+    // Constructores
+    public SecuenciaNumeracion() {
+    }
+
+    public SecuenciaNumeracion(String nombre, Long siguiente) {
+        this.nombre = nombre;
+        this.siguiente = siguiente;
+    }
+
+    // Getters y Setters
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public Long getSiguiente() {
+        return siguiente;
+    }
+
+    public void setSiguiente(Long siguiente) {
+        this.siguiente = siguiente;
+    }
+}
@@ -0,0 +1,90 @@
+package com.proyectoavanzada.backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Respuesta guardada de una creación de venta o compra enviada con la cabecera Idempotency-Key.
+ * IdempotenciaService inserta la fila en la misma transacción que crea el documento, así que la fila
+ * existe si y solo si el documento se creó; los reintentos con la misma clave reciben la respuesta guardada.
+ */
+@Entity
+@Table(name = "solicitudes_idempotentes", indexes = @Index(name = "idx_solicitudes_idempotentes_expira", columnList = "expira_en"))
+public class SolicitudIdempotente {
+
+    // Operación y clave enviada por el cliente, por ejemplo "ventas:3f2a..."
+    @Id
+    @Column(name = "clave", length = 150)
+    private String clave;
+
+    // SHA-256 del cuerpo de la petición, para detectar una clave reutilizada con otra petición
+    @Column(name = "huella", length = 64, nullable = false)
+    private String huella;
+
+    // Nulo mientras la transacción que creó la fila no termina
+    @Column(name = "estado_http")
+    private Integer estadoHttp;
+
+    @Column(name = "respuesta", columnDefinition = "LONGTEXT")
+    private String respuesta;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "expira_en", nullable = false)
+    private LocalDateTime expiraEn;
+
+    // Constructores
+    public SolicitudIdempotente() {
+    }
+
+    // Getters y Setters
+    public String getClave() {
+        return clave;
+    }
+
+    public void setClave(String clave) {
+        this.clave = clave;
+    }
+
+    public String getHuella() {
+        return huella;
+    }
+
+    public void setHuella(String huella) {
+        this.huella = huella;
+    }
+
+    public Integer getEstadoHttp() {
+        return estadoHttp;
+    }
+
+    public void setEstadoHttp(Integer estadoHttp) {
+        this.estadoHttp = estadoHttp;
+    }
+
+    public String getRespuesta() {
+        return respuesta;
+    }
+
+    public void setRespuesta(String respuesta) {
+        this.respuesta = respuesta;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public LocalDateTime getExpiraEn() {
+        return expiraEn;
+    }
+
+    public void setExpiraEn(LocalDateTime expiraEn) {
+        this.expiraEn = expiraEn;
+    }
+}
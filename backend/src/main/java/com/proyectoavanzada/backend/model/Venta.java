@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -13,8 +14,17 @@ import java.util.List;
 
 @Entity
 @Table(name = "ventas")
+@NamedEntityGraph(name = Venta.GRAFO_DETALLES,
+    attributeNodes = @NamedAttributeNode(value = "detallesVenta", subgraph = "detalle"),
+    subgraphs = {
+        @NamedSubgraph(name = "detalle", attributeNodes = @NamedAttributeNode(value = "producto", subgraph = "producto")),
+        @NamedSubgraph(name = "producto", attributeNodes = {@NamedAttributeNode("categoria"), @NamedAttributeNode("marca")})
+    })
 public class Venta {
     
+    // Ventas con sus detalles y el producto, categoría y marca de cada detalle, en una sola consulta
+    public static final String GRAFO_DETALLES = "Venta.detalles";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -80,8 +90,14 @@ public class Venta {
     @Column(name = "descuento_puntos", precision = 10, scale = 2)
     private BigDecimal descuentoPuntos = BigDecimal.ZERO;
     
+    // Reserva de stock enviada al crear la venta; solo se lee de la petición
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String reservaId;
+    
     // Relaciones
     @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "venta"})
     private List<DetalleVenta> detallesVenta;
     
@@ -314,6 +330,15 @@ public class Venta {
         this.fechaActualizacion = LocalDateTime.now();
     }
     
+    // Reserva de stock a consumir al crear la venta (no se guarda)
+    public String getReservaId() {
+        return reservaId;
+    }
+    
+    public void setReservaId(String reservaId) {
+        this.reservaId = reservaId;
+    }
+    
     // Getters para IDs (para facilitar la deserialización desde el frontend)
     @JsonProperty("usuarioId")
     public Long getUsuarioId() {
@@ -0,0 +1,46 @@
+package com.proyectoavanzada.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Versión compartida de una colección de recursos (categorías, marcas, productos).
+ * VersionRecursosService la avanza con una sentencia UPDATE en cada escritura y cada nodo del backend
+ * la vuelve a leer periódicamente, así un cambio hecho en un nodo invalida los ETags de todos.
+ */
+@Entity
+@Table(name = "versiones_recursos")
+public class VersionRecurso {
+
+    @Id
+    @Column(name = "coleccion", length = 50)
+    private String coleccion;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    // Constructores
+    public VersionRecurso() {
+    }
+
+    public VersionRecurso(String coleccion, Long version) {
+        this.coleccion = coleccion;
+        this.version = version;
+    }
+
+    // Getters y Setters
+    public String getColeccion() {
+        return coleccion;
+    }
+
+    public void setColeccion(String coleccion) {
+        this.coleccion = coleccion;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
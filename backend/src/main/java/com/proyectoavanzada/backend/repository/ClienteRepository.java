@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -69,4 +70,8 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     
     // Buscar por nombre (búsqueda parcial, case insensitive)
     List<Cliente> findByNombreContainingIgnoreCase(String nombre);
+    
+    // IDs existentes entre los indicados, para validar varias ventas con una consulta
+    @Query("SELECT c.id FROM Cliente c WHERE c.id IN :ids")
+    List<Long> findIdsExistentes(@Param("ids") Collection<Long> ids);
 }
@@ -3,6 +3,7 @@ package com.proyectoavanzada.backend.repository;
 import com.proyectoavanzada.backend.model.Compra;
 import com.proyectoavanzada.backend.model.Proveedor;
 import com.proyectoavanzada.backend.model.Usuario;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -34,6 +35,21 @@ public interface CompraRepository extends JpaRepository<Compra, Long> {
     // Buscar compras activas
     List<Compra> findByActivoTrue();
     
+    // Todas las compras con proveedor, usuario, detalles y productos cargados en una sola consulta
+    @EntityGraph(Compra.GRAFO_DETALLES)
+    @Query("SELECT c FROM Compra c")
+    List<Compra> findTodasConDetalles();
+    
+    // Compras activas con proveedor, usuario, detalles y productos cargados en una sola consulta
+    @EntityGraph(Compra.GRAFO_DETALLES)
+    @Query("SELECT c FROM Compra c WHERE c.activo = true")
+    List<Compra> findActivasConDetalles();
+    
+    // Compras de un usuario con proveedor, detalles y productos cargados en una sola consulta
+    @EntityGraph(Compra.GRAFO_DETALLES)
+    @Query("SELECT c FROM Compra c WHERE c.usuario = :usuario")
+    List<Compra> findByUsuarioConDetalles(@Param("usuario") Usuario usuario);
+    
     // Buscar compras inactivas
     List<Compra> findByActivoFalse();
     
@@ -118,6 +134,10 @@ public interface CompraRepository extends JpaRepository<Compra, Long> {
     // Verificar si existe un número de factura
     boolean existsByNumeroFactura(String numeroFactura);
     
+    // Números generados automáticamente, para iniciar la secuencia de numeración la primera vez
+    @Query("SELECT c.numeroFactura FROM Compra c WHERE c.numeroFactura LIKE 'COMP-%'")
+    List<String> findNumerosFacturaGenerados();
+    
     // Buscar compras por número de comprobante
     List<Compra> findByNumeroComprobante(String numeroComprobante);
 }
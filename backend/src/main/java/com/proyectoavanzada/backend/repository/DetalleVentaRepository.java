@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,6 +19,10 @@ public interface DetalleVentaRepository extends JpaRepository<DetalleVenta, Long
     // Buscar por venta
     List<DetalleVenta> findByVenta(Venta venta);
     
+    // Detalles de varias ventas con una consulta, para los cambios de estado en lote
+    @Query("SELECT dv FROM DetalleVenta dv WHERE dv.venta.id IN :ventaIds")
+    List<DetalleVenta> findByVentaIdIn(@Param("ventaIds") Collection<Long> ventaIds);
+    
     // Buscar por producto
     List<DetalleVenta> findByProducto(Producto producto);
     
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,6 +46,24 @@ public interface InventarioRepository extends JpaRepository<Inventario, Long> {
     @Query("SELECT i FROM Inventario i WHERE i.activo = true AND i.stockActual <= i.stockMinimo")
     List<Inventario> findInventariosConStockBajo();
     
+    // Ids de inventarios con stock bajo, para reconstruir el monitor de stock bajo
+    @Query("SELECT i.id FROM Inventario i WHERE i.activo = true AND i.stockActual <= i.stockMinimo")
+    List<Long> findIdsInventariosConStockBajo();
+    
+    // Producto e id del inventario sin presentación (el de menor id) de varios productos, para mover stock en lote
+    @Query("SELECT i.producto.id, MIN(i.id) FROM Inventario i " +
+           "WHERE i.producto.id IN :productoIds AND i.presentacion IS NULL GROUP BY i.producto.id")
+    List<Object[]> findIdsSinPresentacionByProductoIds(@Param("productoIds") Collection<Long> productoIds);
+    
+    // Id, stock, stock mínimo, estado y producto de varios inventarios, para leer el stock después de un movimiento en lote
+    @Query("SELECT i.id, i.stockActual, i.stockMinimo, i.activo, i.producto.id FROM Inventario i WHERE i.id IN :ids")
+    List<Object[]> findEstadoStockPorIds(@Param("ids") Collection<Long> ids);
+    
+    // Producto y stock de los inventarios sin presentación de varios productos (en orden de id), para las reservas
+    @Query("SELECT i.producto.id, i.stockActual FROM Inventario i " +
+           "WHERE i.producto.id IN :productoIds AND i.presentacion IS NULL ORDER BY i.id ASC")
+    List<Object[]> findStockSinPresentacionByProductoIds(@Param("productoIds") Collection<Long> productoIds);
+    
     // Buscar inventarios con stock alto
     @Query("SELECT i FROM Inventario i WHERE i.activo = true AND i.stockMaximo IS NOT NULL AND i.stockActual >= i.stockMaximo")
     List<Inventario> findInventariosConStockAlto();
@@ -79,6 +98,11 @@ public interface InventarioRepository extends JpaRepository<Inventario, Long> {
     @Query("SELECT COALESCE(SUM(i.stockActual), 0) FROM Inventario i WHERE i.producto = :producto AND i.activo = true")
     Integer sumStockActualByProducto(@Param("producto") Producto producto);
     
+    // Sumar stock total de varios productos agrupado por producto
+    @Query("SELECT i.producto.id, COALESCE(SUM(i.stockActual), 0) FROM Inventario i " +
+           "WHERE i.producto.id IN :productoIds AND i.activo = true GROUP BY i.producto.id")
+    List<Object[]> sumStockActualByProductoIds(@Param("productoIds") Collection<Long> productoIds);
+    
     // Sumar stock total por presentación
     @Query("SELECT COALESCE(SUM(i.stockActual), 0) FROM Inventario i WHERE i.presentacion = :presentacion AND i.activo = true")
     Integer sumStockActualByPresentacion(@Param("presentacion") Presentacion presentacion);
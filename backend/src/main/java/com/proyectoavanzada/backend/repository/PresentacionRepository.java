@@ -2,12 +2,14 @@ package com.proyectoavanzada.backend.repository;
 
 import com.proyectoavanzada.backend.model.Presentacion;
 import com.proyectoavanzada.backend.model.Producto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,6 +52,14 @@ public interface PresentacionRepository extends JpaRepository<Presentacion, Long
     @Query("SELECT p FROM Presentacion p WHERE p.activo = true AND p.stockDisponible <= p.producto.stockMinimo")
     List<Presentacion> findPresentacionesConStockBajo();
     
+    // Id, producto, stock y estado de todas las presentaciones, para reconstruir el monitor de stock bajo
+    @Query("SELECT p.id, p.producto.id, p.stockDisponible, p.activo FROM Presentacion p")
+    List<Object[]> findEstadoStock();
+    
+    // Id, producto, stock y estado de varias presentaciones, para leer el stock después de un movimiento en lote
+    @Query("SELECT p.id, p.producto.id, p.stockDisponible, p.activo FROM Presentacion p WHERE p.id IN :ids")
+    List<Object[]> findEstadoStockPorIds(@Param("ids") Collection<Long> ids);
+    
     // Buscar presentaciones destacadas
     List<Presentacion> findByEsDestacadoTrue();
     
@@ -102,10 +112,14 @@ public interface PresentacionRepository extends JpaRepository<Presentacion, Long
     List<String> findTallasDisponiblesPorProductoYColor(@Param("producto") Producto producto, 
                                                        @Param("color") String color);
     
-    // Buscar presentaciones más vendidas
-    @Query("SELECT p FROM Presentacion p WHERE p.activo = true ORDER BY " +
-           "(SELECT COALESCE(SUM(dv.cantidad), 0) FROM DetalleVenta dv WHERE dv.presentacion = p) DESC")
-    List<Presentacion> findPresentacionesMasVendidas();
+    // Buscar id, talla, color, stock y precio especial de las presentaciones activas de un producto (matriz de disponibilidad)
+    @Query("SELECT p.id, p.talla, p.color, p.stockDisponible, p.precioEspecial FROM Presentacion p " +
+           "WHERE p.producto.id = :productoId AND p.activo = true ORDER BY p.talla, p.color")
+    List<Object[]> findMatrizDisponibilidadPorProducto(@Param("productoId") Long productoId);
+    
+    // Buscar presentaciones más vendidas según el contador mantenido en cada venta
+    @Query("SELECT p FROM Presentacion p WHERE p.activo = true ORDER BY p.unidadesVendidas DESC, p.id ASC")
+    List<Presentacion> findPresentacionesMasVendidas(Pageable pageable);
     
     // Buscar presentaciones ordenadas por stock descendente
     List<Presentacion> findByActivoTrueOrderByStockDisponibleDesc();
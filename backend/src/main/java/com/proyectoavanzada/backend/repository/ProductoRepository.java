@@ -1,8 +1,10 @@
 package com.proyectoavanzada.backend.repository;
 
+import com.proyectoavanzada.backend.dto.ProductoResumen;
 import com.proyectoavanzada.backend.model.Producto;
 import com.proyectoavanzada.backend.model.Categoria;
 import com.proyectoavanzada.backend.model.Marca;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -75,10 +78,25 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
            "(SELECT COALESCE(SUM(pr.stockDisponible), 0) FROM Presentacion pr WHERE pr.producto = p)")
     List<Producto> findProductosConStockBajo();
     
-    // Buscar productos más vendidos
-    @Query("SELECT p FROM Producto p WHERE p.activo = true ORDER BY " +
-           "(SELECT COALESCE(SUM(dv.cantidad), 0) FROM DetalleVenta dv WHERE dv.producto = p) DESC")
-    List<Producto> findProductosMasVendidos();
+    // Id, stock mínimo y estado de todos los productos, para reconstruir el monitor de stock bajo
+    @Query("SELECT p.id, p.stockMinimo, p.activo FROM Producto p")
+    List<Object[]> findEstadoStockMinimo();
+    
+    // IDs existentes entre los indicados, para validar varias ventas con una consulta
+    @Query("SELECT p.id FROM Producto p WHERE p.id IN :ids")
+    List<Long> findIdsExistentes(@Param("ids") Collection<Long> ids);
+    
+    // Ids de los productos activos de una categoría
+    @Query("SELECT p.id FROM Producto p WHERE p.activo = true AND p.categoria.id = :categoriaId")
+    List<Long> findIdsActivosPorCategoriaId(@Param("categoriaId") Long categoriaId);
+    
+    // Ids de los productos activos de una marca
+    @Query("SELECT p.id FROM Producto p WHERE p.activo = true AND p.marca.id = :marcaId")
+    List<Long> findIdsActivosPorMarcaId(@Param("marcaId") Long marcaId);
+    
+    // Buscar productos más vendidos según el contador mantenido en cada venta
+    @Query("SELECT p FROM Producto p WHERE p.activo = true ORDER BY p.unidadesVendidas DESC, p.id ASC")
+    List<Producto> findProductosMasVendidos(Pageable pageable);
     
     // Buscar productos por material
     List<Producto> findByMaterialPrincipalContainingIgnoreCase(String material);
@@ -115,4 +133,52 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     
     // Buscar productos ordenados por nombre
     List<Producto> findByActivoTrueOrderByNombreAsc();
+    
+    // Proyección de los listados del catálogo: solo las columnas de ProductoResumen y el nombre de categoría y marca
+    String SELECT_RESUMEN = "SELECT new com.proyectoavanzada.backend.dto.ProductoResumen(" +
+        "p.id, p.nombre, p.descripcion, p.codigoProducto, p.precioVenta, p.precioCompra, p.imagenPrincipal, " +
+        "p.imagenesAdicionales, p.genero, p.edadTarget, p.materialPrincipal, p.tipoSuela, p.tecnologia, " +
+        "p.pesoGramos, p.garantiaMeses, p.stockMinimo, p.esDestacado, p.esNuevo, p.descuentoPorcentaje, " +
+        "p.activo, p.fechaCreacion, p.fechaActualizacion, c.id, c.nombre, m.id, m.nombre) " +
+        "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.marca m ";
+    
+    // Resumen de todos los productos
+    @Query(SELECT_RESUMEN + "ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenTodos();
+    
+    // Resumen de los productos activos
+    @Query(SELECT_RESUMEN + "WHERE p.activo = true ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenActivos();
+    
+    // Resumen de los productos con los ids indicados
+    @Query(SELECT_RESUMEN + "WHERE p.id IN :ids")
+    List<ProductoResumen> findResumenPorIds(@Param("ids") Collection<Long> ids);
+    
+    // Resumen de los productos de una categoría
+    @Query(SELECT_RESUMEN + "WHERE c.id = :categoriaId ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenPorCategoriaId(@Param("categoriaId") Long categoriaId);
+    
+    // Resumen de los productos de una marca
+    @Query(SELECT_RESUMEN + "WHERE m.id = :marcaId ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenPorMarcaId(@Param("marcaId") Long marcaId);
+    
+    // Resumen de los productos destacados
+    @Query(SELECT_RESUMEN + "WHERE p.esDestacado = true ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenDestacados();
+    
+    // Resumen de los productos nuevos
+    @Query(SELECT_RESUMEN + "WHERE p.esNuevo = true ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenNuevos();
+    
+    // Resumen de los productos activos con descuento
+    @Query(SELECT_RESUMEN + "WHERE p.activo = true AND p.descuentoPorcentaje > 0 ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenConDescuento();
+    
+    // Buscar la siguiente página de productos a partir del último id visto (paginación por cursor)
+    @Query(SELECT_RESUMEN + "WHERE p.id > :ultimoId ORDER BY p.id ASC")
+    List<ProductoResumen> findSiguientePagina(@Param("ultimoId") Long ultimoId, Pageable pageable);
+    
+    // Buscar la siguiente página de productos activos a partir del último id visto
+    @Query(SELECT_RESUMEN + "WHERE p.activo = true AND p.id > :ultimoId ORDER BY p.id ASC")
+    List<ProductoResumen> findSiguientePaginaActivos(@Param("ultimoId") Long ultimoId, Pageable pageable);
 }
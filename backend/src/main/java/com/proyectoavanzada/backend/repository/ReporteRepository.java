@@ -53,6 +53,10 @@ public interface ReporteRepository extends JpaRepository<Reporte, Long> {
     @Query("SELECT r FROM Reporte r WHERE r.estado = 'PROCESANDO' AND r.activo = true")
     List<Reporte> findReportesProcesando();
     
+    // Buscar reportes procesando de un nodo
+    @Query("SELECT r FROM Reporte r WHERE r.estado = 'PROCESANDO' AND r.activo = true AND r.nodo = :nodo")
+    List<Reporte> findReportesProcesandoPorNodo(@Param("nodo") String nodo);
+    
     // Buscar reportes con error
     @Query("SELECT r FROM Reporte r WHERE r.estado = 'ERROR' AND r.activo = true")
     List<Reporte> findReportesConError();
@@ -0,0 +1,36 @@
+package com.proyectoavanzada.backend.repository;
+
+import com.proyectoavanzada.backend.model.ResumenVentaDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Repository
+public interface ResumenVentaDiarioRepository extends JpaRepository<ResumenVentaDiario, Long> {
+    
+    // Sumar el monto de las ventas activas de un rango de días completos
+    @Query("SELECT COALESCE(SUM(r.montoTotal), 0) FROM ResumenVentaDiario r " +
+           "WHERE r.fecha BETWEEN :fechaInicio AND :fechaFin AND r.activo = true")
+    BigDecimal sumMontoByFechaBetween(@Param("fechaInicio") LocalDate fechaInicio,
+                                      @Param("fechaFin") LocalDate fechaFin);
+    
+    // Sumar el monto de las ventas activas de un vendedor
+    @Query("SELECT COALESCE(SUM(r.montoTotal), 0) FROM ResumenVentaDiario r WHERE r.usuarioId = :usuarioId AND r.activo = true")
+    BigDecimal sumMontoByUsuarioId(@Param("usuarioId") Long usuarioId);
+    
+    // Sumar el monto de las ventas activas de un método de pago
+    @Query("SELECT COALESCE(SUM(r.montoTotal), 0) FROM ResumenVentaDiario r WHERE r.metodoPago = :metodoPago AND r.activo = true")
+    BigDecimal sumMontoByMetodoPago(@Param("metodoPago") String metodoPago);
+    
+    // Contar las ventas de un estado, activas o no
+    @Query("SELECT COALESCE(SUM(r.cantidadVentas), 0) FROM ResumenVentaDiario r WHERE r.estado = :estado")
+    long sumCantidadVentasByEstado(@Param("estado") String estado);
+    
+    // Contar las ventas activas
+    @Query("SELECT COALESCE(SUM(r.cantidadVentas), 0) FROM ResumenVentaDiario r WHERE r.activo = true")
+    long sumCantidadVentasActivas();
+}
@@ -0,0 +1,31 @@
+package com.proyectoavanzada.backend.repository;
+
+import com.proyectoavanzada.backend.model.ResumenVentaProducto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ResumenVentaProductoRepository extends JpaRepository<ResumenVentaProducto, Long> {
+    
+    // Unidades vendidas por producto en un rango de días, de mayor a menor
+    @Query("SELECT r.productoId, SUM(r.unidadesVendidas) FROM ResumenVentaProducto r " +
+           "WHERE r.fecha BETWEEN :fechaInicio AND :fechaFin GROUP BY r.productoId " +
+           "HAVING SUM(r.unidadesVendidas) > 0 ORDER BY SUM(r.unidadesVendidas) DESC, r.productoId ASC")
+    List<Object[]> sumUnidadesPorProducto(@Param("fechaInicio") LocalDate fechaInicio,
+                                          @Param("fechaFin") LocalDate fechaFin,
+                                          Pageable pageable);
+    
+    // Unidades vendidas por presentación en un rango de días, de mayor a menor
+    @Query("SELECT r.presentacionId, SUM(r.unidadesVendidas) FROM ResumenVentaProducto r " +
+           "WHERE r.fecha BETWEEN :fechaInicio AND :fechaFin AND r.presentacionId <> 0 GROUP BY r.presentacionId " +
+           "HAVING SUM(r.unidadesVendidas) > 0 ORDER BY SUM(r.unidadesVendidas) DESC, r.presentacionId ASC")
+    List<Object[]> sumUnidadesPorPresentacion(@Param("fechaInicio") LocalDate fechaInicio,
+                                              @Param("fechaFin") LocalDate fechaFin,
+                                              Pageable pageable);
+}
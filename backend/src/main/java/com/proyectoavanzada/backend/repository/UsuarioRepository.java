@@ -2,8 +2,11 @@ package com.proyectoavanzada.backend.repository;
 
 import com.proyectoavanzada.backend.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -71,5 +74,13 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      * @return lista de usuarios que contienen ese nombre
      */
     List<Usuario> findByNombreContainingIgnoreCase(String nombre);
+    
+    /**
+     * Filtra los IDs que corresponden a usuarios existentes
+     * @param ids los IDs a verificar
+     * @return los IDs que existen
+     */
+    @Query("SELECT u.id FROM Usuario u WHERE u.id IN :ids")
+    List<Long> findIdsExistentes(@Param("ids") Collection<Long> ids);
 }
 
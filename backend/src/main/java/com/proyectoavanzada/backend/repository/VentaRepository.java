@@ -3,6 +3,7 @@ package com.proyectoavanzada.backend.repository;
 import com.proyectoavanzada.backend.model.Venta;
 import com.proyectoavanzada.backend.model.Cliente;
 import com.proyectoavanzada.backend.model.Usuario;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,6 +39,21 @@ public interface VentaRepository extends JpaRepository<Venta, Long> {
     // Buscar ventas inactivas
     List<Venta> findByActivoFalse();
     
+    // Todas las ventas con sus detalles y productos cargados en una sola consulta
+    @EntityGraph(Venta.GRAFO_DETALLES)
+    @Query("SELECT v FROM Venta v")
+    List<Venta> findTodasConDetalles();
+    
+    // Ventas activas con sus detalles y productos cargados en una sola consulta
+    @EntityGraph(Venta.GRAFO_DETALLES)
+    @Query("SELECT v FROM Venta v WHERE v.activo = true")
+    List<Venta> findActivasConDetalles();
+    
+    // Ventas de un vendedor con sus detalles y productos cargados en una sola consulta
+    @EntityGraph(Venta.GRAFO_DETALLES)
+    @Query("SELECT v FROM Venta v WHERE v.usuario = :usuario")
+    List<Venta> findByUsuarioConDetalles(@Param("usuario") Usuario usuario);
+    
     // Buscar por rango de fechas
     @Query("SELECT v FROM Venta v WHERE v.fechaVenta BETWEEN :fechaInicio AND :fechaFin")
     List<Venta> findByFechaVentaBetween(@Param("fechaInicio") LocalDateTime fechaInicio, 
@@ -92,6 +109,11 @@ public interface VentaRepository extends JpaRepository<Venta, Long> {
     BigDecimal sumTotalByFechaVentaBetween(@Param("fechaInicio") LocalDateTime fechaInicio, 
                                          @Param("fechaFin") LocalDateTime fechaFin);
     
+    // Sumar total de ventas desde una fecha (incluida) hasta otra (excluida)
+    @Query("SELECT COALESCE(SUM(v.total), 0) FROM Venta v WHERE v.fechaVenta >= :desde AND v.fechaVenta < :hasta AND v.activo = true")
+    BigDecimal sumTotalByFechaVentaDesdeAntesDe(@Param("desde") LocalDateTime desde,
+                                                @Param("hasta") LocalDateTime hasta);
+    
     // Sumar total de ventas por método de pago
     @Query("SELECT COALESCE(SUM(v.total), 0) FROM Venta v WHERE v.metodoPago = :metodoPago AND v.activo = true")
     BigDecimal sumTotalByMetodoPago(@Param("metodoPago") String metodoPago);
@@ -135,6 +157,18 @@ public interface VentaRepository extends JpaRepository<Venta, Long> {
     // Verificar si existe un número de venta
     boolean existsByNumeroVenta(String numeroVenta);
     
+    // Números generados automáticamente, para iniciar la secuencia de numeración la primera vez
+    @Query("SELECT v.numeroVenta FROM Venta v WHERE v.numeroVenta LIKE 'VENT-%'")
+    List<String> findNumerosVentaGenerados();
+    
+    // Números de venta ya usados entre los indicados, para validar varias ventas con una consulta
+    @Query("SELECT v.numeroVenta FROM Venta v WHERE v.numeroVenta IN :numeros")
+    List<String> findNumerosVentaExistentes(@Param("numeros") Collection<String> numeros);
+    
+    // Id y número de varias ventas insertadas en lote, para enlazar sus detalles
+    @Query("SELECT v.id, v.numeroVenta FROM Venta v WHERE v.numeroVenta IN :numeros")
+    List<Object[]> findIdsPorNumerosVenta(@Param("numeros") Collection<String> numeros);
+    
     // Buscar ventas por número de comprobante
     List<Venta> findByNumeroComprobante(String numeroComprobante);
     
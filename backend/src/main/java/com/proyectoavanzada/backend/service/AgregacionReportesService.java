@@ -0,0 +1,554 @@
+package com.proyectoavanzada.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectoavanzada.backend.exception.BusinessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Motor de agregación de los reportes de ventas, compras e inventario.
+ * La agrupación (por día, semana o mes, producto, categoría, marca, método de pago, vendedor o proveedor)
+ * la hace la base de datos con GROUP BY; las filas agrupadas se escriben en el JSON de resultados
+ * a medida que se leen, sin cargar entidades ni las líneas de los documentos.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AgregacionReportesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgregacionReportesService.class);
+
+    public static final String DIA = "DIA";
+    public static final String SEMANA = "SEMANA";
+    public static final String MES = "MES";
+    public static final String PRODUCTO = "PRODUCTO";
+    public static final String CATEGORIA = "CATEGORIA";
+    public static final String MARCA = "MARCA";
+    public static final String METODO_PAGO = "METODO_PAGO";
+    public static final String VENDEDOR = "VENDEDOR";
+    public static final String PROVEEDOR = "PROVEEDOR";
+
+    private static final Set<String> PERIODOS = Set.of(DIA, SEMANA, MES);
+
+    private static final String JOIN_PRODUCTOS = "JOIN productos p ON p.id = d.producto_id";
+
+    // Columnas, nombres de campo y joins de cada agrupación; "doc" es la venta o compra y "d" su línea
+    private static final Map<String, Dimension> DIMENSIONES = Map.of(
+        PRODUCTO, new Dimension(List.of("p.id", "p.nombre"), List.of("productoId", "producto"),
+            List.of(JOIN_PRODUCTOS)),
+        CATEGORIA, new Dimension(List.of("cat.id", "cat.nombre"), List.of("categoriaId", "categoria"),
+            List.of(JOIN_PRODUCTOS, "JOIN categorias cat ON cat.id = p.categoria_id")),
+        MARCA, new Dimension(List.of("m.id", "m.nombre"), List.of("marcaId", "marca"),
+            List.of(JOIN_PRODUCTOS, "JOIN marcas m ON m.id = p.marca_id")),
+        METODO_PAGO, new Dimension(List.of("doc.metodo_pago"), List.of("metodoPago"), List.of()),
+        VENDEDOR, new Dimension(List.of("u.id", "u.nombre"), List.of("vendedorId", "vendedor"),
+            List.of("JOIN usuarios u ON u.id = doc.usuario_id")),
+        PROVEEDOR, new Dimension(List.of("pv.id", "pv.nombre"), List.of("proveedorId", "proveedor"),
+            List.of("JOIN proveedores pv ON pv.id = doc.proveedor_id"))
+    );
+
+    // Misma condición que los contadores de ventas: activas y no canceladas ni devueltas
+    private static final Fuente VENTAS = new Fuente(
+        "VENTAS",
+        "ventas doc JOIN detalles_venta d ON d.venta_id = doc.id",
+        List.of(),
+        "(doc.activo IS NULL OR doc.activo = TRUE) AND COALESCE(doc.estado, '') NOT IN ('CANCELADA', 'DEVUELTA')",
+        "doc.fecha_venta",
+        List.of(DIA, SEMANA, MES, PRODUCTO, CATEGORIA, MARCA, METODO_PAGO, VENDEDOR),
+        List.of(DIA),
+        List.of(new Medida("COUNT(DISTINCT doc.id)", "ventas", false),
+                new Medida("SUM(d.cantidad)", "unidades", false),
+                new Medida("SUM(COALESCE(d.subtotal, d.cantidad * d.precio_unitario))", "monto", true)));
+
+    private static final Fuente COMPRAS = new Fuente(
+        "COMPRAS",
+        "compras doc JOIN detalles_compra d ON d.compra_id = doc.id",
+        List.of(),
+        "(doc.activo IS NULL OR doc.activo = TRUE) AND COALESCE(doc.estado, '') <> 'CANCELADA'",
+        "doc.fecha_compra",
+        List.of(DIA, SEMANA, MES, PRODUCTO, CATEGORIA, MARCA, METODO_PAGO, PROVEEDOR),
+        List.of(MES),
+        List.of(new Medida("COUNT(DISTINCT doc.id)", "compras", false),
+                new Medida("SUM(d.cantidad)", "unidades", false),
+                new Medida("SUM(COALESCE(d.subtotal, d.cantidad * d.precio_unitario))", "monto", true)));
+
+    // Stock de las presentaciones y, para los productos sin presentación, el de la tabla inventario
+    private static final Fuente INVENTARIO = new Fuente(
+        "INVENTARIO",
+        "(SELECT producto_id, stock_disponible AS existencias, precio_especial FROM presentaciones " +
+        "WHERE activo IS NULL OR activo = TRUE " +
+        "UNION ALL SELECT producto_id, stock_actual, CAST(NULL AS DECIMAL(10, 2)) FROM inventario " +
+        "WHERE presentacion_id IS NULL AND (activo IS NULL OR activo = TRUE)) d",
+        List.of(JOIN_PRODUCTOS),
+        "(p.activo IS NULL OR p.activo = TRUE)",
+        null,
+        List.of(PRODUCTO, CATEGORIA, MARCA),
+        List.of(CATEGORIA),
+        List.of(new Medida("COUNT(*)", "registros", false),
+                new Medida("SUM(d.existencias)", "existencias", false),
+                new Medida("SUM(CASE WHEN d.existencias <= 0 THEN 1 ELSE 0 END)", "agotados", false),
+                new Medida("SUM(d.existencias * COALESCE(p.precio_compra, 0))", "valorCosto", true),
+                new Medida("SUM(d.existencias * COALESCE(d.precio_especial, p.precio_venta, 0))", "valorVenta", true)));
+
+    /**
+     * Avance y cancelación de un reporte que se genera en segundo plano
+     */
+    public interface Seguimiento {
+
+        Seguimiento NINGUNO = new Seguimiento() {
+            @Override
+            public void progreso(int porcentaje) {
+            }
+
+            @Override
+            public boolean cancelado() {
+                return false;
+            }
+        };
+
+        void progreso(int porcentaje);
+
+        boolean cancelado();
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Agrupaciones por omisión de cada tipo de reporte
+     */
+    public List<String> agrupacionesPorDefecto(String tipoReporte) {
+        return fuente(tipoReporte).porDefecto();
+    }
+
+    /**
+     * Validar y normalizar las agrupaciones pedidas para un tipo de reporte; vacías usan las de por omisión
+     */
+    public List<String> validarAgrupaciones(String tipoReporte, List<String> agrupaciones) {
+        Fuente fuente = fuente(tipoReporte);
+        if (agrupaciones == null || agrupaciones.isEmpty()) {
+            return fuente.porDefecto();
+        }
+        Set<String> normalizadas = new LinkedHashSet<>();
+        int periodos = 0;
+        for (String agrupacion : agrupaciones) {
+            String nombre = agrupacion == null ? "" : agrupacion.trim().toUpperCase();
+            if (!fuente.permitidas().contains(nombre)) {
+                throw new BusinessException("Agrupación no soportada para " + fuente.tipo() + ": " + agrupacion
+                        + " (use " + String.join(", ", fuente.permitidas()) + ")");
+            }
+            if (normalizadas.add(nombre) && PERIODOS.contains(nombre)) {
+                periodos++;
+            }
+        }
+        if (periodos > 1) {
+            throw new BusinessException("Solo se puede agrupar por un período: DIA, SEMANA o MES");
+        }
+        // El período va primero para que las filas salgan en orden cronológico
+        List<String> ordenadas = new ArrayList<>();
+        normalizadas.stream().filter(PERIODOS::contains).forEach(ordenadas::add);
+        normalizadas.stream().filter(nombre -> !PERIODOS.contains(nombre)).forEach(ordenadas::add);
+        return ordenadas;
+    }
+
+    /**
+     * Resultados agregados de ventas del rango (fechas inclusive) en JSON
+     */
+    public String agregarVentas(LocalDate fechaInicio, LocalDate fechaFin, List<String> agrupaciones) {
+        return agregarVentas(fechaInicio, fechaFin, agrupaciones, Seguimiento.NINGUNO);
+    }
+
+    /**
+     * Resultados agregados de ventas informando el avance; se corta con CancellationException si se cancela
+     */
+    public String agregarVentas(LocalDate fechaInicio, LocalDate fechaFin, List<String> agrupaciones,
+                             Seguimiento seguimiento) {
+        validarRango(fechaInicio, fechaFin);
+        return agregar(VENTAS, fechaInicio, fechaFin, validarAgrupaciones(VENTAS.tipo(), agrupaciones),
+                seguimiento);
+    }
+
+    /**
+     * Resultados agregados de compras del rango (fechas inclusive) en JSON
+     */
+    public String agregarCompras(LocalDate fechaInicio, LocalDate fechaFin, List<String> agrupaciones) {
+        return agregarCompras(fechaInicio, fechaFin, agrupaciones, Seguimiento.NINGUNO);
+    }
+
+    /**
+     * Resultados agregados de compras informando el avance; se corta con CancellationException si se cancela
+     */
+    public String agregarCompras(LocalDate fechaInicio, LocalDate fechaFin, List<String> agrupaciones,
+                             Seguimiento seguimiento) {
+        validarRango(fechaInicio, fechaFin);
+        return agregar(COMPRAS, fechaInicio, fechaFin, validarAgrupaciones(COMPRAS.tipo(), agrupaciones),
+                seguimiento);
+    }
+
+    /**
+     * Resultados agregados del stock actual en JSON
+     */
+    public String agregarInventario(List<String> agrupaciones) {
+        return agregarInventario(agrupaciones, Seguimiento.NINGUNO);
+    }
+
+    /**
+     * Resultados agregados del stock actual informando el avance; se corta con CancellationException si se cancela
+     */
+    public String agregarInventario(List<String> agrupaciones, Seguimiento seguimiento) {
+        return agregar(INVENTARIO, null, null, validarAgrupaciones(INVENTARIO.tipo(), agrupaciones), seguimiento);
+    }
+
+    /**
+     * Validar el rango de fechas de un reporte de ventas o compras
+     */
+    public void validarRango(LocalDate fechaInicio, LocalDate fechaFin) {
+        if (fechaInicio == null || fechaFin == null) {
+            throw new BusinessException("El reporte necesita fecha de inicio y fecha de fin");
+        }
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new BusinessException("La fecha de fin no puede ser anterior a la fecha de inicio");
+        }
+    }
+
+    /**
+     * Escribir los resultados agregados de VENTAS, COMPRAS o INVENTARIO en el writer a medida que se leen,
+     * sin armar el JSON en memoria; se corta con CancellationException si se cancela
+     */
+    public void escribir(String tipoReporte, LocalDate fechaInicio, LocalDate fechaFin, List<String> agrupaciones,
+                         Seguimiento seguimiento, Writer writer) throws IOException {
+        Fuente fuente = switch (tipoReporte) {
+            case "VENTAS" -> VENTAS;
+            case "COMPRAS" -> COMPRAS;
+            case "INVENTARIO" -> INVENTARIO;
+            default -> throw new BusinessException("Tipo de reporte inválido: " + tipoReporte);
+        };
+        if (fuente.columnaFecha() != null) {
+            validarRango(fechaInicio, fechaFin);
+        }
+        escribir(fuente, fechaInicio, fechaFin, validarAgrupaciones(fuente.tipo(), agrupaciones), seguimiento, writer);
+    }
+
+    private String agregar(Fuente fuente, LocalDate fechaInicio, LocalDate fechaFin, List<String> agrupaciones,
+                           Seguimiento seguimiento) {
+        StringWriter writer = new StringWriter();
+        try {
+            escribir(fuente, fechaInicio, fechaFin, agrupaciones, seguimiento, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private void escribir(Fuente fuente, LocalDate fechaInicio, LocalDate fechaFin, List<String> agrupaciones,
+                          Seguimiento seguimiento, Writer writer) throws IOException {
+        long inicio = System.currentTimeMillis();
+        String periodo = agrupaciones.stream().filter(PERIODOS::contains).findFirst().orElse(null);
+        List<Dimension> dimensiones = agrupaciones.stream()
+                .filter(nombre -> !PERIODOS.contains(nombre))
+                .map(DIMENSIONES::get)
+                .toList();
+
+        Object[] argumentos = fuente.columnaFecha() == null
+                ? new Object[0]
+                : new Object[] { Timestamp.valueOf(fechaInicio.atStartOfDay()),
+                                 Timestamp.valueOf(fechaFin.plusDays(1).atStartOfDay()) };
+
+        // Con período las filas llegan en orden cronológico: el avance es la parte del rango ya leída
+        long diasRango = fechaInicio == null ? 0 : ChronoUnit.DAYS.between(fechaInicio, fechaFin) + 1;
+        int[] ultimoProgreso = {0};
+        verificarCancelado(seguimiento);
+        seguimiento.progreso(0);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("tipo", fuente.tipo());
+            if (fechaInicio != null) {
+                generator.writeStringField("fechaInicio", fechaInicio.toString());
+                generator.writeStringField("fechaFin", fechaFin.toString());
+            }
+            generator.writeArrayFieldStart("agrupaciones");
+            for (String agrupacion : agrupaciones) {
+                generator.writeString(agrupacion);
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("filas");
+            EscritorFilas escritor = new EscritorFilas(generator, fuente, periodo, dimensiones);
+            jdbcTemplate.query(consultaAgrupada(fuente, periodo, dimensiones), (RowCallbackHandler) rs -> {
+                verificarCancelado(seguimiento);
+                try {
+                    escritor.fila(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (periodo != null && diasRango > 0) {
+                    long dias = ChronoUnit.DAYS.between(fechaInicio, fechaDeFila(rs, periodo));
+                    int porcentaje = (int) Math.max(0, Math.min(90, 90 * dias / diasRango));
+                    if (porcentaje > ultimoProgreso[0]) {
+                        ultimoProgreso[0] = porcentaje;
+                        seguimiento.progreso(porcentaje);
+                    }
+                }
+            }, argumentos);
+            escritor.terminar();
+            verificarCancelado(seguimiento);
+            seguimiento.progreso(90);
+            generator.writeEndArray();
+            generator.writeNumberField("totalFilas", escritor.filasEscritas);
+
+            // Los totales se calculan aparte: sumar las filas contaría dos veces un documento con varias líneas
+            generator.writeObjectFieldStart("totales");
+            jdbcTemplate.query(consultaTotales(fuente), (RowCallbackHandler) rs -> {
+                try {
+                    escribirMedidas(generator, fuente, leerMedidas(rs, fuente, 1));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, argumentos);
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.flush();
+            seguimiento.progreso(95);
+
+            logger.info("Reporte {} con {} filas agrupadas en {} ms", fuente.tipo(), escritor.filasEscritas,
+                    System.currentTimeMillis() - inicio);
+        }
+    }
+
+    private String consultaAgrupada(Fuente fuente, String periodo, List<Dimension> dimensiones) {
+        List<String> columnas = new ArrayList<>(columnasPeriodo(fuente, periodo));
+        Set<String> joins = new LinkedHashSet<>(fuente.joins());
+        for (Dimension dimension : dimensiones) {
+            columnas.addAll(dimension.columnas());
+            joins.addAll(dimension.joins());
+        }
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (String columna : columnas) {
+            sql.append(columna).append(", ");
+        }
+        sql.append(String.join(", ", fuente.medidas().stream().map(Medida::sql).toList()));
+        sql.append(" FROM ").append(fuente.desde());
+        joins.forEach(join -> sql.append(' ').append(join));
+        sql.append(" WHERE ").append(condicion(fuente));
+        if (!columnas.isEmpty()) {
+            String agrupadas = String.join(", ", columnas);
+            sql.append(" GROUP BY ").append(agrupadas).append(" ORDER BY ").append(agrupadas);
+        }
+        return sql.toString();
+    }
+
+    private String consultaTotales(Fuente fuente) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        sql.append(String.join(", ", fuente.medidas().stream().map(Medida::sql).toList()));
+        sql.append(" FROM ").append(fuente.desde());
+        fuente.joins().forEach(join -> sql.append(' ').append(join));
+        sql.append(" WHERE ").append(condicion(fuente));
+        return sql.toString();
+    }
+
+    private static String condicion(Fuente fuente) {
+        if (fuente.columnaFecha() == null) {
+            return fuente.condicion();
+        }
+        return fuente.condicion() + " AND " + fuente.columnaFecha() + " >= ? AND " + fuente.columnaFecha() + " < ?";
+    }
+
+    /**
+     * Columnas del período: el día para DIA y SEMANA (la semana se arma al leer, es portable entre MySQL y H2)
+     * y el año y mes para MES
+     */
+    private static List<String> columnasPeriodo(Fuente fuente, String periodo) {
+        if (periodo == null) {
+            return List.of();
+        }
+        if (MES.equals(periodo)) {
+            return List.of("YEAR(" + fuente.columnaFecha() + ")", "MONTH(" + fuente.columnaFecha() + ")");
+        }
+        return List.of("CAST(" + fuente.columnaFecha() + " AS DATE)");
+    }
+
+    private static void verificarCancelado(Seguimiento seguimiento) {
+        if (seguimiento.cancelado()) {
+            throw new CancellationException("Reporte cancelado");
+        }
+    }
+
+    /**
+     * Fecha de una fila agrupada por período: el día para DIA y SEMANA y el primer día del mes para MES
+     */
+    private static LocalDate fechaDeFila(ResultSet rs, String periodo) throws SQLException {
+        if (MES.equals(periodo)) {
+            return LocalDate.of(rs.getInt(1), rs.getInt(2), 1);
+        }
+        return rs.getDate(1).toLocalDate();
+    }
+
+    private static Object[] leerMedidas(ResultSet rs, Fuente fuente, int desde) throws SQLException {
+        Object[] valores = new Object[fuente.medidas().size()];
+        for (int i = 0; i < valores.length; i++) {
+            // SUM de enteros es BIGINT en H2 y DECIMAL en MySQL, y NULL si no hay filas
+            if (fuente.medidas().get(i).decimal()) {
+                BigDecimal valor = rs.getBigDecimal(desde + i);
+                valores[i] = valor != null ? valor : BigDecimal.ZERO;
+            } else {
+                valores[i] = rs.getLong(desde + i);
+            }
+        }
+        return valores;
+    }
+
+    private static void escribirMedidas(JsonGenerator generator, Fuente fuente, Object[] valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            generator.writeFieldName(fuente.medidas().get(i).campo());
+            if (valores[i] instanceof BigDecimal decimal) {
+                generator.writeNumber(decimal);
+            } else {
+                generator.writeNumber((Long) valores[i]);
+            }
+        }
+    }
+
+    private static Fuente fuente(String tipoReporte) {
+        String tipo = tipoReporte == null ? "" : tipoReporte.trim().toUpperCase();
+        return switch (tipo) {
+            case "VENTAS" -> VENTAS;
+            case "COMPRAS" -> COMPRAS;
+            case "INVENTARIO" -> INVENTARIO;
+            default -> throw new BusinessException("Tipo de reporte no soportado: " + tipoReporte);
+        };
+    }
+
+    private record Dimension(List<String> columnas, List<String> campos, List<String> joins) {
+    }
+
+    private record Medida(String sql, String campo, boolean decimal) {
+    }
+
+    private record Fuente(String tipo, String desde, List<String> joins, String condicion, String columnaFecha,
+                          List<String> permitidas, List<String> porDefecto, List<Medida> medidas) {
+    }
+
+    /**
+     * Escribe cada fila agrupada como un objeto JSON. Con SEMANA las filas llegan por día y ordenadas,
+     * así que se suman las de la semana en curso y se escriben al empezar la siguiente
+     */
+    private static final class EscritorFilas {
+
+        private final JsonGenerator generator;
+        private final Fuente fuente;
+        private final String periodo;
+        private final List<Dimension> dimensiones;
+        private final int columnasPeriodo;
+        private final int columnasDimension;
+
+        private final Map<List<Object>, Object[]> semana = new LinkedHashMap<>();
+        private LocalDate semanaActual;
+        private long filasEscritas;
+
+        private EscritorFilas(JsonGenerator generator, Fuente fuente, String periodo, List<Dimension> dimensiones) {
+            this.generator = generator;
+            this.fuente = fuente;
+            this.periodo = periodo;
+            this.dimensiones = dimensiones;
+            this.columnasPeriodo = periodo == null ? 0 : MES.equals(periodo) ? 2 : 1;
+            this.columnasDimension = dimensiones.stream().mapToInt(dimension -> dimension.columnas().size()).sum();
+        }
+
+        private void fila(ResultSet rs) throws SQLException, IOException {
+            Object[] valoresDimension = new Object[columnasDimension];
+            for (int i = 0; i < columnasDimension; i++) {
+                valoresDimension[i] = rs.getObject(columnasPeriodo + 1 + i);
+            }
+            Object[] medidas = leerMedidas(rs, fuente, columnasPeriodo + columnasDimension + 1);
+
+            if (!SEMANA.equals(periodo)) {
+                String etiqueta = null;
+                if (MES.equals(periodo)) {
+                    etiqueta = fechaDeFila(rs, periodo).toString().substring(0, 7);
+                } else if (DIA.equals(periodo)) {
+                    etiqueta = fechaDeFila(rs, periodo).toString();
+                }
+                escribir(etiqueta, valoresDimension, medidas);
+                return;
+            }
+
+            LocalDate lunes = fechaDeFila(rs, periodo).with(DayOfWeek.MONDAY);
+            if (!lunes.equals(semanaActual)) {
+                vaciarSemana();
+                semanaActual = lunes;
+            }
+            Object[] acumulado = semana.putIfAbsent(Arrays.asList(valoresDimension), medidas);
+            if (acumulado != null) {
+                for (int i = 0; i < acumulado.length; i++) {
+                    acumulado[i] = acumulado[i] instanceof BigDecimal decimal
+                            ? decimal.add((BigDecimal) medidas[i])
+                            : (Long) acumulado[i] + (Long) medidas[i];
+                }
+            }
+        }
+
+        private void terminar() throws IOException {
+            vaciarSemana();
+        }
+
+        private void vaciarSemana() throws IOException {
+            for (Map.Entry<List<Object>, Object[]> entrada : semana.entrySet()) {
+                escribir(semanaActual.toString(), entrada.getKey().toArray(), entrada.getValue());
+            }
+            semana.clear();
+        }
+
+        private void escribir(String etiqueta, Object[] valoresDimension, Object[] medidas) throws IOException {
+            generator.writeStartObject();
+            if (etiqueta != null) {
+                generator.writeStringField("periodo", etiqueta);
+            }
+            int indice = 0;
+            for (Dimension dimension : dimensiones) {
+                for (String campo : dimension.campos()) {
+                    Object valor = valoresDimension[indice++];
+                    generator.writeFieldName(campo);
+                    if (valor == null) {
+                        generator.writeNull();
+                    } else if (valor instanceof Number numero) {
+                        generator.writeNumber(numero.longValue());
+                    } else {
+                        generator.writeString(valor.toString());
+                    }
+                }
+            }
+            escribirMedidas(generator, fuente, medidas);
+            generator.writeEndObject();
+            filasEscritas++;
+        }
+    }
+}
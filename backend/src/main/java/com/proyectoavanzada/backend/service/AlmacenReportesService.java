@@ -0,0 +1,207 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Almacén de los resultados de los reportes fuera de la tabla reportes.
+ * Cada resultado se guarda comprimido con gzip en un archivo cuyo nombre es el SHA-256 del JSON
+ * (directorio/ab/abcd....json.gz): dos reportes con el mismo contenido comparten el archivo y al leerlo
+ * se verifica que el contenido coincida con su hash. En la tabla queda solo la URL (almacen://reportes/...)
+ * y el tamaño comprimido, así los listados no cargan los resultados.
+ */
+@Service
+public class AlmacenReportesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlmacenReportesService.class);
+
+    public static final String PREFIJO_URL = "almacen://reportes/";
+    public static final String EXTENSION = ".json.gz";
+
+    private static final Pattern URL = Pattern.compile(Pattern.quote(PREFIJO_URL) + "([0-9a-f]{64})"
+            + Pattern.quote(EXTENSION));
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    @Value("${reportes.almacen.directorio:./data/reportes}")
+    private String directorio;
+
+    private Path raiz;
+    private Path temporales;
+
+    /**
+     * Contenido JSON de un reporte que se escribe directamente en el archivo
+     */
+    @FunctionalInterface
+    public interface Contenido {
+        void escribir(Writer writer) throws IOException;
+    }
+
+    /**
+     * Archivo guardado en el almacén
+     * @param hash SHA-256 del JSON sin comprimir, en hexadecimal
+     * @param url referencia que se guarda en archivo_url
+     * @param tamano tamaño del archivo comprimido en bytes
+     * @param ruta ubicación del archivo en disco
+     */
+    public record ArchivoReporte(String hash, String url, long tamano, Path ruta) {
+    }
+
+    @PostConstruct
+    void iniciar() throws IOException {
+        raiz = Paths.get(directorio).toAbsolutePath().normalize();
+        temporales = raiz.resolve("tmp");
+        Files.createDirectories(temporales);
+        // Restos de escrituras interrumpidas por un reinicio
+        try (DirectoryStream<Path> restos = Files.newDirectoryStream(temporales)) {
+            for (Path resto : restos) {
+                Files.deleteIfExists(resto);
+            }
+        }
+        logger.info("Almacén de reportes en {}", raiz);
+    }
+
+    /**
+     * Guardar un JSON ya armado
+     */
+    public ArchivoReporte guardar(String json) {
+        return guardar(writer -> writer.write(json));
+    }
+
+    /**
+     * Guardar el JSON que escribe el contenido, comprimiéndolo y calculando su hash a medida que se escribe.
+     * El archivo se arma en tmp y se mueve a su lugar definitivo al terminar; si el contenido falla
+     * (o el reporte se cancela) el temporal se borra y la excepción sigue su curso.
+     */
+    public ArchivoReporte guardar(Contenido contenido) {
+        Path temporal = null;
+        try {
+            temporal = Files.createTempFile(temporales, "reporte-", EXTENSION);
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (OutputStream archivo = new BufferedOutputStream(Files.newOutputStream(temporal), TAMANO_BUFFER);
+                 GZIPOutputStream gzip = new GZIPOutputStream(archivo, TAMANO_BUFFER);
+                 Writer writer = new OutputStreamWriter(new DigestOutputStream(gzip, sha256), StandardCharsets.UTF_8)) {
+                contenido.escribir(writer);
+            }
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            Path destino = ruta(hash);
+            if (Files.exists(destino)) {
+                // Mismo contenido que un reporte anterior: se reutiliza su archivo
+                Files.delete(temporal);
+            } else {
+                Files.createDirectories(destino.getParent());
+                mover(temporal, destino);
+            }
+            return new ArchivoReporte(hash, PREFIJO_URL + hash + EXTENSION, Files.size(destino), destino);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar el resultado del reporte", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            borrarTemporal(temporal);
+        }
+    }
+
+    /**
+     * Abrir el archivo de una URL del almacén
+     */
+    public ArchivoReporte abrir(String url) {
+        String hash = hash(url);
+        Path ruta = ruta(hash);
+        try {
+            return new ArchivoReporte(hash, url, Files.size(ruta), ruta);
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("El archivo del reporte no está en el almacén: " + url);
+        }
+    }
+
+    /**
+     * Copiar el JSON descomprimido a la salida, verificando al final que coincida con su hash
+     */
+    public void copiarDescomprimido(String url, OutputStream salida) {
+        ArchivoReporte archivo = abrir(url);
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (InputStream entrada = new DigestInputStream(
+                    new GZIPInputStream(Files.newInputStream(archivo.ruta()), TAMANO_BUFFER), sha256)) {
+                entrada.transferTo(salida);
+            }
+            if (!archivo.hash().equals(HexFormat.of().formatHex(sha256.digest()))) {
+                throw new IllegalStateException("El archivo del reporte está dañado: " + url);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el resultado del reporte", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Leer el JSON completo de una URL del almacén
+     */
+    public String leer(String url) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        copiarDescomprimido(url, salida);
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+
+    // Solo se aceptan URLs con un hash hexadecimal: no hay forma de salir del directorio del almacén
+    private String hash(String url) {
+        Matcher matcher = url != null ? URL.matcher(url) : null;
+        if (matcher == null || !matcher.matches()) {
+            throw new IllegalArgumentException("URL de almacén inválida: " + url);
+        }
+        return matcher.group(1);
+    }
+
+    private Path ruta(String hash) {
+        return raiz.resolve(hash.substring(0, 2)).resolve(hash + EXTENSION);
+    }
+
+    private static void mover(Path origen, Path destino) throws IOException {
+        try {
+            Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void borrarTemporal(Path temporal) {
+        if (temporal == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temporal);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el temporal {}: {}", temporal, e.getMessage());
+        }
+    }
+}
@@ -16,6 +16,12 @@ public class CategoriaService {
     @Autowired
     private CategoriaRepository categoriaRepository;
     
+    @Autowired
+    private VersionRecursosService versionRecursosService;
+    
+    @Autowired
+    private ProductoService productoService;
+    
     /**
      * Obtener todas las categorías
      */
@@ -95,6 +101,7 @@ public class CategoriaService {
             throw new RuntimeException("Ya existe una categoría con este nombre");
         }
         
+        registrarCambioCategorias();
         return categoriaRepository.save(categoria);
     }
     
@@ -112,6 +119,8 @@ public class CategoriaService {
             throw new RuntimeException("Ya existe una categoría con este nombre");
         }
         
+        registrarCambioCategorias();
+        productoService.reindexarBusquedaPorCategoriaAlConfirmar(categoria.getId());
         return categoriaRepository.save(categoria);
     }
     
@@ -129,6 +138,7 @@ public class CategoriaService {
             }
             
             categoria.setActivo(false);
+            registrarCambioCategorias();
             categoriaRepository.save(categoria);
         } else {
             throw new RuntimeException("Categoría no encontrada");
@@ -148,6 +158,7 @@ public class CategoriaService {
                 throw new RuntimeException("No se puede eliminar una categoría que tiene productos asociados");
             }
             
+            registrarCambioCategorias();
             categoriaRepository.deleteById(id);
         } else {
             throw new RuntimeException("Categoría no encontrada");
@@ -162,6 +173,7 @@ public class CategoriaService {
         if (categoriaOpt.isPresent()) {
             Categoria categoria = categoriaOpt.get();
             categoria.setActivo(true);
+            registrarCambioCategorias();
             return categoriaRepository.save(categoria);
         } else {
             throw new RuntimeException("Categoría no encontrada");
@@ -176,6 +188,7 @@ public class CategoriaService {
         if (categoriaOpt.isPresent()) {
             Categoria categoria = categoriaOpt.get();
             categoria.setActivo(false);
+            registrarCambioCategorias();
             return categoriaRepository.save(categoria);
         } else {
             throw new RuntimeException("Categoría no encontrada");
@@ -209,4 +222,13 @@ public class CategoriaService {
     public List<Categoria> obtenerCategoriasInactivas() {
         return categoriaRepository.findByActivoFalse();
     }
+    
+    /**
+     * Cambiar la versión de categorías y de productos (que incluyen su categoría) y vaciar la caché del catálogo
+     * al terminar la transacción
+     */
+    private void registrarCambioCategorias() {
+        versionRecursosService.incrementarAlFinalizar(VersionRecursosService.CATEGORIAS, VersionRecursosService.PRODUCTOS);
+        productoService.invalidarCacheCatalogoAlFinalizar();
+    }
 }
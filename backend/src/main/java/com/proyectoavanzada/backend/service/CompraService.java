@@ -2,15 +2,23 @@ package com.proyectoavanzada.backend.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.proyectoavanzada.backend.model.Compra;
 import com.proyectoavanzada.backend.model.DetalleCompra;
+import com.proyectoavanzada.backend.model.Presentacion;
 import com.proyectoavanzada.backend.model.Producto;
 import com.proyectoavanzada.backend.model.Proveedor;
 import com.proyectoavanzada.backend.model.Usuario;
@@ -24,6 +32,8 @@ import com.proyectoavanzada.backend.repository.UsuarioRepository;
 @Transactional
 public class CompraService {
     
+    private static final Logger logger = LoggerFactory.getLogger(CompraService.class);
+    
     @Autowired
     private CompraRepository compraRepository;
     
@@ -45,18 +55,23 @@ public class CompraService {
     @Autowired
     private ProductoRepository productoRepository;
     
+    @Autowired
+    private NumeracionService numeracionService;
+    
     /**
      * Obtener todas las compras
      */
     public List<Compra> obtenerTodasLasCompras() {
-        return compraRepository.findAll();
+        // Proveedor, usuario, detalles y productos llegan en la misma consulta (grafo Compra.detalles)
+        return compraRepository.findTodasConDetalles();
     }
     
     /**
      * Obtener todas las compras activas
      */
     public List<Compra> obtenerComprasActivas() {
-        return compraRepository.findByActivoTrue();
+        // Proveedor, usuario, detalles y productos llegan en la misma consulta (grafo Compra.detalles)
+        return compraRepository.findActivasConDetalles();
     }
     
     /**
@@ -84,7 +99,8 @@ public class CompraService {
      * Obtener compras por usuario
      */
     public List<Compra> obtenerComprasPorUsuario(Usuario usuario) {
-        return compraRepository.findByUsuario(usuario);
+        // Proveedor, detalles y productos llegan en la misma consulta (grafo Compra.detalles)
+        return compraRepository.findByUsuarioConDetalles(usuario);
     }
     
     /**
@@ -235,74 +251,93 @@ public class CompraService {
             compra.setImpuesto(BigDecimal.ZERO);
         }
         
-        // Si el subtotal no está establecido, establecerlo en 0 temporalmente
-        // Se recalculará después de guardar los detalles
-        if (compra.getSubtotal() == null) {
-            compra.setSubtotal(BigDecimal.ZERO);
-        }
-        
-        // Calcular total inicial (se recalculará después)
-        compra.calcularTotal();
-        
         // Procesar detalles ANTES de guardar la compra
+        BigDecimal subtotal = BigDecimal.ZERO;
         System.out.println("=== PROCESANDO DETALLES ===");
         System.out.println("Detalles recibidos: " + (compra.getDetallesCompra() != null ? compra.getDetallesCompra().size() : 0));
         
         if (compra.getDetallesCompra() != null && !compra.getDetallesCompra().isEmpty()) {
             System.out.println("Iniciando procesamiento de " + compra.getDetallesCompra().size() + " detalles");
             
-            // Procesar cada detalle: cargar producto y establecer la compra
+            // Reunir los ids de productos y presentaciones de todas las líneas
+            Set<Long> productoIds = new HashSet<>();
+            Set<Long> presentacionIds = new HashSet<>();
+            for (DetalleCompra detalle : compra.getDetallesCompra()) {
+                if (detalle.getProducto() == null) {
+                    throw new RuntimeException("El producto es obligatorio en el detalle");
+                }
+                if (detalle.getProducto().getId() != null) {
+                    productoIds.add(detalle.getProducto().getId());
+                }
+                if (detalle.getPresentacion() != null && detalle.getPresentacion().getId() != null) {
+                    presentacionIds.add(detalle.getPresentacion().getId());
+                }
+            }
+            
+            // Cargar productos y presentaciones con una consulta cada uno, en lugar de una por línea
+            Map<Long, Producto> productosPorId = new HashMap<>();
+            for (Producto producto : productoRepository.findAllById(productoIds)) {
+                productosPorId.put(producto.getId(), producto);
+            }
+            Map<Long, Presentacion> presentacionesPorId = presentacionService.obtenerPresentacionesPorIds(presentacionIds);
+            
+            // Procesar cada detalle: asignar producto y presentación y establecer la compra
             for (DetalleCompra detalle : compra.getDetallesCompra()) {
                 System.out.println("--- Procesando detalle ---");
-                System.out.println("Producto ID en detalle: " + (detalle.getProducto() != null ? detalle.getProducto().getId() : "NULL"));
+                System.out.println("Producto ID en detalle: " + detalle.getProducto().getId());
                 System.out.println("Cantidad: " + detalle.getCantidad());
                 
                 // ESTABLECER LA COMPRA EN EL DETALLE (necesario para la validación @NotNull)
                 detalle.setCompra(compra);
                 System.out.println("Compra establecida en detalle");
                 
-                // Cargar producto desde la base de datos si solo se proporciona el ID
-                if (detalle.getProducto() != null && detalle.getProducto().getId() != null) {
-                    Producto producto = productoRepository.findById(detalle.getProducto().getId())
-                            .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + detalle.getProducto().getId()));
+                // Asignar el producto cargado si solo se proporciona el ID
+                if (detalle.getProducto().getId() != null) {
+                    Long productoId = detalle.getProducto().getId();
+                    Producto producto = productosPorId.get(productoId);
+                    if (producto == null) {
+                        throw new RuntimeException("Producto no encontrado con ID: " + productoId);
+                    }
                     detalle.setProducto(producto);
                     System.out.println("Producto cargado: " + producto.getNombre());
-                } else if (detalle.getProducto() == null) {
-                    throw new RuntimeException("El producto es obligatorio en el detalle");
+                }
+                
+                if (detalle.getPresentacion() != null && detalle.getPresentacion().getId() != null) {
+                    Long presentacionId = detalle.getPresentacion().getId();
+                    Presentacion presentacion = presentacionesPorId.get(presentacionId);
+                    if (presentacion == null) {
+                        throw new RuntimeException("Presentación no encontrada con ID: " + presentacionId);
+                    }
+                    detalle.setPresentacion(presentacion);
                 }
                 
                 // Calcular subtotal
                 detalle.calcularSubtotal();
                 System.out.println("Subtotal calculado: " + detalle.getSubtotal());
+                if (detalle.getSubtotal() != null) {
+                    subtotal = subtotal.add(detalle.getSubtotal());
+                }
             }
         }
         
+        // Totales calculados una sola vez en memoria a partir de las líneas (subtotal - descuento + impuesto),
+        // así la compra se guarda con un solo flush y sin recalcular ni recargar después
+        compra.setSubtotal(subtotal);
+        compra.calcularTotal();
+        logger.debug("Subtotal: {}, Total: {}", compra.getSubtotal(), compra.getTotal());
+        
         // Guardar la compra con todos los detalles (la cascada los guardará automáticamente)
         System.out.println("=== GUARDANDO COMPRA CON DETALLES ===");
         Compra compraGuardada = compraRepository.saveAndFlush(compra);
         System.out.println("Compra guardada con ID: " + compraGuardada.getId());
         System.out.println("Número de factura: " + compraGuardada.getNumeroFactura());
         
-        // Actualizar stock después de guardar (necesitamos los detalles guardados)
+        // Actualizar stock después de guardar (necesitamos los detalles guardados), todas las líneas en una pasada
         if (compraGuardada.getDetallesCompra() != null && !compraGuardada.getDetallesCompra().isEmpty()) {
             System.out.println("=== ACTUALIZANDO STOCK PARA " + compraGuardada.getDetallesCompra().size() + " DETALLES ===");
-            for (DetalleCompra detalle : compraGuardada.getDetallesCompra()) {
-                System.out.println("Actualizando stock para producto ID: " + detalle.getProducto().getId() + ", Cantidad: " + detalle.getCantidad());
-                actualizarStockCompra(detalle);
-                System.out.println("Stock actualizado para producto ID: " + detalle.getProducto().getId());
-            }
+            actualizarStockCompra(compraGuardada.getDetallesCompra());
         }
         
-        // Recalcular totales después de guardar todos los detalles
-        System.out.println("=== RECALCULANDO TOTALES ===");
-        recalcularTotalesCompra(compraGuardada.getId());
-        
-        // Recargar la compra con los totales actualizados
-        compraGuardada = compraRepository.findById(compraGuardada.getId())
-                .orElseThrow(() -> new RuntimeException("Error al recargar la compra después de guardar los detalles"));
-        
-        System.out.println("Compra recargada - Subtotal: " + compraGuardada.getSubtotal() + ", Total: " + compraGuardada.getTotal());
-        
         return compraGuardada;
     }
     
@@ -532,14 +567,48 @@ public class CompraService {
         }
     }
     
+    /**
+     * Agregar el stock de todas las líneas de una compra en lote: las cantidades se agrupan por
+     * presentación y por producto, y cada grupo se aplica con una carga y un guardado
+     */
+    private void actualizarStockCompra(List<DetalleCompra> detalles) {
+        Map<Long, Integer> cantidadPorPresentacion = new TreeMap<>();
+        Map<Long, Integer> cantidadPorProducto = new TreeMap<>();
+        agruparCantidades(detalles, cantidadPorPresentacion, cantidadPorProducto);
+        try {
+            presentacionService.agregarStockEnLote(cantidadPorPresentacion);
+            inventarioService.agregarStockProductos(cantidadPorProducto);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al actualizar el stock del producto: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Agrupar las cantidades de los detalles por presentación, o por producto si la línea no tiene presentación
+     */
+    private void agruparCantidades(List<DetalleCompra> detalles, Map<Long, Integer> cantidadPorPresentacion,
+                                   Map<Long, Integer> cantidadPorProducto) {
+        for (DetalleCompra detalle : detalles) {
+            if (detalle.getPresentacion() != null) {
+                cantidadPorPresentacion.merge(detalle.getPresentacion().getId(), detalle.getCantidad(), Integer::sum);
+            } else if (detalle.getProducto() != null && detalle.getProducto().getId() != null) {
+                cantidadPorProducto.merge(detalle.getProducto().getId(), detalle.getCantidad(), Integer::sum);
+            } else {
+                throw new RuntimeException("No se puede actualizar el stock: el producto no está definido en el detalle");
+            }
+        }
+    }
+    
     /**
      * Revertir stock al eliminar compra
      */
     private void revertirStockCompra(Compra compra) {
         List<DetalleCompra> detalles = detalleCompraRepository.findByCompra(compra);
-        for (DetalleCompra detalle : detalles) {
-            revertirStockDetalleCompra(detalle);
-        }
+        Map<Long, Integer> cantidadPorPresentacion = new TreeMap<>();
+        Map<Long, Integer> cantidadPorProducto = new TreeMap<>();
+        agruparCantidades(detalles, cantidadPorPresentacion, cantidadPorProducto);
+        presentacionService.reducirStockEnLote(cantidadPorPresentacion);
+        inventarioService.reducirStockProductos(cantidadPorProducto);
     }
     
     /**
@@ -559,8 +628,9 @@ public class CompraService {
      * Generar número de factura automático
      */
     private String generarNumeroFactura() {
-        long count = compraRepository.count() + 1;
-        return "COMP-" + String.format("%06d", count);
+        long numero = numeracionService.siguiente(NumeracionService.COMPRAS,
+                () -> NumeracionService.mayorNumero(compraRepository.findNumerosFacturaGenerados(), "COMP-") + 1);
+        return "COMP-" + String.format("%06d", numero);
     }
     
     /**
@@ -0,0 +1,315 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.ResumenVentaDiario;
+import com.proyectoavanzada.backend.model.ResumenVentaProducto;
+import com.proyectoavanzada.backend.model.Venta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mantiene los contadores de unidades vendidas de productos y presentaciones, el resumen diario
+ * por producto y presentación, para que los más vendidos se lean ya ordenados sin sumar detalles_venta,
+ * y el resumen diario de ventas por método de pago, vendedor y estado, para los totales de ventas.
+ * Los contadores se actualizan con sentencias atómicas dentro de la transacción de la venta;
+ * si alguna vez se desalinean, reconstruirContadores() los recalcula desde las ventas.
+ */
+@Service
+@Transactional
+public class ContadorVentasService {
+
+    private static final String SQL_INCREMENTAR_PRODUCTO =
+        "UPDATE productos SET unidades_vendidas = COALESCE(unidades_vendidas, 0) + ? WHERE id = ?";
+
+    private static final String SQL_INCREMENTAR_PRESENTACION =
+        "UPDATE presentaciones SET unidades_vendidas = COALESCE(unidades_vendidas, 0) + ? WHERE id = ?";
+
+    private static final String SQL_ACTUALIZAR_RESUMEN =
+        "UPDATE resumen_ventas_producto SET unidades_vendidas = unidades_vendidas + ?, monto_vendido = monto_vendido + ? " +
+        "WHERE fecha = ? AND producto_id = ? AND presentacion_id = ?";
+
+    private static final String SQL_INSERTAR_RESUMEN =
+        "INSERT INTO resumen_ventas_producto (fecha, producto_id, presentacion_id, unidades_vendidas, monto_vendido) " +
+        "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SQL_ACTUALIZAR_RESUMEN_DIARIO =
+        "UPDATE resumen_ventas_diario SET cantidad_ventas = cantidad_ventas + ?, monto_total = monto_total + ? " +
+        "WHERE fecha = ? AND metodo_pago = ? AND usuario_id = ? AND estado = ? AND activo = ?";
+
+    private static final String SQL_INSERTAR_RESUMEN_DIARIO =
+        "INSERT INTO resumen_ventas_diario (fecha, metodo_pago, usuario_id, estado, activo, cantidad_ventas, monto_total) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_BORRAR_RESUMEN_DIARIO_VACIO =
+        "DELETE FROM resumen_ventas_diario WHERE fecha = ? AND metodo_pago = ? AND usuario_id = ? AND estado = ? " +
+        "AND activo = ? AND cantidad_ventas = 0 AND monto_total = 0";
+
+    // Una venta cuenta como vendida mientras esté activa y no esté cancelada ni devuelta
+    private static final String CONDICION_VENTA_VIGENTE =
+        "(v.activo IS NULL OR v.activo = TRUE) AND COALESCE(v.estado, '') NOT IN ('CANCELADA', 'DEVUELTA')";
+
+    // Orden fijo de las filas para que dos transacciones concurrentes las bloqueen en el mismo orden
+    private static final Comparator<FotoVenta> ORDEN_RESUMEN_DIARIO = Comparator
+        .comparing(FotoVenta::fecha)
+        .thenComparing(FotoVenta::metodoPago)
+        .thenComparing(FotoVenta::usuarioId)
+        .thenComparing(FotoVenta::estado)
+        .thenComparing(FotoVenta::activa);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VersionRecursosService versionRecursosService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    /**
+     * Sumar a los contadores las unidades de los detalles de una venta
+     */
+    public void registrarVenta(LocalDateTime fechaVenta, Collection<DetalleVenta> detalles) {
+        aplicarDetalles(fechaVenta, detalles, 1);
+    }
+
+    /**
+     * Restar de los contadores las unidades de los detalles de una venta cancelada, devuelta o eliminada
+     */
+    public void revertirVenta(LocalDateTime fechaVenta, Collection<DetalleVenta> detalles) {
+        aplicarDetalles(fechaVenta, detalles, -1);
+    }
+
+    /**
+     * Mover una venta en el resumen diario de ventas: se resta su fila anterior (null si es nueva)
+     * y se suma la actual (null si se eliminó). Si no cambió nada del resumen no se escribe.
+     */
+    public void actualizarResumenDiario(FotoVenta antes, FotoVenta despues) {
+        List<FotoVenta> anteriores = new ArrayList<>(1);
+        List<FotoVenta> actuales = new ArrayList<>(1);
+        if (antes != null) {
+            anteriores.add(antes);
+        }
+        if (despues != null) {
+            actuales.add(despues);
+        }
+        actualizarResumenDiario(anteriores, actuales);
+    }
+
+    /**
+     * Mover varias ventas en el resumen diario con una sola actualización por fila
+     */
+    public void actualizarResumenDiario(Collection<FotoVenta> anteriores, Collection<FotoVenta> actuales) {
+        Map<FotoVenta, Acumulado> deltas = new TreeMap<>(ORDEN_RESUMEN_DIARIO);
+        for (FotoVenta foto : anteriores) {
+            acumularFoto(deltas, foto, -1);
+        }
+        for (FotoVenta foto : actuales) {
+            acumularFoto(deltas, foto, 1);
+        }
+        for (Map.Entry<FotoVenta, Acumulado> entrada : deltas.entrySet()) {
+            Acumulado delta = entrada.getValue();
+            if (delta.unidades != 0 || delta.monto.signum() != 0) {
+                acumularResumenDiario(entrada.getKey(), delta.unidades, delta.monto);
+            }
+        }
+    }
+
+    /**
+     * Recalcular todos los contadores y los resúmenes diarios a partir de las ventas
+     */
+    public Map<String, Object> reconstruirContadores() {
+        int productos = jdbcTemplate.update(
+            "UPDATE productos SET unidades_vendidas = (SELECT COALESCE(SUM(dv.cantidad), 0) FROM detalles_venta dv " +
+            "JOIN ventas v ON v.id = dv.venta_id WHERE dv.producto_id = productos.id AND " + CONDICION_VENTA_VIGENTE + ")");
+
+        int presentaciones = jdbcTemplate.update(
+            "UPDATE presentaciones SET unidades_vendidas = (SELECT COALESCE(SUM(dv.cantidad), 0) FROM detalles_venta dv " +
+            "JOIN ventas v ON v.id = dv.venta_id WHERE dv.presentacion_id = presentaciones.id AND " + CONDICION_VENTA_VIGENTE + ")");
+
+        jdbcTemplate.update("DELETE FROM resumen_ventas_producto");
+        int filasResumen = jdbcTemplate.update(
+            "INSERT INTO resumen_ventas_producto (fecha, producto_id, presentacion_id, unidades_vendidas, monto_vendido) " +
+            "SELECT CAST(v.fecha_venta AS DATE), dv.producto_id, COALESCE(dv.presentacion_id, 0), " +
+            "SUM(dv.cantidad), COALESCE(SUM(dv.subtotal), 0) " +
+            "FROM detalles_venta dv JOIN ventas v ON v.id = dv.venta_id " +
+            "WHERE v.fecha_venta IS NOT NULL AND " + CONDICION_VENTA_VIGENTE + " " +
+            "GROUP BY CAST(v.fecha_venta AS DATE), dv.producto_id, COALESCE(dv.presentacion_id, 0)");
+
+        // Todas las ventas, con su estado y si siguen activas, igual que las claves de FotoVenta
+        jdbcTemplate.update("DELETE FROM resumen_ventas_diario");
+        int filasResumenDiario = jdbcTemplate.update(
+            "INSERT INTO resumen_ventas_diario (fecha, metodo_pago, usuario_id, estado, activo, cantidad_ventas, monto_total) " +
+            "SELECT fecha, metodo_pago, usuario_id, estado, activo, COUNT(*), COALESCE(SUM(total), 0) FROM (" +
+            "SELECT CAST(COALESCE(v.fecha_venta, CURRENT_TIMESTAMP) AS DATE) AS fecha, " +
+            "COALESCE(v.metodo_pago, '') AS metodo_pago, COALESCE(v.usuario_id, 0) AS usuario_id, " +
+            "COALESCE(v.estado, '') AS estado, CASE WHEN v.activo = TRUE THEN TRUE ELSE FALSE END AS activo, " +
+            "v.total AS total FROM ventas v) ventas_resumen " +
+            "GROUP BY fecha, metodo_pago, usuario_id, estado, activo");
+
+        versionRecursosService.incrementarAlFinalizar(VersionRecursosService.PRODUCTOS);
+        productoService.invalidarCacheCatalogoAlFinalizar();
+
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("productosActualizados", productos);
+        resultado.put("presentacionesActualizadas", presentaciones);
+        resultado.put("filasResumen", filasResumen);
+        resultado.put("filasResumenDiario", filasResumenDiario);
+        return resultado;
+    }
+
+    /**
+     * Agrupar los detalles por producto, presentación y día y aplicar una sola actualización por fila.
+     * Los ids se recorren ordenados para que dos ventas concurrentes bloqueen las filas en el mismo orden.
+     */
+    private void aplicarDetalles(LocalDateTime fechaVenta, Collection<DetalleVenta> detalles, int signo) {
+        if (detalles == null || detalles.isEmpty()) {
+            return;
+        }
+        LocalDate fecha = fechaVenta != null ? fechaVenta.toLocalDate() : LocalDate.now();
+
+        Map<Long, Long> unidadesPorProducto = new TreeMap<>();
+        Map<Long, Long> unidadesPorPresentacion = new TreeMap<>();
+        Map<ClaveResumen, Acumulado> resumenPorClave = new TreeMap<>(
+            Comparator.comparing(ClaveResumen::productoId).thenComparing(ClaveResumen::presentacionId));
+
+        for (DetalleVenta detalle : detalles) {
+            Long productoId = detalle.getProductoId();
+            if (productoId == null || detalle.getCantidad() == null) {
+                continue;
+            }
+            long unidades = (long) detalle.getCantidad() * signo;
+            BigDecimal monto = detalle.getSubtotal() != null ? detalle.getSubtotal() : BigDecimal.ZERO;
+            if (signo < 0) {
+                monto = monto.negate();
+            }
+            Long presentacionId = detalle.getPresentacionId();
+
+            unidadesPorProducto.merge(productoId, unidades, Long::sum);
+            if (presentacionId != null) {
+                unidadesPorPresentacion.merge(presentacionId, unidades, Long::sum);
+            }
+
+            ClaveResumen clave = new ClaveResumen(productoId,
+                presentacionId != null ? presentacionId : ResumenVentaProducto.SIN_PRESENTACION);
+            Acumulado acumulado = resumenPorClave.computeIfAbsent(clave, k -> new Acumulado());
+            acumulado.unidades += unidades;
+            acumulado.monto = acumulado.monto.add(monto);
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INCREMENTAR_PRODUCTO, argumentosIncremento(unidadesPorProducto));
+        if (!unidadesPorPresentacion.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INCREMENTAR_PRESENTACION, argumentosIncremento(unidadesPorPresentacion));
+        }
+        for (Map.Entry<ClaveResumen, Acumulado> entrada : resumenPorClave.entrySet()) {
+            acumularResumen(fecha, entrada.getKey().productoId(), entrada.getKey().presentacionId(),
+                            entrada.getValue().unidades, entrada.getValue().monto);
+        }
+        // Las unidades vendidas se publican con cada producto: se cambia la versión y se quita su detalle de la caché
+        versionRecursosService.incrementarAlFinalizar(VersionRecursosService.PRODUCTOS);
+        productoService.invalidarDetallesAlFinalizar(unidadesPorProducto.keySet());
+    }
+
+    private static List<Object[]> argumentosIncremento(Map<Long, Long> unidadesPorId) {
+        List<Object[]> argumentos = new ArrayList<>(unidadesPorId.size());
+        for (Map.Entry<Long, Long> entrada : unidadesPorId.entrySet()) {
+            argumentos.add(new Object[]{entrada.getValue(), entrada.getKey()});
+        }
+        return argumentos;
+    }
+
+    /**
+     * Sumar a la fila del resumen diario, creándola si es la primera venta del día para esa presentación
+     */
+    private void acumularResumen(LocalDate fecha, Long productoId, Long presentacionId, long unidades, BigDecimal monto) {
+        int filas = jdbcTemplate.update(SQL_ACTUALIZAR_RESUMEN, unidades, monto, fecha, productoId, presentacionId);
+        if (filas > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(SQL_INSERTAR_RESUMEN, fecha, productoId, presentacionId, unidades, monto);
+        } catch (DuplicateKeyException e) {
+            // Otra transacción creó la fila entre el UPDATE y el INSERT
+            jdbcTemplate.update(SQL_ACTUALIZAR_RESUMEN, unidades, monto, fecha, productoId, presentacionId);
+        }
+    }
+
+    private static void acumularFoto(Map<FotoVenta, Acumulado> deltas, FotoVenta foto, int signo) {
+        // La clave es la foto sin el total: las ventas de la misma fila se suman en un solo delta
+        FotoVenta clave = new FotoVenta(foto.fecha(), foto.metodoPago(), foto.usuarioId(), foto.estado(),
+                                        foto.activa(), BigDecimal.ZERO);
+        Acumulado acumulado = deltas.computeIfAbsent(clave, k -> new Acumulado());
+        // En el resumen diario las unidades son ventas
+        acumulado.unidades += signo;
+        acumulado.monto = signo > 0 ? acumulado.monto.add(foto.total()) : acumulado.monto.subtract(foto.total());
+    }
+
+    /**
+     * Sumar a la fila del resumen diario de ventas, creándola si es la primera venta de esa combinación.
+     * Si después de restar la fila queda sin ventas se borra, igual que si se reconstruyera el resumen
+     */
+    private void acumularResumenDiario(FotoVenta clave, long ventas, BigDecimal monto) {
+        Object[] filtro = {clave.fecha(), clave.metodoPago(), clave.usuarioId(), clave.estado(), clave.activa()};
+        int filas = jdbcTemplate.update(SQL_ACTUALIZAR_RESUMEN_DIARIO, argumentos(ventas, monto, filtro));
+        if (filas > 0) {
+            if (ventas < 0) {
+                jdbcTemplate.update(SQL_BORRAR_RESUMEN_DIARIO_VACIO, filtro);
+            }
+            return;
+        }
+        try {
+            jdbcTemplate.update(SQL_INSERTAR_RESUMEN_DIARIO, clave.fecha(), clave.metodoPago(), clave.usuarioId(),
+                                clave.estado(), clave.activa(), ventas, monto);
+        } catch (DuplicateKeyException e) {
+            // Otra transacción creó la fila entre el UPDATE y el INSERT
+            jdbcTemplate.update(SQL_ACTUALIZAR_RESUMEN_DIARIO, argumentos(ventas, monto, filtro));
+        }
+    }
+
+    private static Object[] argumentos(long ventas, BigDecimal monto, Object[] filtro) {
+        Object[] argumentos = new Object[filtro.length + 2];
+        argumentos[0] = ventas;
+        argumentos[1] = monto;
+        System.arraycopy(filtro, 0, argumentos, 2, filtro.length);
+        return argumentos;
+    }
+
+    /**
+     * Fila del resumen diario de ventas a la que pertenece una venta, con su total.
+     * Se toma antes y después de cada cambio para mover la venta de una fila a otra.
+     */
+    public record FotoVenta(LocalDate fecha, String metodoPago, Long usuarioId, String estado, boolean activa,
+                            BigDecimal total) {
+
+        public static FotoVenta de(Venta venta) {
+            return new FotoVenta(
+                venta.getFechaVenta() != null ? venta.getFechaVenta().toLocalDate() : LocalDate.now(),
+                venta.getMetodoPago() != null ? venta.getMetodoPago() : ResumenVentaDiario.SIN_VALOR,
+                venta.getUsuarioId() != null ? venta.getUsuarioId() : 0L,
+                venta.getEstado() != null ? venta.getEstado() : ResumenVentaDiario.SIN_VALOR,
+                Boolean.TRUE.equals(venta.getActivo()),
+                venta.getTotal() != null ? venta.getTotal() : BigDecimal.ZERO);
+        }
+    }
+
+    private record ClaveResumen(Long productoId, Long presentacionId) {
+    }
+
+    private static final class Acumulado {
+        private long unidades;
+        private BigDecimal monto = BigDecimal.ZERO;
+    }
+}
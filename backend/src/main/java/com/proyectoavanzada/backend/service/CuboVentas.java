@@ -0,0 +1,803 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.dto.ConsultaCuboVentas;
+import com.proyectoavanzada.backend.dto.ResultadoCuboVentas;
+import com.proyectoavanzada.backend.exception.BusinessException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Cubo de ventas en memoria para los tableros: agrupa y filtra las líneas de venta vigentes por fecha,
+ * categoría, marca, género, talla, color, método de pago y vendedor sin ejecutar un GROUP BY en la base.
+ * Las líneas se guardan por columnas en segmentos de 65536 filas: el día (días desde 1970) y cada dimensión
+ * como char con el código de su diccionario, la cantidad como int y el monto en centavos como long.
+ * Una consulta recorre cada segmento columna por columna y reparte los segmentos entre los núcleos con fork-join.
+ * Las ventas nuevas se agregan periódicamente al final del cubo; cada actualización vuelve a leer las últimas
+ * ventas ya cargadas, porque una venta con id menor puede confirmarse después que otra con id mayor, y descarta
+ * las que ya estaban. La recarga completa periódica refleja cancelaciones, devoluciones y ediciones de ventas
+ * ya cargadas.
+ */
+@Component
+public class CuboVentas {
+
+    private static final Logger logger = LoggerFactory.getLogger(CuboVentas.class);
+
+    public static final String DIA = "dia";
+    public static final String SEMANA = "semana";
+    public static final String MES = "mes";
+
+    public static final String CATEGORIA = "categoria";
+    public static final String MARCA = "marca";
+    public static final String GENERO = "genero";
+    public static final String TALLA = "talla";
+    public static final String COLOR = "color";
+    public static final String METODO_PAGO = "metodoPago";
+    public static final String VENDEDOR = "vendedor";
+
+    public static final List<String> PERIODOS = List.of(DIA, SEMANA, MES);
+    // Orden de los valores que recibe Cargador.agregar
+    public static final List<String> DIMENSIONES = List.of(CATEGORIA, MARCA, GENERO, TALLA, COLOR, METODO_PAGO, VENDEDOR);
+
+    public static final int TAMANO_SEGMENTO = 1 << 16;
+    public static final int MAXIMO_LIMITE = 10_000;
+
+    private static final int VENDEDOR_COLUMNA = DIMENSIONES.indexOf(VENDEDOR);
+    // Código 0 de cada diccionario: línea sin valor en esa dimensión
+    private static final int SIN_VALOR = 0;
+    private static final int MAXIMO_CODIGOS = Character.MAX_VALUE + 1;
+    // Hasta esta cantidad de grupos se acumula en arreglos indexados por grupo; con más, en un mapa
+    private static final int MAXIMO_GRUPOS_DENSOS = 1 << 16;
+    // Bytes por línea: día y dimensiones (char), cantidad (int) y monto (long)
+    private static final long BYTES_POR_LINEA = 2L * (1 + DIMENSIONES.size()) + 4 + 8;
+
+    private static final Map<String, String> NOMBRES = new HashMap<>();
+
+    static {
+        for (String nombre : PERIODOS) {
+            NOMBRES.put(nombre.toLowerCase(Locale.ROOT), nombre);
+        }
+        for (String nombre : DIMENSIONES) {
+            NOMBRES.put(nombre.toLowerCase(Locale.ROOT), nombre);
+        }
+    }
+
+    private static final String SQL_LINEAS =
+        "SELECT doc.id, doc.fecha_venta, cat.nombre, m.nombre, p.genero, pr.talla, pr.color, doc.metodo_pago, " +
+        "doc.usuario_id, u.nombre, d.cantidad, COALESCE(d.subtotal, d.cantidad * d.precio_unitario) " +
+        "FROM ventas doc JOIN detalles_venta d ON d.venta_id = doc.id " +
+        "JOIN productos p ON p.id = d.producto_id " +
+        "LEFT JOIN categorias cat ON cat.id = p.categoria_id " +
+        "LEFT JOIN marcas m ON m.id = p.marca_id " +
+        "LEFT JOIN presentaciones pr ON pr.id = d.presentacion_id " +
+        "LEFT JOIN usuarios u ON u.id = doc.usuario_id " +
+        "WHERE doc.id > ? AND (doc.activo IS NULL OR doc.activo = TRUE) " +
+        "AND COALESCE(doc.estado, '') NOT IN ('CANCELADA', 'DEVUELTA') " +
+        "ORDER BY doc.id, d.id";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${ventas.cubo.hilos:0}")
+    private int hilos;
+
+    @Value("${ventas.cubo.tamano-lectura:1000}")
+    private int tamanoLectura;
+
+    @Value("${ventas.cubo.ventana-ids:1000}")
+    private long ventanaIds;
+
+    // JdbcTemplate propio, con lectura por cursor para no traer todas las líneas a la vez
+    private JdbcTemplate jdbcTemplateCubo;
+    private ForkJoinPool pool;
+
+    // Cargador con el contenido actual; solo se modifica dentro de los métodos synchronized
+    private Cargador actual = new Cargador();
+    private volatile Instantanea instantanea = actual.publicar();
+    private volatile boolean construido = false;
+    private boolean recargaPendiente = false;
+
+    @PostConstruct
+    void iniciar() {
+        jdbcTemplateCubo = new JdbcTemplate(dataSource);
+        // Igual que en la exportación: MySQL solo entrega las filas de a una con fetchSize = Integer.MIN_VALUE
+        jdbcTemplateCubo.setFetchSize(esMySql() ? Integer.MIN_VALUE : tamanoLectura);
+        pool = new ForkJoinPool(hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void detener() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Cargar el cubo al iniciar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        recargar();
+    }
+
+    /**
+     * Volver a cargar todas las líneas de venta vigentes. El cubo nuevo se arma aparte y reemplaza al
+     * anterior al terminar, así las consultas siguen respondiendo mientras tanto.
+     * @return cantidad de líneas cargadas
+     */
+    @Scheduled(fixedDelayString = "${ventas.cubo.recarga-ms:3600000}",
+               initialDelayString = "${ventas.cubo.recarga-ms:3600000}")
+    public synchronized int recargar() {
+        long inicio = System.nanoTime();
+        reemplazar(this::cargarLineas);
+        recargaPendiente = false;
+        Instantanea datos = instantanea;
+        logger.info("Cubo de ventas cargado con {} líneas en {} ms", datos.filas(),
+            (System.nanoTime() - inicio) / 1_000_000);
+        return datos.filas();
+    }
+
+    /**
+     * Agregar al cubo las líneas de las ventas registradas desde la última carga
+     * @return cantidad de líneas agregadas
+     */
+    @Scheduled(fixedDelayString = "${ventas.cubo.actualizacion-ms:10000}",
+               initialDelayString = "${ventas.cubo.actualizacion-ms:10000}")
+    public synchronized int actualizar() {
+        if (!construido) {
+            return 0;
+        }
+        if (recargaPendiente) {
+            return recargar();
+        }
+        int antes = instantanea.filas();
+        agregar(this::cargarLineas);
+        return instantanea.filas() - antes;
+    }
+
+    /**
+     * Reemplazar el contenido del cubo por las líneas que agrega el productor
+     */
+    public synchronized void reemplazar(Consumer<Cargador> lineas) {
+        Cargador nuevo = new Cargador();
+        lineas.accept(nuevo);
+        actual = nuevo;
+        instantanea = nuevo.publicar();
+        construido = true;
+    }
+
+    /**
+     * Agregar al final del cubo las líneas que agrega el productor. Las líneas nuevas quedan visibles
+     * para las consultas recién cuando termina; si el productor falla, la próxima actualización recarga todo.
+     */
+    public synchronized void agregar(Consumer<Cargador> lineas) {
+        try {
+            lineas.accept(actual);
+        } catch (RuntimeException e) {
+            // Pudieron quedar líneas a medio agregar de una venta: no se publican y se recarga la próxima vez
+            recargaPendiente = true;
+            throw e;
+        }
+        instantanea = actual.publicar();
+    }
+
+    /**
+     * Resumen del contenido actual del cubo
+     */
+    public Map<String, Object> estado() {
+        Instantanea datos = instantanea;
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("lineas", datos.filas());
+        estado.put("segmentos", datos.segmentos().length);
+        estado.put("bytes", (long) datos.segmentos().length * TAMANO_SEGMENTO * BYTES_POR_LINEA);
+        estado.put("ultimaVentaId", datos.ultimaVentaId());
+        estado.put("desde", datos.filas() > 0 ? LocalDate.ofEpochDay(datos.diaMinimo()) : null);
+        estado.put("hasta", datos.filas() > 0 ? LocalDate.ofEpochDay(datos.diaMaximo()) : null);
+        Map<String, Integer> valores = new LinkedHashMap<>();
+        for (int i = 0; i < DIMENSIONES.size(); i++) {
+            valores.put(DIMENSIONES.get(i), datos.valores()[i].length - 1);
+        }
+        estado.put("valoresPorDimension", valores);
+        estado.put("actualizado", datos.actualizado());
+        return estado;
+    }
+
+    /**
+     * Agrupar y filtrar las líneas de venta cargadas
+     */
+    public ResultadoCuboVentas consultar(ConsultaCuboVentas consulta) {
+        long inicio = System.nanoTime();
+        Instantanea datos = instantanea;
+        Plan plan = planificar(consulta, datos);
+        Parcial total = plan.vacio
+            ? new Parcial(plan)
+            : pool.invoke(new Escaneo(datos, plan, 0, datos.segmentos().length));
+
+        List<Grupo> grupos = total.grupos();
+        grupos.sort(Comparator.comparingLong(Grupo::monto).reversed().thenComparingLong(Grupo::clave));
+        int limite = Math.max(1, Math.min(consulta.limite(), MAXIMO_LIMITE));
+        List<Map<String, Object>> filas = new ArrayList<>(Math.min(limite, grupos.size()));
+        for (Grupo grupo : grupos.subList(0, Math.min(limite, grupos.size()))) {
+            filas.add(decodificar(grupo, plan, datos));
+        }
+        return new ResultadoCuboVentas(filas, grupos.size(), datos.filas(), total.seleccionadas,
+            (System.nanoTime() - inicio) / 1000);
+    }
+
+    /**
+     * Validar la consulta y resolverla contra los diccionarios de la instantánea
+     */
+    private Plan planificar(ConsultaCuboVentas consulta, Instantanea datos) {
+        if (consulta.desde() != null && consulta.hasta() != null && consulta.desde().isAfter(consulta.hasta())) {
+            throw new BusinessException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        Plan plan = new Plan();
+
+        List<Integer> agrupadas = new ArrayList<>();
+        if (consulta.agrupaciones() != null) {
+            for (String agrupacion : consulta.agrupaciones()) {
+                String nombre = normalizar(agrupacion, "Agrupación no soportada");
+                if (PERIODOS.contains(nombre)) {
+                    if (plan.periodo != null && !plan.periodo.equals(nombre)) {
+                        throw new BusinessException("Solo se puede agrupar por un periodo (dia, semana o mes)");
+                    }
+                    plan.periodo = nombre;
+                } else if (!agrupadas.contains(DIMENSIONES.indexOf(nombre))) {
+                    agrupadas.add(DIMENSIONES.indexOf(nombre));
+                }
+            }
+        }
+        plan.columnasAgrupadas = agrupadas.stream().mapToInt(Integer::intValue).toArray();
+        plan.bases = new int[plan.columnasAgrupadas.length];
+        for (int g = 0; g < plan.bases.length; g++) {
+            plan.bases[g] = datos.valores()[plan.columnasAgrupadas[g]].length;
+        }
+
+        List<Integer> filtradas = new ArrayList<>();
+        List<boolean[]> permitidos = new ArrayList<>();
+        if (consulta.filtros() != null) {
+            for (Map.Entry<String, Set<String>> filtro : consulta.filtros().entrySet()) {
+                String nombre = normalizar(filtro.getKey(), "Filtro no soportado");
+                if (PERIODOS.contains(nombre)) {
+                    throw new BusinessException("Filtro no soportado: " + filtro.getKey() + " (use desde y hasta)");
+                }
+                if (filtro.getValue() == null || filtro.getValue().isEmpty()) {
+                    continue;
+                }
+                int columna = DIMENSIONES.indexOf(nombre);
+                Set<String> buscados = filtro.getValue().stream()
+                    .filter(valor -> valor != null)
+                    .map(valor -> valor.trim().toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+                String[] valores = datos.valores()[columna];
+                boolean[] permitido = new boolean[valores.length];
+                boolean alguno = false;
+                for (int codigo = SIN_VALOR + 1; codigo < valores.length; codigo++) {
+                    permitido[codigo] = buscados.contains(valores[codigo].toLowerCase(Locale.ROOT));
+                    alguno |= permitido[codigo];
+                }
+                plan.vacio |= !alguno;
+                int existente = filtradas.indexOf(columna);
+                if (existente >= 0) {
+                    // Dos filtros sobre la misma dimensión (por ejemplo con distinto uso de mayúsculas): se combinan con OR
+                    boolean[] anterior = permitidos.get(existente);
+                    for (int codigo = 0; codigo < permitido.length; codigo++) {
+                        anterior[codigo] |= permitido[codigo];
+                    }
+                } else {
+                    filtradas.add(columna);
+                    permitidos.add(permitido);
+                }
+            }
+        }
+        plan.columnasFiltradas = filtradas.stream().mapToInt(Integer::intValue).toArray();
+        plan.permitidos = permitidos.toArray(new boolean[0][]);
+
+        // Rango de días recortado a los días cargados
+        long desde = consulta.desde() != null ? Math.max(consulta.desde().toEpochDay(), datos.diaMinimo()) : datos.diaMinimo();
+        long hasta = consulta.hasta() != null ? Math.min(consulta.hasta().toEpochDay(), datos.diaMaximo()) : datos.diaMaximo();
+        plan.vacio |= datos.filas() == 0 || desde > hasta;
+        plan.diaDesde = (int) desde;
+        plan.diaHasta = (int) hasta;
+
+        long grupos = 1;
+        if (plan.periodo != null && !plan.vacio) {
+            prepararPeriodos(plan);
+            grupos = plan.periodos;
+        }
+        try {
+            for (int base : plan.bases) {
+                grupos = Math.multiplyExact(grupos, base);
+            }
+        } catch (ArithmeticException e) {
+            throw new BusinessException("Demasiadas combinaciones de agrupaciones; quite alguna agrupación o acote el rango");
+        }
+        plan.grupos = grupos;
+        plan.denso = grupos <= MAXIMO_GRUPOS_DENSOS;
+        plan.segmentosPorTarea = Math.max(1, datos.segmentos().length / (pool.getParallelism() * 4));
+        return plan;
+    }
+
+    /**
+     * Tabla con el índice de periodo de cada día del rango, para no convertir fechas línea por línea
+     */
+    private static void prepararPeriodos(Plan plan) {
+        LocalDate primerDia = LocalDate.ofEpochDay(plan.diaDesde);
+        plan.periodoPorDia = new int[plan.diaHasta - plan.diaDesde + 1];
+        switch (plan.periodo) {
+            case DIA -> {
+                plan.inicioPeriodos = primerDia;
+                for (int i = 0; i < plan.periodoPorDia.length; i++) {
+                    plan.periodoPorDia[i] = i;
+                }
+            }
+            case SEMANA -> {
+                plan.inicioPeriodos = primerDia.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                int corrimiento = (int) (primerDia.toEpochDay() - plan.inicioPeriodos.toEpochDay());
+                for (int i = 0; i < plan.periodoPorDia.length; i++) {
+                    plan.periodoPorDia[i] = (i + corrimiento) / 7;
+                }
+            }
+            default -> {
+                plan.inicioPeriodos = primerDia.withDayOfMonth(1);
+                int mesInicial = primerDia.getYear() * 12 + primerDia.getMonthValue();
+                LocalDate fecha = primerDia;
+                for (int i = 0; i < plan.periodoPorDia.length; i++, fecha = fecha.plusDays(1)) {
+                    plan.periodoPorDia[i] = fecha.getYear() * 12 + fecha.getMonthValue() - mesInicial;
+                }
+            }
+        }
+        plan.periodos = plan.periodoPorDia[plan.periodoPorDia.length - 1] + 1;
+    }
+
+    private static String normalizar(String nombre, String error) {
+        String normalizado = nombre == null ? null : NOMBRES.get(nombre.trim().toLowerCase(Locale.ROOT));
+        if (normalizado == null) {
+            throw new BusinessException(error + " en el cubo de ventas: " + nombre +
+                " (use " + String.join(", ", PERIODOS) + ", " + String.join(", ", DIMENSIONES) + ")");
+        }
+        return normalizado;
+    }
+
+    /**
+     * Fila del resultado con los valores de las agrupaciones y las medidas de un grupo
+     */
+    private static Map<String, Object> decodificar(Grupo grupo, Plan plan, Instantanea datos) {
+        int[] codigos = new int[plan.bases.length];
+        long clave = grupo.clave();
+        for (int g = plan.bases.length - 1; g >= 0; g--) {
+            codigos[g] = (int) (clave % plan.bases[g]);
+            clave /= plan.bases[g];
+        }
+        Map<String, Object> fila = new LinkedHashMap<>();
+        if (plan.periodo != null) {
+            LocalDate periodo = switch (plan.periodo) {
+                case DIA -> plan.inicioPeriodos.plusDays(clave);
+                case SEMANA -> plan.inicioPeriodos.plusWeeks(clave);
+                default -> plan.inicioPeriodos.plusMonths(clave);
+            };
+            fila.put(plan.periodo, periodo.toString());
+        }
+        for (int g = 0; g < codigos.length; g++) {
+            int columna = plan.columnasAgrupadas[g];
+            String valor = datos.valores()[columna][codigos[g]];
+            if (VENDEDOR.equals(DIMENSIONES.get(columna))) {
+                fila.put("vendedorId", valor != null ? Long.valueOf(valor) : null);
+                fila.put(VENDEDOR, valor != null ? datos.nombresVendedores().get(valor) : null);
+            } else {
+                fila.put(DIMENSIONES.get(columna), valor);
+            }
+        }
+        fila.put("lineas", grupo.lineas());
+        fila.put("unidades", grupo.unidades());
+        fila.put("monto", BigDecimal.valueOf(grupo.monto(), 2));
+        return fila;
+    }
+
+    /**
+     * Leer las líneas de las ventas vigentes desde la ventana de ids anterior a la última venta cargada,
+     * saltando las ventas de esa ventana que ya estaban en el cubo
+     */
+    private void cargarLineas(Cargador cargador) {
+        String[] valores = new String[DIMENSIONES.size()];
+        int[] omitidas = {0};
+        long[] ventaActual = {-1};
+        boolean[] yaCargada = {false};
+        long ventana = Math.max(0, ventanaIds);
+        jdbcTemplateCubo.query(SQL_LINEAS, (RowCallbackHandler) rs -> {
+            long ventaId = rs.getLong(1);
+            if (ventaId != ventaActual[0]) {
+                ventaActual[0] = ventaId;
+                yaCargada[0] = !cargador.registrarVenta(ventaId, ventana);
+            }
+            if (yaCargada[0]) {
+                return;
+            }
+            Timestamp fecha = rs.getTimestamp(2);
+            // Categoría, marca, género, talla, color y método de pago, en las columnas 3 a 8
+            for (int i = 0; i < VENDEDOR_COLUMNA; i++) {
+                valores[i] = rs.getString(3 + i);
+            }
+            long usuarioId = rs.getLong(9);
+            valores[VENDEDOR_COLUMNA] = rs.wasNull() ? null : String.valueOf(usuarioId);
+            cargador.nombrarVendedor(valores[VENDEDOR_COLUMNA], rs.getString(10));
+            if (fecha == null || !cargador.agregar(fecha.toLocalDateTime().toLocalDate(), valores,
+                    rs.getInt(11), centavos(rs.getBigDecimal(12)))) {
+                omitidas[0]++;
+            }
+        }, Math.max(0, cargador.ultimaVentaId - ventana));
+        if (omitidas[0] > 0) {
+            logger.warn("Cubo de ventas: {} líneas omitidas por fecha vacía o fuera de rango", omitidas[0]);
+        }
+    }
+
+    private static long centavos(BigDecimal monto) {
+        return monto == null ? 0 : monto.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private boolean esMySql() {
+        try {
+            String producto = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return producto != null && producto.toLowerCase().contains("mysql");
+        } catch (Exception e) {
+            logger.warn("No se pudo identificar la base de datos para el cubo de ventas: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Líneas del cubo en construcción. Los segmentos se llenan en orden y solo el último tiene lugar libre;
+     * las consultas leen hasta la cantidad de filas de su instantánea, así las filas que se agregan
+     * después no se ven hasta la siguiente publicación.
+     */
+    public static final class Cargador {
+
+        private final List<Segmento> segmentos = new ArrayList<>();
+        private final Diccionario[] diccionarios = new Diccionario[DIMENSIONES.size()];
+        private final Map<String, String> nombresVendedores = new HashMap<>();
+        // Ventas cargadas dentro de la ventana de ids que vuelve a leer la próxima actualización
+        private final TreeSet<Long> ventasRecientes = new TreeSet<>();
+        private int filas = 0;
+        private long ultimaVentaId = 0;
+        private int diaMinimo = Integer.MAX_VALUE;
+        private int diaMaximo = Integer.MIN_VALUE;
+
+        private Cargador() {
+            for (int i = 0; i < diccionarios.length; i++) {
+                diccionarios[i] = new Diccionario();
+            }
+        }
+
+        /**
+         * Agregar una línea de venta
+         * @param fecha día de la venta, entre 1970 y 2149
+         * @param valores valor de cada dimensión en el orden de DIMENSIONES (el vendedor por su id), null si no tiene
+         * @param cantidad unidades vendidas
+         * @param montoCentavos monto de la línea en centavos
+         * @return false si la fecha está fuera del rango que admite el cubo y la línea no se agregó
+         */
+        public boolean agregar(LocalDate fecha, String[] valores, int cantidad, long montoCentavos) {
+            long dia = fecha.toEpochDay();
+            if (dia < 0 || dia > Character.MAX_VALUE) {
+                return false;
+            }
+            int posicion = filas & (TAMANO_SEGMENTO - 1);
+            if (posicion == 0) {
+                segmentos.add(new Segmento());
+            }
+            Segmento segmento = segmentos.get(segmentos.size() - 1);
+            segmento.dias[posicion] = (char) dia;
+            for (int i = 0; i < diccionarios.length; i++) {
+                segmento.codigos[i][posicion] = (char) diccionarios[i].codigo(valores[i]);
+            }
+            segmento.cantidades[posicion] = cantidad;
+            segmento.montos[posicion] = montoCentavos;
+            diaMinimo = Math.min(diaMinimo, (int) dia);
+            diaMaximo = Math.max(diaMaximo, (int) dia);
+            filas++;
+            return true;
+        }
+
+        /**
+         * Registrar el nombre que se muestra para un vendedor
+         */
+        public void nombrarVendedor(String vendedorId, String nombre) {
+            if (vendedorId != null && nombre != null) {
+                nombresVendedores.put(vendedorId, nombre);
+            }
+        }
+
+        /**
+         * Registrar una venta leída de la base; devuelve false si ya estaba cargada
+         */
+        private boolean registrarVenta(long ventaId, long ventana) {
+            if (!ventasRecientes.add(ventaId)) {
+                return false;
+            }
+            ultimaVentaId = Math.max(ultimaVentaId, ventaId);
+            ventasRecientes.headSet(ultimaVentaId - ventana, true).clear();
+            return true;
+        }
+
+        private Instantanea publicar() {
+            String[][] valores = new String[diccionarios.length][];
+            for (int i = 0; i < diccionarios.length; i++) {
+                valores[i] = diccionarios[i].valores.toArray(new String[0]);
+            }
+            return new Instantanea(segmentos.toArray(new Segmento[0]), filas, valores, Map.copyOf(nombresVendedores),
+                diaMinimo, diaMaximo, ultimaVentaId, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Valores distintos de una dimensión; el código de cada valor es su posición
+     */
+    private static final class Diccionario {
+
+        private final Map<String, Integer> codigos = new HashMap<>();
+        private final List<String> valores = new ArrayList<>();
+
+        private Diccionario() {
+            valores.add(null);
+        }
+
+        private int codigo(String valor) {
+            if (valor == null || valor.isBlank()) {
+                return SIN_VALOR;
+            }
+            Integer codigo = codigos.get(valor);
+            if (codigo == null) {
+                if (valores.size() == MAXIMO_CODIGOS) {
+                    throw new IllegalStateException("El cubo de ventas admite hasta " + MAXIMO_CODIGOS +
+                        " valores por dimensión");
+                }
+                codigo = valores.size();
+                valores.add(valor);
+                codigos.put(valor, codigo);
+            }
+            return codigo;
+        }
+    }
+
+    /**
+     * Columnas de hasta TAMANO_SEGMENTO líneas
+     */
+    private static final class Segmento {
+        private final char[] dias = new char[TAMANO_SEGMENTO];
+        private final char[][] codigos = new char[DIMENSIONES.size()][TAMANO_SEGMENTO];
+        private final int[] cantidades = new int[TAMANO_SEGMENTO];
+        private final long[] montos = new long[TAMANO_SEGMENTO];
+    }
+
+    /**
+     * Estado del cubo que ve una consulta: segmentos, filas visibles y diccionarios al momento de publicarlo
+     */
+    private record Instantanea(Segmento[] segmentos,
+                               int filas,
+                               String[][] valores,
+                               Map<String, String> nombresVendedores,
+                               int diaMinimo,
+                               int diaMaximo,
+                               long ultimaVentaId,
+                               LocalDateTime actualizado) {
+    }
+
+    /**
+     * Consulta resuelta: columnas a filtrar y agrupar, códigos permitidos y forma de acumular
+     */
+    private static final class Plan {
+        private String periodo;
+        private LocalDate inicioPeriodos;
+        private int[] periodoPorDia;
+        private int periodos = 1;
+        private int diaDesde;
+        private int diaHasta;
+        private int[] columnasAgrupadas;
+        private int[] bases;
+        private int[] columnasFiltradas;
+        private boolean[][] permitidos;
+        private long grupos;
+        private boolean denso;
+        private boolean vacio;
+        private int segmentosPorTarea;
+    }
+
+    private record Grupo(long clave, long lineas, long unidades, long monto) {
+    }
+
+    /**
+     * Acumulado de un rango de segmentos: en arreglos indexados por grupo si hay pocos grupos, si no en un mapa
+     */
+    private static final class Parcial {
+
+        private long[] lineas;
+        private long[] unidades;
+        private long[] montos;
+        private Map<Long, long[]> mapa;
+        private long seleccionadas;
+
+        private Parcial(Plan plan) {
+            if (plan.denso) {
+                int grupos = (int) plan.grupos;
+                lineas = new long[grupos];
+                unidades = new long[grupos];
+                montos = new long[grupos];
+            } else {
+                mapa = new HashMap<>();
+            }
+        }
+
+        private void acumular(Segmento segmento, int[] seleccion, long[] claves, int cantidad) {
+            int[] cantidades = segmento.cantidades;
+            long[] montosSegmento = segmento.montos;
+            if (mapa == null) {
+                for (int j = 0; j < cantidad; j++) {
+                    int grupo = (int) claves[j];
+                    int fila = seleccion[j];
+                    lineas[grupo]++;
+                    unidades[grupo] += cantidades[fila];
+                    montos[grupo] += montosSegmento[fila];
+                }
+            } else {
+                for (int j = 0; j < cantidad; j++) {
+                    int fila = seleccion[j];
+                    long[] medidas = mapa.computeIfAbsent(claves[j], clave -> new long[3]);
+                    medidas[0]++;
+                    medidas[1] += cantidades[fila];
+                    medidas[2] += montosSegmento[fila];
+                }
+            }
+            seleccionadas += cantidad;
+        }
+
+        private Parcial combinar(Parcial otro) {
+            seleccionadas += otro.seleccionadas;
+            if (mapa == null) {
+                for (int grupo = 0; grupo < lineas.length; grupo++) {
+                    lineas[grupo] += otro.lineas[grupo];
+                    unidades[grupo] += otro.unidades[grupo];
+                    montos[grupo] += otro.montos[grupo];
+                }
+            } else {
+                for (Map.Entry<Long, long[]> entrada : otro.mapa.entrySet()) {
+                    long[] medidas = mapa.putIfAbsent(entrada.getKey(), entrada.getValue());
+                    if (medidas != null) {
+                        medidas[0] += entrada.getValue()[0];
+                        medidas[1] += entrada.getValue()[1];
+                        medidas[2] += entrada.getValue()[2];
+                    }
+                }
+            }
+            return this;
+        }
+
+        private List<Grupo> grupos() {
+            List<Grupo> grupos = new ArrayList<>();
+            if (mapa == null) {
+                for (int grupo = 0; grupo < lineas.length; grupo++) {
+                    if (lineas[grupo] > 0) {
+                        grupos.add(new Grupo(grupo, lineas[grupo], unidades[grupo], montos[grupo]));
+                    }
+                }
+            } else {
+                mapa.forEach((clave, medidas) -> grupos.add(new Grupo(clave, medidas[0], medidas[1], medidas[2])));
+            }
+            return grupos;
+        }
+    }
+
+    /**
+     * Recorrido de un rango de segmentos, dividido en mitades hasta segmentosPorTarea
+     */
+    private static final class Escaneo extends RecursiveTask<Parcial> {
+
+        private final Instantanea datos;
+        private final Plan plan;
+        private final int desde;
+        private final int hasta;
+
+        private Escaneo(Instantanea datos, Plan plan, int desde, int hasta) {
+            this.datos = datos;
+            this.plan = plan;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (hasta - desde <= plan.segmentosPorTarea) {
+                Parcial parcial = new Parcial(plan);
+                int[] seleccion = new int[TAMANO_SEGMENTO];
+                long[] claves = new long[TAMANO_SEGMENTO];
+                for (int s = desde; s < hasta; s++) {
+                    int filas = Math.min(TAMANO_SEGMENTO, datos.filas() - s * TAMANO_SEGMENTO);
+                    escanear(datos.segmentos()[s], filas, parcial, seleccion, claves);
+                }
+                return parcial;
+            }
+            int medio = (desde + hasta) >>> 1;
+            Escaneo izquierda = new Escaneo(datos, plan, desde, medio);
+            izquierda.fork();
+            Parcial derecha = new Escaneo(datos, plan, medio, hasta).compute();
+            return izquierda.join().combinar(derecha);
+        }
+
+        /**
+         * Recorrer un segmento una columna a la vez: primero se arma el vector de filas que cumplen el rango
+         * de días, cada filtro lo reduce, y con las filas que quedan se calcula la clave de grupo y se acumula.
+         * Los bucles no tienen saltos según el dato para que el JIT los compile sin predicciones fallidas.
+         */
+        private void escanear(Segmento segmento, int filas, Parcial parcial, int[] seleccion, long[] claves) {
+            char[] dias = segmento.dias;
+            int diaDesde = plan.diaDesde;
+            int diaHasta = plan.diaHasta;
+            int seleccionadas = 0;
+            for (int fila = 0; fila < filas; fila++) {
+                int dia = dias[fila];
+                seleccion[seleccionadas] = fila;
+                seleccionadas += (dia >= diaDesde & dia <= diaHasta) ? 1 : 0;
+            }
+
+            for (int f = 0; f < plan.columnasFiltradas.length; f++) {
+                char[] codigos = segmento.codigos[plan.columnasFiltradas[f]];
+                boolean[] permitidos = plan.permitidos[f];
+                int quedan = 0;
+                for (int j = 0; j < seleccionadas; j++) {
+                    int fila = seleccion[j];
+                    seleccion[quedan] = fila;
+                    quedan += permitidos[codigos[fila]] ? 1 : 0;
+                }
+                seleccionadas = quedan;
+            }
+
+            if (plan.periodoPorDia != null) {
+                int[] periodoPorDia = plan.periodoPorDia;
+                for (int j = 0; j < seleccionadas; j++) {
+                    claves[j] = periodoPorDia[dias[seleccion[j]] - diaDesde];
+                }
+            } else {
+                Arrays.fill(claves, 0, seleccionadas, 0L);
+            }
+            for (int g = 0; g < plan.columnasAgrupadas.length; g++) {
+                char[] codigos = segmento.codigos[plan.columnasAgrupadas[g]];
+                long base = plan.bases[g];
+                for (int j = 0; j < seleccionadas; j++) {
+                    claves[j] = claves[j] * base + codigos[seleccion[j]];
+                }
+            }
+            parcial.acumular(segmento, seleccion, claves, seleccionadas);
+        }
+    }
+}
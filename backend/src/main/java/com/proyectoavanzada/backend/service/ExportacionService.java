@@ -0,0 +1,322 @@
+package com.proyectoavanzada.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectoavanzada.backend.exception.BusinessException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación de ventas, detalles de venta y compras por rango de fechas en CSV o NDJSON.
+ * Las filas se leen con un cursor de solo avance y se escriben en la respuesta a medida que llegan,
+ * sin entidades ni listas intermedias, así la memoria usada no depende del tamaño del rango.
+ */
+@Service
+public class ExportacionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportacionService.class);
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private static final List<String> COLUMNAS_VENTAS = List.of("id", "numeroVenta", "fechaVenta", "clienteId",
+        "usuarioId", "subtotal", "descuento", "impuesto", "total", "estado", "metodoPago", "numeroComprobante",
+        "puntosOtorgados", "puntosUsados", "descuentoPuntos", "activo");
+
+    private static final String SQL_VENTAS =
+        "SELECT id, numero_venta, fecha_venta, cliente_id, usuario_id, subtotal, descuento, impuesto, total, estado, " +
+        "metodo_pago, numero_comprobante, puntos_otorgados, puntos_usados, descuento_puntos, activo " +
+        "FROM ventas WHERE fecha_venta BETWEEN ? AND ? ORDER BY fecha_venta, id";
+
+    private static final List<String> COLUMNAS_DETALLES_VENTA = List.of("id", "ventaId", "numeroVenta", "fechaVenta",
+        "productoId", "productoNombre", "presentacionId", "cantidad", "precioUnitario", "descuento", "subtotal");
+
+    private static final String SQL_DETALLES_VENTA =
+        "SELECT d.id, d.venta_id, v.numero_venta, v.fecha_venta, d.producto_id, p.nombre, d.presentacion_id, " +
+        "d.cantidad, d.precio_unitario, d.descuento, d.subtotal " +
+        "FROM detalles_venta d JOIN ventas v ON v.id = d.venta_id JOIN productos p ON p.id = d.producto_id " +
+        "WHERE v.fecha_venta BETWEEN ? AND ? ORDER BY v.fecha_venta, d.venta_id, d.id";
+
+    private static final List<String> COLUMNAS_COMPRAS = List.of("id", "numeroFactura", "fechaCompra", "proveedorId",
+        "usuarioId", "subtotal", "descuento", "impuesto", "total", "estado", "metodoPago", "numeroComprobante",
+        "fechaVencimiento", "activo");
+
+    private static final String SQL_COMPRAS =
+        "SELECT id, numero_factura, fecha_compra, proveedor_id, usuario_id, subtotal, descuento, impuesto, total, " +
+        "estado, metodo_pago, numero_comprobante, fecha_vencimiento, activo " +
+        "FROM compras WHERE fecha_compra BETWEEN ? AND ? ORDER BY fecha_compra, id";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${exportacion.tamano-lectura:1000}")
+    private int tamanoLectura;
+
+    // JdbcTemplate propio, con el tamaño de lectura del cursor de exportación
+    private JdbcTemplate jdbcTemplateExportacion;
+
+    @PostConstruct
+    void inicializar() {
+        jdbcTemplateExportacion = new JdbcTemplate(dataSource);
+        // MySQL Connector/J solo entrega las filas de a una con fetchSize = Integer.MIN_VALUE; con cualquier otro
+        // valor lee el resultado completo en memoria. Los demás drivers (H2 en las pruebas) usan el tamaño configurado
+        jdbcTemplateExportacion.setFetchSize(esMySql() ? Integer.MIN_VALUE : tamanoLectura);
+    }
+
+    /**
+     * Validar el formato pedido antes de empezar a escribir la respuesta
+     */
+    public String validarFormato(String formato) {
+        String normalizado = formato == null ? CSV : formato.trim().toLowerCase();
+        if (!CSV.equals(normalizado) && !NDJSON.equals(normalizado)) {
+            throw new BusinessException("Formato de exportación no soportado: " + formato + " (use csv o ndjson)");
+        }
+        return normalizado;
+    }
+
+    /**
+     * Leer una fecha del rango de exportación (ISO-8601, por ejemplo 2024-01-31T23:59:59)
+     */
+    public LocalDateTime parsearFecha(String fecha) {
+        try {
+            return LocalDateTime.parse(fecha);
+        } catch (DateTimeParseException e) {
+            throw new BusinessException("Fecha inválida: " + fecha + " (use el formato 2024-01-31T23:59:59)");
+        }
+    }
+
+    /**
+     * Respuesta de descarga con el tipo de contenido y el nombre de archivo del formato pedido;
+     * el cuerpo se escribe después de devolver el controlador, en el hilo de la petición asíncrona
+     */
+    public ResponseEntity<StreamingResponseBody> respuesta(String nombreArchivo, String formato, boolean comprimir,
+                                                           StreamingResponseBody cuerpo) {
+        String nombre = nombreArchivo + "." + formato + (comprimir ? ".gz" : "");
+        MediaType tipo = comprimir
+            ? MediaType.parseMediaType("application/gzip")
+            : NDJSON.equals(formato)
+                ? MediaType.parseMediaType("application/x-ndjson;charset=UTF-8")
+                : MediaType.parseMediaType("text/csv;charset=UTF-8");
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(nombre).build().toString())
+                .body(cuerpo);
+    }
+
+    /**
+     * Exportar las ventas de un rango de fechas
+     */
+    public void exportarVentas(LocalDateTime inicio, LocalDateTime fin, String formato, boolean comprimir,
+                               OutputStream salida) throws IOException {
+        exportar(SQL_VENTAS, COLUMNAS_VENTAS, inicio, fin, formato, comprimir, salida);
+    }
+
+    /**
+     * Exportar los detalles de las ventas de un rango de fechas, con el número de venta y el nombre del producto
+     */
+    public void exportarDetallesVenta(LocalDateTime inicio, LocalDateTime fin, String formato, boolean comprimir,
+                                      OutputStream salida) throws IOException {
+        exportar(SQL_DETALLES_VENTA, COLUMNAS_DETALLES_VENTA, inicio, fin, formato, comprimir, salida);
+    }
+
+    /**
+     * Exportar las compras de un rango de fechas
+     */
+    public void exportarCompras(LocalDateTime inicio, LocalDateTime fin, String formato, boolean comprimir,
+                                OutputStream salida) throws IOException {
+        exportar(SQL_COMPRAS, COLUMNAS_COMPRAS, inicio, fin, formato, comprimir, salida);
+    }
+
+    private void exportar(String sql, List<String> columnas, LocalDateTime inicio, LocalDateTime fin, String formato,
+                          boolean comprimir, OutputStream salida) throws IOException {
+        GZIPOutputStream gzip = comprimir ? new GZIPOutputStream(salida, TAMANO_BUFFER) : null;
+        Writer writer = new BufferedWriter(
+            new OutputStreamWriter(gzip != null ? gzip : salida, StandardCharsets.UTF_8), TAMANO_BUFFER);
+        EscritorFilas escritor = NDJSON.equals(formato)
+            ? new EscritorNdjson(objectMapper.getFactory().createGenerator(writer).setRootValueSeparator(null), columnas)
+            : new EscritorCsv(writer, columnas);
+
+        long inicioExportacion = System.currentTimeMillis();
+        long[] filas = {0};
+        escritor.encabezado();
+        try {
+            jdbcTemplateExportacion.query(sql, (RowCallbackHandler) rs -> {
+                try {
+                    escritor.fila(rs);
+                    filas[0]++;
+                } catch (IOException e) {
+                    // El cliente cortó la descarga: se corta también la lectura del cursor
+                    throw new UncheckedIOException(e);
+                }
+            }, Timestamp.valueOf(inicio), Timestamp.valueOf(fin));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        escritor.terminar();
+        writer.flush();
+        if (gzip != null) {
+            gzip.finish();
+        }
+        logger.info("Exportación de {} filas en {} ms", filas[0], System.currentTimeMillis() - inicioExportacion);
+    }
+
+    private boolean esMySql() {
+        try {
+            String producto = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return producto != null && producto.toLowerCase().contains("mysql");
+        } catch (Exception e) {
+            logger.warn("No se pudo identificar la base de datos para la exportación: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Valor de una columna listo para escribir: fechas en ISO-8601 y decimales sin notación científica
+     */
+    private static Object valor(ResultSet rs, int indice) throws SQLException {
+        Object valor = rs.getObject(indice);
+        if (valor instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (valor instanceof LocalDateTime fecha) {
+            return fecha.toString();
+        }
+        return valor;
+    }
+
+    private interface EscritorFilas {
+        void encabezado() throws IOException;
+
+        void fila(ResultSet rs) throws SQLException, IOException;
+
+        void terminar() throws IOException;
+    }
+
+    /**
+     * CSV con encabezado y separador coma; los valores con comas, comillas o saltos de línea van entre comillas
+     */
+    private static final class EscritorCsv implements EscritorFilas {
+
+        private final Writer writer;
+        private final List<String> columnas;
+
+        private EscritorCsv(Writer writer, List<String> columnas) {
+            this.writer = writer;
+            this.columnas = columnas;
+        }
+
+        @Override
+        public void encabezado() throws IOException {
+            writer.write(String.join(",", columnas));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void fila(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= columnas.size(); i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object valor = valor(rs, i);
+                if (valor == null) {
+                    continue;
+                }
+                String texto = valor instanceof BigDecimal decimal ? decimal.toPlainString() : valor.toString();
+                if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0 || texto.indexOf('\n') >= 0
+                        || texto.indexOf('\r') >= 0) {
+                    writer.write('"');
+                    writer.write(texto.replace("\"", "\"\""));
+                    writer.write('"');
+                } else {
+                    writer.write(texto);
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void terminar() {
+        }
+    }
+
+    /**
+     * Un objeto JSON por línea, con los mismos nombres de campo que la API
+     */
+    private static final class EscritorNdjson implements EscritorFilas {
+
+        private final JsonGenerator generator;
+        private final List<String> columnas;
+
+        private EscritorNdjson(JsonGenerator generator, List<String> columnas) {
+            this.generator = generator;
+            this.columnas = columnas;
+        }
+
+        @Override
+        public void encabezado() {
+        }
+
+        @Override
+        public void fila(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 1; i <= columnas.size(); i++) {
+                Object valor = valor(rs, i);
+                generator.writeFieldName(columnas.get(i - 1));
+                if (valor == null) {
+                    generator.writeNull();
+                } else if (valor instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (valor instanceof Number numero) {
+                    generator.writeNumber(numero.longValue());
+                } else if (valor instanceof Boolean booleano) {
+                    generator.writeBoolean(booleano);
+                } else {
+                    generator.writeString(valor.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            // Vacía el buffer del generador en el writer, sin cerrar la respuesta
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.proyectoavanzada.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectoavanzada.backend.util.CacheLocal;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Creación idempotente de ventas y compras con la cabecera Idempotency-Key.
+ * La respuesta de la primera ejecución exitosa se guarda en solicitudes_idempotentes dentro de la misma
+ * transacción que crea el documento, así que un reintento con la misma clave recibe la respuesta guardada
+ * sin volver a validar ni mover stock. Las respuestas guardadas se leen a través de una caché en memoria
+ * y vencen después de idempotencia.ttl-horas.
+ * Las peticiones duplicadas que llegan mientras la primera se ejecuta en este nodo esperan su resultado en
+ * lugar de ejecutarse; entre nodos, la clave primaria de la fila hace que solo una transacción la inserte.
+ * Las ejecuciones fallidas no se guardan: su transacción se deshizo y el cliente puede reintentar con la misma clave.
+ */
+@Service
+public class IdempotenciaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenciaService.class);
+
+    public static final String CABECERA = "Idempotency-Key";
+
+    public static final String VENTAS = "ventas";
+    public static final String COMPRAS = "compras";
+
+    private static final int LARGO_MAXIMO_CLAVE = 100;
+
+    // Tiempo máximo que una petición duplicada espera a la primera en este nodo
+    private static final long ESPERA_MAXIMA_SEGUNDOS = 30;
+
+    private static final String SQL_INSERTAR =
+        "INSERT INTO solicitudes_idempotentes (clave, huella, fecha_creacion, expira_en) VALUES (?, ?, ?, ?)";
+
+    private static final String SQL_COMPLETAR =
+        "UPDATE solicitudes_idempotentes SET estado_http = ?, respuesta = ? WHERE clave = ?";
+
+    private static final String SQL_LEER =
+        "SELECT huella, estado_http, respuesta FROM solicitudes_idempotentes WHERE clave = ? AND expira_en >= ?";
+
+    private static final String SQL_BORRAR_VENCIDA =
+        "DELETE FROM solicitudes_idempotentes WHERE clave = ? AND expira_en < ?";
+
+    private static final String SQL_BORRAR_VENCIDAS =
+        "DELETE FROM solicitudes_idempotentes WHERE expira_en < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${idempotencia.ttl-horas:24}")
+    private long ttlHoras;
+
+    @Value("${idempotencia.cache.tamano-maximo:10000}")
+    private int tamanoCache;
+
+    // Menor que el vencimiento de las filas, para no repetir desde memoria una respuesta ya vencida en la base
+    @Value("${idempotencia.cache.ttl-minutos:10}")
+    private long ttlCacheMinutos;
+
+    private TransactionTemplate transaccion;
+
+    private CacheLocal<String, Respuesta> respuestas;
+
+    private final Map<String, CompletableFuture<Respuesta>> enCurso = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void inicializar() {
+        transaccion = new TransactionTemplate(transactionManager);
+        respuestas = new CacheLocal<>("idempotencia", tamanoCache, Duration.ofMinutes(ttlCacheMinutos));
+    }
+
+    /**
+     * Ejecutar una creación una sola vez por clave de idempotencia.
+     * @param operacion     espacio de la clave (VENTAS, COMPRAS)
+     * @param clave         valor de la cabecera Idempotency-Key; si es nulo la acción se ejecuta sin más
+     * @param request       petición, para calcular la huella del cuerpo
+     * @param accion        creación a ejecutar; corre dentro de la transacción que guarda la respuesta
+     */
+    public ResponseEntity<?> ejecutar(String operacion, String clave, HttpServletRequest request,
+                                      Supplier<ResponseEntity<Map<String, Object>>> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+        if (clave.length() > LARGO_MAXIMO_CLAVE) {
+            return error(HttpStatus.BAD_REQUEST, "La clave de idempotencia no puede superar " + LARGO_MAXIMO_CLAVE + " caracteres");
+        }
+        String claveCompleta = operacion + ":" + clave;
+        String huella = huellaCuerpo(request);
+
+        Respuesta guardada = respuestas.obtener(claveCompleta, this::leerGuardada);
+        if (guardada != null) {
+            return repetir(guardada, huella);
+        }
+
+        CompletableFuture<Respuesta> propia = new CompletableFuture<>();
+        CompletableFuture<Respuesta> primera = enCurso.putIfAbsent(claveCompleta, propia);
+        if (primera != null) {
+            return esperar(primera, huella);
+        }
+        try {
+            Respuesta respuesta = ejecutarYGuardar(claveCompleta, huella, accion);
+            propia.complete(respuesta);
+            if (respuesta.original() != null) {
+                return respuesta.original();
+            }
+            return respuesta.repetida() ? repetir(respuesta, huella) : respuesta.aResponseEntity(false);
+        } catch (RuntimeException e) {
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(claveCompleta, propia);
+        }
+    }
+
+    /**
+     * Borrar las respuestas vencidas
+     * @return cantidad de filas borradas
+     */
+    @Scheduled(fixedDelayString = "${idempotencia.limpieza-ms:3600000}")
+    public int limpiarVencidas() {
+        respuestas.limpiarExpiradas();
+        int borradas = jdbcTemplate.update(SQL_BORRAR_VENCIDAS, LocalDateTime.now());
+        if (borradas > 0) {
+            logger.debug("Claves de idempotencia vencidas borradas: {}", borradas);
+        }
+        return borradas;
+    }
+
+    /**
+     * Insertar la fila de la clave, ejecutar la acción y guardar su respuesta en la misma transacción.
+     * Si otra transacción ya insertó la clave, se devuelve su respuesta sin ejecutar la acción.
+     */
+    private Respuesta ejecutarYGuardar(String claveCompleta, String huella,
+                                       Supplier<ResponseEntity<Map<String, Object>>> accion) {
+        return transaccion.execute(estado -> {
+            LocalDateTime ahora = LocalDateTime.now();
+            if (!insertarClave(claveCompleta, huella, ahora)) {
+                Respuesta existente = leerGuardada(claveCompleta);
+                if (existente == null || existente.estadoHttp() == null) {
+                    return new Respuesta(huella, HttpStatus.CONFLICT.value(),
+                        cuerpoError("La solicitud con esta clave de idempotencia todavía se está procesando"), false, null);
+                }
+                return existente.comoRepetida();
+            }
+
+            ResponseEntity<Map<String, Object>> respuesta = accion.get();
+            String cuerpo = serializar(respuesta.getBody());
+            if (!respuesta.getStatusCode().is2xxSuccessful()) {
+                // Se deshace la fila de la clave junto con lo que la acción haya escrito
+                estado.setRollbackOnly();
+                return new Respuesta(huella, respuesta.getStatusCode().value(), cuerpo, false, respuesta);
+            }
+            jdbcTemplate.update(SQL_COMPLETAR, respuesta.getStatusCode().value(), cuerpo, claveCompleta);
+            return new Respuesta(huella, respuesta.getStatusCode().value(), cuerpo, false, respuesta);
+        });
+    }
+
+    /**
+     * Insertar la fila de una clave; si hay una fila vencida con la misma clave se reemplaza
+     * @return false si la clave ya existe y sigue vigente
+     */
+    private boolean insertarClave(String claveCompleta, String huella, LocalDateTime ahora) {
+        try {
+            jdbcTemplate.update(SQL_INSERTAR, claveCompleta, huella, ahora, ahora.plusHours(ttlHoras));
+            return true;
+        } catch (DuplicateKeyException e) {
+            if (jdbcTemplate.update(SQL_BORRAR_VENCIDA, claveCompleta, ahora) == 0) {
+                return false;
+            }
+            jdbcTemplate.update(SQL_INSERTAR, claveCompleta, huella, ahora, ahora.plusHours(ttlHoras));
+            return true;
+        }
+    }
+
+    /**
+     * Leer la respuesta guardada y vigente de una clave, o null si no hay
+     */
+    private Respuesta leerGuardada(String claveCompleta) {
+        List<Respuesta> filas = jdbcTemplate.query(SQL_LEER,
+            (rs, i) -> new Respuesta(rs.getString("huella"), (Integer) rs.getObject("estado_http"),
+                                     rs.getString("respuesta"), true, null),
+            claveCompleta, LocalDateTime.now());
+        if (filas.isEmpty() || filas.get(0).estadoHttp() == null) {
+            return null;
+        }
+        return filas.get(0);
+    }
+
+    /**
+     * Esperar el resultado de la primera petición con la misma clave en este nodo
+     */
+    private ResponseEntity<?> esperar(CompletableFuture<Respuesta> primera, String huella) {
+        try {
+            return repetir(primera.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS).comoRepetida(), huella);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.CONFLICT, "La solicitud con esta clave de idempotencia todavía se está procesando");
+        } catch (TimeoutException e) {
+            return error(HttpStatus.CONFLICT, "La solicitud con esta clave de idempotencia todavía se está procesando");
+        } catch (ExecutionException e) {
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Error en la solicitud original: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Devolver una respuesta anterior, si la petición es la misma que la que la produjo
+     */
+    private ResponseEntity<?> repetir(Respuesta respuesta, String huella) {
+        if (!respuesta.huella().equals(huella)) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY,
+                "La clave de idempotencia ya se usó con una solicitud diferente");
+        }
+        return respuesta.aResponseEntity(true);
+    }
+
+    /**
+     * SHA-256 del cuerpo leído por el controlador, conservado por IdempotenciaFilter
+     */
+    private static String huellaCuerpo(HttpServletRequest request) {
+        ContentCachingRequestWrapper cuerpo = WebUtils.getNativeRequest(request, ContentCachingRequestWrapper.class);
+        if (cuerpo == null) {
+            throw new IllegalStateException("El cuerpo de la petición no se conservó para calcular su huella");
+        }
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(cuerpo.getContentAsByteArray()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String serializar(Map<String, Object> cuerpo) {
+        try {
+            return objectMapper.writeValueAsString(cuerpo);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo guardar la respuesta de la solicitud: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private String cuerpoError(String mensaje) {
+        Map<String, Object> cuerpo = new HashMap<>();
+        cuerpo.put("success", false);
+        cuerpo.put("message", mensaje);
+        return serializar(cuerpo);
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus estado, String mensaje) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", mensaje);
+        return ResponseEntity.status(estado).body(response);
+    }
+
+    /**
+     * Respuesta de una ejecución, con el cuerpo ya serializado a JSON
+     * @param repetida true si viene de otra ejecución (guardada o de otra petición en curso)
+     * @param original respuesta de la acción, solo para la petición que la ejecutó
+     */
+    private record Respuesta(String huella, Integer estadoHttp, String cuerpo, boolean repetida,
+                             ResponseEntity<Map<String, Object>> original) {
+
+        private Respuesta comoRepetida() {
+            return new Respuesta(huella, estadoHttp, cuerpo, true, null);
+        }
+
+        /**
+         * Respuesta con el cuerpo guardado tal cual, sin volver a leerlo: así una repetición es idéntica
+         * a la original (por ejemplo 240.00 no pasa a 240.0)
+         */
+        private ResponseEntity<byte[]> aResponseEntity(boolean repeticion) {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(estadoHttp).contentType(MediaType.APPLICATION_JSON);
+            if (repeticion) {
+                builder.header("Idempotent-Replayed", "true");
+            }
+            return builder.body(cuerpo.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
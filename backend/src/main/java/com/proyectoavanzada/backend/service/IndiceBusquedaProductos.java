@@ -0,0 +1,398 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria para la búsqueda de productos activos por texto.
+ * Indexa nombre, código, marca, categoría y tecnología como tokens en minúsculas y sin acentos,
+ * y cada token por sus trigramas para tolerar errores de escritura.
+ * Los resultados se ordenan por relevancia: coincidencia exacta, luego por prefijo y luego aproximada.
+ * El índice es local a cada nodo y solo recibe los cambios hechos en este nodo; con más de un nodo, lo que cambia
+ * en otro se ve aquí después de la reconstrucción periódica (productos.busqueda.reconstruccion-ms).
+ */
+@Component
+public class IndiceBusquedaProductos {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceBusquedaProductos.class);
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    // Peso de cada campo en la relevancia
+    private static final float PESO_NOMBRE = 3.0f;
+    private static final float PESO_CODIGO = 3.0f;
+    private static final float PESO_MARCA = 2.0f;
+    private static final float PESO_CATEGORIA = 1.0f;
+    private static final float PESO_TECNOLOGIA = 1.0f;
+
+    // Multiplicador según el tipo de coincidencia
+    private static final float FACTOR_EXACTO = 3.0f;
+    private static final float FACTOR_PREFIJO = 2.0f;
+    private static final float FACTOR_APROXIMADO = 1.0f;
+
+    // Similitud mínima de trigramas (Jaccard) para aceptar una coincidencia aproximada
+    private static final double SIMILITUD_MINIMA = 0.4;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    // token -> producto -> peso del campo donde aparece
+    private final TreeMap<String, Map<Long, Float>> productosPorToken = new TreeMap<>();
+    // trigrama -> tokens que lo contienen
+    private final Map<String, Set<String>> tokensPorTrigrama = new HashMap<>();
+    // producto -> tokens indexados, para poder quitarlo
+    private final Map<Long, Map<String, Float>> tokensPorProducto = new HashMap<>();
+    // producto -> nombre normalizado, para desempatar
+    private final Map<Long, String> nombrePorProducto = new HashMap<>();
+
+    // Productos indexados o quitados mientras se reconstruye; se vuelven a leer al terminar. Null fuera de la reconstrucción.
+    private Set<Long> cambiosDuranteReconstruccion;
+
+    private volatile boolean construido = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        reconstruir();
+    }
+
+    /**
+     * Construir el índice completo con los productos activos. Se repite periódicamente para recoger los cambios
+     * hechos en otros nodos. Los productos que cambian mientras se leen los datos se vuelven a leer al final,
+     * para que la reconstrucción no deje su estado anterior.
+     */
+    @Scheduled(fixedDelayString = "${productos.busqueda.reconstruccion-ms:600000}",
+               initialDelayString = "${productos.busqueda.reconstruccion-ms:600000}")
+    public synchronized void reconstruir() {
+        candado.writeLock().lock();
+        try {
+            cambiosDuranteReconstruccion = new HashSet<>();
+        } finally {
+            candado.writeLock().unlock();
+        }
+
+        List<Producto> productos;
+        try {
+            productos = productoRepository.findByActivoTrue();
+        } catch (RuntimeException e) {
+            candado.writeLock().lock();
+            try {
+                cambiosDuranteReconstruccion = null;
+            } finally {
+                candado.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        Set<Long> cambios;
+        candado.writeLock().lock();
+        try {
+            cambios = cambiosDuranteReconstruccion;
+            cambiosDuranteReconstruccion = null;
+            productosPorToken.clear();
+            tokensPorTrigrama.clear();
+            tokensPorProducto.clear();
+            nombrePorProducto.clear();
+            for (Producto producto : productos) {
+                agregarProducto(producto.getId(), extraerTokens(producto), normalizar(producto.getNombre()));
+            }
+            construido = true;
+        } finally {
+            candado.writeLock().unlock();
+        }
+        if (!cambios.isEmpty()) {
+            reindexar(cambios);
+        }
+        logger.info("Índice de búsqueda construido con {} productos", productos.size());
+    }
+
+    /**
+     * Volver a leer e indexar productos desde la base de datos; los que ya no existen se quitan del índice
+     */
+    public void reindexar(Collection<Long> productoIds) {
+        Set<Long> pendientes = new HashSet<>(productoIds);
+        for (Producto producto : productoRepository.findAllById(productoIds)) {
+            pendientes.remove(producto.getId());
+            indexar(producto);
+        }
+        for (Long productoId : pendientes) {
+            eliminar(productoId);
+        }
+    }
+
+    /**
+     * Agregar o actualizar un producto en el índice. Los productos inactivos se quitan del índice.
+     */
+    public void indexar(Producto producto) {
+        if (producto == null || producto.getId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(producto.getActivo())) {
+            eliminar(producto.getId());
+            return;
+        }
+        Map<String, Float> tokens = extraerTokens(producto);
+        String nombre = normalizar(producto.getNombre());
+        candado.writeLock().lock();
+        try {
+            registrarCambio(producto.getId());
+            quitarProducto(producto.getId());
+            agregarProducto(producto.getId(), tokens, nombre);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quitar un producto del índice
+     */
+    public void eliminar(Long productoId) {
+        candado.writeLock().lock();
+        try {
+            registrarCambio(productoId);
+            quitarProducto(productoId);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Buscar productos por texto
+     * @param texto texto libre, puede tener acentos, mayúsculas o palabras incompletas
+     * @param limite cantidad máxima de resultados
+     * @return ids de productos ordenados de mayor a menor relevancia
+     */
+    public List<Long> buscar(String texto, int limite) {
+        if (!construido) {
+            reconstruir();
+        }
+        Set<String> terminos = tokenizar(texto);
+        if (terminos.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+
+        candado.readLock().lock();
+        try {
+            Map<Long, Float> puntajes = new HashMap<>();
+            Map<Long, Integer> terminosCoincidentes = new HashMap<>();
+
+            for (String termino : terminos) {
+                Map<Long, Float> mejorPorProducto = puntuarTermino(termino);
+                for (Map.Entry<Long, Float> entrada : mejorPorProducto.entrySet()) {
+                    puntajes.merge(entrada.getKey(), entrada.getValue(), Float::sum);
+                    terminosCoincidentes.merge(entrada.getKey(), 1, Integer::sum);
+                }
+            }
+
+            List<Long> resultado = new ArrayList<>(puntajes.keySet());
+            // Primero los productos que cubren más términos de la búsqueda, luego por puntaje y por nombre
+            resultado.sort((a, b) -> {
+                int porTerminos = Integer.compare(terminosCoincidentes.get(b), terminosCoincidentes.get(a));
+                if (porTerminos != 0) {
+                    return porTerminos;
+                }
+                int porPuntaje = Float.compare(puntajes.get(b), puntajes.get(a));
+                if (porPuntaje != 0) {
+                    return porPuntaje;
+                }
+                return nombrePorProducto.getOrDefault(a, "").compareTo(nombrePorProducto.getOrDefault(b, ""));
+            });
+            return resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de productos indexados
+     */
+    public int cantidadProductos() {
+        candado.readLock().lock();
+        try {
+            return tokensPorProducto.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mejor puntaje de cada producto para un término de búsqueda
+     */
+    private Map<Long, Float> puntuarTermino(String termino) {
+        Map<Long, Float> mejorPorProducto = new HashMap<>();
+
+        // Coincidencia exacta y por prefijo: los tokens que empiezan con el término están contiguos en el TreeMap
+        for (Map.Entry<String, Map<Long, Float>> token : productosPorToken.subMap(termino, true, termino + Character.MAX_VALUE, false).entrySet()) {
+            float factor = token.getKey().equals(termino) ? FACTOR_EXACTO : FACTOR_PREFIJO;
+            acumularMejor(mejorPorProducto, token.getValue(), factor);
+        }
+
+        // Coincidencia aproximada por trigramas, útil para errores de escritura
+        if (termino.length() >= 3) {
+            Set<String> trigramasTermino = trigramas(termino);
+            Map<String, Integer> compartidosPorToken = new HashMap<>();
+            for (String trigrama : trigramasTermino) {
+                Set<String> tokens = tokensPorTrigrama.get(trigrama);
+                if (tokens != null) {
+                    for (String token : tokens) {
+                        compartidosPorToken.merge(token, 1, Integer::sum);
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> candidato : compartidosPorToken.entrySet()) {
+                String token = candidato.getKey();
+                if (token.startsWith(termino)) {
+                    continue;
+                }
+                int compartidos = candidato.getValue();
+                int totalToken = trigramas(token).size();
+                double similitud = (double) compartidos / (trigramasTermino.size() + totalToken - compartidos);
+                if (similitud >= SIMILITUD_MINIMA) {
+                    acumularMejor(mejorPorProducto, productosPorToken.get(token), (float) (FACTOR_APROXIMADO * similitud));
+                }
+            }
+        }
+        return mejorPorProducto;
+    }
+
+    private static void acumularMejor(Map<Long, Float> mejorPorProducto, Map<Long, Float> pesos, float factor) {
+        for (Map.Entry<Long, Float> entrada : pesos.entrySet()) {
+            mejorPorProducto.merge(entrada.getKey(), entrada.getValue() * factor, Math::max);
+        }
+    }
+
+    /**
+     * Anotar un producto cambiado durante una reconstrucción (se llama con el candado de escritura tomado)
+     */
+    private void registrarCambio(Long productoId) {
+        if (cambiosDuranteReconstruccion != null) {
+            cambiosDuranteReconstruccion.add(productoId);
+        }
+    }
+
+    private void agregarProducto(Long productoId, Map<String, Float> tokens, String nombre) {
+        tokensPorProducto.put(productoId, tokens);
+        nombrePorProducto.put(productoId, nombre);
+        for (Map.Entry<String, Float> token : tokens.entrySet()) {
+            Map<Long, Float> productos = productosPorToken.computeIfAbsent(token.getKey(), k -> new HashMap<>());
+            if (productos.isEmpty()) {
+                for (String trigrama : trigramas(token.getKey())) {
+                    tokensPorTrigrama.computeIfAbsent(trigrama, k -> new HashSet<>()).add(token.getKey());
+                }
+            }
+            productos.put(productoId, token.getValue());
+        }
+    }
+
+    private void quitarProducto(Long productoId) {
+        Map<String, Float> tokens = tokensPorProducto.remove(productoId);
+        nombrePorProducto.remove(productoId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens.keySet()) {
+            Map<Long, Float> productos = productosPorToken.get(token);
+            if (productos == null) {
+                continue;
+            }
+            productos.remove(productoId);
+            if (productos.isEmpty()) {
+                productosPorToken.remove(token);
+                for (String trigrama : trigramas(token)) {
+                    Set<String> tokensTrigrama = tokensPorTrigrama.get(trigrama);
+                    if (tokensTrigrama != null) {
+                        tokensTrigrama.remove(token);
+                        if (tokensTrigrama.isEmpty()) {
+                            tokensPorTrigrama.remove(trigrama);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tokens de un producto con el mayor peso de los campos donde aparece cada uno
+     */
+    private static Map<String, Float> extraerTokens(Producto producto) {
+        Map<String, Float> tokens = new HashMap<>();
+        agregarTokens(tokens, producto.getNombre(), PESO_NOMBRE);
+        agregarTokens(tokens, producto.getCodigoProducto(), PESO_CODIGO);
+        if (producto.getMarca() != null) {
+            agregarTokens(tokens, producto.getMarca().getNombre(), PESO_MARCA);
+        }
+        if (producto.getCategoria() != null) {
+            agregarTokens(tokens, producto.getCategoria().getNombre(), PESO_CATEGORIA);
+        }
+        agregarTokens(tokens, producto.getTecnologia(), PESO_TECNOLOGIA);
+        return tokens;
+    }
+
+    private static void agregarTokens(Map<String, Float> tokens, String texto, float peso) {
+        for (String token : tokenizar(texto)) {
+            tokens.merge(token, peso, Math::max);
+        }
+    }
+
+    /**
+     * Separar un texto en tokens normalizados
+     */
+    static Set<String> tokenizar(String texto) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (texto == null) {
+            return tokens;
+        }
+        for (String token : SEPARADORES.split(normalizar(texto))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Pasar a minúsculas y quitar acentos
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Trigramas de un token, con bordes para que el inicio y el final pesen en la similitud
+     */
+    static Set<String> trigramas(String token) {
+        String conBordes = "_" + token + "_";
+        Set<String> trigramas = new HashSet<>();
+        for (int i = 0; i + 3 <= conBordes.length(); i++) {
+            trigramas.add(conBordes.substring(i, i + 3));
+        }
+        return trigramas;
+    }
+}
@@ -0,0 +1,410 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.dto.ConsultaFacetas;
+import com.proyectoavanzada.backend.dto.ResultadoFacetas;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice en memoria de facetas del catálogo de productos activos.
+ * Cada producto ocupa una posición (ordinal) y cada valor de faceta guarda un BitSet con los
+ * ordinales de los productos que lo tienen. Precio y peso se guardan en arreglos ordenados para
+ * resolver rangos con búsqueda binaria. El índice se actualiza producto por producto cuando cambia.
+ */
+@Component
+public class IndiceFacetasProductos {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceFacetasProductos.class);
+
+    public static final String GENERO = "genero";
+    public static final String EDAD_TARGET = "edadTarget";
+    public static final String MATERIAL = "materialPrincipal";
+    public static final String TECNOLOGIA = "tecnologia";
+    public static final String TIPO_SUELA = "tipoSuela";
+    public static final String CATEGORIA = "categoriaId";
+    public static final String MARCA = "marcaId";
+
+    public static final List<String> FACETAS = List.of(GENERO, EDAD_TARGET, MATERIAL, TECNOLOGIA, TIPO_SUELA, CATEGORIA, MARCA);
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    // faceta -> valor normalizado -> ordinales de los productos con ese valor
+    private final Map<String, Map<String, BitSet>> bitsPorFaceta = new HashMap<>();
+    // faceta -> valor normalizado -> valor tal como se muestra
+    private final Map<String, Map<String, String>> etiquetasPorFaceta = new HashMap<>();
+
+    private final Map<Long, Integer> ordinalPorProducto = new HashMap<>();
+    private final Deque<Integer> ordinalesLibres = new ArrayDeque<>();
+    private final BitSet ordinalesOcupados = new BitSet();
+    private Documento[] documentos = new Documento[64];
+    private int siguienteOrdinal = 0;
+
+    // Arreglos ordenados para rangos; se reconstruyen solo cuando hubo cambios
+    private boolean rangosDesactualizados = true;
+    private long[] preciosOrdenados = new long[0];
+    private int[] ordinalesPorPrecio = new int[0];
+    private long[] pesosOrdenados = new long[0];
+    private int[] ordinalesPorPeso = new int[0];
+
+    private volatile boolean construido = false;
+
+    public IndiceFacetasProductos() {
+        for (String faceta : FACETAS) {
+            bitsPorFaceta.put(faceta, new HashMap<>());
+            etiquetasPorFaceta.put(faceta, new HashMap<>());
+        }
+    }
+
+    /**
+     * Construir el índice completo con los productos activos al iniciar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        List<Producto> productos = productoRepository.findByActivoTrue();
+        candado.writeLock().lock();
+        try {
+            for (Map<String, BitSet> valores : bitsPorFaceta.values()) {
+                valores.clear();
+            }
+            for (Map<String, String> etiquetas : etiquetasPorFaceta.values()) {
+                etiquetas.clear();
+            }
+            ordinalPorProducto.clear();
+            ordinalesLibres.clear();
+            ordinalesOcupados.clear();
+            documentos = new Documento[Math.max(64, productos.size())];
+            siguienteOrdinal = 0;
+            for (Producto producto : productos) {
+                agregarDocumento(Documento.desde(producto));
+            }
+            rangosDesactualizados = true;
+            construido = true;
+        } finally {
+            candado.writeLock().unlock();
+        }
+        logger.info("Índice de facetas construido con {} productos", productos.size());
+    }
+
+    /**
+     * Agregar o actualizar un producto en el índice. Los productos inactivos se quitan del índice.
+     */
+    public void indexar(Producto producto) {
+        if (producto == null || producto.getId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(producto.getActivo())) {
+            eliminar(producto.getId());
+            return;
+        }
+        Documento documento = Documento.desde(producto);
+        candado.writeLock().lock();
+        try {
+            quitarDocumento(documento.productoId);
+            agregarDocumento(documento);
+            rangosDesactualizados = true;
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quitar un producto del índice
+     */
+    public void eliminar(Long productoId) {
+        candado.writeLock().lock();
+        try {
+            if (quitarDocumento(productoId)) {
+                rangosDesactualizados = true;
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Buscar productos por facetas y calcular los conteos de cada valor de faceta.
+     * El conteo de una faceta aplica los filtros de las demás facetas pero no los suyos,
+     * así el cliente ve cuántos resultados obtendría al agregar otro valor de la misma faceta.
+     */
+    public ResultadoFacetas buscar(ConsultaFacetas consulta) {
+        if (!construido) {
+            reconstruir();
+        }
+
+        candado.readLock().lock();
+        try {
+            if (rangosDesactualizados) {
+                // Se ordenan los rangos con el candado de escritura y se baja a lectura sin soltarlo, así ningún
+                // cambio del índice se mete entre el ordenamiento y la lectura de los arreglos
+                candado.readLock().unlock();
+                candado.writeLock().lock();
+                try {
+                    if (rangosDesactualizados) {
+                        ordenarRangos();
+                    }
+                } finally {
+                    candado.readLock().lock();
+                    candado.writeLock().unlock();
+                }
+            }
+
+            Map<String, BitSet> filtrosPorFaceta = new LinkedHashMap<>();
+            if (consulta.filtros() != null) {
+                for (Map.Entry<String, Set<String>> filtro : consulta.filtros().entrySet()) {
+                    if (!bitsPorFaceta.containsKey(filtro.getKey()) || filtro.getValue() == null || filtro.getValue().isEmpty()) {
+                        continue;
+                    }
+                    filtrosPorFaceta.put(filtro.getKey(), unirValores(filtro.getKey(), filtro.getValue()));
+                }
+            }
+
+            BitSet base = (BitSet) ordinalesOcupados.clone();
+            if (consulta.precioMin() != null || consulta.precioMax() != null) {
+                base.and(rango(preciosOrdenados, ordinalesPorPrecio,
+                    consulta.precioMin() != null ? aCentavos(consulta.precioMin()) : Long.MIN_VALUE,
+                    consulta.precioMax() != null ? aCentavos(consulta.precioMax()) : Long.MAX_VALUE));
+            }
+            if (consulta.pesoMin() != null || consulta.pesoMax() != null) {
+                base.and(rango(pesosOrdenados, ordinalesPorPeso,
+                    consulta.pesoMin() != null ? consulta.pesoMin() : Long.MIN_VALUE,
+                    consulta.pesoMax() != null ? consulta.pesoMax() : Long.MAX_VALUE));
+            }
+
+            BitSet resultado = (BitSet) base.clone();
+            for (BitSet bits : filtrosPorFaceta.values()) {
+                resultado.and(bits);
+            }
+
+            Map<String, Map<String, Integer>> conteos = new LinkedHashMap<>();
+            for (String faceta : FACETAS) {
+                BitSet baseFaceta = (BitSet) base.clone();
+                for (Map.Entry<String, BitSet> filtro : filtrosPorFaceta.entrySet()) {
+                    if (!filtro.getKey().equals(faceta)) {
+                        baseFaceta.and(filtro.getValue());
+                    }
+                }
+                Map<String, Integer> conteoValores = new TreeMap<>();
+                for (Map.Entry<String, BitSet> valor : bitsPorFaceta.get(faceta).entrySet()) {
+                    BitSet interseccion = (BitSet) valor.getValue().clone();
+                    interseccion.and(baseFaceta);
+                    int cantidad = interseccion.cardinality();
+                    if (cantidad > 0) {
+                        conteoValores.put(etiquetasPorFaceta.get(faceta).get(valor.getKey()), cantidad);
+                    }
+                }
+                conteos.put(faceta, conteoValores);
+            }
+
+            List<Long> productoIds = new ArrayList<>(resultado.cardinality());
+            for (int ordinal = resultado.nextSetBit(0); ordinal >= 0; ordinal = resultado.nextSetBit(ordinal + 1)) {
+                productoIds.add(documentos[ordinal].productoId);
+            }
+            productoIds.sort(Long::compare);
+            return new ResultadoFacetas(productoIds, productoIds.size(), conteos);
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de productos indexados
+     */
+    public int cantidadProductos() {
+        candado.readLock().lock();
+        try {
+            return ordinalPorProducto.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    private BitSet unirValores(String faceta, Set<String> valores) {
+        BitSet union = new BitSet();
+        Map<String, BitSet> bitsPorValor = bitsPorFaceta.get(faceta);
+        for (String valor : valores) {
+            BitSet bits = bitsPorValor.get(normalizar(valor));
+            if (bits != null) {
+                union.or(bits);
+            }
+        }
+        return union;
+    }
+
+    private void agregarDocumento(Documento documento) {
+        int ordinal = ordinalesLibres.isEmpty() ? siguienteOrdinal++ : ordinalesLibres.pop();
+        if (ordinal >= documentos.length) {
+            documentos = Arrays.copyOf(documentos, Math.max(documentos.length * 2, ordinal + 1));
+        }
+        documentos[ordinal] = documento;
+        ordinalPorProducto.put(documento.productoId, ordinal);
+        ordinalesOcupados.set(ordinal);
+        for (int i = 0; i < FACETAS.size(); i++) {
+            String valor = documento.valores[i];
+            if (valor == null) {
+                continue;
+            }
+            String clave = normalizar(valor);
+            bitsPorFaceta.get(FACETAS.get(i)).computeIfAbsent(clave, k -> new BitSet()).set(ordinal);
+            etiquetasPorFaceta.get(FACETAS.get(i)).putIfAbsent(clave, valor);
+        }
+    }
+
+    private boolean quitarDocumento(Long productoId) {
+        Integer ordinal = ordinalPorProducto.remove(productoId);
+        if (ordinal == null) {
+            return false;
+        }
+        Documento documento = documentos[ordinal];
+        for (int i = 0; i < FACETAS.size(); i++) {
+            String valor = documento.valores[i];
+            if (valor == null) {
+                continue;
+            }
+            String faceta = FACETAS.get(i);
+            String clave = normalizar(valor);
+            BitSet bits = bitsPorFaceta.get(faceta).get(clave);
+            if (bits != null) {
+                bits.clear(ordinal);
+                if (bits.isEmpty()) {
+                    bitsPorFaceta.get(faceta).remove(clave);
+                    etiquetasPorFaceta.get(faceta).remove(clave);
+                }
+            }
+        }
+        documentos[ordinal] = null;
+        ordinalesOcupados.clear(ordinal);
+        ordinalesLibres.push(ordinal);
+        return true;
+    }
+
+    /**
+     * Reconstruir los arreglos ordenados de precio y peso; se llama con el candado de escritura tomado
+     */
+    private void ordenarRangos() {
+        int cantidad = ordinalPorProducto.size();
+        long[][] precios = new long[cantidad][];
+        long[][] pesos = new long[cantidad][];
+        int i = 0;
+        int conPeso = 0;
+        for (int ordinal = ordinalesOcupados.nextSetBit(0); ordinal >= 0; ordinal = ordinalesOcupados.nextSetBit(ordinal + 1)) {
+            Documento documento = documentos[ordinal];
+            precios[i++] = new long[]{documento.precioCentavos, ordinal};
+            if (documento.pesoGramos != null) {
+                pesos[conPeso++] = new long[]{documento.pesoGramos, ordinal};
+            }
+        }
+        long[][] preciosValidos = Arrays.copyOf(precios, i);
+        long[][] pesosValidos = Arrays.copyOf(pesos, conPeso);
+        Arrays.sort(preciosValidos, (a, b) -> Long.compare(a[0], b[0]));
+        Arrays.sort(pesosValidos, (a, b) -> Long.compare(a[0], b[0]));
+
+        preciosOrdenados = new long[preciosValidos.length];
+        ordinalesPorPrecio = new int[preciosValidos.length];
+        for (int j = 0; j < preciosValidos.length; j++) {
+            preciosOrdenados[j] = preciosValidos[j][0];
+            ordinalesPorPrecio[j] = (int) preciosValidos[j][1];
+        }
+        pesosOrdenados = new long[pesosValidos.length];
+        ordinalesPorPeso = new int[pesosValidos.length];
+        for (int j = 0; j < pesosValidos.length; j++) {
+            pesosOrdenados[j] = pesosValidos[j][0];
+            ordinalesPorPeso[j] = (int) pesosValidos[j][1];
+        }
+        rangosDesactualizados = false;
+    }
+
+    /**
+     * Ordinales cuyo valor está en el rango [minimo, maximo] usando búsqueda binaria sobre el arreglo ordenado
+     */
+    private static BitSet rango(long[] valoresOrdenados, int[] ordinales, long minimo, long maximo) {
+        BitSet bits = new BitSet();
+        int desde = primeraPosicionMayorOIgual(valoresOrdenados, minimo);
+        for (int i = desde; i < valoresOrdenados.length && valoresOrdenados[i] <= maximo; i++) {
+            bits.set(ordinales[i]);
+        }
+        return bits;
+    }
+
+    private static int primeraPosicionMayorOIgual(long[] valores, long objetivo) {
+        int bajo = 0;
+        int alto = valores.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (valores[medio] < objetivo) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private static long aCentavos(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValue();
+    }
+
+    private static String normalizar(String valor) {
+        return valor.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Datos de un producto que necesita el índice, copiados de la entidad al indexar
+     */
+    private static final class Documento {
+        private final Long productoId;
+        private final String[] valores;
+        private final long precioCentavos;
+        private final Integer pesoGramos;
+
+        private Documento(Long productoId, String[] valores, long precioCentavos, Integer pesoGramos) {
+            this.productoId = productoId;
+            this.valores = valores;
+            this.precioCentavos = precioCentavos;
+            this.pesoGramos = pesoGramos;
+        }
+
+        private static Documento desde(Producto producto) {
+            String[] valores = new String[FACETAS.size()];
+            valores[FACETAS.indexOf(GENERO)] = textoONulo(producto.getGenero());
+            valores[FACETAS.indexOf(EDAD_TARGET)] = textoONulo(producto.getEdadTarget());
+            valores[FACETAS.indexOf(MATERIAL)] = textoONulo(producto.getMaterialPrincipal());
+            valores[FACETAS.indexOf(TECNOLOGIA)] = textoONulo(producto.getTecnologia());
+            valores[FACETAS.indexOf(TIPO_SUELA)] = textoONulo(producto.getTipoSuela());
+            valores[FACETAS.indexOf(CATEGORIA)] = producto.getCategoria() != null && producto.getCategoria().getId() != null
+                ? producto.getCategoria().getId().toString() : null;
+            valores[FACETAS.indexOf(MARCA)] = producto.getMarca() != null && producto.getMarca().getId() != null
+                ? producto.getMarca().getId().toString() : null;
+            long precio = producto.getPrecioVenta() != null ? aCentavos(producto.getPrecioVenta()) : 0L;
+            return new Documento(producto.getId(), valores, precio, producto.getPesoGramos());
+        }
+
+        private static String textoONulo(String valor) {
+            return valor == null || valor.trim().isEmpty() ? null : valor.trim();
+        }
+    }
+}
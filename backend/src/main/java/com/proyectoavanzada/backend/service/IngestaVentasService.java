@@ -0,0 +1,438 @@
+package com.proyectoavanzada.backend.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.proyectoavanzada.backend.dto.ResultadoIngestaVentas;
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Venta;
+import com.proyectoavanzada.backend.repository.ClienteRepository;
+import com.proyectoavanzada.backend.repository.PresentacionRepository;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import com.proyectoavanzada.backend.repository.UsuarioRepository;
+import com.proyectoavanzada.backend.repository.VentaRepository;
+import com.proyectoavanzada.backend.service.ContadorVentasService.FotoVenta;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Carga en lote de las ventas que los puntos de venta físicos acumulan sin conexión.
+ * El cuerpo (un arreglo JSON de ventas con el mismo formato que POST /api/ventas) se lee venta por venta
+ * sin cargarlo completo en memoria, y las ventas se procesan en bloques, cada uno en su propia transacción:
+ * las referencias se validan con una consulta por tipo, el stock se descuenta una vez por presentación o
+ * producto con los totales del bloque, y ventas y detalles se insertan con sentencias INSERT de varias filas.
+ * Si el bloque falla (por ejemplo, una presentación sin stock suficiente), se deshace completo y sus ventas
+ * se vuelven a procesar una por una con crearVenta, así cada venta recibe su propio resultado.
+ */
+@Service
+public class IngestaVentasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestaVentasService.class);
+
+    // Filas por sentencia INSERT; mantiene la cantidad de parámetros lejos del límite de MySQL (65535)
+    private static final int FILAS_POR_SENTENCIA = 500;
+
+    private static final String SQL_INSERTAR_VENTAS =
+        "INSERT INTO ventas (numero_venta, cliente_id, usuario_id, fecha_venta, subtotal, descuento, impuesto, total, " +
+        "estado, metodo_pago, numero_comprobante, observaciones, fecha_creacion, fecha_actualizacion, activo, " +
+        "puntos_otorgados, puntos_usados, descuento_puntos)";
+
+    private static final int COLUMNAS_VENTAS = 18;
+
+    private static final String SQL_INSERTAR_DETALLES =
+        "INSERT INTO detalles_venta (venta_id, producto_id, presentacion_id, cantidad, precio_unitario, descuento, " +
+        "subtotal, observaciones)";
+
+    private static final int COLUMNAS_DETALLES = 8;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private PresentacionService presentacionService;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private ContadorVentasService contadorVentasService;
+
+    @Autowired
+    private ReservaStockService reservaStockService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PresentacionRepository presentacionRepository;
+
+    @Value("${ventas.ingesta.tamano-bloque:500}")
+    private int tamanoBloque;
+
+    // Una transacción por bloque de ventas, y una por venta cuando el bloque se reprocesa
+    private TransactionTemplate transaccion;
+
+    @PostConstruct
+    void inicializar() {
+        transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Leer un arreglo JSON de ventas y guardarlas por bloques.
+     * Los bloques ya procesados quedan guardados aunque el cuerpo tenga un error más adelante.
+     */
+    public ResultadoIngestaVentas ingerirVentas(InputStream cuerpo) {
+        long inicio = System.currentTimeMillis();
+        List<ResultadoIngestaVentas.Linea> resultados = new ArrayList<>();
+        List<Pendiente> bloque = new ArrayList<>(tamanoBloque);
+        int recibidas = 0;
+        String errorLectura = null;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(cuerpo)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new RuntimeException("El cuerpo debe ser un arreglo JSON de ventas");
+            }
+            ObjectReader lector = objectMapper.readerFor(Venta.class);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Venta venta = lector.readValue(parser);
+                bloque.add(new Pendiente(recibidas++, venta));
+                if (bloque.size() >= tamanoBloque) {
+                    procesarBloque(bloque, resultados);
+                    bloque.clear();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                errorLectura = "Se esperaba una venta o el fin del arreglo después de la venta " + recibidas;
+            }
+        } catch (IOException e) {
+            errorLectura = "Error al leer la venta " + recibidas + ": " + e.getMessage();
+        }
+        if (!bloque.isEmpty()) {
+            procesarBloque(bloque, resultados);
+        }
+
+        resultados.sort(Comparator.comparingInt(ResultadoIngestaVentas.Linea::indice));
+        int creadas = (int) resultados.stream().filter(ResultadoIngestaVentas.Linea::exito).count();
+        long milisegundos = System.currentTimeMillis() - inicio;
+        logger.info("Ingesta de ventas: {} recibidas, {} creadas en {} ms", recibidas, creadas, milisegundos);
+        return new ResultadoIngestaVentas(recibidas, creadas, resultados.size() - creadas, milisegundos,
+                                          errorLectura, resultados);
+    }
+
+    /**
+     * Guardar un bloque de ventas en una transacción, o una por una si el bloque falla
+     */
+    private void procesarBloque(List<Pendiente> bloque, List<ResultadoIngestaVentas.Linea> resultados) {
+        List<Pendiente> validas = new ArrayList<>(bloque.size());
+        for (Pendiente pendiente : bloque) {
+            String error = validarVenta(pendiente.venta());
+            if (error != null) {
+                resultados.add(rechazada(pendiente, error));
+            } else {
+                validas.add(pendiente);
+            }
+        }
+        if (validas.isEmpty()) {
+            return;
+        }
+
+        try {
+            resultados.addAll(transaccion.execute(estado -> guardarBloque(validas)));
+        } catch (RuntimeException e) {
+            logger.debug("Bloque de {} ventas reprocesado una por una: {}", validas.size(), e.getMessage());
+            for (Pendiente pendiente : validas) {
+                try {
+                    Venta creada = transaccion.execute(estado -> ventaService.crearVenta(pendiente.venta()));
+                    resultados.add(new ResultadoIngestaVentas.Linea(pendiente.indice(), creada.getNumeroVenta(),
+                                                                   creada.getId(), true, null));
+                } catch (RuntimeException errorVenta) {
+                    resultados.add(rechazada(pendiente, errorVenta.getMessage()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Validar los datos propios de una venta, con las mismas reglas que crearVenta
+     * @return el motivo del rechazo, o null si la venta es válida
+     */
+    private String validarVenta(Venta venta) {
+        if (venta.getUsuarioId() == null) {
+            return "El usuario es obligatorio para crear una venta";
+        }
+        if (venta.getSubtotal() == null || venta.getSubtotal().compareTo(BigDecimal.ZERO) <= 0) {
+            return "El subtotal debe ser mayor a 0";
+        }
+        if (venta.getTotal() == null || venta.getTotal().compareTo(BigDecimal.ZERO) <= 0) {
+            return "El total debe ser mayor a 0";
+        }
+        if (venta.getDetallesVenta() == null || venta.getDetallesVenta().isEmpty()) {
+            return "La venta debe tener al menos un detalle";
+        }
+        for (DetalleVenta detalle : venta.getDetallesVenta()) {
+            if (detalle.getCantidad() == null || detalle.getCantidad() <= 0) {
+                return "La cantidad debe ser mayor a 0 para cada detalle";
+            }
+            if (detalle.getPrecioUnitario() == null || detalle.getPrecioUnitario().compareTo(BigDecimal.ZERO) <= 0) {
+                return "El precio unitario debe ser mayor a 0 para cada detalle";
+            }
+            if (detalle.getProductoId() == null) {
+                return "El producto es obligatorio para cada detalle de venta";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Guardar las ventas de un bloque dentro de la transacción actual.
+     * Las ventas con referencias inexistentes o números repetidos se rechazan sin afectar al resto;
+     * cualquier otro error (stock insuficiente, restricciones de la base de datos) deshace el bloque completo.
+     */
+    private List<ResultadoIngestaVentas.Linea> guardarBloque(List<Pendiente> bloque) {
+        Set<Long> usuarioIds = new HashSet<>();
+        Set<Long> clienteIds = new HashSet<>();
+        Set<Long> productoIds = new HashSet<>();
+        Set<Long> presentacionIds = new HashSet<>();
+        Set<String> numeros = new HashSet<>();
+        for (Pendiente pendiente : bloque) {
+            Venta venta = pendiente.venta();
+            usuarioIds.add(venta.getUsuarioId());
+            if (venta.getClienteId() != null) {
+                clienteIds.add(venta.getClienteId());
+            }
+            if (venta.getNumeroVenta() != null && !venta.getNumeroVenta().isEmpty()) {
+                numeros.add(venta.getNumeroVenta());
+            }
+            for (DetalleVenta detalle : venta.getDetallesVenta()) {
+                productoIds.add(detalle.getProductoId());
+                if (detalle.getPresentacionId() != null) {
+                    presentacionIds.add(detalle.getPresentacionId());
+                }
+            }
+        }
+
+        // Una consulta por tipo de referencia para todo el bloque
+        Set<Long> usuariosExistentes = new HashSet<>(usuarioRepository.findIdsExistentes(usuarioIds));
+        Set<Long> clientesExistentes = clienteIds.isEmpty()
+                ? Set.of() : new HashSet<>(clienteRepository.findIdsExistentes(clienteIds));
+        Set<Long> productosExistentes = new HashSet<>(productoRepository.findIdsExistentes(productoIds));
+        Set<Long> presentacionesExistentes = new HashSet<>();
+        if (!presentacionIds.isEmpty()) {
+            for (Object[] fila : presentacionRepository.findEstadoStockPorIds(presentacionIds)) {
+                presentacionesExistentes.add((Long) fila[0]);
+            }
+        }
+        Set<String> numerosUsados = numeros.isEmpty()
+                ? new HashSet<>() : new HashSet<>(ventaRepository.findNumerosVentaExistentes(numeros));
+
+        List<ResultadoIngestaVentas.Linea> resultados = new ArrayList<>(bloque.size());
+        List<Venta> aceptadas = new ArrayList<>(bloque.size());
+        List<Pendiente> pendientesAceptadas = new ArrayList<>(bloque.size());
+        Map<Long, Integer> cantidadPorPresentacion = new TreeMap<>();
+        Map<Long, Integer> cantidadPorProducto = new TreeMap<>();
+        LocalDateTime ahora = LocalDateTime.now();
+
+        for (Pendiente pendiente : bloque) {
+            Venta venta = pendiente.venta();
+            String error = validarReferencias(venta, usuariosExistentes, clientesExistentes,
+                                              productosExistentes, presentacionesExistentes);
+            if (error == null && venta.getNumeroVenta() != null && !venta.getNumeroVenta().isEmpty()
+                    && !numerosUsados.add(venta.getNumeroVenta())) {
+                error = "Ya existe una venta con este número";
+            }
+            if (error != null) {
+                resultados.add(rechazada(pendiente, error));
+                continue;
+            }
+
+            if (venta.getNumeroVenta() == null || venta.getNumeroVenta().isEmpty()) {
+                venta.setNumeroVenta(ventaService.generarNumeroVenta());
+            }
+            if (venta.getFechaVenta() == null) {
+                venta.setFechaVenta(ahora);
+            }
+            // Totales calculados una sola vez en memoria, igual que en crearVenta
+            BigDecimal subtotal = BigDecimal.ZERO;
+            for (DetalleVenta detalle : venta.getDetallesVenta()) {
+                detalle.calcularSubtotal();
+                subtotal = subtotal.add(detalle.getSubtotal());
+                if (detalle.getPresentacionId() != null) {
+                    cantidadPorPresentacion.merge(detalle.getPresentacionId(), detalle.getCantidad(), Integer::sum);
+                } else {
+                    cantidadPorProducto.merge(detalle.getProductoId(), detalle.getCantidad(), Integer::sum);
+                }
+            }
+            venta.setSubtotal(subtotal);
+            venta.calcularTotal();
+            aceptadas.add(venta);
+            pendientesAceptadas.add(pendiente);
+        }
+        if (aceptadas.isEmpty()) {
+            return resultados;
+        }
+
+        // Stock del bloque completo: una verificación de reservas y un UPDATE condicional por presentación o producto
+        reservaStockService.prepararVenta(null, cantidadPorPresentacion, cantidadPorProducto);
+        presentacionService.reducirStockEnLote(cantidadPorPresentacion);
+        inventarioService.reducirStockProductos(cantidadPorProducto);
+
+        insertarVentas(aceptadas, ahora);
+        Map<String, Long> idPorNumero = new HashMap<>();
+        for (Object[] fila : ventaRepository.findIdsPorNumerosVenta(
+                aceptadas.stream().map(Venta::getNumeroVenta).toList())) {
+            idPorNumero.put((String) fila[1], (Long) fila[0]);
+        }
+        insertarDetalles(aceptadas, idPorNumero);
+
+        // Contadores de más vendidos: una actualización por día de venta en lugar de una por venta
+        Map<LocalDate, List<DetalleVenta>> detallesPorDia = new TreeMap<>();
+        for (Venta venta : aceptadas) {
+            if (cuentaComoVendida(venta)) {
+                detallesPorDia.computeIfAbsent(venta.getFechaVenta().toLocalDate(), d -> new ArrayList<>())
+                        .addAll(venta.getDetallesVenta());
+            }
+        }
+        detallesPorDia.forEach((dia, detalles) -> contadorVentasService.registrarVenta(dia.atStartOfDay(), detalles));
+        contadorVentasService.actualizarResumenDiario(List.of(), aceptadas.stream().map(FotoVenta::de).toList());
+
+        for (Pendiente pendiente : pendientesAceptadas) {
+            String numero = pendiente.venta().getNumeroVenta();
+            resultados.add(new ResultadoIngestaVentas.Linea(pendiente.indice(), numero, idPorNumero.get(numero), true, null));
+        }
+        return resultados;
+    }
+
+    /**
+     * Verificar que el usuario, el cliente, los productos y las presentaciones de una venta existan
+     * @return el motivo del rechazo, o null si todas las referencias existen
+     */
+    private String validarReferencias(Venta venta, Set<Long> usuarios, Set<Long> clientes,
+                                      Set<Long> productos, Set<Long> presentaciones) {
+        if (!usuarios.contains(venta.getUsuarioId())) {
+            return "Usuario no encontrado con ID: " + venta.getUsuarioId();
+        }
+        if (venta.getClienteId() != null && !clientes.contains(venta.getClienteId())) {
+            return "Cliente no encontrado con ID: " + venta.getClienteId();
+        }
+        for (DetalleVenta detalle : venta.getDetallesVenta()) {
+            if (!productos.contains(detalle.getProductoId())) {
+                return "Producto no encontrado con ID: " + detalle.getProductoId();
+            }
+            if (detalle.getPresentacionId() != null && !presentaciones.contains(detalle.getPresentacionId())) {
+                return "Presentación no encontrada con ID: " + detalle.getPresentacionId();
+            }
+        }
+        return null;
+    }
+
+    private void insertarVentas(List<Venta> ventas, LocalDateTime ahora) {
+        List<Object[]> filas = new ArrayList<>(ventas.size());
+        for (Venta venta : ventas) {
+            filas.add(new Object[]{
+                venta.getNumeroVenta(), venta.getClienteId(), venta.getUsuarioId(), venta.getFechaVenta(),
+                venta.getSubtotal(), venta.getDescuento(), venta.getImpuesto(), venta.getTotal(),
+                venta.getEstado(), venta.getMetodoPago(), venta.getNumeroComprobante(), venta.getObservaciones(),
+                ahora, ahora, venta.getActivo(),
+                venta.getPuntosOtorgados(), venta.getPuntosUsados(), venta.getDescuentoPuntos()
+            });
+        }
+        insertarVariasFilas(SQL_INSERTAR_VENTAS, COLUMNAS_VENTAS, filas);
+    }
+
+    private void insertarDetalles(List<Venta> ventas, Map<String, Long> idPorNumero) {
+        List<Object[]> filas = new ArrayList<>();
+        for (Venta venta : ventas) {
+            Long ventaId = idPorNumero.get(venta.getNumeroVenta());
+            if (ventaId == null) {
+                throw new RuntimeException("No se encontró la venta insertada: " + venta.getNumeroVenta());
+            }
+            for (DetalleVenta detalle : venta.getDetallesVenta()) {
+                filas.add(new Object[]{
+                    ventaId, detalle.getProductoId(), detalle.getPresentacionId(), detalle.getCantidad(),
+                    detalle.getPrecioUnitario(), detalle.getDescuento(), detalle.getSubtotal(), detalle.getObservaciones()
+                });
+            }
+        }
+        insertarVariasFilas(SQL_INSERTAR_DETALLES, COLUMNAS_DETALLES, filas);
+    }
+
+    /**
+     * Insertar filas con sentencias INSERT ... VALUES (...), (...) de hasta FILAS_POR_SENTENCIA filas.
+     * Equivale a un lote JDBC reescrito, sin depender de rewriteBatchedStatements en la URL de conexión
+     * (que debe quedar desactivado para que los UPDATE condicionales informen sus filas afectadas).
+     */
+    private void insertarVariasFilas(String encabezado, int columnas, List<Object[]> filas) {
+        String grupo = "(" + String.join(", ", Collections.nCopies(columnas, "?")) + ")";
+        for (int desde = 0; desde < filas.size(); desde += FILAS_POR_SENTENCIA) {
+            List<Object[]> tramo = filas.subList(desde, Math.min(desde + FILAS_POR_SENTENCIA, filas.size()));
+            StringBuilder sql = new StringBuilder(encabezado.length() + tramo.size() * (grupo.length() + 2));
+            sql.append(encabezado).append(" VALUES ");
+            Object[] argumentos = new Object[tramo.size() * columnas];
+            for (int i = 0; i < tramo.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(grupo);
+                System.arraycopy(tramo.get(i), 0, argumentos, i * columnas, columnas);
+            }
+            jdbcTemplate.update(sql.toString(), argumentos);
+        }
+    }
+
+    /**
+     * Verificar si una venta cuenta para los más vendidos (activa y no cancelada ni devuelta)
+     */
+    private boolean cuentaComoVendida(Venta venta) {
+        return !Boolean.FALSE.equals(venta.getActivo())
+                && !"CANCELADA".equals(venta.getEstado())
+                && !"DEVUELTA".equals(venta.getEstado());
+    }
+
+    private static ResultadoIngestaVentas.Linea rechazada(Pendiente pendiente, String mensaje) {
+        return new ResultadoIngestaVentas.Linea(pendiente.indice(), pendiente.venta().getNumeroVenta(), null, false, mensaje);
+    }
+
+    private record Pendiente(int indice, Venta venta) {
+    }
+}
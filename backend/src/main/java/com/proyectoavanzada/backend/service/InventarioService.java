@@ -7,19 +7,39 @@ import com.proyectoavanzada.backend.repository.ProductoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @Transactional
 public class InventarioService {
     
+    // Cantidad máxima de ids por consulta IN al calcular stock en lote
+    private static final int TAMANO_LOTE_STOCK = 500;
+    
     @Autowired
     private InventarioRepository inventarioRepository;
     
     @Autowired
     private ProductoRepository productoRepository;
     
+    @Autowired
+    private VersionRecursosService versionRecursosService;
+    
+    @Autowired
+    private MonitorStockBajo monitorStockBajo;
+    
+    @Autowired
+    private MovimientoStockService movimientoStockService;
+    
+    @Autowired
+    private ReservaStockService reservaStockService;
+    
     /**
      * Agregar stock a un producto (sin presentación específica)
      * Si no existe inventario para el producto, lo crea
@@ -76,9 +96,13 @@ public class InventarioService {
         inventario.agregarStock(cantidad);
         System.out.println("Stock anterior: " + stockAnterior + ", Stock nuevo: " + inventario.getStockActual());
         
+        // El stock forma parte de los listados de productos
+        versionRecursosService.incrementarAlFinalizar(VersionRecursosService.PRODUCTOS);
+        
         // Guardar el inventario
         try {
             Inventario inventarioGuardado = inventarioRepository.saveAndFlush(inventario);
+            monitorStockBajo.registrarAlConfirmar(inventarioGuardado);
             System.out.println("Inventario guardado exitosamente. ID: " + inventarioGuardado.getId() + ", Stock: " + inventarioGuardado.getStockActual());
             
             // Verificar que se guardó correctamente
@@ -96,32 +120,114 @@ public class InventarioService {
     }
     
     /**
-     * Reducir stock de un producto
+     * Reducir stock de un producto con un UPDATE condicionado a que alcance el stock
      */
     public void reducirStockProducto(Long productoId, Integer cantidad) {
-        Optional<Producto> productoOpt = productoRepository.findById(productoId);
-        if (!productoOpt.isPresent()) {
+        if (!productoRepository.existsById(productoId)) {
             throw new RuntimeException("Producto no encontrado");
         }
+        reducirStockProductos(Map.of(productoId, cantidad));
+    }
+    
+    /**
+     * Agregar stock a varios productos (sin presentación) en una sola pasada.
+     * Los inventarios existentes se actualizan con un lote de sentencias UPDATE y los que falten se crean.
+     * @param cantidadPorProducto id de producto -> cantidad a agregar
+     */
+    public void agregarStockProductos(Map<Long, Integer> cantidadPorProducto) {
+        if (cantidadPorProducto == null || cantidadPorProducto.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> productoPorInventario = cargarInventariosSinPresentacion(cantidadPorProducto.keySet());
+        Map<Long, Long> inventarioPorProducto = new HashMap<>();
+        productoPorInventario.forEach((inventarioId, productoId) -> inventarioPorProducto.put(productoId, inventarioId));
         
-        Producto producto = productoOpt.get();
-        List<Inventario> inventarios = inventarioRepository.findByProducto(producto);
-        
-        // Buscar inventario sin presentación
-        Inventario inventario = null;
-        for (Inventario inv : inventarios) {
-            if (inv.getPresentacion() == null) {
-                inventario = inv;
-                break;
+        Map<Long, Integer> cantidadPorInventario = new HashMap<>();
+        List<Inventario> nuevos = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entrada : cantidadPorProducto.entrySet()) {
+            if (entrada.getValue() == null || entrada.getValue() <= 0) {
+                throw new RuntimeException("La cantidad debe ser mayor a 0");
+            }
+            Long inventarioId = inventarioPorProducto.get(entrada.getKey());
+            if (inventarioId != null) {
+                cantidadPorInventario.put(inventarioId, entrada.getValue());
+                continue;
             }
+            // El producto ya está cargado en la transacción, así que la referencia no ejecuta otra consulta
+            Producto producto = productoRepository.getReferenceById(entrada.getKey());
+            Inventario inventario = new Inventario();
+            inventario.setProducto(producto);
+            inventario.setPresentacion(null);
+            inventario.setStockActual(0);
+            inventario.setStockMinimo(producto.getStockMinimo() != null ? producto.getStockMinimo() : 5);
+            inventario.setActivo(true);
+            inventario.setFechaCreacion(java.time.LocalDateTime.now());
+            inventario.agregarStock(entrada.getValue());
+            nuevos.add(inventario);
         }
         
-        if (inventario == null || !inventario.hayStockSuficiente(cantidad)) {
-            throw new RuntimeException("Stock insuficiente para el producto");
+        Long noEncontrado = movimientoStockService.agregarInventarios(cantidadPorInventario);
+        if (noEncontrado != null) {
+            throw new RuntimeException("Inventario no encontrado con ID: " + noEncontrado);
+        }
+        for (Inventario inventario : inventarioRepository.saveAll(nuevos)) {
+            monitorStockBajo.registrarAlConfirmar(inventario);
+            reservaStockService.actualizarStockAlConfirmar(ReservaStockService.Clave.deProducto(inventario.getProducto().getId()),
+                    inventario.getStockActual(), inventario.getActivo());
+        }
+        registrarMovimientos(cantidadPorInventario.keySet());
+    }
+    
+    /**
+     * Reducir el stock de varios productos (sin presentación) con un lote de UPDATE condicionados a que alcance.
+     * Si una línea no alcanza se lanza la excepción y la transacción deshace las demás del lote.
+     * @param cantidadPorProducto id de producto -> cantidad a reducir
+     */
+    public void reducirStockProductos(Map<Long, Integer> cantidadPorProducto) {
+        if (cantidadPorProducto == null || cantidadPorProducto.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> productoPorInventario = cargarInventariosSinPresentacion(cantidadPorProducto.keySet());
+        Map<Long, Integer> cantidadPorInventario = new HashMap<>();
+        for (Map.Entry<Long, Long> entrada : productoPorInventario.entrySet()) {
+            cantidadPorInventario.put(entrada.getKey(), cantidadPorProducto.get(entrada.getValue()));
+        }
+        for (Long productoId : cantidadPorProducto.keySet()) {
+            if (!productoPorInventario.containsValue(productoId)) {
+                throw new RuntimeException("Stock insuficiente para el producto con ID: " + productoId);
+            }
         }
         
-        inventario.reducirStock(cantidad);
-        inventarioRepository.save(inventario);
+        Long fallido = movimientoStockService.reducirInventarios(cantidadPorInventario);
+        if (fallido != null) {
+            throw new RuntimeException("Stock insuficiente para el producto con ID: " + productoPorInventario.get(fallido));
+        }
+        registrarMovimientos(cantidadPorInventario.keySet());
+    }
+    
+    /**
+     * Inventario sin presentación de cada producto (el de menor id si hubiera varios), como inventario -> producto
+     */
+    private Map<Long, Long> cargarInventariosSinPresentacion(Collection<Long> productoIds) {
+        Map<Long, Long> productoPorInventario = new HashMap<>();
+        for (Object[] fila : inventarioRepository.findIdsSinPresentacionByProductoIds(productoIds)) {
+            productoPorInventario.put((Long) fila[1], (Long) fila[0]);
+        }
+        return productoPorInventario;
+    }
+    
+    /**
+     * Leer con una consulta el stock que dejó un movimiento en lote y avisar los cambios de stock
+     */
+    private void registrarMovimientos(Collection<Long> inventarioIds) {
+        if (!inventarioIds.isEmpty()) {
+            for (Object[] fila : inventarioRepository.findEstadoStockPorIds(inventarioIds)) {
+                monitorStockBajo.registrarInventarioAlConfirmar((Long) fila[0], (Integer) fila[1], (Integer) fila[2], (Boolean) fila[3]);
+                reservaStockService.actualizarStockAlConfirmar(ReservaStockService.Clave.deProducto((Long) fila[4]),
+                        (Integer) fila[1], (Boolean) fila[3]);
+            }
+        }
+        versionRecursosService.incrementarAlFinalizar(VersionRecursosService.PRODUCTOS);
     }
     
     /**
@@ -137,5 +243,30 @@ public class InventarioService {
         Integer stockTotal = inventarioRepository.sumStockActualByProducto(producto);
         return stockTotal != null ? stockTotal : 0;
     }
+    
+    /**
+     * Obtener el stock total de varios productos en lote.
+     * Ejecuta una consulta agrupada por producto en lugar de una consulta por producto.
+     * Los productos sin inventario activo quedan con stock 0.
+     */
+    public Map<Long, Integer> obtenerStockProductos(Collection<Long> productoIds) {
+        Map<Long, Integer> stockPorProducto = new HashMap<>();
+        if (productoIds == null || productoIds.isEmpty()) {
+            return stockPorProducto;
+        }
+        
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(productoIds));
+        ids.remove(null);
+        for (Long id : ids) {
+            stockPorProducto.put(id, 0);
+        }
+        
+        for (int inicio = 0; inicio < ids.size(); inicio += TAMANO_LOTE_STOCK) {
+            List<Long> lote = ids.subList(inicio, Math.min(inicio + TAMANO_LOTE_STOCK, ids.size()));
+            for (Object[] fila : inventarioRepository.sumStockActualByProductoIds(lote)) {
+                stockPorProducto.put((Long) fila[0], ((Number) fila[1]).intValue());
+            }
+        }
+        return stockPorProducto;
+    }
 }
-
@@ -16,6 +16,12 @@ public class MarcaService {
     @Autowired
     private MarcaRepository marcaRepository;
     
+    @Autowired
+    private VersionRecursosService versionRecursosService;
+    
+    @Autowired
+    private ProductoService productoService;
+    
     /**
      * Obtener todas las marcas
      */
@@ -123,6 +129,7 @@ public class MarcaService {
             throw new RuntimeException("Ya existe una marca con este nombre");
         }
         
+        registrarCambioMarcas();
         return marcaRepository.save(marca);
     }
     
@@ -140,6 +147,8 @@ public class MarcaService {
             throw new RuntimeException("Ya existe una marca con este nombre");
         }
         
+        registrarCambioMarcas();
+        productoService.reindexarBusquedaPorMarcaAlConfirmar(marca.getId());
         return marcaRepository.save(marca);
     }
     
@@ -157,6 +166,7 @@ public class MarcaService {
             }
             
             marca.setActivo(false);
+            registrarCambioMarcas();
             marcaRepository.save(marca);
         } else {
             throw new RuntimeException("Marca no encontrada");
@@ -176,6 +186,7 @@ public class MarcaService {
                 throw new RuntimeException("No se puede eliminar una marca que tiene productos asociados");
             }
             
+            registrarCambioMarcas();
             marcaRepository.deleteById(id);
         } else {
             throw new RuntimeException("Marca no encontrada");
@@ -190,6 +201,7 @@ public class MarcaService {
         if (marcaOpt.isPresent()) {
             Marca marca = marcaOpt.get();
             marca.setActivo(true);
+            registrarCambioMarcas();
             return marcaRepository.save(marca);
         } else {
             throw new RuntimeException("Marca no encontrada");
@@ -204,6 +216,7 @@ public class MarcaService {
         if (marcaOpt.isPresent()) {
             Marca marca = marcaOpt.get();
             marca.setActivo(false);
+            registrarCambioMarcas();
             return marcaRepository.save(marca);
         } else {
             throw new RuntimeException("Marca no encontrada");
@@ -237,4 +250,13 @@ public class MarcaService {
     public List<Marca> obtenerMarcasInactivas() {
         return marcaRepository.findByActivoFalse();
     }
+    
+    /**
+     * Cambiar la versión de marcas y de productos (que incluyen su marca) y vaciar la caché del catálogo
+     * al terminar la transacción
+     */
+    private void registrarCambioMarcas() {
+        versionRecursosService.incrementarAlFinalizar(VersionRecursosService.MARCAS, VersionRecursosService.PRODUCTOS);
+        productoService.invalidarCacheCatalogoAlFinalizar();
+    }
 }
@@ -0,0 +1,451 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.model.Inventario;
+import com.proyectoavanzada.backend.model.Presentacion;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.repository.InventarioRepository;
+import com.proyectoavanzada.backend.repository.PresentacionRepository;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import com.proyectoavanzada.backend.util.TransaccionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Conjunto en vivo de productos, presentaciones e inventarios por debajo de su stock mínimo.
+ * Los servicios avisan cada cambio de stock cuando su transacción confirma, y el monitor detecta en ese
+ * momento si el registro cruzó el umbral; los endpoints de stock bajo leen el conjunto sin recorrer tablas.
+ * Una reconciliación periódica reconstruye el estado desde la base de datos por si algún cambio no se avisó.
+ *
+ * Mantiene los mismos criterios que las consultas de los repositorios:
+ * producto activo con stockMinimo >= suma del stock de sus presentaciones,
+ * presentación activa con stockDisponible <= stockMinimo de su producto,
+ * inventario activo con stockActual <= stockMinimo.
+ */
+@Component
+public class MonitorStockBajo {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitorStockBajo.class);
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PresentacionRepository presentacionRepository;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    private Estado estado = new Estado(true);
+
+    // Cambios recibidos mientras se reconcilia, para aplicarlos de nuevo sobre el estado reconstruido
+    private List<Consumer<Estado>> cambiosDuranteReconciliacion;
+
+    private volatile boolean construido = false;
+    private volatile LocalDateTime ultimaReconciliacion;
+    private volatile int correccionesUltimaReconciliacion;
+
+    /**
+     * Construir el estado inicial al iniciar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        reconciliar();
+    }
+
+    /**
+     * Reconstruir el estado desde la base de datos y corregir cualquier desvío del conjunto en vivo
+     * @return cantidad de registros que entraron o salieron del conjunto por la reconciliación
+     */
+    @Scheduled(fixedDelayString = "${inventario.stock-bajo.reconciliacion-ms:300000}",
+               initialDelayString = "${inventario.stock-bajo.reconciliacion-ms:300000}")
+    public synchronized int reconciliar() {
+        candado.writeLock().lock();
+        try {
+            cambiosDuranteReconciliacion = new ArrayList<>();
+        } finally {
+            candado.writeLock().unlock();
+        }
+
+        Estado nuevo = new Estado(false);
+        try {
+            for (Object[] fila : productoRepository.findEstadoStockMinimo()) {
+                nuevo.registrarProducto((Long) fila[0], (Integer) fila[1], (Boolean) fila[2]);
+            }
+            for (Object[] fila : presentacionRepository.findEstadoStock()) {
+                nuevo.registrarPresentacion((Long) fila[0], (Long) fila[1], (Integer) fila[2], (Boolean) fila[3]);
+            }
+            nuevo.inventariosBajo.addAll(inventarioRepository.findIdsInventariosConStockBajo());
+        } catch (RuntimeException e) {
+            candado.writeLock().lock();
+            try {
+                cambiosDuranteReconciliacion = null;
+            } finally {
+                candado.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int correcciones;
+        candado.writeLock().lock();
+        try {
+            for (Consumer<Estado> cambio : cambiosDuranteReconciliacion) {
+                cambio.accept(nuevo);
+            }
+            cambiosDuranteReconciliacion = null;
+            correcciones = construido ? estado.diferencias(nuevo) : 0;
+            nuevo.notificarCruces = true;
+            estado = nuevo;
+            construido = true;
+        } finally {
+            candado.writeLock().unlock();
+        }
+
+        ultimaReconciliacion = LocalDateTime.now();
+        correccionesUltimaReconciliacion = correcciones;
+        if (correcciones > 0) {
+            logger.warn("Reconciliación de stock bajo corrigió {} registros", correcciones);
+        }
+        return correcciones;
+    }
+
+    /**
+     * Registrar el stock mínimo y el estado de un producto cuando confirme la transacción actual
+     */
+    public void registrarAlConfirmar(Producto producto) {
+        if (producto == null || producto.getId() == null) {
+            return;
+        }
+        Long productoId = producto.getId();
+        Integer stockMinimo = producto.getStockMinimo();
+        Boolean activo = producto.getActivo();
+        TransaccionUtil.despuesDelCommit(() -> registrarProducto(productoId, stockMinimo, activo));
+    }
+
+    /**
+     * Registrar el stock de una presentación cuando confirme la transacción actual.
+     * El stock mínimo del producto se toma del estado del monitor, porque el producto de la presentación
+     * puede venir del cuerpo de la petición solo con su id.
+     */
+    public void registrarAlConfirmar(Presentacion presentacion) {
+        if (presentacion == null || presentacion.getId() == null || presentacion.getProducto() == null) {
+            return;
+        }
+        registrarPresentacionAlConfirmar(presentacion.getId(), presentacion.getProducto().getId(),
+                                         presentacion.getStockDisponible(), presentacion.getActivo());
+    }
+
+    /**
+     * Registrar el stock de una presentación leído sin cargar la entidad, cuando confirme la transacción actual
+     */
+    public void registrarPresentacionAlConfirmar(Long presentacionId, Long productoId, Integer stock, Boolean activa) {
+        TransaccionUtil.despuesDelCommit(() -> registrarPresentacion(presentacionId, productoId, stock, activa));
+    }
+
+    /**
+     * Registrar el stock de un inventario cuando confirme la transacción actual
+     */
+    public void registrarAlConfirmar(Inventario inventario) {
+        if (inventario == null || inventario.getId() == null) {
+            return;
+        }
+        registrarInventarioAlConfirmar(inventario.getId(), inventario.getStockActual(),
+                                       inventario.getStockMinimo(), inventario.getActivo());
+    }
+
+    /**
+     * Registrar el stock de un inventario leído sin cargar la entidad, cuando confirme la transacción actual
+     */
+    public void registrarInventarioAlConfirmar(Long inventarioId, Integer stockActual, Integer stockMinimo, Boolean activo) {
+        TransaccionUtil.despuesDelCommit(() -> registrarInventario(inventarioId, stockActual, stockMinimo, activo));
+    }
+
+    /**
+     * Quitar un producto y sus presentaciones cuando confirme la transacción actual
+     */
+    public void quitarProductoAlConfirmar(Long productoId) {
+        TransaccionUtil.despuesDelCommit(() -> aplicar(e -> e.quitarProducto(productoId)));
+    }
+
+    /**
+     * Quitar una presentación cuando confirme la transacción actual
+     */
+    public void quitarPresentacionAlConfirmar(Long presentacionId) {
+        TransaccionUtil.despuesDelCommit(() -> aplicar(e -> e.quitarPresentacion(presentacionId)));
+    }
+
+    /**
+     * Registrar el stock mínimo y el estado de un producto
+     */
+    public void registrarProducto(Long productoId, Integer stockMinimo, Boolean activo) {
+        aplicar(e -> e.registrarProducto(productoId, stockMinimo, activo));
+    }
+
+    /**
+     * Registrar el stock de una presentación
+     */
+    public void registrarPresentacion(Long presentacionId, Long productoId, Integer stock, Boolean activa) {
+        aplicar(e -> e.registrarPresentacion(presentacionId, productoId, stock, activa));
+    }
+
+    /**
+     * Registrar el stock de un inventario
+     */
+    public void registrarInventario(Long inventarioId, Integer stockActual, Integer stockMinimo, Boolean activo) {
+        aplicar(e -> e.registrarInventario(inventarioId, stockActual, stockMinimo, activo));
+    }
+
+    /**
+     * Ids de los productos activos con stock bajo, ordenados
+     */
+    public List<Long> obtenerProductosConStockBajo() {
+        return leerConjunto(e -> e.productosBajo);
+    }
+
+    /**
+     * Ids de las presentaciones activas con stock bajo, ordenados
+     */
+    public List<Long> obtenerPresentacionesConStockBajo() {
+        return leerConjunto(e -> e.presentacionesBajo);
+    }
+
+    /**
+     * Ids de los inventarios activos con stock bajo, ordenados
+     */
+    public List<Long> obtenerInventariosConStockBajo() {
+        return leerConjunto(e -> e.inventariosBajo);
+    }
+
+    /**
+     * Estadísticas del monitor: tamaño de cada conjunto, cruces detectados y última reconciliación
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        asegurarConstruido();
+        Map<String, Object> estadisticas = new HashMap<>();
+        candado.readLock().lock();
+        try {
+            estadisticas.put("productosConStockBajo", estado.productosBajo.size());
+            estadisticas.put("presentacionesConStockBajo", estado.presentacionesBajo.size());
+            estadisticas.put("inventariosConStockBajo", estado.inventariosBajo.size());
+            estadisticas.put("crucesDetectados", estado.cruces);
+        } finally {
+            candado.readLock().unlock();
+        }
+        estadisticas.put("ultimaReconciliacion", ultimaReconciliacion);
+        estadisticas.put("correccionesUltimaReconciliacion", correccionesUltimaReconciliacion);
+        return estadisticas;
+    }
+
+    private void aplicar(Consumer<Estado> cambio) {
+        candado.writeLock().lock();
+        try {
+            cambio.accept(estado);
+            if (cambiosDuranteReconciliacion != null) {
+                cambiosDuranteReconciliacion.add(cambio);
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    private List<Long> leerConjunto(Function<Estado, Set<Long>> conjunto) {
+        asegurarConstruido();
+        List<Long> ids;
+        candado.readLock().lock();
+        try {
+            ids = new ArrayList<>(conjunto.apply(estado));
+        } finally {
+            candado.readLock().unlock();
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private void asegurarConstruido() {
+        if (!construido) {
+            reconciliar();
+        }
+    }
+
+    /**
+     * Estado del monitor. Se accede siempre con el candado tomado, o sin compartir mientras se reconstruye.
+     */
+    private static final class Estado {
+
+        private final Map<Long, EstadoProducto> productos = new HashMap<>();
+        private final Map<Long, EstadoPresentacion> presentaciones = new HashMap<>();
+        private final Set<Long> productosBajo = new HashSet<>();
+        private final Set<Long> presentacionesBajo = new HashSet<>();
+        private final Set<Long> inventariosBajo = new HashSet<>();
+
+        private boolean notificarCruces;
+        private long cruces;
+
+        private Estado(boolean notificarCruces) {
+            this.notificarCruces = notificarCruces;
+        }
+
+        void registrarProducto(Long productoId, Integer stockMinimo, Boolean activo) {
+            if (productoId == null) {
+                return;
+            }
+            EstadoProducto producto = productos.computeIfAbsent(productoId, id -> new EstadoProducto());
+            boolean cambioMinimo = !Objects.equals(producto.stockMinimo, stockMinimo);
+            producto.stockMinimo = stockMinimo;
+            producto.activo = Boolean.TRUE.equals(activo);
+            evaluarProducto(productoId, producto);
+            if (cambioMinimo) {
+                // El umbral de las presentaciones es el stock mínimo del producto
+                for (Long presentacionId : producto.presentaciones) {
+                    evaluarPresentacion(presentacionId, presentaciones.get(presentacionId), producto);
+                }
+            }
+        }
+
+        void registrarPresentacion(Long presentacionId, Long productoId, Integer stock, Boolean activa) {
+            if (presentacionId == null || productoId == null) {
+                return;
+            }
+            EstadoPresentacion presentacion = presentaciones.get(presentacionId);
+            if (presentacion != null && !presentacion.productoId.equals(productoId)) {
+                // Cambió de producto: se descuenta del anterior
+                quitarPresentacion(presentacionId);
+                presentacion = null;
+            }
+            EstadoProducto producto = productos.computeIfAbsent(productoId, id -> new EstadoProducto());
+            if (presentacion == null) {
+                presentacion = new EstadoPresentacion(productoId);
+                presentaciones.put(presentacionId, presentacion);
+                producto.presentaciones.add(presentacionId);
+            }
+            int stockNuevo = stock != null ? stock : 0;
+            producto.stockPresentaciones += stockNuevo - presentacion.stock;
+            presentacion.stock = stockNuevo;
+            presentacion.activa = Boolean.TRUE.equals(activa);
+            evaluarPresentacion(presentacionId, presentacion, producto);
+            evaluarProducto(productoId, producto);
+        }
+
+        void registrarInventario(Long inventarioId, Integer stockActual, Integer stockMinimo, Boolean activo) {
+            if (inventarioId == null) {
+                return;
+            }
+            boolean bajo = Boolean.TRUE.equals(activo) && stockActual != null && stockMinimo != null
+                && stockActual <= stockMinimo;
+            actualizarConjunto(inventariosBajo, inventarioId, bajo, "Inventario");
+        }
+
+        void quitarPresentacion(Long presentacionId) {
+            EstadoPresentacion presentacion = presentaciones.remove(presentacionId);
+            presentacionesBajo.remove(presentacionId);
+            if (presentacion == null) {
+                return;
+            }
+            EstadoProducto producto = productos.get(presentacion.productoId);
+            if (producto != null) {
+                producto.presentaciones.remove(presentacionId);
+                producto.stockPresentaciones -= presentacion.stock;
+                evaluarProducto(presentacion.productoId, producto);
+            }
+        }
+
+        void quitarProducto(Long productoId) {
+            EstadoProducto producto = productos.remove(productoId);
+            productosBajo.remove(productoId);
+            if (producto == null) {
+                return;
+            }
+            for (Long presentacionId : producto.presentaciones) {
+                presentaciones.remove(presentacionId);
+                presentacionesBajo.remove(presentacionId);
+            }
+        }
+
+        /**
+         * Cantidad de registros que están en uno de los dos estados y no en el otro
+         */
+        int diferencias(Estado otro) {
+            return diferencia(productosBajo, otro.productosBajo)
+                + diferencia(presentacionesBajo, otro.presentacionesBajo)
+                + diferencia(inventariosBajo, otro.inventariosBajo);
+        }
+
+        private static int diferencia(Set<Long> a, Set<Long> b) {
+            int distintos = 0;
+            for (Long id : a) {
+                if (!b.contains(id)) {
+                    distintos++;
+                }
+            }
+            for (Long id : b) {
+                if (!a.contains(id)) {
+                    distintos++;
+                }
+            }
+            return distintos;
+        }
+
+        private void evaluarProducto(Long productoId, EstadoProducto producto) {
+            boolean bajo = producto.activo && producto.stockMinimo != null
+                && producto.stockMinimo >= producto.stockPresentaciones;
+            actualizarConjunto(productosBajo, productoId, bajo, "Producto");
+        }
+
+        private void evaluarPresentacion(Long presentacionId, EstadoPresentacion presentacion, EstadoProducto producto) {
+            if (presentacion == null) {
+                return;
+            }
+            boolean bajo = presentacion.activa && producto.stockMinimo != null
+                && presentacion.stock <= producto.stockMinimo;
+            actualizarConjunto(presentacionesBajo, presentacionId, bajo, "Presentación");
+        }
+
+        private void actualizarConjunto(Set<Long> conjunto, Long id, boolean bajo, String tipo) {
+            boolean cambio = bajo ? conjunto.add(id) : conjunto.remove(id);
+            if (cambio && notificarCruces) {
+                cruces++;
+                if (bajo) {
+                    logger.info("{} {} quedó por debajo del stock mínimo", tipo, id);
+                } else {
+                    logger.info("{} {} recuperó el stock mínimo", tipo, id);
+                }
+            }
+        }
+    }
+
+    private static final class EstadoProducto {
+        private Integer stockMinimo;
+        private boolean activo;
+        private long stockPresentaciones;
+        private final Set<Long> presentaciones = new HashSet<>();
+    }
+
+    private static final class EstadoPresentacion {
+        private final Long productoId;
+        private int stock;
+        private boolean activa;
+
+        private EstadoPresentacion(Long productoId) {
+            this.productoId = productoId;
+        }
+    }
+}
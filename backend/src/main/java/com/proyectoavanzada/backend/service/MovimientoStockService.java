@@ -0,0 +1,115 @@
+package com.proyectoavanzada.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+
+/**
+ * Movimientos de stock con sentencias UPDATE condicionales, sin leer la fila antes de escribirla.
+ * La condición "stock >= cantidad" va en el WHERE, así la base de datos la evalúa con la fila bloqueada
+ * y dos ventas concurrentes de la misma presentación no pueden vender más unidades de las que hay.
+ * Las sentencias de un movimiento se envían en un solo lote, ordenadas por id para que dos transacciones
+ * bloqueen las filas en el mismo orden, y cada sentencia se verifica con su conteo de filas afectadas.
+ * Los métodos devuelven el id de la primera fila que no se pudo actualizar (o null); quien llama debe
+ * lanzar una excepción en ese caso para que la transacción deshaga las demás filas del lote.
+ */
+@Service
+@Transactional
+public class MovimientoStockService {
+
+    private static final String SQL_REDUCIR_PRESENTACION =
+        "UPDATE presentaciones SET stock_disponible = stock_disponible - ?, fecha_actualizacion = ? " +
+        "WHERE id = ? AND stock_disponible >= ?";
+
+    private static final String SQL_AGREGAR_PRESENTACION =
+        "UPDATE presentaciones SET stock_disponible = COALESCE(stock_disponible, 0) + ?, fecha_actualizacion = ? " +
+        "WHERE id = ?";
+
+    private static final String SQL_REDUCIR_INVENTARIO =
+        "UPDATE inventario SET stock_actual = stock_actual - ?, fecha_ultima_salida = ?, fecha_actualizacion = ? " +
+        "WHERE id = ? AND stock_actual >= ?";
+
+    private static final String SQL_AGREGAR_INVENTARIO =
+        "UPDATE inventario SET stock_actual = stock_actual + ?, fecha_ultima_entrada = ?, fecha_actualizacion = ? " +
+        "WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reducir el stock de varias presentaciones solo si alcanza
+     * @return id de la primera presentación sin stock suficiente o inexistente, o null si se redujeron todas
+     */
+    public Long reducirPresentaciones(Map<Long, Integer> cantidadPorPresentacion) {
+        LocalDateTime ahora = LocalDateTime.now();
+        return aplicarEnLote(SQL_REDUCIR_PRESENTACION, cantidadPorPresentacion,
+            (id, cantidad) -> new Object[]{cantidad, ahora, id, cantidad});
+    }
+
+    /**
+     * Agregar stock a varias presentaciones
+     * @return id de la primera presentación inexistente, o null si se actualizaron todas
+     */
+    public Long agregarPresentaciones(Map<Long, Integer> cantidadPorPresentacion) {
+        LocalDateTime ahora = LocalDateTime.now();
+        return aplicarEnLote(SQL_AGREGAR_PRESENTACION, cantidadPorPresentacion,
+            (id, cantidad) -> new Object[]{cantidad, ahora, id});
+    }
+
+    /**
+     * Reducir el stock de varios inventarios solo si alcanza
+     * @return id del primer inventario sin stock suficiente o inexistente, o null si se redujeron todos
+     */
+    public Long reducirInventarios(Map<Long, Integer> cantidadPorInventario) {
+        LocalDateTime ahora = LocalDateTime.now();
+        return aplicarEnLote(SQL_REDUCIR_INVENTARIO, cantidadPorInventario,
+            (id, cantidad) -> new Object[]{cantidad, ahora, ahora, id, cantidad});
+    }
+
+    /**
+     * Agregar stock a varios inventarios
+     * @return id del primer inventario inexistente, o null si se actualizaron todos
+     */
+    public Long agregarInventarios(Map<Long, Integer> cantidadPorInventario) {
+        LocalDateTime ahora = LocalDateTime.now();
+        return aplicarEnLote(SQL_AGREGAR_INVENTARIO, cantidadPorInventario,
+            (id, cantidad) -> new Object[]{cantidad, ahora, ahora, id});
+    }
+
+    /**
+     * Ejecutar una sentencia por id en un solo lote y devolver el primer id que no afectó exactamente una fila.
+     * El conteo por sentencia depende de que el driver no reescriba el lote (rewriteBatchedStatements
+     * desactivado, como en la URL de conexión actual); si no informa el conteo, la fila se toma como fallida.
+     */
+    private Long aplicarEnLote(String sql, Map<Long, Integer> cantidadPorId,
+                               BiFunction<Long, Integer, Object[]> argumentos) {
+        if (cantidadPorId == null || cantidadPorId.isEmpty()) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>(cantidadPorId.size());
+        List<Object[]> lote = new ArrayList<>(cantidadPorId.size());
+        for (Map.Entry<Long, Integer> entrada : new TreeMap<>(cantidadPorId).entrySet()) {
+            if (entrada.getValue() == null || entrada.getValue() <= 0) {
+                throw new RuntimeException("La cantidad debe ser mayor a 0");
+            }
+            ids.add(entrada.getKey());
+            lote.add(argumentos.apply(entrada.getKey(), entrada.getValue()));
+        }
+
+        int[] filas = jdbcTemplate.batchUpdate(sql, lote);
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] != 1) {
+                return ids.get(i);
+            }
+        }
+        return null;
+    }
+}
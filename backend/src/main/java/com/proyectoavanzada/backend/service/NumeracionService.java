@@ -0,0 +1,120 @@
+package com.proyectoavanzada.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Asigna números de documento (ventas, compras) desde bloques reservados en la tabla secuencias_numeracion.
+ * Cada bloque se reserva con un UPDATE atómico en una transacción propia, así dos nodos del backend nunca
+ * reciben el mismo rango y la reserva no queda bloqueada mientras dura la venta. Los números del bloque se
+ * entregan desde memoria sin ejecutar SQL; si una venta falla o el nodo se reinicia quedan huecos en la
+ * numeración, pero nunca números repetidos.
+ */
+@Service
+public class NumeracionService {
+
+    public static final String VENTAS = "ventas";
+    public static final String COMPRAS = "compras";
+
+    private static final String SQL_AVANZAR =
+        "UPDATE secuencias_numeracion SET siguiente = siguiente + ? WHERE nombre = ?";
+
+    private static final String SQL_LEER =
+        "SELECT siguiente FROM secuencias_numeracion WHERE nombre = ?";
+
+    private static final String SQL_CREAR =
+        "INSERT INTO secuencias_numeracion (nombre, siguiente) VALUES (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${numeracion.tamano-bloque:50}")
+    private int tamanoBloque;
+
+    // Transacción nueva para la reserva, independiente de la venta o compra que pide el número
+    private TransactionTemplate transaccionPropia;
+
+    private final Map<String, Bloque> bloques = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void inicializar() {
+        transaccionPropia = new TransactionTemplate(transactionManager);
+        transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Siguiente número de una secuencia. Solo ejecuta SQL cuando se agota el bloque reservado.
+     * @param valorInicial primer número si la secuencia todavía no existe en la base de datos
+     *                     (por ejemplo, el mayor número ya usado más uno)
+     */
+    public long siguiente(String secuencia, LongSupplier valorInicial) {
+        Bloque bloque = bloques.computeIfAbsent(secuencia, s -> new Bloque());
+        synchronized (bloque) {
+            if (bloque.siguiente >= bloque.limite) {
+                long fin = reservarBloque(secuencia, valorInicial);
+                bloque.siguiente = fin - tamanoBloque;
+                bloque.limite = fin;
+            }
+            return bloque.siguiente++;
+        }
+    }
+
+    /**
+     * Avanzar la secuencia un bloque y devolver el final (exclusivo) del rango reservado
+     */
+    private long reservarBloque(String secuencia, LongSupplier valorInicial) {
+        Long fin = transaccionPropia.execute(estado -> {
+            if (jdbcTemplate.update(SQL_AVANZAR, tamanoBloque, secuencia) == 0) {
+                try {
+                    jdbcTemplate.update(SQL_CREAR, secuencia, valorInicial.getAsLong() + tamanoBloque);
+                } catch (DuplicateKeyException e) {
+                    // Otro nodo creó la secuencia entre el UPDATE y el INSERT
+                    jdbcTemplate.update(SQL_AVANZAR, tamanoBloque, secuencia);
+                }
+            }
+            // La fila quedó bloqueada por esta transacción, así que la lectura ve el valor que dejamos
+            return jdbcTemplate.queryForObject(SQL_LEER, Long.class, secuencia);
+        });
+        if (fin == null) {
+            throw new RuntimeException("No se pudo reservar la numeración: " + secuencia);
+        }
+        return fin;
+    }
+
+    /**
+     * Mayor sufijo numérico de una lista de números de documento con el prefijo indicado (0 si no hay)
+     */
+    public static long mayorNumero(Iterable<String> numeros, String prefijo) {
+        long mayor = 0;
+        for (String numero : numeros) {
+            if (numero == null || !numero.startsWith(prefijo)) {
+                continue;
+            }
+            try {
+                mayor = Math.max(mayor, Long.parseLong(numero.substring(prefijo.length())));
+            } catch (NumberFormatException e) {
+                // Números cargados a mano con otro formato no afectan la secuencia
+            }
+        }
+        return mayor;
+    }
+
+    private static final class Bloque {
+        private long siguiente;
+        private long limite;
+    }
+}
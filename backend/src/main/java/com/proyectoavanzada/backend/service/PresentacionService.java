@@ -1,15 +1,30 @@
 package com.proyectoavanzada.backend.service;
 
+import com.proyectoavanzada.backend.dto.MatrizDisponibilidad;
 import com.proyectoavanzada.backend.model.Presentacion;
 import com.proyectoavanzada.backend.model.Producto;
 import com.proyectoavanzada.backend.repository.PresentacionRepository;
+import com.proyectoavanzada.backend.util.CacheLocal;
+import com.proyectoavanzada.backend.util.TransaccionUtil;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -18,6 +33,29 @@ public class PresentacionService {
     @Autowired
     private PresentacionRepository presentacionRepository;
     
+    @Autowired
+    private MonitorStockBajo monitorStockBajo;
+    
+    @Autowired
+    private MovimientoStockService movimientoStockService;
+    
+    @Autowired
+    private ReservaStockService reservaStockService;
+    
+    @Value("${presentaciones.disponibilidad.cache.tamano-maximo:2000}")
+    private int tamanoMaximoCacheMatriz;
+    
+    @Value("${presentaciones.disponibilidad.cache.ttl-segundos:120}")
+    private long ttlCacheMatrizSegundos;
+    
+    // Matriz talla x color por id de producto
+    private CacheLocal<Long, MatrizDisponibilidad> cacheMatrices;
+    
+    @PostConstruct
+    void inicializarCache() {
+        cacheMatrices = new CacheLocal<>("matriz-disponibilidad", tamanoMaximoCacheMatriz, Duration.ofSeconds(ttlCacheMatrizSegundos));
+    }
+    
     /**
      * Obtener todas las presentaciones
      */
@@ -85,7 +123,7 @@ public class PresentacionService {
      * Obtener presentaciones con stock bajo
      */
     public List<Presentacion> obtenerPresentacionesConStockBajo() {
-        return presentacionRepository.findPresentacionesConStockBajo();
+        return presentacionRepository.findAllById(monitorStockBajo.obtenerPresentacionesConStockBajo());
     }
     
     /**
@@ -124,10 +162,10 @@ public class PresentacionService {
     }
     
     /**
-     * Obtener presentaciones más vendidas
+     * Obtener las presentaciones activas más vendidas, leídas del contador mantenido en cada venta
      */
-    public List<Presentacion> obtenerPresentacionesMasVendidas() {
-        return presentacionRepository.findPresentacionesMasVendidas();
+    public List<Presentacion> obtenerPresentacionesMasVendidas(int limite) {
+        return presentacionRepository.findPresentacionesMasVendidas(PageRequest.of(0, limite));
     }
     
     /**
@@ -172,6 +210,64 @@ public class PresentacionService {
         return presentacionRepository.findTallasDisponiblesPorProductoYColor(producto, color);
     }
     
+    /**
+     * Obtener la matriz de disponibilidad talla x color de un producto con una sola consulta.
+     * Cada celda trae la presentación, su stock y su precio especial; la matriz queda en caché por producto
+     * hasta que cambie el stock o alguna presentación del producto.
+     */
+    public MatrizDisponibilidad obtenerMatrizDisponibilidad(Long productoId) {
+        return cacheMatrices.obtener(productoId, this::construirMatrizDisponibilidad);
+    }
+    
+    /**
+     * Obtener estadísticas de la caché de matrices de disponibilidad
+     */
+    public Map<String, Object> obtenerEstadisticasCacheMatrices() {
+        return cacheMatrices.obtenerEstadisticas();
+    }
+    
+    private MatrizDisponibilidad construirMatrizDisponibilidad(Long productoId) {
+        Set<String> tallas = new LinkedHashSet<>();
+        Set<String> colores = new LinkedHashSet<>();
+        Map<String, Map<String, MatrizDisponibilidad.Celda>> celdas = new LinkedHashMap<>();
+        for (Object[] fila : presentacionRepository.findMatrizDisponibilidadPorProducto(productoId)) {
+            String talla = (String) fila[1];
+            String color = (String) fila[2];
+            tallas.add(talla);
+            colores.add(color);
+            celdas.computeIfAbsent(talla, t -> new LinkedHashMap<>())
+                  .put(color, new MatrizDisponibilidad.Celda((Long) fila[0], (Integer) fila[3], (BigDecimal) fila[4]));
+        }
+        List<String> coloresOrdenados = new ArrayList<>(colores);
+        Collections.sort(coloresOrdenados);
+        // La matriz se comparte entre hilos desde la caché, así que se guarda inmutable
+        Map<String, Map<String, MatrizDisponibilidad.Celda>> celdasInmutables = new LinkedHashMap<>();
+        celdas.forEach((talla, porColor) -> celdasInmutables.put(talla, Collections.unmodifiableMap(porColor)));
+        return new MatrizDisponibilidad(productoId, List.copyOf(tallas), List.copyOf(coloresOrdenados),
+                                        Collections.unmodifiableMap(celdasInmutables));
+    }
+    
+    /**
+     * Quitar de la caché la matriz del producto cuando termine la transacción actual
+     */
+    private void invalidarMatrizAlFinalizar(Presentacion presentacion) {
+        if (presentacion != null && presentacion.getProducto() != null && presentacion.getProducto().getId() != null) {
+            Long productoId = presentacion.getProducto().getId();
+            TransaccionUtil.despuesDeFinalizar(() -> cacheMatrices.invalidar(productoId));
+        }
+    }
+    
+    /**
+     * Guardar la presentación y avisar su stock al monitor de stock bajo
+     */
+    private Presentacion guardarYRegistrarStock(Presentacion presentacion) {
+        Presentacion presentacionGuardada = presentacionRepository.save(presentacion);
+        monitorStockBajo.registrarAlConfirmar(presentacionGuardada);
+        reservaStockService.actualizarStockAlConfirmar(ReservaStockService.Clave.dePresentacion(presentacionGuardada.getId()),
+                presentacionGuardada.getStockDisponible(), presentacionGuardada.getActivo());
+        return presentacionGuardada;
+    }
+    
     /**
      * Guardar presentación
      */
@@ -184,16 +280,18 @@ public class PresentacionService {
             throw new RuntimeException("Ya existe una presentación con este producto, talla y color");
         }
         
-        return presentacionRepository.save(presentacion);
+        invalidarMatrizAlFinalizar(presentacion);
+        return guardarYRegistrarStock(presentacion);
     }
     
     /**
      * Actualizar presentación
      */
     public Presentacion actualizarPresentacion(Presentacion presentacion) {
-        if (!presentacionRepository.existsById(presentacion.getId())) {
-            throw new RuntimeException("Presentación no encontrada");
-        }
+        Presentacion presentacionActual = presentacionRepository.findById(presentacion.getId())
+                .orElseThrow(() -> new RuntimeException("Presentación no encontrada"));
+        // Si cambia de producto hay que invalidar la matriz de ambos
+        invalidarMatrizAlFinalizar(presentacionActual);
         
         // Verificar si ya existe otra presentación con el mismo producto, talla y color
         Optional<Presentacion> presentacionExistente = presentacionRepository.findByProductoAndTallaAndColor(
@@ -204,7 +302,8 @@ public class PresentacionService {
             throw new RuntimeException("Ya existe una presentación con este producto, talla y color");
         }
         
-        return presentacionRepository.save(presentacion);
+        invalidarMatrizAlFinalizar(presentacion);
+        return guardarYRegistrarStock(presentacion);
     }
     
     /**
@@ -214,8 +313,9 @@ public class PresentacionService {
         Optional<Presentacion> presentacionOpt = presentacionRepository.findById(id);
         if (presentacionOpt.isPresent()) {
             Presentacion presentacion = presentacionOpt.get();
+            invalidarMatrizAlFinalizar(presentacion);
             presentacion.setActivo(false);
-            presentacionRepository.save(presentacion);
+            guardarYRegistrarStock(presentacion);
         } else {
             throw new RuntimeException("Presentación no encontrada");
         }
@@ -225,10 +325,11 @@ public class PresentacionService {
      * Eliminar presentación permanentemente
      */
     public void eliminarPresentacionPermanentemente(Long id) {
-        if (!presentacionRepository.existsById(id)) {
-            throw new RuntimeException("Presentación no encontrada");
-        }
-        presentacionRepository.deleteById(id);
+        Presentacion presentacion = presentacionRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Presentación no encontrada"));
+        invalidarMatrizAlFinalizar(presentacion);
+        presentacionRepository.delete(presentacion);
+        monitorStockBajo.quitarPresentacionAlConfirmar(id);
     }
     
     /**
@@ -238,8 +339,9 @@ public class PresentacionService {
         Optional<Presentacion> presentacionOpt = presentacionRepository.findById(id);
         if (presentacionOpt.isPresent()) {
             Presentacion presentacion = presentacionOpt.get();
+            invalidarMatrizAlFinalizar(presentacion);
             presentacion.setActivo(true);
-            return presentacionRepository.save(presentacion);
+            return guardarYRegistrarStock(presentacion);
         } else {
             throw new RuntimeException("Presentación no encontrada");
         }
@@ -252,8 +354,9 @@ public class PresentacionService {
         Optional<Presentacion> presentacionOpt = presentacionRepository.findById(id);
         if (presentacionOpt.isPresent()) {
             Presentacion presentacion = presentacionOpt.get();
+            invalidarMatrizAlFinalizar(presentacion);
             presentacion.setActivo(false);
-            return presentacionRepository.save(presentacion);
+            return guardarYRegistrarStock(presentacion);
         } else {
             throw new RuntimeException("Presentación no encontrada");
         }
@@ -294,42 +397,92 @@ public class PresentacionService {
         Optional<Presentacion> presentacionOpt = presentacionRepository.findById(id);
         if (presentacionOpt.isPresent()) {
             Presentacion presentacion = presentacionOpt.get();
+            invalidarMatrizAlFinalizar(presentacion);
             presentacion.setStockDisponible(nuevoStock);
-            return presentacionRepository.save(presentacion);
+            return guardarYRegistrarStock(presentacion);
         } else {
             throw new RuntimeException("Presentación no encontrada");
         }
     }
     
     /**
-     * Agregar stock
+     * Agregar stock con una sola sentencia UPDATE, sin leer y reescribir el valor anterior
      */
     public Presentacion agregarStock(Long id, Integer cantidad) {
-        Optional<Presentacion> presentacionOpt = presentacionRepository.findById(id);
-        if (presentacionOpt.isPresent()) {
-            Presentacion presentacion = presentacionOpt.get();
-            presentacion.setStockDisponible(presentacion.getStockDisponible() + cantidad);
-            return presentacionRepository.save(presentacion);
-        } else {
-            throw new RuntimeException("Presentación no encontrada");
-        }
+        agregarStockEnLote(Map.of(id, cantidad));
+        return presentacionRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Presentación no encontrada"));
     }
     
     /**
-     * Reducir stock
+     * Reducir stock con un UPDATE condicionado a que alcance, así dos ventas concurrentes no venden de más
      */
     public Presentacion reducirStock(Long id, Integer cantidad) {
-        Optional<Presentacion> presentacionOpt = presentacionRepository.findById(id);
-        if (presentacionOpt.isPresent()) {
-            Presentacion presentacion = presentacionOpt.get();
-            if (presentacion.getStockDisponible() >= cantidad) {
-                presentacion.setStockDisponible(presentacion.getStockDisponible() - cantidad);
-                return presentacionRepository.save(presentacion);
-            } else {
-                throw new RuntimeException("Stock insuficiente");
+        reducirStockEnLote(Map.of(id, cantidad));
+        return presentacionRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Presentación no encontrada"));
+    }
+    
+    /**
+     * Obtener presentaciones por sus IDs con una sola consulta (id -> presentación)
+     */
+    public Map<Long, Presentacion> obtenerPresentacionesPorIds(Collection<Long> ids) {
+        Map<Long, Presentacion> presentacionesPorId = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return presentacionesPorId;
+        }
+        for (Presentacion presentacion : presentacionRepository.findAllById(ids)) {
+            presentacionesPorId.put(presentacion.getId(), presentacion);
+        }
+        return presentacionesPorId;
+    }
+    
+    /**
+     * Agregar stock a varias presentaciones con un lote de sentencias UPDATE
+     * @param cantidadPorPresentacion id de presentación -> cantidad a agregar
+     */
+    public void agregarStockEnLote(Map<Long, Integer> cantidadPorPresentacion) {
+        if (cantidadPorPresentacion == null || cantidadPorPresentacion.isEmpty()) {
+            return;
+        }
+        Long noEncontrada = movimientoStockService.agregarPresentaciones(cantidadPorPresentacion);
+        if (noEncontrada != null) {
+            throw new RuntimeException("Presentación no encontrada con ID: " + noEncontrada);
+        }
+        registrarMovimientos(cantidadPorPresentacion.keySet());
+    }
+    
+    /**
+     * Reducir el stock de varias presentaciones con un lote de UPDATE condicionados a que alcance el stock.
+     * Si una línea no alcanza se lanza la excepción y la transacción deshace las demás del lote.
+     * @param cantidadPorPresentacion id de presentación -> cantidad a reducir
+     */
+    public void reducirStockEnLote(Map<Long, Integer> cantidadPorPresentacion) {
+        if (cantidadPorPresentacion == null || cantidadPorPresentacion.isEmpty()) {
+            return;
+        }
+        Long fallida = movimientoStockService.reducirPresentaciones(cantidadPorPresentacion);
+        if (fallida != null) {
+            if (!presentacionRepository.existsById(fallida)) {
+                throw new RuntimeException("Presentación no encontrada con ID: " + fallida);
             }
-        } else {
-            throw new RuntimeException("Presentación no encontrada");
+            throw new RuntimeException("Stock insuficiente para la presentación con ID: " + fallida);
+        }
+        registrarMovimientos(cantidadPorPresentacion.keySet());
+    }
+    
+    /**
+     * Leer con una consulta el stock que dejó un movimiento en lote y propagarlo a la caché de matrices,
+     * al monitor de stock bajo y a las reservas. Se lee de la base de datos porque las entidades ya cargadas en la
+     * transacción conservan el stock anterior al UPDATE.
+     */
+    private void registrarMovimientos(Collection<Long> presentacionIds) {
+        for (Object[] fila : presentacionRepository.findEstadoStockPorIds(presentacionIds)) {
+            Long productoId = (Long) fila[1];
+            TransaccionUtil.despuesDeFinalizar(() -> cacheMatrices.invalidar(productoId));
+            monitorStockBajo.registrarPresentacionAlConfirmar((Long) fila[0], productoId, (Integer) fila[2], (Boolean) fila[3]);
+            reservaStockService.actualizarStockAlConfirmar(ReservaStockService.Clave.dePresentacion((Long) fila[0]),
+                    (Integer) fila[2], (Boolean) fila[3]);
         }
     }
     
@@ -340,6 +493,7 @@ public class PresentacionService {
         Optional<Presentacion> presentacionOpt = presentacionRepository.findById(id);
         if (presentacionOpt.isPresent()) {
             Presentacion presentacion = presentacionOpt.get();
+            invalidarMatrizAlFinalizar(presentacion);
             presentacion.setPrecioEspecial(precioEspecial);
             return presentacionRepository.save(presentacion);
         } else {
@@ -1,19 +1,41 @@
 package com.proyectoavanzada.backend.service;
 
+import com.proyectoavanzada.backend.dto.ConsultaFacetas;
+import com.proyectoavanzada.backend.dto.PaginaCursor;
+import com.proyectoavanzada.backend.dto.ProductoDetalle;
+import com.proyectoavanzada.backend.dto.ProductoResumen;
+import com.proyectoavanzada.backend.dto.ResultadoFacetas;
 import com.proyectoavanzada.backend.model.Producto;
 import com.proyectoavanzada.backend.model.Categoria;
 import com.proyectoavanzada.backend.model.Marca;
 import com.proyectoavanzada.backend.repository.ProductoRepository;
 import com.proyectoavanzada.backend.repository.CategoriaRepository;
 import com.proyectoavanzada.backend.repository.MarcaRepository;
+import com.proyectoavanzada.backend.repository.ResumenVentaProductoRepository;
+import com.proyectoavanzada.backend.util.CacheLocal;
+import com.proyectoavanzada.backend.util.CursorUtil;
+import com.proyectoavanzada.backend.util.TransaccionUtil;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Service
 @Transactional
@@ -28,53 +50,185 @@ public class ProductoService {
     @Autowired
     private MarcaRepository marcaRepository;
     
+    @Autowired
+    private ResumenVentaProductoRepository resumenVentaProductoRepository;
+    
+    @Autowired
+    private CursorUtil cursorUtil;
+    
+    @Autowired
+    private IndiceFacetasProductos indiceFacetas;
+    
+    @Autowired
+    private IndiceBusquedaProductos indiceBusqueda;
+    
+    @Autowired
+    private VersionRecursosService versionRecursosService;
+    
+    @Autowired
+    private MonitorStockBajo monitorStockBajo;
+    
+    @Value("${productos.paginacion.tamano-defecto:20}")
+    private int tamanoPaginaPorDefecto;
+    
+    @Value("${productos.paginacion.tamano-maximo:100}")
+    private int tamanoPaginaMaximo;
+    
+    @Value("${productos.cache.tamano-maximo:1000}")
+    private int tamanoMaximoCache;
+    
+    @Value("${productos.cache.ttl-segundos:300}")
+    private long ttlCacheSegundos;
+    
+    // Claves de las listas cacheadas
+    private static final String CLAVE_DESTACADOS = "destacados";
+    private static final String CLAVE_NUEVOS = "nuevos";
+    private static final String CLAVE_CON_DESCUENTO = "con-descuento";
+    
+    // Caché de lecturas frecuentes del catálogo (por id, por código y listas de la tienda); solo guarda records inmutables
+    private CacheLocal<String, Object> cacheCatalogo;
+    
+    @PostConstruct
+    void inicializarCache() {
+        cacheCatalogo = new CacheLocal<>("catalogo-productos", tamanoMaximoCache, Duration.ofSeconds(ttlCacheSegundos));
+        // Los cambios hechos en otro nodo no pasan por esta caché: se vacía cuando se ve su versión nueva
+        versionRecursosService.alCambiarEnOtroNodo(coleccion -> cacheCatalogo.invalidarTodo());
+    }
+    
     /**
      * Obtener todos los productos
      */
-    public List<Producto> obtenerTodosLosProductos() {
-        return productoRepository.findAll();
+    public List<ProductoResumen> obtenerTodosLosProductos() {
+        return productoRepository.findResumenTodos();
     }
     
     /**
      * Obtener todos los productos activos
      */
-    public List<Producto> obtenerProductosActivos() {
-        return productoRepository.findByActivoTrue();
+    public List<ProductoResumen> obtenerProductosActivos() {
+        return productoRepository.findResumenActivos();
+    }
+    
+    /**
+     * Obtener una página de productos usando paginación por cursor (keyset sobre el id)
+     * @param cursor cursor devuelto por la página anterior, null para la primera página
+     * @param limite tamaño de página solicitado, se acota al máximo configurado
+     * @param soloActivos si es true solo se devuelven productos activos
+     */
+    public PaginaCursor<ProductoResumen> obtenerPaginaProductos(String cursor, Integer limite, boolean soloActivos) {
+        Long ultimoId = cursorUtil.decodificar(cursor);
+        int tamano = normalizarTamanoPagina(limite);
+        
+        // Se pide un elemento extra para saber si hay otra página sin ejecutar un COUNT
+        PageRequest pagina = PageRequest.of(0, tamano + 1);
+        List<ProductoResumen> productos = soloActivos
+            ? productoRepository.findSiguientePaginaActivos(ultimoId, pagina)
+            : productoRepository.findSiguientePagina(ultimoId, pagina);
+        
+        boolean hayMas = productos.size() > tamano;
+        if (hayMas) {
+            productos = new ArrayList<>(productos.subList(0, tamano));
+        }
+        String siguienteCursor = hayMas
+            ? cursorUtil.codificar(productos.get(productos.size() - 1).id())
+            : null;
+        return new PaginaCursor<>(productos, siguienteCursor, hayMas);
+    }
+    
+    /**
+     * Acotar el tamaño de página solicitado entre 1 y el máximo configurado
+     */
+    private int normalizarTamanoPagina(Integer limite) {
+        if (limite == null || limite <= 0) {
+            return Math.min(tamanoPaginaPorDefecto, tamanoPaginaMaximo);
+        }
+        return Math.min(limite, tamanoPaginaMaximo);
+    }
+    
+    /**
+     * Buscar productos activos por facetas usando el índice en memoria
+     */
+    public ResultadoFacetas buscarPorFacetas(ConsultaFacetas consulta) {
+        return indiceFacetas.buscar(consulta);
+    }
+    
+    /**
+     * Obtener productos por sus IDs conservando el orden de la lista recibida
+     */
+    public List<Producto> obtenerProductosPorIds(List<Long> ids) {
+        Map<Long, Producto> productosPorId = new HashMap<>();
+        for (Producto producto : productoRepository.findAllById(ids)) {
+            productosPorId.put(producto.getId(), producto);
+        }
+        List<Producto> productos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Producto producto = productosPorId.get(id);
+            if (producto != null) {
+                productos.add(producto);
+            }
+        }
+        return productos;
+    }
+    
+    /**
+     * Obtener el resumen de productos por sus IDs conservando el orden de la lista recibida
+     */
+    public List<ProductoResumen> obtenerResumenesPorIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductoResumen> resumenPorId = new HashMap<>();
+        for (ProductoResumen resumen : productoRepository.findResumenPorIds(ids)) {
+            resumenPorId.put(resumen.id(), resumen);
+        }
+        List<ProductoResumen> resumenes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductoResumen resumen = resumenPorId.get(id);
+            if (resumen != null) {
+                resumenes.add(resumen);
+            }
+        }
+        return resumenes;
     }
     
     /**
      * Obtener producto por ID
      */
-    public Optional<Producto> obtenerProductoPorId(Long id) {
-        return productoRepository.findById(id);
+    public Optional<ProductoDetalle> obtenerProductoPorId(Long id) {
+        return leerDeCache("id:" + id, () -> productoRepository.findById(id).map(ProductoDetalle::desde));
     }
     
     /**
-     * Obtener producto por código
+     * Obtener producto por código. La entrada por código guarda solo el id y el detalle sale de la entrada por id,
+     * así al vender basta con invalidar esa (la búsqueda por id de un producto recién leído no vuelve a consultar)
      */
-    public Optional<Producto> obtenerProductoPorCodigo(String codigoProducto) {
-        return productoRepository.findByCodigoProducto(codigoProducto);
+    public Optional<ProductoDetalle> obtenerProductoPorCodigo(String codigoProducto) {
+        Optional<Long> id = leerDeCache("codigo:" + codigoProducto,
+            () -> productoRepository.findByCodigoProducto(codigoProducto).map(Producto::getId));
+        return id.flatMap(this::obtenerProductoPorId);
     }
     
     /**
-     * Buscar productos por nombre
+     * Buscar productos activos por texto usando el índice de búsqueda en memoria.
+     * Busca en nombre, código, marca, categoría y tecnología, sin distinguir acentos ni mayúsculas,
+     * aceptando palabras incompletas y ordenando por relevancia.
      */
-    public List<Producto> buscarProductosPorNombre(String nombre) {
-        return productoRepository.findByNombreContainingIgnoreCase(nombre);
+    public List<Producto> buscarProductosPorNombre(String nombre, int limite) {
+        return obtenerProductosPorIds(indiceBusqueda.buscar(nombre, limite));
     }
     
     /**
      * Obtener productos por categoría
      */
-    public List<Producto> obtenerProductosPorCategoria(Categoria categoria) {
-        return productoRepository.findByCategoria(categoria);
+    public List<ProductoResumen> obtenerProductosPorCategoria(Categoria categoria) {
+        return leerDeCache("categoria:" + categoria.getId(), () -> List.copyOf(productoRepository.findResumenPorCategoriaId(categoria.getId())));
     }
     
     /**
      * Obtener productos por marca
      */
-    public List<Producto> obtenerProductosPorMarca(Marca marca) {
-        return productoRepository.findByMarca(marca);
+    public List<ProductoResumen> obtenerProductosPorMarca(Marca marca) {
+        return leerDeCache("marca:" + marca.getId(), () -> List.copyOf(productoRepository.findResumenPorMarcaId(marca.getId())));
     }
     
     /**
@@ -87,15 +241,15 @@ public class ProductoService {
     /**
      * Obtener productos destacados
      */
-    public List<Producto> obtenerProductosDestacados() {
-        return productoRepository.findByEsDestacadoTrue();
+    public List<ProductoResumen> obtenerProductosDestacados() {
+        return leerDeCache(CLAVE_DESTACADOS, () -> List.copyOf(productoRepository.findResumenDestacados()));
     }
     
     /**
      * Obtener productos nuevos
      */
-    public List<Producto> obtenerProductosNuevos() {
-        return productoRepository.findByEsNuevoTrue();
+    public List<ProductoResumen> obtenerProductosNuevos() {
+        return leerDeCache(CLAVE_NUEVOS, () -> List.copyOf(productoRepository.findResumenNuevos()));
     }
     
     /**
@@ -122,22 +276,38 @@ public class ProductoService {
     /**
      * Obtener productos con descuento
      */
-    public List<Producto> obtenerProductosConDescuento() {
-        return productoRepository.findProductosConDescuento();
+    public List<ProductoResumen> obtenerProductosConDescuento() {
+        return leerDeCache(CLAVE_CON_DESCUENTO, () -> List.copyOf(productoRepository.findResumenConDescuento()));
     }
     
     /**
-     * Obtener productos con stock bajo
+     * Obtener productos con stock bajo, leídos del conjunto que mantiene el monitor de stock bajo
      */
     public List<Producto> obtenerProductosConStockBajo() {
-        return productoRepository.findProductosConStockBajo();
+        return obtenerProductosPorIds(monitorStockBajo.obtenerProductosConStockBajo());
+    }
+    
+    /**
+     * Obtener los productos activos más vendidos de todos los tiempos, leídos del contador mantenido en cada venta
+     */
+    public List<Producto> obtenerProductosMasVendidos(Integer limite) {
+        return productoRepository.findProductosMasVendidos(PageRequest.of(0, normalizarTamanoPagina(limite)));
     }
     
     /**
-     * Obtener productos más vendidos
+     * Obtener las unidades vendidas de los productos más vendidos en un periodo (id de producto -> unidades),
+     * ordenadas de mayor a menor, a partir del resumen diario de ventas
      */
-    public List<Producto> obtenerProductosMasVendidos() {
-        return productoRepository.findProductosMasVendidos();
+    public Map<Long, Long> obtenerUnidadesMasVendidasPorPeriodo(LocalDate fechaInicio, LocalDate fechaFin, Integer limite) {
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+        Map<Long, Long> unidadesPorProducto = new LinkedHashMap<>();
+        for (Object[] fila : resumenVentaProductoRepository.sumUnidadesPorProducto(
+                fechaInicio, fechaFin, PageRequest.of(0, normalizarTamanoPagina(limite)))) {
+            unidadesPorProducto.put((Long) fila[0], ((Number) fila[1]).longValue());
+        }
+        return unidadesPorProducto;
     }
     
     /**
@@ -242,7 +412,7 @@ public class ProductoService {
             producto.setCodigoProducto(generarCodigoProducto(producto));
         }
         
-        return productoRepository.save(producto);
+        return guardarYPropagarCambios(producto, new HashSet<>());
     }
     
     /**
@@ -255,6 +425,7 @@ public class ProductoService {
         }
         
         Producto productoExistente = productoExistenteOpt.get();
+        Set<String> clavesAnteriores = clavesCacheProducto(productoExistente);
         
         // Cargar categoría desde la base de datos si solo se proporciona el ID
         if (producto.getCategoria() != null && producto.getCategoria().getId() != null) {
@@ -302,7 +473,7 @@ public class ProductoService {
         // Actualizar fecha de modificación
         productoExistente.setFechaActualizacion(LocalDateTime.now());
         
-        return productoRepository.save(productoExistente);
+        return guardarYPropagarCambios(productoExistente, clavesAnteriores);
     }
     
     /**
@@ -312,9 +483,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setActivo(false);
             producto.setFechaActualizacion(LocalDateTime.now());
-            productoRepository.save(producto);
+            guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -324,10 +496,19 @@ public class ProductoService {
      * Eliminar producto permanentemente
      */
     public void eliminarProductoPermanentemente(Long id) {
-        if (!productoRepository.existsById(id)) {
+        Optional<Producto> productoOpt = productoRepository.findById(id);
+        if (!productoOpt.isPresent()) {
             throw new RuntimeException("Producto no encontrado");
         }
-        productoRepository.deleteById(id);
+        Set<String> clavesAnteriores = clavesCacheProducto(productoOpt.get());
+        productoRepository.delete(productoOpt.get());
+        invalidarCacheAlFinalizar(clavesAnteriores);
+        versionRecursosService.incrementarAlFinalizar(VersionRecursosService.PRODUCTOS);
+        monitorStockBajo.quitarProductoAlConfirmar(id);
+        TransaccionUtil.despuesDelCommit(() -> {
+            indiceFacetas.eliminar(id);
+            indiceBusqueda.eliminar(id);
+        });
     }
     
     /**
@@ -337,9 +518,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setActivo(true);
             producto.setFechaActualizacion(LocalDateTime.now());
-            return productoRepository.save(producto);
+            return guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -352,9 +534,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setActivo(false);
             producto.setFechaActualizacion(LocalDateTime.now());
-            return productoRepository.save(producto);
+            return guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -367,9 +550,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setEsDestacado(true);
             producto.setFechaActualizacion(LocalDateTime.now());
-            return productoRepository.save(producto);
+            return guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -382,9 +566,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setEsDestacado(false);
             producto.setFechaActualizacion(LocalDateTime.now());
-            return productoRepository.save(producto);
+            return guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -397,9 +582,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setEsNuevo(true);
             producto.setFechaActualizacion(LocalDateTime.now());
-            return productoRepository.save(producto);
+            return guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -412,9 +598,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setEsNuevo(false);
             producto.setFechaActualizacion(LocalDateTime.now());
-            return productoRepository.save(producto);
+            return guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -427,9 +614,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setPrecioVenta(nuevoPrecio);
             producto.setFechaActualizacion(LocalDateTime.now());
-            return productoRepository.save(producto);
+            return guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -442,9 +630,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setPrecioCompra(nuevoPrecio);
             producto.setFechaActualizacion(LocalDateTime.now());
-            return productoRepository.save(producto);
+            return guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -457,9 +646,10 @@ public class ProductoService {
         Optional<Producto> productoOpt = productoRepository.findById(id);
         if (productoOpt.isPresent()) {
             Producto producto = productoOpt.get();
+            Set<String> clavesAnteriores = clavesCacheProducto(producto);
             producto.setDescuentoPorcentaje(descuentoPorcentaje);
             producto.setFechaActualizacion(LocalDateTime.now());
-            return productoRepository.save(producto);
+            return guardarYPropagarCambios(producto, clavesAnteriores);
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -493,6 +683,111 @@ public class ProductoService {
         return productoRepository.countByMarca(marca);
     }
     
+    /**
+     * Obtener estadísticas de la caché del catálogo
+     */
+    public Map<String, Object> obtenerEstadisticasCache() {
+        return cacheCatalogo.obtenerEstadisticas();
+    }
+    
+    /**
+     * Vaciar la caché del catálogo cuando termine la transacción; se usa al cambiar categorías o marcas,
+     * cuyos nombres van dentro de los productos y resúmenes cacheados
+     */
+    public void invalidarCacheCatalogoAlFinalizar() {
+        TransaccionUtil.despuesDeFinalizar(cacheCatalogo::invalidarTodo);
+    }
+    
+    /**
+     * Quitar de la caché el detalle de los productos cuando termine la transacción; se usa al vender,
+     * porque el detalle incluye las unidades vendidas
+     */
+    public void invalidarDetallesAlFinalizar(Collection<Long> productoIds) {
+        Set<String> claves = new HashSet<>();
+        for (Long productoId : productoIds) {
+            claves.add("id:" + productoId);
+        }
+        invalidarCacheAlFinalizar(claves);
+    }
+    
+    /**
+     * Volver a indexar para la búsqueda los productos activos de una categoría cuando la transacción confirme;
+     * se usa al renombrarla, porque el índice de búsqueda guarda su nombre como token de cada producto
+     */
+    public void reindexarBusquedaPorCategoriaAlConfirmar(Long categoriaId) {
+        TransaccionUtil.despuesDelCommit(
+            () -> indiceBusqueda.reindexar(productoRepository.findIdsActivosPorCategoriaId(categoriaId)));
+    }
+    
+    /**
+     * Volver a indexar para la búsqueda los productos activos de una marca cuando la transacción confirme
+     */
+    public void reindexarBusquedaPorMarcaAlConfirmar(Long marcaId) {
+        TransaccionUtil.despuesDelCommit(
+            () -> indiceBusqueda.reindexar(productoRepository.findIdsActivosPorMarcaId(marcaId)));
+    }
+    
+    /**
+     * Leer un valor del catálogo pasando por la caché
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T leerDeCache(String clave, Supplier<T> cargador) {
+        return (T) cacheCatalogo.obtener(clave, k -> cargador.get());
+    }
+    
+    /**
+     * Claves de caché en las que aparece un producto según su estado actual
+     */
+    private Set<String> clavesCacheProducto(Producto producto) {
+        Set<String> claves = new HashSet<>();
+        claves.add("id:" + producto.getId());
+        if (producto.getCodigoProducto() != null) {
+            claves.add("codigo:" + producto.getCodigoProducto());
+        }
+        if (producto.getCategoria() != null) {
+            claves.add("categoria:" + producto.getCategoria().getId());
+        }
+        if (producto.getMarca() != null) {
+            claves.add("marca:" + producto.getMarca().getId());
+        }
+        if (Boolean.TRUE.equals(producto.getEsDestacado())) {
+            claves.add(CLAVE_DESTACADOS);
+        }
+        if (Boolean.TRUE.equals(producto.getEsNuevo())) {
+            claves.add(CLAVE_NUEVOS);
+        }
+        if (Boolean.TRUE.equals(producto.getActivo()) && producto.getDescuentoPorcentaje() != null
+                && producto.getDescuentoPorcentaje().compareTo(BigDecimal.ZERO) > 0) {
+            claves.add(CLAVE_CON_DESCUENTO);
+        }
+        return claves;
+    }
+    
+    /**
+     * Guardar el producto, invalidar las entradas de caché donde aparecía antes o aparece ahora
+     * y actualizar los índices en memoria cuando la transacción confirme
+     */
+    private Producto guardarYPropagarCambios(Producto producto, Set<String> clavesAnteriores) {
+        Producto productoGuardado = productoRepository.save(producto);
+        clavesAnteriores.addAll(clavesCacheProducto(productoGuardado));
+        invalidarCacheAlFinalizar(clavesAnteriores);
+        versionRecursosService.incrementarAlFinalizar(VersionRecursosService.PRODUCTOS);
+        monitorStockBajo.registrarAlConfirmar(productoGuardado);
+        TransaccionUtil.despuesDelCommit(() -> {
+            indiceFacetas.indexar(productoGuardado);
+            indiceBusqueda.indexar(productoGuardado);
+        });
+        return productoGuardado;
+    }
+    
+    /**
+     * Invalidar claves de caché cuando termine la transacción (commit o rollback), para que ninguna
+     * lectura concurrente vuelva a cachear los datos anteriores al cambio
+     */
+    private void invalidarCacheAlFinalizar(Set<String> claves) {
+        TransaccionUtil.despuesDeFinalizar(() -> cacheCatalogo.invalidar(claves));
+    }
+    
     /**
      * Generar código de producto automático
      */
@@ -1,24 +1,48 @@
 package com.proyectoavanzada.backend.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.proyectoavanzada.backend.model.Reporte;
 import com.proyectoavanzada.backend.model.Usuario;
 import com.proyectoavanzada.backend.repository.ReporteRepository;
+import com.proyectoavanzada.backend.service.AlmacenReportesService.ArchivoReporte;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @Transactional
 public class ReporteService {
     
+    private static final Logger logger = LoggerFactory.getLogger(ReporteService.class);
+    
     @Autowired
     private ReporteRepository reporteRepository;
     
+    @Autowired
+    private AgregacionReportesService agregacionReportesService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private AlmacenReportesService almacenReportesService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private volatile Boolean columnaLegada;
+    
     /**
      * Obtener todos los reportes
      */
@@ -75,6 +99,20 @@ public class ReporteService {
         return reporteRepository.findByFechaGeneracionBetween(fechaInicio, fechaFin);
     }
     
+    /**
+     * Obtener reportes activos en estado PROCESANDO
+     */
+    public List<Reporte> obtenerReportesProcesando() {
+        return reporteRepository.findReportesProcesando();
+    }
+    
+    /**
+     * Obtener reportes activos en estado PROCESANDO que genera un nodo
+     */
+    public List<Reporte> obtenerReportesProcesando(String nodo) {
+        return reporteRepository.findReportesProcesandoPorNodo(nodo);
+    }
+    
     /**
      * Obtener reportes más recientes
      */
@@ -83,18 +121,26 @@ public class ReporteService {
     }
     
     /**
-     * Guardar reporte
+     * Guardar reporte; los resultados enviados se guardan en el almacén de reportes
      */
     public Reporte guardarReporte(Reporte reporte) {
+        if (reporte.getResultados() != null) {
+            asignarResultados(reporte, reporte.getResultados());
+        }
         return reporteRepository.save(reporte);
     }
     
     /**
-     * Actualizar reporte
+     * Actualizar reporte; si no se envían resultados nuevos se conserva el archivo que ya tenía
      */
     public Reporte actualizarReporte(Reporte reporte) {
-        if (!reporteRepository.existsById(reporte.getId())) {
-            throw new RuntimeException("Reporte no encontrado");
+        Reporte existente = reporteRepository.findById(reporte.getId())
+                .orElseThrow(() -> new RuntimeException("Reporte no encontrado"));
+        if (reporte.getResultados() != null) {
+            asignarResultados(reporte, reporte.getResultados());
+        } else {
+            reporte.setArchivoUrl(existente.getArchivoUrl());
+            reporte.setTamañoArchivo(existente.getTamañoArchivo());
         }
         return reporteRepository.save(reporte);
     }
@@ -114,9 +160,17 @@ public class ReporteService {
     }
     
     /**
-     * Generar reporte de ventas
+     * Generar reporte de ventas con las agrupaciones por omisión
      */
     public Reporte generarReporteVentas(LocalDate fechaInicio, LocalDate fechaFin, Usuario usuario) {
+        return generarReporteVentas(fechaInicio, fechaFin, usuario, null);
+    }
+    
+    /**
+     * Generar reporte de ventas agrupado en la base de datos
+     */
+    public Reporte generarReporteVentas(LocalDate fechaInicio, LocalDate fechaFin, Usuario usuario, List<String> agrupaciones) {
+        List<String> agrupacionesValidas = agregacionReportesService.validarAgrupaciones("VENTAS", agrupaciones);
         Reporte reporte = new Reporte();
         reporte.setNombre("Reporte de Ventas - " + fechaInicio + " a " + fechaFin);
         reporte.setDescripcion("Reporte de ventas del período especificado");
@@ -127,17 +181,24 @@ public class ReporteService {
         reporte.setEstado("GENERADO");
         reporte.setFormato("JSON");
         
-        // Aquí se implementaría la lógica para generar el reporte
-        // Por ahora, solo guardamos la estructura básica
-        reporte.setResultados("{\"mensaje\": \"Reporte de ventas generado\"}");
+        reporte.setParametros(parametros(agrupacionesValidas));
+        asignarResultados(reporte, agregacionReportesService.agregarVentas(fechaInicio, fechaFin, agrupacionesValidas));
         
         return reporteRepository.save(reporte);
     }
     
     /**
-     * Generar reporte de compras
+     * Generar reporte de compras con las agrupaciones por omisión
      */
     public Reporte generarReporteCompras(LocalDate fechaInicio, LocalDate fechaFin, Usuario usuario) {
+        return generarReporteCompras(fechaInicio, fechaFin, usuario, null);
+    }
+    
+    /**
+     * Generar reporte de compras agrupado en la base de datos
+     */
+    public Reporte generarReporteCompras(LocalDate fechaInicio, LocalDate fechaFin, Usuario usuario, List<String> agrupaciones) {
+        List<String> agrupacionesValidas = agregacionReportesService.validarAgrupaciones("COMPRAS", agrupaciones);
         Reporte reporte = new Reporte();
         reporte.setNombre("Reporte de Compras - " + fechaInicio + " a " + fechaFin);
         reporte.setDescripcion("Reporte de compras del período especificado");
@@ -148,17 +209,24 @@ public class ReporteService {
         reporte.setEstado("GENERADO");
         reporte.setFormato("JSON");
         
-        // Aquí se implementaría la lógica para generar el reporte
-        // Por ahora, solo guardamos la estructura básica
-        reporte.setResultados("{\"mensaje\": \"Reporte de compras generado\"}");
+        reporte.setParametros(parametros(agrupacionesValidas));
+        asignarResultados(reporte, agregacionReportesService.agregarCompras(fechaInicio, fechaFin, agrupacionesValidas));
         
         return reporteRepository.save(reporte);
     }
     
     /**
-     * Generar reporte de inventario
+     * Generar reporte de inventario con las agrupaciones por omisión
      */
     public Reporte generarReporteInventario(Usuario usuario) {
+        return generarReporteInventario(usuario, null);
+    }
+    
+    /**
+     * Generar reporte de inventario agrupado en la base de datos
+     */
+    public Reporte generarReporteInventario(Usuario usuario, List<String> agrupaciones) {
+        List<String> agrupacionesValidas = agregacionReportesService.validarAgrupaciones("INVENTARIO", agrupaciones);
         Reporte reporte = new Reporte();
         reporte.setNombre("Reporte de Inventario - " + LocalDate.now());
         reporte.setDescripcion("Reporte de estado actual del inventario");
@@ -167,13 +235,170 @@ public class ReporteService {
         reporte.setEstado("GENERADO");
         reporte.setFormato("JSON");
         
-        // Aquí se implementaría la lógica para generar el reporte
-        // Por ahora, solo guardamos la estructura básica
-        reporte.setResultados("{\"mensaje\": \"Reporte de inventario generado\"}");
+        reporte.setParametros(parametros(agrupacionesValidas));
+        asignarResultados(reporte, agregacionReportesService.agregarInventario(agrupacionesValidas));
         
         return reporteRepository.save(reporte);
     }
     
+    /**
+     * Registrar un reporte en estado PROCESANDO, con sus parámetros validados, para generarlo en segundo plano
+     * en el nodo indicado
+     */
+    public Reporte registrarReporte(String tipoReporte, LocalDate fechaInicio, LocalDate fechaFin, Usuario usuario,
+                                    List<String> agrupaciones, String nodo) {
+        List<String> agrupacionesValidas = agregacionReportesService.validarAgrupaciones(tipoReporte, agrupaciones);
+        Reporte reporte = new Reporte();
+        switch (tipoReporte) {
+            case "VENTAS" -> {
+                agregacionReportesService.validarRango(fechaInicio, fechaFin);
+                reporte.setNombre("Reporte de Ventas - " + fechaInicio + " a " + fechaFin);
+                reporte.setDescripcion("Reporte de ventas del período especificado");
+                reporte.setFechaInicio(fechaInicio);
+                reporte.setFechaFin(fechaFin);
+            }
+            case "COMPRAS" -> {
+                agregacionReportesService.validarRango(fechaInicio, fechaFin);
+                reporte.setNombre("Reporte de Compras - " + fechaInicio + " a " + fechaFin);
+                reporte.setDescripcion("Reporte de compras del período especificado");
+                reporte.setFechaInicio(fechaInicio);
+                reporte.setFechaFin(fechaFin);
+            }
+            default -> {
+                reporte.setNombre("Reporte de Inventario - " + LocalDate.now());
+                reporte.setDescripcion("Reporte de estado actual del inventario");
+            }
+        }
+        reporte.setTipoReporte(tipoReporte);
+        reporte.setUsuario(usuario);
+        reporte.setEstado("PROCESANDO");
+        reporte.setFormato("JSON");
+        reporte.setParametros(parametros(agrupacionesValidas));
+        reporte.setNodo(nodo);
+        return reporteRepository.save(reporte);
+    }
+    
+    /**
+     * Guardar el archivo de resultados de un reporte generado en segundo plano
+     */
+    public void completarReporte(Long id, ArchivoReporte archivo) {
+        Reporte reporte = reporteRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Reporte no encontrado"));
+        asignarArchivo(reporte, archivo);
+        reporte.setEstado("GENERADO");
+        reporte.setFechaGeneracion(LocalDateTime.now());
+        reporteRepository.save(reporte);
+    }
+    
+    /**
+     * Marcar un reporte en segundo plano como ERROR o CANCELADO, con el motivo en los resultados
+     */
+    public void marcarReporte(Long id, String estado, String mensaje) {
+        Reporte reporte = reporteRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Reporte no encontrado"));
+        reporte.setEstado(estado);
+        try {
+            asignarResultados(reporte, objectMapper.writeValueAsString(Map.of("mensaje", mensaje != null ? mensaje : estado)));
+        } catch (JsonProcessingException e) {
+            reporte.setArchivoUrl(null);
+            reporte.setTamañoArchivo(null);
+        }
+        reporte.setFechaGeneracion(LocalDateTime.now());
+        reporteRepository.save(reporte);
+    }
+    
+    /**
+     * Obtener el archivo comprimido con los resultados de un reporte.
+     * Si el reporte es anterior al almacén y sus resultados siguen en la columna resultados, se migra en ese momento.
+     */
+    public Optional<ArchivoReporte> obtenerArchivo(Long id) {
+        Optional<Reporte> reporteOpt = reporteRepository.findById(id);
+        if (reporteOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        String url = reporteOpt.get().getArchivoUrl();
+        if (url == null) {
+            url = migrarResultadoLegado(id);
+        }
+        return url != null ? Optional.of(almacenReportesService.abrir(url)) : Optional.empty();
+    }
+    
+    /**
+     * Obtener el JSON de resultados de un reporte
+     */
+    public Optional<String> obtenerResultados(Long id) {
+        return obtenerArchivo(id).map(archivo -> almacenReportesService.leer(archivo.url()));
+    }
+    
+    /**
+     * Migrar al almacén hasta el límite de reportes que todavía tienen los resultados en la columna resultados
+     */
+    public int migrarResultadosLegados(int limite) {
+        if (!hayColumnaLegada()) {
+            return 0;
+        }
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM reportes WHERE archivo_url IS NULL AND resultados IS NOT NULL ORDER BY id LIMIT ?",
+                Long.class, limite);
+        int migrados = 0;
+        for (Long id : ids) {
+            if (migrarResultadoLegado(id) != null) {
+                migrados++;
+            }
+        }
+        return migrados;
+    }
+    
+    // Se lee un reporte por vez para no cargar varios LONGTEXT en memoria
+    private String migrarResultadoLegado(Long id) {
+        if (!hayColumnaLegada()) {
+            return null;
+        }
+        List<String> resultados = jdbcTemplate.queryForList(
+                "SELECT resultados FROM reportes WHERE id = ? AND archivo_url IS NULL AND resultados IS NOT NULL",
+                String.class, id);
+        if (resultados.isEmpty()) {
+            return null;
+        }
+        ArchivoReporte archivo = almacenReportesService.guardar(resultados.get(0));
+        jdbcTemplate.update(
+                "UPDATE reportes SET archivo_url = ?, tamaño_archivo = ?, resultados = NULL WHERE id = ?",
+                archivo.url(), archivo.tamano(), id);
+        logger.info("Resultados del reporte {} migrados a {}", id, archivo.url());
+        return archivo.url();
+    }
+    
+    // La columna resultados solo existe en bases creadas antes del almacén (database/18_almacen_reportes.sql)
+    private boolean hayColumnaLegada() {
+        Boolean existe = columnaLegada;
+        if (existe == null) {
+            try {
+                jdbcTemplate.queryForList("SELECT resultados FROM reportes WHERE 1 = 0");
+                existe = true;
+            } catch (DataAccessException e) {
+                existe = false;
+            }
+            columnaLegada = existe;
+        }
+        return existe;
+    }
+    
+    // Los resultados van al almacén; en la entidad quedan solo de paso para quien acaba de generar el reporte
+    private void asignarResultados(Reporte reporte, String resultados) {
+        asignarArchivo(reporte, almacenReportesService.guardar(resultados));
+        reporte.setResultados(resultados);
+    }
+    
+    private void asignarArchivo(Reporte reporte, ArchivoReporte archivo) {
+        reporte.setArchivoUrl(archivo.url());
+        reporte.setTamañoArchivo(archivo.tamano());
+    }
+    
+    // Las agrupaciones ya están validadas, son nombres fijos sin caracteres que escapar
+    private String parametros(List<String> agrupaciones) {
+        return "{\"agrupaciones\": [\"" + String.join("\", \"", agrupaciones) + "\"]}";
+    }
+    
     /**
      * Contar reportes activos
      */
@@ -0,0 +1,483 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.dto.ReservaStock;
+import com.proyectoavanzada.backend.dto.SolicitudReserva;
+import com.proyectoavanzada.backend.repository.InventarioRepository;
+import com.proyectoavanzada.backend.repository.PresentacionRepository;
+import com.proyectoavanzada.backend.util.RuedaTemporizadora;
+import com.proyectoavanzada.backend.util.TransaccionUtil;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reservas de stock con vencimiento para el tiempo entre el carrito y el pago.
+ * El disponible de cada presentación (o producto sin presentación) se lleva en memoria como
+ * stock menos unidades reservadas, protegido por candados repartidos en franjas según la clave,
+ * así reservar y liberar no consultan la base de datos salvo la primera vez que se reserva una clave.
+ * Las reservas vencen con una rueda de temporización que se avanza en cada tick programado.
+ * Al crear la venta la reserva se consume: sus unidades siguen apartadas hasta que la transacción termina,
+ * y el stock real se descuenta con los UPDATE condicionales de MovimientoStockService, que son la garantía final.
+ * El estado es local a cada nodo del backend.
+ */
+@Service
+public class ReservaStockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservaStockService.class);
+
+    private static final int ACTIVA = 0;
+    private static final int EN_USO = 1;
+    private static final int TERMINADA = 2;
+
+    // Intentos de cargar el stock de una clave que se descartó de memoria mientras se reservaba
+    private static final int INTENTOS_CARGA = 3;
+
+    @Autowired
+    private PresentacionRepository presentacionRepository;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Value("${reservas.ttl-segundos:600}")
+    private long ttlPorDefectoSegundos;
+
+    @Value("${reservas.ttl-maximo-segundos:1800}")
+    private long ttlMaximoSegundos;
+
+    @Value("${reservas.franjas:64}")
+    private int cantidadFranjas;
+
+    @Value("${reservas.tick-ms:1000}")
+    private long tickMs;
+
+    // Tiempo que se conserva en memoria el stock de una clave sin reservas antes de volver a leerlo
+    @Value("${reservas.stock-en-memoria-segundos:60}")
+    private long vigenciaStockSegundos;
+
+    private ReentrantLock[] franjas;
+
+    private RuedaTemporizadora<String> rueda;
+
+    private final Map<Clave, Disponible> disponibles = new ConcurrentHashMap<>();
+
+    private final Map<String, Reserva> reservas = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void inicializar() {
+        franjas = new ReentrantLock[cantidadFranjas];
+        for (int i = 0; i < franjas.length; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        // Una vuelta de la rueda cubre la duración máxima de una reserva
+        int ranuras = (int) Math.max(1, ttlMaximoSegundos * 1000 / tickMs + 1);
+        rueda = new RuedaTemporizadora<>(ranuras, tickMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Reservar las unidades de todas las líneas, o ninguna si alguna no alcanza
+     */
+    public ReservaStock reservar(SolicitudReserva solicitud) {
+        if (solicitud == null || solicitud.lineas() == null || solicitud.lineas().isEmpty()) {
+            throw new RuntimeException("La reserva debe tener al menos una línea");
+        }
+        Map<Clave, Integer> cantidades = new TreeMap<>();
+        for (SolicitudReserva.Linea linea : solicitud.lineas()) {
+            if (linea.cantidad() == null || linea.cantidad() <= 0) {
+                throw new RuntimeException("La cantidad debe ser mayor a 0 para cada línea");
+            }
+            Clave clave;
+            if (linea.presentacionId() != null) {
+                clave = Clave.dePresentacion(linea.presentacionId());
+            } else if (linea.productoId() != null) {
+                clave = Clave.deProducto(linea.productoId());
+            } else {
+                throw new RuntimeException("Cada línea debe indicar la presentación o el producto");
+            }
+            cantidades.merge(clave, linea.cantidad(), Integer::sum);
+        }
+        long ttlSegundos = solicitud.ttlSegundos() != null ? solicitud.ttlSegundos() : ttlPorDefectoSegundos;
+        if (ttlSegundos <= 0 || ttlSegundos > ttlMaximoSegundos) {
+            throw new RuntimeException("La duración de la reserva debe estar entre 1 y " + ttlMaximoSegundos + " segundos");
+        }
+
+        for (int intento = 0; intento < INTENTOS_CARGA; intento++) {
+            cargarStock(cantidades.keySet());
+            long ahora = System.currentTimeMillis();
+            List<ReentrantLock> candados = bloquear(cantidades.keySet());
+            try {
+                if (!cantidades.keySet().stream().allMatch(disponibles::containsKey)) {
+                    continue;
+                }
+                for (Map.Entry<Clave, Integer> entrada : cantidades.entrySet()) {
+                    if (disponibles.get(entrada.getKey()).disponible() < entrada.getValue()) {
+                        throw new RuntimeException("Stock insuficiente para reservar " + entrada.getKey().describir());
+                    }
+                }
+                for (Map.Entry<Clave, Integer> entrada : cantidades.entrySet()) {
+                    Disponible disponible = disponibles.get(entrada.getKey());
+                    disponible.reservado += entrada.getValue();
+                    disponible.ultimoUso = ahora;
+                }
+            } finally {
+                desbloquear(candados);
+            }
+
+            Reserva reserva = new Reserva(UUID.randomUUID().toString(), cantidades, ahora + ttlSegundos * 1000);
+            reservas.put(reserva.id, reserva);
+            rueda.programar(reserva.id, reserva.expiraMs);
+            return reserva.aDto();
+        }
+        throw new RuntimeException("No se pudo leer el stock para la reserva, intente de nuevo");
+    }
+
+    /**
+     * Liberar una reserva antes de que venza
+     * @return false si la reserva no existe o ya terminó
+     */
+    public boolean liberar(String reservaId) {
+        Reserva reserva = reservas.get(reservaId);
+        if (reserva == null) {
+            return false;
+        }
+        if (reserva.estado.compareAndSet(ACTIVA, TERMINADA)) {
+            terminar(reserva);
+            return true;
+        }
+        if (reserva.estado.get() == EN_USO) {
+            throw new RuntimeException("La reserva se está usando en una venta");
+        }
+        return false;
+    }
+
+    /**
+     * Obtener una reserva vigente
+     */
+    public Optional<ReservaStock> obtenerReserva(String reservaId) {
+        Reserva reserva = reservas.get(reservaId);
+        if (reserva == null || reserva.estado.get() == TERMINADA) {
+            return Optional.empty();
+        }
+        return Optional.of(reserva.aDto());
+    }
+
+    /**
+     * Preparar el stock de una venta antes de descontarlo.
+     * Si se indica una reserva, se consume: sus unidades quedan apartadas hasta que la transacción termina,
+     * se liberan si confirma y la reserva vuelve a estar vigente si se deshace.
+     * Las unidades que la reserva no cubre solo se aceptan si no toman stock reservado por otros clientes;
+     * las claves que no están en memoria no se verifican aquí y las decide el UPDATE condicional.
+     */
+    public void prepararVenta(String reservaId, Map<Long, Integer> cantidadPorPresentacion,
+                              Map<Long, Integer> cantidadPorProducto) {
+        Map<Clave, Integer> cantidades = new TreeMap<>();
+        cantidadPorPresentacion.forEach((id, cantidad) -> cantidades.put(Clave.dePresentacion(id), cantidad));
+        cantidadPorProducto.forEach((id, cantidad) -> cantidades.put(Clave.deProducto(id), cantidad));
+
+        Reserva reserva = null;
+        if (reservaId != null && !reservaId.isBlank()) {
+            reserva = reservas.get(reservaId);
+            if (reserva == null || reserva.estado.get() != ACTIVA || reserva.expiraMs <= System.currentTimeMillis()) {
+                throw new RuntimeException("La reserva no existe o ya venció");
+            }
+        }
+
+        Map<Clave, Integer> sinReservar = new TreeMap<>();
+        for (Map.Entry<Clave, Integer> entrada : cantidades.entrySet()) {
+            int reservado = reserva != null ? reserva.cantidades.getOrDefault(entrada.getKey(), 0) : 0;
+            if (entrada.getValue() > reservado && disponibles.containsKey(entrada.getKey())) {
+                sinReservar.put(entrada.getKey(), entrada.getValue() - reservado);
+            }
+        }
+        if (!sinReservar.isEmpty()) {
+            List<ReentrantLock> candados = bloquear(sinReservar.keySet());
+            try {
+                for (Map.Entry<Clave, Integer> entrada : sinReservar.entrySet()) {
+                    Disponible disponible = disponibles.get(entrada.getKey());
+                    if (disponible != null && disponible.disponible() < entrada.getValue()) {
+                        throw new RuntimeException("Stock insuficiente para " + entrada.getKey().describir());
+                    }
+                }
+            } finally {
+                desbloquear(candados);
+            }
+        }
+
+        if (reserva != null) {
+            if (!reserva.estado.compareAndSet(ACTIVA, EN_USO)) {
+                throw new RuntimeException("La reserva no existe o ya venció");
+            }
+            Reserva consumida = reserva;
+            TransaccionUtil.despuesDeFinalizarConResultado(confirmada -> finalizarUso(consumida, confirmada));
+        }
+    }
+
+    /**
+     * Actualizar el stock en memoria de una clave cuando confirme la transacción actual.
+     * Solo se actualizan las claves que ya están en memoria; las demás se leen al reservarlas.
+     */
+    public void actualizarStockAlConfirmar(Clave clave, Integer stock, Boolean activo) {
+        int stockDisponible = Boolean.FALSE.equals(activo) || stock == null ? 0 : stock;
+        TransaccionUtil.despuesDelCommit(() -> {
+            if (!disponibles.containsKey(clave)) {
+                return;
+            }
+            ReentrantLock candado = franjas[franja(clave)];
+            candado.lock();
+            try {
+                Disponible disponible = disponibles.get(clave);
+                if (disponible != null) {
+                    disponible.stock = stockDisponible;
+                }
+            } finally {
+                candado.unlock();
+            }
+        });
+    }
+
+    /**
+     * Liberar las reservas vencidas y descartar de memoria el stock de las claves sin reservas
+     * que no se usan hace un tiempo, para que la próxima reserva lo vuelva a leer
+     * @return cantidad de reservas liberadas
+     */
+    @Scheduled(fixedDelayString = "${reservas.tick-ms:1000}")
+    public int expirarVencidas() {
+        long ahora = System.currentTimeMillis();
+        int liberadas = 0;
+        for (String reservaId : rueda.avanzar(ahora)) {
+            Reserva reserva = reservas.get(reservaId);
+            if (reserva == null) {
+                continue;
+            }
+            if (reserva.estado.get() == EN_USO) {
+                // La venta que la usa todavía no terminó; se revisa en el próximo tick
+                rueda.programar(reservaId, ahora + tickMs);
+            } else if (reserva.estado.compareAndSet(ACTIVA, TERMINADA)) {
+                terminar(reserva);
+                liberadas++;
+            }
+        }
+        if (liberadas > 0) {
+            logger.debug("Reservas de stock vencidas: {}", liberadas);
+        }
+
+        long limite = ahora - vigenciaStockSegundos * 1000;
+        for (Clave clave : disponibles.keySet()) {
+            ReentrantLock candado = franjas[franja(clave)];
+            candado.lock();
+            try {
+                Disponible disponible = disponibles.get(clave);
+                if (disponible != null && disponible.reservado == 0 && disponible.ultimoUso < limite) {
+                    disponibles.remove(clave);
+                }
+            } finally {
+                candado.unlock();
+            }
+        }
+        return liberadas;
+    }
+
+    /**
+     * Estadísticas de las reservas en memoria
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        long unidadesReservadas = 0;
+        for (Reserva reserva : reservas.values()) {
+            for (Integer cantidad : reserva.cantidades.values()) {
+                unidadesReservadas += cantidad;
+            }
+        }
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("reservasVigentes", reservas.size());
+        estadisticas.put("unidadesReservadas", unidadesReservadas);
+        estadisticas.put("clavesEnMemoria", disponibles.size());
+        estadisticas.put("programadasEnRueda", rueda.tamano());
+        return estadisticas;
+    }
+
+    /**
+     * Cerrar el uso de una reserva consumida por una venta
+     */
+    private void finalizarUso(Reserva reserva, boolean confirmada) {
+        if (!confirmada && reserva.expiraMs > System.currentTimeMillis()
+                && reserva.estado.compareAndSet(EN_USO, ACTIVA)) {
+            return;
+        }
+        if (reserva.estado.compareAndSet(EN_USO, TERMINADA)) {
+            terminar(reserva);
+        }
+    }
+
+    /**
+     * Quitar una reserva terminada y devolver sus unidades al disponible
+     */
+    private void terminar(Reserva reserva) {
+        reservas.remove(reserva.id, reserva);
+        List<ReentrantLock> candados = bloquear(reserva.cantidades.keySet());
+        try {
+            long ahora = System.currentTimeMillis();
+            for (Map.Entry<Clave, Integer> entrada : reserva.cantidades.entrySet()) {
+                Disponible disponible = disponibles.get(entrada.getKey());
+                if (disponible != null) {
+                    disponible.reservado = Math.max(0, disponible.reservado - entrada.getValue());
+                    disponible.ultimoUso = ahora;
+                }
+            }
+        } finally {
+            desbloquear(candados);
+        }
+    }
+
+    /**
+     * Leer de la base de datos el stock de las claves que todavía no están en memoria.
+     * Las presentaciones inactivas y las claves inexistentes quedan con stock 0.
+     */
+    private void cargarStock(Collection<Clave> claves) {
+        List<Long> presentacionIds = new ArrayList<>();
+        List<Long> productoIds = new ArrayList<>();
+        for (Clave clave : claves) {
+            if (!disponibles.containsKey(clave)) {
+                (clave.presentacion() ? presentacionIds : productoIds).add(clave.id());
+            }
+        }
+        if (presentacionIds.isEmpty() && productoIds.isEmpty()) {
+            return;
+        }
+
+        Map<Clave, Integer> leidos = new HashMap<>();
+        if (!presentacionIds.isEmpty()) {
+            for (Object[] fila : presentacionRepository.findEstadoStockPorIds(presentacionIds)) {
+                Integer stock = (Integer) fila[2];
+                boolean activa = !Boolean.FALSE.equals(fila[3]);
+                leidos.put(Clave.dePresentacion((Long) fila[0]), activa && stock != null ? stock : 0);
+            }
+        }
+        if (!productoIds.isEmpty()) {
+            for (Object[] fila : inventarioRepository.findStockSinPresentacionByProductoIds(productoIds)) {
+                leidos.putIfAbsent(Clave.deProducto((Long) fila[0]), (Integer) fila[1]);
+            }
+        }
+
+        long ahora = System.currentTimeMillis();
+        for (Long id : presentacionIds) {
+            Clave clave = Clave.dePresentacion(id);
+            disponibles.putIfAbsent(clave, new Disponible(leidos.getOrDefault(clave, 0), ahora));
+        }
+        for (Long id : productoIds) {
+            Clave clave = Clave.deProducto(id);
+            disponibles.putIfAbsent(clave, new Disponible(leidos.getOrDefault(clave, 0), ahora));
+        }
+    }
+
+    /**
+     * Tomar los candados de las franjas de varias claves, en orden de franja para no bloquearse entre hilos
+     */
+    private List<ReentrantLock> bloquear(Collection<Clave> claves) {
+        TreeSet<Integer> indices = new TreeSet<>();
+        for (Clave clave : claves) {
+            indices.add(franja(clave));
+        }
+        List<ReentrantLock> candados = new ArrayList<>(indices.size());
+        for (Integer indice : indices) {
+            franjas[indice].lock();
+            candados.add(franjas[indice]);
+        }
+        return candados;
+    }
+
+    private static void desbloquear(List<ReentrantLock> candados) {
+        for (int i = candados.size() - 1; i >= 0; i--) {
+            candados.get(i).unlock();
+        }
+    }
+
+    private int franja(Clave clave) {
+        int hash = clave.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), franjas.length);
+    }
+
+    /**
+     * Presentación, o producto sin presentación, cuyo stock se reserva
+     */
+    public record Clave(boolean presentacion, Long id) implements Comparable<Clave> {
+
+        private static final Comparator<Clave> ORDEN =
+            Comparator.comparing(Clave::presentacion).thenComparing(Clave::id);
+
+        public static Clave dePresentacion(Long id) {
+            return new Clave(true, id);
+        }
+
+        public static Clave deProducto(Long id) {
+            return new Clave(false, id);
+        }
+
+        private String describir() {
+            return (presentacion ? "la presentación con ID: " : "el producto con ID: ") + id;
+        }
+
+        @Override
+        public int compareTo(Clave otra) {
+            return ORDEN.compare(this, otra);
+        }
+    }
+
+    /**
+     * Stock leído y unidades reservadas de una clave; se modifica solo con el candado de su franja
+     */
+    private static final class Disponible {
+        private int stock;
+        private int reservado;
+        private long ultimoUso;
+
+        private Disponible(int stock, long ultimoUso) {
+            this.stock = stock;
+            this.ultimoUso = ultimoUso;
+        }
+
+        private int disponible() {
+            return stock - reservado;
+        }
+    }
+
+    private static final class Reserva {
+        private final String id;
+        private final Map<Clave, Integer> cantidades;
+        private final long expiraMs;
+        private final AtomicInteger estado = new AtomicInteger(ACTIVA);
+
+        private Reserva(String id, Map<Clave, Integer> cantidades, long expiraMs) {
+            this.id = id;
+            this.cantidades = cantidades;
+            this.expiraMs = expiraMs;
+        }
+
+        private ReservaStock aDto() {
+            List<SolicitudReserva.Linea> lineas = new ArrayList<>(cantidades.size());
+            for (Map.Entry<Clave, Integer> entrada : cantidades.entrySet()) {
+                Clave clave = entrada.getKey();
+                lineas.add(new SolicitudReserva.Linea(clave.presentacion() ? null : clave.id(),
+                                                      clave.presentacion() ? clave.id() : null, entrada.getValue()));
+            }
+            return new ReservaStock(id, lineas, Instant.ofEpochMilli(expiraMs));
+        }
+    }
+}
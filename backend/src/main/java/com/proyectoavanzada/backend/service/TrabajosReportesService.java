@@ -0,0 +1,474 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.dto.EstadoTrabajoReporte;
+import com.proyectoavanzada.backend.exception.BusinessException;
+import com.proyectoavanzada.backend.exception.ConflictException;
+import com.proyectoavanzada.backend.model.Reporte;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.service.AlmacenReportesService.ArchivoReporte;
+import com.proyectoavanzada.backend.util.TransaccionUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generación de reportes en segundo plano.
+ * Cada reporte pedido se registra en estado PROCESANDO y entra a una cola por prioridad (mayor primero y,
+ * a igual prioridad, por orden de llegada) que atiende un número fijo de hilos, así las conexiones a la base
+ * de datos que usan los reportes quedan acotadas y los hilos de las peticiones se liberan enseguida.
+ * Cada usuario tiene un límite de reportes en ejecución y de reportes pendientes, para que uno solo no ocupe
+ * todos los hilos. El avance y la cancelación se siguen en memoria, locales a cada nodo; el resultado
+ * (o el motivo del error o la cancelación) queda en el almacén de reportes, referenciado desde la tabla reportes.
+ * Cada reporte guarda el nodo que lo genera (reportes.trabajos.nodo), así al reiniciar un nodo solo marca
+ * como interrumpidos los suyos y no los que otros nodos siguen generando; el nombre del nodo debe ser único
+ * y mantenerse entre reinicios.
+ */
+@Service
+public class TrabajosReportesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrabajosReportesService.class);
+
+    public static final int PRIORIDAD_MINIMA = 0;
+    public static final int PRIORIDAD_MAXIMA = 9;
+    public static final int PRIORIDAD_POR_DEFECTO = 5;
+
+    public static final String PROCESANDO = "PROCESANDO";
+    public static final String GENERADO = "GENERADO";
+    public static final String ERROR = "ERROR";
+    public static final String CANCELADO = "CANCELADO";
+
+    static final String INTERRUMPIDO = "Reporte interrumpido por reinicio del servidor";
+
+    // Espera máxima de una consulta de estado que espera a que el reporte termine
+    public static final long ESPERA_MAXIMA_SEGUNDOS = 60;
+
+    private static final Comparator<Trabajo> ORDEN = Comparator
+            .comparingInt((Trabajo trabajo) -> trabajo.prioridad).reversed()
+            .thenComparingLong(trabajo -> trabajo.secuencia);
+
+    @Autowired
+    private ReporteService reporteService;
+
+    @Autowired
+    private AgregacionReportesService agregacionReportesService;
+
+    @Autowired
+    private AlmacenReportesService almacenReportesService;
+
+    @Value("${reportes.trabajos.hilos:2}")
+    private int cantidadHilos;
+
+    @Value("${reportes.trabajos.maximo-por-usuario:1}")
+    private int maximoEnEjecucionPorUsuario;
+
+    @Value("${reportes.trabajos.pendientes-por-usuario:5}")
+    private int maximoPendientesPorUsuario;
+
+    @Value("${reportes.trabajos.cola-maxima:100}")
+    private int maximoPendientes;
+
+    @Value("${reportes.trabajos.retencion-minutos:30}")
+    private long retencionMinutos;
+
+    @Value("${reportes.trabajos.nodo:local}")
+    private String nodo;
+
+    private final ReentrantLock candado = new ReentrantLock();
+    private final Condition hayCambios = candado.newCondition();
+
+    // Protegidos por el candado
+    private final TreeSet<Trabajo> cola = new TreeSet<>(ORDEN);
+    private final Map<Long, Integer> enEjecucionPorUsuario = new HashMap<>();
+    private final Map<Long, Integer> pendientesPorUsuario = new HashMap<>();
+    private int pendientes;
+    private boolean detenido;
+
+    private final Map<Long, Trabajo> trabajos = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final List<Thread> hilos = new ArrayList<>();
+
+    @PostConstruct
+    void inicializar() {
+        for (int i = 0; i < cantidadHilos; i++) {
+            Thread hilo = new Thread(this::atender, "reportes-" + (i + 1));
+            hilo.setDaemon(true);
+            hilo.start();
+            hilos.add(hilo);
+        }
+    }
+
+    @PreDestroy
+    void detener() {
+        candado.lock();
+        try {
+            detenido = true;
+            hayCambios.signalAll();
+        } finally {
+            candado.unlock();
+        }
+        hilos.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Al iniciar, marcar con error los reportes de este nodo que quedaron en PROCESANDO sin trabajo en memoria:
+     * sus trabajos se perdieron con el reinicio o la caída anterior y ningún hilo los va a terminar.
+     * Los reportes de otros nodos no se tocan
+     * @return cantidad de reportes marcados
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public int marcarInterrumpidos() {
+        int marcados = 0;
+        for (Reporte reporte : reporteService.obtenerReportesProcesando(nodo)) {
+            if (!trabajos.containsKey(reporte.getId())) {
+                reporteService.marcarReporte(reporte.getId(), ERROR, INTERRUMPIDO);
+                marcados++;
+            }
+        }
+        if (marcados > 0) {
+            logger.warn("{} reportes en PROCESANDO se marcaron con error: {}", marcados, INTERRUMPIDO);
+        }
+        return marcados;
+    }
+
+    /**
+     * Registrar un reporte en estado PROCESANDO y ponerlo en la cola; devuelve sin esperar a que se genere
+     */
+    public EstadoTrabajoReporte enviar(String tipoReporte, LocalDate fechaInicio, LocalDate fechaFin, Usuario usuario,
+                                       List<String> agrupaciones, Integer prioridad) {
+        int prioridadValida = prioridad != null ? prioridad : PRIORIDAD_POR_DEFECTO;
+        if (prioridadValida < PRIORIDAD_MINIMA || prioridadValida > PRIORIDAD_MAXIMA) {
+            throw new BusinessException("La prioridad debe estar entre " + PRIORIDAD_MINIMA + " y " + PRIORIDAD_MAXIMA);
+        }
+        String tipo = tipoReporte == null ? "" : tipoReporte.trim().toUpperCase();
+        List<String> agrupacionesValidas = agregacionReportesService.validarAgrupaciones(tipo, agrupaciones);
+        if (!"INVENTARIO".equals(tipo)) {
+            agregacionReportesService.validarRango(fechaInicio, fechaFin);
+        }
+
+        Long usuarioId = usuario.getId();
+        reservarLugar(usuarioId);
+        Trabajo trabajo;
+        try {
+            Reporte reporte = reporteService.registrarReporte(tipo, fechaInicio, fechaFin, usuario, agrupacionesValidas, nodo);
+            trabajo = new Trabajo(reporte.getId(), tipo, usuarioId, fechaInicio, fechaFin, agrupacionesValidas,
+                    prioridadValida, secuencia.incrementAndGet());
+        } catch (RuntimeException e) {
+            liberarLugar(usuarioId, false);
+            throw e;
+        }
+        trabajos.put(trabajo.reporteId, trabajo);
+
+        // El trabajo entra a la cola cuando el reporte está confirmado, así el hilo que lo tome lo encuentra
+        TransaccionUtil.despuesDeFinalizarConResultado(confirmado -> {
+            if (confirmado) {
+                encolar(trabajo);
+            } else {
+                trabajos.remove(trabajo.reporteId);
+                liberarLugar(usuarioId, false);
+            }
+        });
+        return estado(trabajo);
+    }
+
+    /**
+     * Estado de un reporte: el del trabajo en memoria si lo hay, o el guardado en la tabla reportes
+     */
+    public Optional<EstadoTrabajoReporte> consultar(Long reporteId) {
+        Trabajo trabajo = trabajos.get(reporteId);
+        if (trabajo != null) {
+            return Optional.of(estado(trabajo));
+        }
+        return reporteService.obtenerReportePorId(reporteId).map(reporte -> new EstadoTrabajoReporte(
+                reporte.getId(), reporte.getTipoReporte(), null, reporte.getEstado(),
+                GENERADO.equals(reporte.getEstado()) ? 100 : 0, PRIORIDAD_POR_DEFECTO, null, null, null,
+                PROCESANDO.equals(reporte.getEstado()) ? null : reporte.getFechaGeneracion(), null));
+    }
+
+    /**
+     * Estado de un reporte esperando hasta que termine o pasen los segundos indicados (long polling)
+     */
+    public CompletableFuture<Optional<EstadoTrabajoReporte>> esperar(Long reporteId, long segundos) {
+        Trabajo trabajo = trabajos.get(reporteId);
+        long espera = Math.min(Math.max(segundos, 0), ESPERA_MAXIMA_SEGUNDOS);
+        if (trabajo == null || espera == 0 || trabajo.terminacion.isDone()) {
+            return CompletableFuture.completedFuture(consultar(reporteId));
+        }
+        // Se espera sobre una etapa derivada: el tiempo de espera de un cliente no completa la terminación del trabajo
+        return trabajo.terminacion
+                .thenApply(ignorado -> Optional.of(estado(trabajo)))
+                .orTimeout(espera, TimeUnit.SECONDS)
+                .exceptionally(error -> Optional.of(estado(trabajo)));
+    }
+
+    /**
+     * Trabajos en memoria de un usuario (o de todos), del más reciente al más antiguo
+     */
+    public List<EstadoTrabajoReporte> listar(Long usuarioId) {
+        return trabajos.values().stream()
+                .filter(trabajo -> usuarioId == null || usuarioId.equals(trabajo.usuarioId))
+                .sorted(Comparator.comparingLong((Trabajo trabajo) -> trabajo.secuencia).reversed())
+                .map(this::estado)
+                .toList();
+    }
+
+    /**
+     * Cancelar un reporte: si está en la cola sale de ella; si se está generando se corta en la próxima fila leída.
+     * Un reporte en PROCESANDO sin trabajo en memoria (perdido en un reinicio) se marca cancelado en la tabla,
+     * salvo que lo esté generando otro nodo: ese solo se puede cancelar en su nodo
+     */
+    public EstadoTrabajoReporte cancelar(Long reporteId) {
+        Trabajo trabajo = trabajos.get(reporteId);
+        if (trabajo == null) {
+            Reporte reporte = reporteService.obtenerReportePorId(reporteId)
+                    .orElseThrow(() -> new BusinessException("El reporte " + reporteId + " no existe"));
+            if (PROCESANDO.equals(reporte.getEstado()) && reporte.getNodo() != null && !nodo.equals(reporte.getNodo())) {
+                throw new ConflictException("El reporte " + reporteId + " se está generando en el nodo " + reporte.getNodo());
+            }
+            if (PROCESANDO.equals(reporte.getEstado())) {
+                reporteService.marcarReporte(reporteId, CANCELADO, "Reporte cancelado sin trabajo en curso");
+            }
+            return consultar(reporteId).orElseThrow();
+        }
+        boolean quitadoDeLaCola;
+        candado.lock();
+        try {
+            if (trabajo.terminado != null) {
+                return estado(trabajo);
+            }
+            trabajo.cancelado = true;
+            quitadoDeLaCola = cola.remove(trabajo);
+        } finally {
+            candado.unlock();
+        }
+        if (quitadoDeLaCola) {
+            guardarEstado(trabajo, CANCELADO, "Reporte cancelado antes de empezar");
+            finalizar(trabajo, CANCELADO, "Reporte cancelado antes de empezar");
+        }
+        return estado(trabajo);
+    }
+
+    /**
+     * Quitar de memoria los trabajos terminados hace más de la retención configurada
+     */
+    @Scheduled(fixedDelayString = "${reportes.trabajos.limpieza-ms:60000}")
+    public void limpiarTerminados() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(retencionMinutos);
+        trabajos.values().removeIf(trabajo -> trabajo.terminado != null && trabajo.terminado.isBefore(limite));
+    }
+
+    private void reservarLugar(Long usuarioId) {
+        candado.lock();
+        try {
+            if (pendientes >= maximoPendientes) {
+                throw new ConflictException("Hay demasiados reportes en proceso, intente más tarde");
+            }
+            if (pendientesPorUsuario.getOrDefault(usuarioId, 0) >= maximoPendientesPorUsuario) {
+                throw new ConflictException("El usuario ya tiene " + maximoPendientesPorUsuario
+                        + " reportes en proceso, espere a que terminen o cancele alguno");
+            }
+            pendientes++;
+            pendientesPorUsuario.merge(usuarioId, 1, Integer::sum);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    private void liberarLugar(Long usuarioId, boolean enEjecucion) {
+        candado.lock();
+        try {
+            pendientes--;
+            pendientesPorUsuario.computeIfPresent(usuarioId, (id, cantidad) -> cantidad > 1 ? cantidad - 1 : null);
+            if (enEjecucion) {
+                enEjecucionPorUsuario.computeIfPresent(usuarioId, (id, cantidad) -> cantidad > 1 ? cantidad - 1 : null);
+            }
+            hayCambios.signalAll();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    private void encolar(Trabajo trabajo) {
+        candado.lock();
+        try {
+            if (!trabajo.cancelado) {
+                cola.add(trabajo);
+                hayCambios.signalAll();
+                return;
+            }
+        } finally {
+            candado.unlock();
+        }
+        // Se canceló antes de que se confirmara el registro
+        guardarEstado(trabajo, CANCELADO, "Reporte cancelado antes de empezar");
+        finalizar(trabajo, CANCELADO, "Reporte cancelado antes de empezar");
+    }
+
+    private void atender() {
+        while (true) {
+            Trabajo trabajo;
+            try {
+                trabajo = tomarSiguiente();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (trabajo == null) {
+                return;
+            }
+            ejecutar(trabajo);
+        }
+    }
+
+    /**
+     * El trabajo de mayor prioridad cuyo usuario no llegó a su límite de reportes en ejecución
+     */
+    private Trabajo tomarSiguiente() throws InterruptedException {
+        candado.lock();
+        try {
+            while (!detenido) {
+                Iterator<Trabajo> iterador = cola.iterator();
+                while (iterador.hasNext()) {
+                    Trabajo trabajo = iterador.next();
+                    if (enEjecucionPorUsuario.getOrDefault(trabajo.usuarioId, 0) < maximoEnEjecucionPorUsuario) {
+                        iterador.remove();
+                        enEjecucionPorUsuario.merge(trabajo.usuarioId, 1, Integer::sum);
+                        trabajo.iniciado = LocalDateTime.now();
+                        return trabajo;
+                    }
+                }
+                hayCambios.await();
+            }
+            return null;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    private void ejecutar(Trabajo trabajo) {
+        long inicio = System.currentTimeMillis();
+        try {
+            // Las filas van directo al archivo comprimido del almacén, sin armar el JSON en memoria
+            ArchivoReporte archivo = almacenReportesService.guardar(writer -> {
+                agregacionReportesService.escribir(trabajo.tipo, trabajo.fechaInicio, trabajo.fechaFin,
+                        trabajo.agrupaciones, trabajo, writer);
+                if (trabajo.cancelado) {
+                    throw new CancellationException("Reporte cancelado");
+                }
+            });
+            reporteService.completarReporte(trabajo.reporteId, archivo);
+            trabajo.progreso = 100;
+            logger.info("Reporte {} ({}) generado en {} ms", trabajo.reporteId, trabajo.tipo,
+                    System.currentTimeMillis() - inicio);
+            finalizar(trabajo, GENERADO, null);
+        } catch (CancellationException e) {
+            guardarEstado(trabajo, CANCELADO, "Reporte cancelado durante la generación");
+            finalizar(trabajo, CANCELADO, "Reporte cancelado durante la generación");
+        } catch (Exception e) {
+            logger.error("Error al generar el reporte {}: {}", trabajo.reporteId, e.getMessage(), e);
+            guardarEstado(trabajo, ERROR, e.getMessage());
+            finalizar(trabajo, ERROR, e.getMessage());
+        }
+    }
+
+    private void guardarEstado(Trabajo trabajo, String estado, String mensaje) {
+        try {
+            reporteService.marcarReporte(trabajo.reporteId, estado, mensaje);
+        } catch (Exception e) {
+            logger.error("No se pudo guardar el estado {} del reporte {}: {}", estado, trabajo.reporteId, e.getMessage());
+        }
+    }
+
+    private void finalizar(Trabajo trabajo, String estado, String mensaje) {
+        trabajo.mensaje = mensaje;
+        trabajo.estado = estado;
+        trabajo.terminado = LocalDateTime.now();
+        liberarLugar(trabajo.usuarioId, trabajo.iniciado != null);
+        trabajo.terminacion.complete(null);
+    }
+
+    private EstadoTrabajoReporte estado(Trabajo trabajo) {
+        Integer posicion = null;
+        candado.lock();
+        try {
+            if (trabajo.iniciado == null && trabajo.terminado == null) {
+                posicion = cola.headSet(trabajo).size();
+            }
+        } finally {
+            candado.unlock();
+        }
+        return new EstadoTrabajoReporte(trabajo.reporteId, trabajo.tipo, trabajo.usuarioId, trabajo.estado,
+                trabajo.progreso, trabajo.prioridad, posicion, trabajo.enviado, trabajo.iniciado, trabajo.terminado,
+                trabajo.mensaje);
+    }
+
+    /**
+     * Reporte pendiente o en ejecución; también recibe el avance y responde si se pidió cancelarlo
+     */
+    private static final class Trabajo implements AgregacionReportesService.Seguimiento {
+
+        private final Long reporteId;
+        private final String tipo;
+        private final Long usuarioId;
+        private final LocalDate fechaInicio;
+        private final LocalDate fechaFin;
+        private final List<String> agrupaciones;
+        private final int prioridad;
+        private final long secuencia;
+        private final LocalDateTime enviado = LocalDateTime.now();
+        private final CompletableFuture<Void> terminacion = new CompletableFuture<>();
+
+        private volatile String estado = PROCESANDO;
+        private volatile int progreso;
+        private volatile boolean cancelado;
+        private volatile LocalDateTime iniciado;
+        private volatile LocalDateTime terminado;
+        private volatile String mensaje;
+
+        private Trabajo(Long reporteId, String tipo, Long usuarioId, LocalDate fechaInicio, LocalDate fechaFin,
+                        List<String> agrupaciones, int prioridad, long secuencia) {
+            this.reporteId = reporteId;
+            this.tipo = tipo;
+            this.usuarioId = usuarioId;
+            this.fechaInicio = fechaInicio;
+            this.fechaFin = fechaFin;
+            this.agrupaciones = agrupaciones;
+            this.prioridad = prioridad;
+            this.secuencia = secuencia;
+        }
+
+        @Override
+        public void progreso(int porcentaje) {
+            progreso = porcentaje;
+        }
+
+        @Override
+        public boolean cancelado() {
+            return cancelado;
+        }
+    }
+}
@@ -1,28 +1,56 @@
 package com.proyectoavanzada.backend.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.proyectoavanzada.backend.dto.ConsultaCuboVentas;
+import com.proyectoavanzada.backend.dto.ResultadoCambioEstado;
+import com.proyectoavanzada.backend.dto.ResultadoCuboVentas;
 import com.proyectoavanzada.backend.model.Cliente;
 import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Presentacion;
 import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.ResumenVentaDiario;
 import com.proyectoavanzada.backend.model.Usuario;
 import com.proyectoavanzada.backend.model.Venta;
 import com.proyectoavanzada.backend.repository.DetalleVentaRepository;
 import com.proyectoavanzada.backend.repository.ProductoRepository;
 import com.proyectoavanzada.backend.repository.UsuarioRepository;
+import com.proyectoavanzada.backend.repository.ResumenVentaDiarioRepository;
 import com.proyectoavanzada.backend.repository.VentaRepository;
+import com.proyectoavanzada.backend.service.ContadorVentasService.FotoVenta;
 
 @Service
 @Transactional
 public class VentaService {
     
+    // Transiciones permitidas en los cambios de estado en lote: una venta devuelta ya no cambia,
+    // y una cancelada puede volver a completarse si todavía hay stock para ella
+    public static final Map<String, Set<String>> TRANSICIONES_VENTA = Map.of(
+        "COMPLETADA", Set.of("CANCELADA", "DEVUELTA"),
+        "CANCELADA", Set.of("COMPLETADA"),
+        "DEVUELTA", Set.of()
+    );
+    
+    // Ventas por pedido de cambio de estado en lote; mantiene acotadas las consultas IN
+    private static final int MAXIMO_VENTAS_POR_CAMBIO = 1000;
+    
     @Autowired
     private VentaRepository ventaRepository;
     
@@ -44,48 +72,35 @@ public class VentaService {
     @Autowired
     private UsuarioRepository usuarioRepository;
     
+    @Autowired
+    private ContadorVentasService contadorVentasService;
+    
+    @Autowired
+    private ResumenVentaDiarioRepository resumenVentaDiarioRepository;
+    
+    @Autowired
+    private NumeracionService numeracionService;
+    
+    @Autowired
+    private ReservaStockService reservaStockService;
+    
+    @Autowired
+    private CuboVentas cuboVentas;
+    
     /**
      * Obtener todas las ventas
      */
     public List<Venta> obtenerTodasLasVentas() {
-        List<Venta> ventas = ventaRepository.findAll();
-        // Inicializar detalles de venta y productos
-        for (Venta venta : ventas) {
-            if (venta.getDetallesVenta() != null) {
-                venta.getDetallesVenta().size(); // Forzar carga de detalles
-                for (DetalleVenta detalle : venta.getDetallesVenta()) {
-                    if (detalle.getProducto() != null) {
-                        detalle.getProducto().getNombre(); // Forzar carga de producto
-                        if (detalle.getProducto().getMarca() != null) {
-                            detalle.getProducto().getMarca().getNombre(); // Forzar carga de marca
-                        }
-                    }
-                }
-            }
-        }
-        return ventas;
+        // Detalles, productos y marcas llegan en la misma consulta (grafo Venta.detalles)
+        return ventaRepository.findTodasConDetalles();
     }
     
     /**
      * Obtener todas las ventas activas
      */
     public List<Venta> obtenerVentasActivas() {
-        List<Venta> ventas = ventaRepository.findByActivoTrue();
-        // Inicializar detalles de venta y productos
-        for (Venta venta : ventas) {
-            if (venta.getDetallesVenta() != null) {
-                venta.getDetallesVenta().size(); // Forzar carga de detalles
-                for (DetalleVenta detalle : venta.getDetallesVenta()) {
-                    if (detalle.getProducto() != null) {
-                        detalle.getProducto().getNombre(); // Forzar carga de producto
-                        if (detalle.getProducto().getMarca() != null) {
-                            detalle.getProducto().getMarca().getNombre(); // Forzar carga de marca
-                        }
-                    }
-                }
-            }
-        }
-        return ventas;
+        // Detalles, productos y marcas llegan en la misma consulta (grafo Venta.detalles)
+        return ventaRepository.findActivasConDetalles();
     }
     
     /**
@@ -113,22 +128,8 @@ public class VentaService {
      * Obtener ventas por usuario vendedor
      */
     public List<Venta> obtenerVentasPorUsuario(Usuario usuario) {
-        List<Venta> ventas = ventaRepository.findByUsuario(usuario);
-        // Inicializar detalles de venta y productos
-        for (Venta venta : ventas) {
-            if (venta.getDetallesVenta() != null) {
-                venta.getDetallesVenta().size(); // Forzar carga de detalles
-                for (DetalleVenta detalle : venta.getDetallesVenta()) {
-                    if (detalle.getProducto() != null) {
-                        detalle.getProducto().getNombre(); // Forzar carga de producto
-                        if (detalle.getProducto().getMarca() != null) {
-                            detalle.getProducto().getMarca().getNombre(); // Forzar carga de marca
-                        }
-                    }
-                }
-            }
-        }
-        return ventas;
+        // Detalles, productos y marcas llegan en la misma consulta (grafo Venta.detalles)
+        return ventaRepository.findByUsuarioConDetalles(usuario);
     }
     
     /**
@@ -309,6 +310,9 @@ public class VentaService {
             throw new RuntimeException("La venta debe tener al menos un detalle");
         }
         
+        // Validar los detalles y reunir los ids de productos y presentaciones de todas las líneas
+        Set<Long> productoIds = new HashSet<>();
+        Set<Long> presentacionIds = new HashSet<>();
         for (DetalleVenta detalle : venta.getDetallesVenta()) {
             // Validar cantidad y precio unitario
             if (detalle.getCantidad() == null || detalle.getCantidad() <= 0) {
@@ -318,56 +322,91 @@ public class VentaService {
                 throw new RuntimeException("El precio unitario debe ser mayor a 0 para cada detalle");
             }
             
-            // Cargar producto desde la base de datos si solo se proporciona el ID
-            Long productoId = null;
-            if (detalle.getProducto() != null && detalle.getProducto().getId() != null) {
-                productoId = detalle.getProducto().getId();
-            } else {
-                // Intentar obtener el ID desde el método getProductoId()
-                productoId = detalle.getProductoId();
-            }
-            
-            final Long finalProductoId = productoId;
-            if (finalProductoId == null) {
+            Long productoId = obtenerProductoIdDetalle(detalle);
+            if (productoId == null) {
                 throw new RuntimeException("El producto es obligatorio para cada detalle de venta");
             }
-            
-            Producto producto = productoRepository.findById(finalProductoId)
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + finalProductoId));
+            productoIds.add(productoId);
+            if (detalle.getPresentacion() != null && detalle.getPresentacion().getId() != null) {
+                presentacionIds.add(detalle.getPresentacion().getId());
+            }
+        }
+        
+        // Cargar productos y presentaciones con una consulta cada uno, en lugar de una por línea
+        Map<Long, Producto> productosPorId = new HashMap<>();
+        for (Producto producto : productoRepository.findAllById(productoIds)) {
+            productosPorId.put(producto.getId(), producto);
+        }
+        Map<Long, Presentacion> presentacionesPorId = presentacionService != null
+                ? presentacionService.obtenerPresentacionesPorIds(presentacionIds)
+                : new HashMap<>();
+        
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (DetalleVenta detalle : venta.getDetallesVenta()) {
+            Long productoId = obtenerProductoIdDetalle(detalle);
+            Producto producto = productosPorId.get(productoId);
+            if (producto == null) {
+                throw new RuntimeException("Producto no encontrado con ID: " + productoId);
+            }
             detalle.setProducto(producto);
             
+            if (detalle.getPresentacion() != null && detalle.getPresentacion().getId() != null
+                    && presentacionService != null) {
+                Long presentacionId = detalle.getPresentacion().getId();
+                Presentacion presentacion = presentacionesPorId.get(presentacionId);
+                if (presentacion == null) {
+                    throw new RuntimeException("Presentación no encontrada con ID: " + presentacionId);
+                }
+                detalle.setPresentacion(presentacion);
+            }
+            
             // Establecer la venta en el detalle
             detalle.setVenta(venta);
             
             // Calcular subtotal
             detalle.calcularSubtotal();
+            subtotal = subtotal.add(detalle.getSubtotal());
         }
         
+        // Totales calculados una sola vez en memoria a partir de las líneas validadas
+        // (subtotal - descuento - descuento por puntos + impuesto), antes del único guardado
+        venta.setSubtotal(subtotal);
+        venta.calcularTotal();
+        
+        // Consumir la reserva de stock, o verificar que la venta no tome unidades reservadas por otros,
+        // antes de escribir nada en la base de datos
+        Map<Long, Integer> cantidadPorPresentacion = new TreeMap<>();
+        Map<Long, Integer> cantidadPorProducto = new TreeMap<>();
+        agruparCantidades(venta.getDetallesVenta(), cantidadPorPresentacion, cantidadPorProducto);
+        reservaStockService.prepararVenta(venta.getReservaId(), cantidadPorPresentacion, cantidadPorProducto);
+        
         // Guardar la venta con todos los detalles (la cascada los guardará automáticamente)
         Venta ventaGuardada = ventaRepository.saveAndFlush(venta);
         
-        // Actualizar stock después de guardar
+        // Actualizar el stock de todas las líneas en una sola pasada
         if (ventaGuardada.getDetallesVenta() != null && !ventaGuardada.getDetallesVenta().isEmpty()) {
-            for (DetalleVenta detalle : ventaGuardada.getDetallesVenta()) {
-                actualizarStockVenta(detalle);
-            }
+            actualizarStockVenta(ventaGuardada.getDetallesVenta());
         }
         
-        // Recalcular totales
-        recalcularTotalesVenta(ventaGuardada.getId());
+        // Sumar las unidades a los contadores de más vendidos
+        if (cuentaComoVendida(ventaGuardada)) {
+            contadorVentasService.registrarVenta(ventaGuardada.getFechaVenta(), ventaGuardada.getDetallesVenta());
+        }
+        contadorVentasService.actualizarResumenDiario(null, FotoVenta.de(ventaGuardada));
         
-        // Recargar la venta con los totales actualizados
-        return ventaRepository.findById(ventaGuardada.getId())
-                .orElseThrow(() -> new RuntimeException("Error al recargar la venta después de guardar"));
+        return ventaGuardada;
     }
     
     /**
      * Actualizar venta
      */
     public Venta actualizarVenta(Venta venta) {
-        if (!ventaRepository.existsById(venta.getId())) {
-            throw new RuntimeException("Venta no encontrada");
-        }
+        Venta ventaActual = ventaRepository.findById(venta.getId())
+                .orElseThrow(() -> new RuntimeException("Venta no encontrada"));
+        // Estado previo para corregir los contadores de más vendidos si cambia el estado o la fecha
+        boolean contabilizadaAntes = cuentaComoVendida(ventaActual);
+        LocalDateTime fechaAnterior = ventaActual.getFechaVenta();
+        FotoVenta fotoAnterior = FotoVenta.de(ventaActual);
         
         // Verificar si el número de venta ya existe en otra venta
         if (venta.getNumeroVenta() != null) {
@@ -377,7 +416,22 @@ public class VentaService {
             }
         }
         
-        return ventaRepository.save(venta);
+        Venta ventaGuardada = ventaRepository.save(venta);
+        
+        boolean contabilizadaAhora = cuentaComoVendida(ventaGuardada);
+        boolean cambioFecha = !Objects.equals(fechaAnterior, ventaGuardada.getFechaVenta());
+        if (contabilizadaAntes != contabilizadaAhora || (contabilizadaAhora && cambioFecha)) {
+            List<DetalleVenta> detalles = detalleVentaRepository.findByVenta(ventaGuardada);
+            if (contabilizadaAntes) {
+                contadorVentasService.revertirVenta(fechaAnterior, detalles);
+            }
+            if (contabilizadaAhora) {
+                contadorVentasService.registrarVenta(ventaGuardada.getFechaVenta(), detalles);
+            }
+        }
+        contadorVentasService.actualizarResumenDiario(fotoAnterior, FotoVenta.de(ventaGuardada));
+        
+        return ventaGuardada;
     }
     
     /**
@@ -387,16 +441,24 @@ public class VentaService {
         Optional<Venta> ventaOpt = ventaRepository.findById(id);
         if (ventaOpt.isPresent()) {
             Venta venta = ventaOpt.get();
+            List<DetalleVenta> detalles = detalleVentaRepository.findByVenta(venta);
             
             // Revertir stock de los productos
-            revertirStockVenta(venta);
+            revertirStockVenta(detalles);
+            
+            // Descontar de los más vendidos si la venta seguía contando
+            if (cuentaComoVendida(venta)) {
+                contadorVentasService.revertirVenta(venta.getFechaVenta(), detalles);
+            }
             
             // Revertir puntos de fidelidad si se otorgaron
             if (venta.getPuntosOtorgados() > 0 && venta.getCliente() != null) {
                 clienteService.usarPuntosFidelidad(venta.getCliente().getId(), venta.getPuntosOtorgados());
             }
             
+            FotoVenta fotoAnterior = FotoVenta.de(venta);
             venta.setActivo(false);
+            contadorVentasService.actualizarResumenDiario(fotoAnterior, FotoVenta.de(venta));
             ventaRepository.save(venta);
         } else {
             throw new RuntimeException("Venta no encontrada");
@@ -410,17 +472,24 @@ public class VentaService {
         Optional<Venta> ventaOpt = ventaRepository.findById(id);
         if (ventaOpt.isPresent()) {
             Venta venta = ventaOpt.get();
+            List<DetalleVenta> detalles = detalleVentaRepository.findByVenta(venta);
             
             // Revertir stock de los productos
-            revertirStockVenta(venta);
+            revertirStockVenta(detalles);
+            
+            // Descontar de los más vendidos si la venta seguía contando
+            if (cuentaComoVendida(venta)) {
+                contadorVentasService.revertirVenta(venta.getFechaVenta(), detalles);
+            }
             
             // Revertir puntos de fidelidad si se otorgaron
             if (venta.getPuntosOtorgados() > 0 && venta.getCliente() != null) {
                 clienteService.usarPuntosFidelidad(venta.getCliente().getId(), venta.getPuntosOtorgados());
             }
             
+            contadorVentasService.actualizarResumenDiario(FotoVenta.de(venta), null);
+            
             // Eliminar detalles de venta
-            List<DetalleVenta> detalles = detalleVentaRepository.findByVenta(venta);
             detalleVentaRepository.deleteAll(detalles);
             
             ventaRepository.deleteById(id);
@@ -433,68 +502,166 @@ public class VentaService {
      * Marcar venta como completada
      */
     public Venta marcarComoCompletada(Long id) {
-        Optional<Venta> ventaOpt = ventaRepository.findById(id);
-        if (ventaOpt.isPresent()) {
-            Venta venta = ventaOpt.get();
-            venta.setEstado("COMPLETADA");
-            
-            // Calcular y otorgar puntos de fidelidad
-            if (venta.getCliente() != null) {
-                venta.calcularPuntosFidelidad();
-                if (venta.getPuntosOtorgados() > 0) {
-                    clienteService.agregarPuntosFidelidad(venta.getCliente().getId(), venta.getPuntosOtorgados());
-                }
-            }
-            
-            return ventaRepository.save(venta);
-        } else {
-            throw new RuntimeException("Venta no encontrada");
-        }
+        return cambiarEstadoVenta(id, "COMPLETADA");
     }
     
     /**
      * Marcar venta como cancelada
      */
     public Venta marcarComoCancelada(Long id) {
-        Optional<Venta> ventaOpt = ventaRepository.findById(id);
-        if (ventaOpt.isPresent()) {
-            Venta venta = ventaOpt.get();
-            venta.setEstado("CANCELADA");
-            
-            // Revertir stock de los productos
-            revertirStockVenta(venta);
-            
-            // Revertir puntos de fidelidad si se otorgaron
-            if (venta.getPuntosOtorgados() > 0 && venta.getCliente() != null) {
-                clienteService.usarPuntosFidelidad(venta.getCliente().getId(), venta.getPuntosOtorgados());
-            }
-            
-            return ventaRepository.save(venta);
-        } else {
-            throw new RuntimeException("Venta no encontrada");
-        }
+        return cambiarEstadoVenta(id, "CANCELADA");
     }
     
     /**
      * Marcar venta como devuelta
      */
     public Venta marcarComoDevuelta(Long id) {
-        Optional<Venta> ventaOpt = ventaRepository.findById(id);
-        if (ventaOpt.isPresent()) {
-            Venta venta = ventaOpt.get();
-            venta.setEstado("DEVUELTA");
-            
-            // Revertir stock de los productos
-            revertirStockVenta(venta);
-            
-            // Revertir puntos de fidelidad si se otorgaron
-            if (venta.getPuntosOtorgados() > 0 && venta.getCliente() != null) {
-                clienteService.usarPuntosFidelidad(venta.getCliente().getId(), venta.getPuntosOtorgados());
+        return cambiarEstadoVenta(id, "DEVUELTA");
+    }
+    
+    /**
+     * Cambiar el estado de una venta con las mismas transiciones, stock y contadores que el cambio en lote.
+     * Si la venta ya estaba en ese estado queda igual; si no existe o la transición no se permite, falla.
+     */
+    private Venta cambiarEstadoVenta(Long id, String estado) {
+        ResultadoCambioEstado.Linea linea = cambiarEstadoVentas(List.of(id), estado).resultados().get(0);
+        if (!linea.exito()) {
+            throw new RuntimeException(linea.mensaje());
+        }
+        return ventaRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Venta no encontrada"));
+    }
+    
+    /**
+     * Cambiar el estado de varias ventas en una sola transacción, según TRANSICIONES_VENTA.
+     * Las ventas inexistentes, eliminadas o con una transición no permitida se informan y no se tocan;
+     * las que ya estaban en el estado destino quedan igual. El stock de todas las ventas que cambian
+     * se mueve una vez por presentación o producto, los contadores una vez por día de venta
+     * y los puntos de fidelidad una vez por cliente.
+     */
+    public ResultadoCambioEstado cambiarEstadoVentas(List<Long> ventaIds, String estado) {
+        if (ventaIds == null || ventaIds.isEmpty()) {
+            throw new RuntimeException("Debe indicar al menos una venta");
+        }
+        String destino = estado != null ? estado.trim().toUpperCase() : null;
+        if (destino == null || !TRANSICIONES_VENTA.containsKey(destino)) {
+            throw new RuntimeException("Estado de venta no válido: " + estado);
+        }
+        Set<Long> ids = new LinkedHashSet<>(ventaIds);
+        ids.remove(null);
+        if (ids.size() > MAXIMO_VENTAS_POR_CAMBIO) {
+            throw new RuntimeException("No se pueden cambiar más de " + MAXIMO_VENTAS_POR_CAMBIO + " ventas por pedido");
+        }
+        
+        Map<Long, Venta> ventasPorId = new HashMap<>();
+        for (Venta venta : ventaRepository.findAllById(ids)) {
+            ventasPorId.put(venta.getId(), venta);
+        }
+        
+        // Validar todas las transiciones antes de mover nada
+        List<ResultadoCambioEstado.Linea> resultados = new ArrayList<>(ids.size());
+        List<Venta> salen = new ArrayList<>();
+        List<Venta> entran = new ArrayList<>();
+        List<Venta> aplicadas = new ArrayList<>();
+        List<FotoVenta> fotosAnteriores = new ArrayList<>();
+        int sinCambios = 0;
+        int rechazadas = 0;
+        for (Long id : ids) {
+            Venta venta = ventasPorId.get(id);
+            if (venta == null || Boolean.FALSE.equals(venta.getActivo())) {
+                resultados.add(new ResultadoCambioEstado.Linea(id, null, false, "Venta no encontrada"));
+                rechazadas++;
+                continue;
             }
-            
-            return ventaRepository.save(venta);
+            String actual = venta.getEstado();
+            if (destino.equals(actual)) {
+                resultados.add(new ResultadoCambioEstado.Linea(id, actual, true, "La venta ya estaba " + destino));
+                sinCambios++;
+                continue;
+            }
+            if (actual == null || !TRANSICIONES_VENTA.getOrDefault(actual, Set.of()).contains(destino)) {
+                resultados.add(new ResultadoCambioEstado.Linea(id, actual, false,
+                        "No se puede pasar una venta " + actual + " a " + destino));
+                rechazadas++;
+                continue;
+            }
+            boolean contabilizadaAntes = cuentaComoVendida(venta);
+            fotosAnteriores.add(FotoVenta.de(venta));
+            venta.setEstado(destino);
+            boolean contabilizadaAhora = cuentaComoVendida(venta);
+            if (contabilizadaAntes && !contabilizadaAhora) {
+                salen.add(venta);
+            } else if (!contabilizadaAntes && contabilizadaAhora) {
+                entran.add(venta);
+            }
+            aplicadas.add(venta);
+            resultados.add(new ResultadoCambioEstado.Linea(id, actual, true, null));
+        }
+        
+        if (!salen.isEmpty() || !entran.isEmpty()) {
+            Map<Long, List<DetalleVenta>> detallesPorVenta = new HashMap<>();
+            List<Long> idsConMovimiento = new ArrayList<>();
+            salen.forEach(venta -> idsConMovimiento.add(venta.getId()));
+            entran.forEach(venta -> idsConMovimiento.add(venta.getId()));
+            for (DetalleVenta detalle : detalleVentaRepository.findByVentaIdIn(idsConMovimiento)) {
+                detallesPorVenta.computeIfAbsent(detalle.getVenta().getId(), k -> new ArrayList<>()).add(detalle);
+            }
+            aplicarMovimientosEnLote(salen, detallesPorVenta, -1);
+            aplicarMovimientosEnLote(entran, detallesPorVenta, 1);
+        }
+        
+        // Resumen diario de ventas: una actualización por fila de día, método de pago, vendedor y estado
+        contadorVentasService.actualizarResumenDiario(fotosAnteriores, aplicadas.stream().map(FotoVenta::de).toList());
+        
+        ventaRepository.saveAll(aplicadas);
+        return new ResultadoCambioEstado(destino, ids.size(), aplicadas.size(), sinCambios, rechazadas, resultados);
+    }
+    
+    /**
+     * Stock, contadores de más vendidos y puntos de fidelidad de las ventas que dejan de contar como vendidas
+     * (signo -1) o vuelven a contar (signo 1), agrupados por presentación o producto, día y cliente
+     */
+    private void aplicarMovimientosEnLote(List<Venta> ventas, Map<Long, List<DetalleVenta>> detallesPorVenta, int signo) {
+        if (ventas.isEmpty()) {
+            return;
+        }
+        List<DetalleVenta> detalles = new ArrayList<>();
+        Map<LocalDate, List<DetalleVenta>> detallesPorDia = new TreeMap<>();
+        Map<Long, Integer> puntosPorCliente = new TreeMap<>();
+        for (Venta venta : ventas) {
+            List<DetalleVenta> detallesVenta = detallesPorVenta.getOrDefault(venta.getId(), List.of());
+            detalles.addAll(detallesVenta);
+            LocalDate dia = venta.getFechaVenta() != null ? venta.getFechaVenta().toLocalDate() : LocalDate.now();
+            detallesPorDia.computeIfAbsent(dia, k -> new ArrayList<>()).addAll(detallesVenta);
+            if (venta.getCliente() != null) {
+                if (signo > 0) {
+                    venta.calcularPuntosFidelidad();
+                }
+                if (venta.getPuntosOtorgados() != null && venta.getPuntosOtorgados() > 0) {
+                    puntosPorCliente.merge(venta.getCliente().getId(), venta.getPuntosOtorgados(), Integer::sum);
+                }
+            }
+        }
+        
+        Map<Long, Integer> cantidadPorPresentacion = new TreeMap<>();
+        Map<Long, Integer> cantidadPorProducto = new TreeMap<>();
+        agruparCantidades(detalles, cantidadPorPresentacion, cantidadPorProducto);
+        if (signo < 0) {
+            if (!cantidadPorPresentacion.isEmpty()) {
+                presentacionService.agregarStockEnLote(cantidadPorPresentacion);
+            }
+            inventarioService.agregarStockProductos(cantidadPorProducto);
+            detallesPorDia.forEach((dia, detallesDia) -> contadorVentasService.revertirVenta(dia.atStartOfDay(), detallesDia));
+            puntosPorCliente.forEach(clienteService::usarPuntosFidelidad);
         } else {
-            throw new RuntimeException("Venta no encontrada");
+            // Las ventas que vuelven a contar toman otra vez su stock, con las mismas verificaciones que una venta nueva
+            reservaStockService.prepararVenta(null, cantidadPorPresentacion, cantidadPorProducto);
+            if (!cantidadPorPresentacion.isEmpty()) {
+                presentacionService.reducirStockEnLote(cantidadPorPresentacion);
+            }
+            inventarioService.reducirStockProductos(cantidadPorProducto);
+            detallesPorDia.forEach((dia, detallesDia) -> contadorVentasService.registrarVenta(dia.atStartOfDay(), detallesDia));
+            puntosPorCliente.forEach(clienteService::agregarPuntosFidelidad);
         }
     }
     
@@ -503,9 +670,8 @@ public class VentaService {
      */
     public DetalleVenta agregarDetalleVenta(DetalleVenta detalleVenta) {
         // Verificar que la venta existe
-        if (!ventaRepository.existsById(detalleVenta.getVenta().getId())) {
-            throw new RuntimeException("Venta no encontrada");
-        }
+        Venta venta = ventaRepository.findById(detalleVenta.getVenta().getId())
+                .orElseThrow(() -> new RuntimeException("Venta no encontrada"));
         
         // Verificar que hay stock suficiente (solo si hay presentación)
         if (detalleVenta.getPresentacion() != null && !detalleVenta.hayStockSuficiente()) {
@@ -529,6 +695,11 @@ public class VentaService {
         // Actualizar stock del producto
         actualizarStockVenta(detalleVenta);
         
+        // Sumar las unidades a los más vendidos
+        if (cuentaComoVendida(venta)) {
+            contadorVentasService.registrarVenta(venta.getFechaVenta(), List.of(detalleGuardado));
+        }
+        
         // Recalcular totales de la venta
         recalcularTotalesVenta(detalleVenta.getVenta().getId());
         
@@ -547,6 +718,11 @@ public class VentaService {
             // Revertir stock del producto
             revertirStockDetalleVenta(detalle);
             
+            // Descontar las unidades de los más vendidos
+            if (cuentaComoVendida(detalle.getVenta())) {
+                contadorVentasService.revertirVenta(detalle.getVenta().getFechaVenta(), List.of(detalle));
+            }
+            
             // Eliminar detalle
             detalleVentaRepository.deleteById(detalleId);
             
@@ -582,8 +758,10 @@ public class VentaService {
                     .map(DetalleVenta::getSubtotal)
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
             
+            FotoVenta fotoAnterior = FotoVenta.de(venta);
             venta.setSubtotal(subtotal);
             venta.calcularTotal();
+            contadorVentasService.actualizarResumenDiario(fotoAnterior, FotoVenta.de(venta));
             ventaRepository.save(venta);
         }
     }
@@ -607,9 +785,11 @@ public class VentaService {
             // Calcular descuento (1 punto = 0.10 soles)
             BigDecimal descuento = new BigDecimal(puntosUsar).multiply(new BigDecimal("0.10"));
             
+            FotoVenta fotoAnterior = FotoVenta.de(venta);
             venta.setPuntosUsados(puntosUsar);
             venta.setDescuentoPuntos(descuento);
             venta.calcularTotal();
+            contadorVentasService.actualizarResumenDiario(fotoAnterior, FotoVenta.de(venta));
             
             return ventaRepository.save(venta);
         } else {
@@ -637,13 +817,68 @@ public class VentaService {
     }
     
     /**
-     * Revertir stock al eliminar venta
+     * Reducir el stock de todas las líneas de una venta en lote: las cantidades se agrupan por
+     * presentación y por producto, y cada grupo se aplica con una carga y un guardado
+     */
+    private void actualizarStockVenta(List<DetalleVenta> detalles) {
+        Map<Long, Integer> cantidadPorPresentacion = new TreeMap<>();
+        Map<Long, Integer> cantidadPorProducto = new TreeMap<>();
+        agruparCantidades(detalles, cantidadPorPresentacion, cantidadPorProducto);
+        if (!cantidadPorPresentacion.isEmpty()) {
+            presentacionService.reducirStockEnLote(cantidadPorPresentacion);
+        }
+        inventarioService.reducirStockProductos(cantidadPorProducto);
+    }
+    
+    /**
+     * Agrupar las cantidades de los detalles por presentación, o por producto si la línea no tiene presentación
      */
-    private void revertirStockVenta(Venta venta) {
-        List<DetalleVenta> detalles = detalleVentaRepository.findByVenta(venta);
+    private void agruparCantidades(List<DetalleVenta> detalles, Map<Long, Integer> cantidadPorPresentacion,
+                                   Map<Long, Integer> cantidadPorProducto) {
         for (DetalleVenta detalle : detalles) {
-            revertirStockDetalleVenta(detalle);
+            if (detalle.getPresentacion() != null) {
+                // Sin servicio de presentaciones no se mueve el stock de la presentación
+                if (presentacionService != null) {
+                    cantidadPorPresentacion.merge(detalle.getPresentacion().getId(), detalle.getCantidad(), Integer::sum);
+                }
+            } else if (detalle.getProducto() != null && detalle.getProducto().getId() != null) {
+                cantidadPorProducto.merge(detalle.getProducto().getId(), detalle.getCantidad(), Integer::sum);
+            } else {
+                throw new RuntimeException("No se puede actualizar el stock: el producto no está definido en el detalle");
+            }
+        }
+    }
+    
+    /**
+     * Id del producto de un detalle, tomado de la entidad o del campo productoId
+     */
+    private Long obtenerProductoIdDetalle(DetalleVenta detalle) {
+        if (detalle.getProducto() != null && detalle.getProducto().getId() != null) {
+            return detalle.getProducto().getId();
         }
+        return detalle.getProductoId();
+    }
+    
+    /**
+     * Verificar si una venta cuenta para los más vendidos (activa y no cancelada ni devuelta)
+     */
+    private boolean cuentaComoVendida(Venta venta) {
+        return !Boolean.FALSE.equals(venta.getActivo())
+                && !"CANCELADA".equals(venta.getEstado())
+                && !"DEVUELTA".equals(venta.getEstado());
+    }
+    
+    /**
+     * Revertir stock al eliminar venta
+     */
+    private void revertirStockVenta(List<DetalleVenta> detalles) {
+        Map<Long, Integer> cantidadPorPresentacion = new TreeMap<>();
+        Map<Long, Integer> cantidadPorProducto = new TreeMap<>();
+        agruparCantidades(detalles, cantidadPorPresentacion, cantidadPorProducto);
+        if (!cantidadPorPresentacion.isEmpty()) {
+            presentacionService.agregarStockEnLote(cantidadPorPresentacion);
+        }
+        inventarioService.agregarStockProductos(cantidadPorProducto);
     }
     
     /**
@@ -668,9 +903,10 @@ public class VentaService {
     /**
      * Generar número de venta automático
      */
-    private String generarNumeroVenta() {
-        long count = ventaRepository.count() + 1;
-        return "VENT-" + String.format("%06d", count);
+    public String generarNumeroVenta() {
+        long numero = numeracionService.siguiente(NumeracionService.VENTAS,
+                () -> NumeracionService.mayorNumero(ventaRepository.findNumerosVentaGenerados(), "VENT-") + 1);
+        return "VENT-" + String.format("%06d", numero);
     }
     
     /**
@@ -681,17 +917,18 @@ public class VentaService {
     }
     
     /**
-     * Contar ventas por estado
+     * Contar ventas por estado, desde el resumen diario de ventas
      */
     public long contarVentasPorEstado(String estado) {
-        return ventaRepository.countByEstado(estado);
+        return resumenVentaDiarioRepository.sumCantidadVentasByEstado(
+                estado != null ? estado : ResumenVentaDiario.SIN_VALOR);
     }
     
     /**
-     * Contar ventas activas
+     * Contar ventas activas, desde el resumen diario de ventas
      */
     public long contarVentasActivas() {
-        return ventaRepository.countByActivoTrue();
+        return resumenVentaDiarioRepository.sumCantidadVentasActivas();
     }
     
     /**
@@ -702,23 +939,58 @@ public class VentaService {
     }
     
     /**
-     * Obtener total de ventas por usuario
+     * Obtener total de ventas por usuario, desde el resumen diario de ventas
      */
     public BigDecimal obtenerTotalVentasPorUsuario(Usuario usuario) {
-        return ventaRepository.sumTotalByUsuario(usuario);
+        return resumenVentaDiarioRepository.sumMontoByUsuarioId(usuario.getId());
     }
     
     /**
-     * Obtener total de ventas en un rango de fechas
+     * Obtener total de ventas en un rango de fechas (ambos extremos incluidos).
+     * Los días completos del rango se suman del resumen diario de ventas; solo las horas de los extremos
+     * que no cubren un día entero se suman de la tabla ventas.
      */
     public BigDecimal obtenerTotalVentasPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
-        return ventaRepository.sumTotalByFechaVentaBetween(fechaInicio, fechaFin);
+        LocalDate primerDia = fechaInicio.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? fechaInicio.toLocalDate()
+                : fechaInicio.toLocalDate().plusDays(1);
+        LocalDate ultimoDia = fechaFin.toLocalTime().equals(LocalTime.MAX)
+                ? fechaFin.toLocalDate()
+                : fechaFin.toLocalDate().minusDays(1);
+        if (primerDia.isAfter(ultimoDia)) {
+            return ventaRepository.sumTotalByFechaVentaBetween(fechaInicio, fechaFin);
+        }
+        
+        BigDecimal total = resumenVentaDiarioRepository.sumMontoByFechaBetween(primerDia, ultimoDia);
+        if (fechaInicio.isBefore(primerDia.atStartOfDay())) {
+            total = total.add(ventaRepository.sumTotalByFechaVentaDesdeAntesDe(fechaInicio, primerDia.atStartOfDay()));
+        }
+        LocalDateTime despuesDelUltimoDia = ultimoDia.plusDays(1).atStartOfDay();
+        if (!fechaFin.isBefore(despuesDelUltimoDia)) {
+            total = total.add(ventaRepository.sumTotalByFechaVentaBetween(despuesDelUltimoDia, fechaFin));
+        }
+        return total;
     }
     
     /**
-     * Obtener total de ventas por método de pago
+     * Obtener total de ventas por método de pago, desde el resumen diario de ventas
      */
     public BigDecimal obtenerTotalVentasPorMetodoPago(String metodoPago) {
-        return ventaRepository.sumTotalByMetodoPago(metodoPago);
+        return resumenVentaDiarioRepository.sumMontoByMetodoPago(metodoPago);
+    }
+    
+    /**
+     * Agrupar y filtrar las líneas de venta usando el cubo de ventas en memoria
+     */
+    public ResultadoCuboVentas consultarCuboVentas(ConsultaCuboVentas consulta) {
+        return cuboVentas.consultar(consulta);
+    }
+    
+    /**
+     * Volver a cargar el cubo de ventas completo desde la base de datos
+     */
+    public Map<String, Object> recargarCuboVentas() {
+        cuboVentas.recargar();
+        return cuboVentas.estado();
     }
 }
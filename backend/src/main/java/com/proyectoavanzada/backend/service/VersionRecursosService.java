@@ -0,0 +1,229 @@
+package com.proyectoavanzada.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Versión de cada colección de recursos (categorías, marcas, productos) para responder GET condicionales.
+ * Cada escritura de los servicios incrementa la versión de las colecciones que afecta, y los controladores
+ * arman con ella un ETag fuerte que se compara con If-None-Match antes de consultar la base de datos.
+ * Las versiones se guardan en la tabla versiones_recursos, compartida por todos los nodos del backend:
+ * cada nodo ve sus propias escrituras de inmediato y las de otros nodos al volver a leer la fila, como mucho
+ * cada recursos.versiones.refresco-ms. Las filas nunca retroceden, así que un ETag emitido antes de un reinicio
+ * nunca coincide por casualidad.
+ */
+@Service
+public class VersionRecursosService {
+
+    public static final String CATEGORIAS = "categorias";
+    public static final String MARCAS = "marcas";
+    public static final String PRODUCTOS = "productos";
+
+    private static final String SQL_LEER =
+        "SELECT version FROM versiones_recursos WHERE coleccion = ?";
+
+    private static final String SQL_INCREMENTAR =
+        "UPDATE versiones_recursos SET version = version + 1 WHERE coleccion = ?";
+
+    private static final String SQL_CREAR =
+        "INSERT INTO versiones_recursos (coleccion, version) VALUES (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${recursos.versiones.refresco-ms:1000}")
+    private long refrescoMs;
+
+    // Transacción propia para crear las filas y para los incrementos que no van con una transacción
+    private TransactionTemplate transaccionPropia;
+
+    // Última versión leída o escrita por este nodo
+    private final Map<String, Leida> versiones = new ConcurrentHashMap<>();
+
+    // Acciones a ejecutar cuando este nodo lee una versión que avanzó otro nodo
+    private final List<Consumer<String>> oyentesCambioExterno = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    void inicializar() {
+        transaccionPropia = new TransactionTemplate(transactionManager);
+        transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Versión actual de una colección. Solo consulta la base de datos si la última lectura es más vieja
+     * que el intervalo de refresco.
+     */
+    public long obtenerVersion(String coleccion) {
+        Leida leida = versiones.get(coleccion);
+        if (leida != null && System.nanoTime() - leida.momento() < refrescoMs * 1_000_000) {
+            return leida.version();
+        }
+        long version = leerVersion(coleccion);
+        if (leida != null && version > leida.version()) {
+            // Se avisa antes de publicar la versión nueva, así nadie arma el ETag nuevo con datos de una caché vieja
+            for (Consumer<String> oyente : oyentesCambioExterno) {
+                oyente.accept(coleccion);
+            }
+        }
+        return recordar(coleccion, version);
+    }
+
+    /**
+     * Registrar una acción para cuando este nodo ve una versión que avanzó otro nodo; sirve para vaciar
+     * las cachés locales que se arman con los datos de esa colección
+     */
+    public void alCambiarEnOtroNodo(Consumer<String> oyente) {
+        oyentesCambioExterno.add(oyente);
+    }
+
+    /**
+     * ETag fuerte (entre comillas) de una colección. Se debe leer antes de consultar los datos,
+     * así una escritura concurrente deja la respuesta con un ETag viejo y nunca al revés.
+     */
+    public String obtenerEtag(String coleccion) {
+        return "\"" + coleccion + "-" + obtenerVersion(coleccion) + "\"";
+    }
+
+    /**
+     * Verificar si el encabezado If-None-Match del cliente incluye el ETag actual.
+     * Acepta una lista separada por comas, ETags débiles (W/) y el comodín *.
+     */
+    public boolean coincideConIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Incrementar la versión de las colecciones indicadas en una transacción propia
+     */
+    public void incrementar(String... colecciones) {
+        Map<String, Long> nuevas = transaccionPropia.execute(estado -> avanzar(new TreeSet<>(List.of(colecciones))));
+        if (nuevas != null) {
+            nuevas.forEach(this::recordar);
+        }
+    }
+
+    /**
+     * Incrementar la versión de las colecciones con la transacción actual.
+     * Las filas se avanzan justo antes del commit, con la misma conexión, así quedan bloqueadas solo mientras
+     * se confirma y una lectura que vea la versión nueva también ve los datos confirmados; si hay rollback
+     * no se avanza nada. Todas las colecciones de la transacción se avanzan juntas y en orden, para que dos
+     * transacciones no se bloqueen en orden inverso. Sin transacción activa el incremento es inmediato.
+     */
+    public void incrementarAlFinalizar(String... colecciones) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            incrementar(colecciones);
+            return;
+        }
+        IncrementoPendiente pendiente = (IncrementoPendiente) TransactionSynchronizationManager.getResource(this);
+        if (pendiente == null) {
+            pendiente = new IncrementoPendiente();
+            TransactionSynchronizationManager.bindResource(this, pendiente);
+            TransactionSynchronizationManager.registerSynchronization(pendiente);
+        }
+        pendiente.colecciones.addAll(List.of(colecciones));
+    }
+
+    /**
+     * Avanzar las filas de las colecciones, creándolas si hace falta, y devolver la versión que quedó en cada una.
+     * Debe ejecutarse dentro de una transacción: las filas quedan bloqueadas por ella, así que la lectura
+     * ve el valor que dejamos.
+     */
+    private Map<String, Long> avanzar(Set<String> colecciones) {
+        Map<String, Long> nuevas = new HashMap<>();
+        for (String coleccion : colecciones) {
+            if (jdbcTemplate.update(SQL_INCREMENTAR, coleccion) == 0) {
+                crearFila(coleccion);
+                jdbcTemplate.update(SQL_INCREMENTAR, coleccion);
+            }
+            nuevas.put(coleccion, jdbcTemplate.queryForObject(SQL_LEER, Long.class, coleccion));
+        }
+        return nuevas;
+    }
+
+    /**
+     * Leer la versión de la base de datos, creando la fila si es la primera vez que se usa la colección
+     */
+    private long leerVersion(String coleccion) {
+        List<Long> filas = jdbcTemplate.queryForList(SQL_LEER, Long.class, coleccion);
+        if (!filas.isEmpty()) {
+            return filas.get(0);
+        }
+        transaccionPropia.executeWithoutResult(estado -> crearFila(coleccion));
+        return jdbcTemplate.queryForObject(SQL_LEER, Long.class, coleccion);
+    }
+
+    private void crearFila(String coleccion) {
+        try {
+            jdbcTemplate.update(SQL_CREAR, coleccion, System.currentTimeMillis());
+        } catch (DuplicateKeyException e) {
+            // Otro nodo creó la fila entre la lectura y el INSERT
+        }
+    }
+
+    /**
+     * Guardar la versión vista por este nodo, sin volver atrás si una lectura más lenta trae una anterior
+     */
+    private long recordar(String coleccion, long version) {
+        Leida nueva = versiones.merge(coleccion, new Leida(version, System.nanoTime()),
+            (actual, leida) -> leida.version() >= actual.version() ? leida : new Leida(actual.version(), leida.momento()));
+        return nueva.version();
+    }
+
+    private record Leida(long version, long momento) {
+    }
+
+    /**
+     * Colecciones a avanzar con la transacción actual
+     */
+    private final class IncrementoPendiente implements TransactionSynchronization {
+
+        private final Set<String> colecciones = new TreeSet<>();
+        private Map<String, Long> nuevas = Map.of();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            nuevas = avanzar(colecciones);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(VersionRecursosService.this);
+            if (status == STATUS_COMMITTED) {
+                nuevas.forEach(VersionRecursosService.this::recordar);
+            }
+        }
+    }
+}
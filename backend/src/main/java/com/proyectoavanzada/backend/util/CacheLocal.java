@@ -0,0 +1,178 @@
+package com.proyectoavanzada.backend.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caché en memoria de lectura directa (read-through) con tamaño máximo y tiempo de vida por entrada.
+ * Cuando se supera el tamaño máximo se desaloja la entrada usada hace más tiempo (LRU).
+ * Lleva contadores de aciertos, fallos y desalojos para poder monitorearla.
+ */
+public class CacheLocal<K, V> {
+
+    private final String nombre;
+    private final int tamanoMaximo;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+
+    // Se incrementa en cada invalidación; una carga que empezó antes de una invalidación no se guarda
+    private long generacion = 0;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+    private final AtomicLong expiraciones = new AtomicLong();
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    public CacheLocal(String nombre, int tamanoMaximo, Duration ttl) {
+        if (tamanoMaximo <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo de la caché debe ser mayor a 0");
+        }
+        this.nombre = nombre;
+        this.tamanoMaximo = tamanoMaximo;
+        this.ttlNanos = ttl.toNanos();
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> mayor) {
+                if (size() > CacheLocal.this.tamanoMaximo) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Obtener un valor de la caché o cargarlo con la función indicada si no está o expiró.
+     * La carga se ejecuta fuera del candado para no bloquear otras lecturas mientras consulta la base de datos.
+     */
+    public V obtener(K clave, Function<K, V> cargador) {
+        long generacionInicial;
+        synchronized (entradas) {
+            Entrada<V> entrada = entradas.get(clave);
+            if (entrada != null) {
+                if (!entrada.expirada()) {
+                    aciertos.incrementAndGet();
+                    return entrada.valor;
+                }
+                entradas.remove(clave);
+                expiraciones.incrementAndGet();
+            }
+            fallos.incrementAndGet();
+            generacionInicial = generacion;
+        }
+
+        V valor = cargador.apply(clave);
+
+        synchronized (entradas) {
+            // Si hubo una invalidación durante la carga el valor puede estar desactualizado
+            if (valor != null && generacionInicial == generacion) {
+                entradas.put(clave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Invalidar una entrada
+     */
+    public void invalidar(K clave) {
+        synchronized (entradas) {
+            generacion++;
+            if (entradas.remove(clave) != null) {
+                invalidaciones.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Invalidar varias entradas
+     */
+    public void invalidar(Iterable<K> claves) {
+        synchronized (entradas) {
+            generacion++;
+            for (K clave : claves) {
+                if (entradas.remove(clave) != null) {
+                    invalidaciones.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidar todas las entradas
+     */
+    public void invalidarTodo() {
+        synchronized (entradas) {
+            generacion++;
+            invalidaciones.addAndGet(entradas.size());
+            entradas.clear();
+        }
+    }
+
+    /**
+     * Eliminar las entradas expiradas
+     */
+    public void limpiarExpiradas() {
+        synchronized (entradas) {
+            Iterator<Entrada<V>> iterador = entradas.values().iterator();
+            while (iterador.hasNext()) {
+                if (iterador.next().expirada()) {
+                    iterador.remove();
+                    expiraciones.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Cantidad de entradas almacenadas
+     */
+    public int tamano() {
+        synchronized (entradas) {
+            return entradas.size();
+        }
+    }
+
+    /**
+     * Obtener estadísticas de uso de la caché
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        long totalAciertos = aciertos.get();
+        long totalFallos = fallos.get();
+        long totalLecturas = totalAciertos + totalFallos;
+
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("nombre", nombre);
+        estadisticas.put("tamano", tamano());
+        estadisticas.put("tamanoMaximo", tamanoMaximo);
+        estadisticas.put("ttlSegundos", Duration.ofNanos(ttlNanos).getSeconds());
+        estadisticas.put("aciertos", totalAciertos);
+        estadisticas.put("fallos", totalFallos);
+        estadisticas.put("tasaAciertos", totalLecturas == 0 ? 0.0 : (double) totalAciertos / totalLecturas);
+        estadisticas.put("desalojos", desalojos.get());
+        estadisticas.put("expiraciones", expiraciones.get());
+        estadisticas.put("invalidaciones", invalidaciones.get());
+        return estadisticas;
+    }
+
+    private static final class Entrada<V> {
+        private final V valor;
+        private final long expiraEn;
+
+        private Entrada(V valor, long expiraEn) {
+            this.valor = valor;
+            this.expiraEn = expiraEn;
+        }
+
+        private boolean expirada() {
+            return System.nanoTime() - expiraEn >= 0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.proyectoavanzada.backend.util;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Utilidad para codificar y decodificar los cursores de paginación.
+ * El cursor es opaco para el cliente: solo debe reenviarlo tal cual lo recibió.
+ */
+@Component
+public class CursorUtil {
+    
+    private static final String PREFIJO = "id:";
+    
+    /**
+     * Codifica el último id de una página en un cursor opaco
+     * @param ultimoId id del último elemento entregado
+     * @return cursor en Base64 URL-safe
+     */
+    public String codificar(Long ultimoId) {
+        String valor = PREFIJO + ultimoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decodifica un cursor recibido del cliente
+     * @param cursor cursor opaco, puede ser null o vacío para la primera página
+     * @return último id entregado, 0 si es la primera página
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    public Long decodificar(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return 0L;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            if (!valor.startsWith(PREFIJO)) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+            long ultimoId = Long.parseLong(valor.substring(PREFIJO.length()));
+            if (ultimoId < 0) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+            return ultimoId;
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException y errores de Base64 también son IllegalArgumentException
+            throw new IllegalArgumentException("Cursor de paginación inválido");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.proyectoavanzada.backend.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Rueda de temporización (hashed timing wheel) para vencer elementos en bloque.
+ * Cada elemento se guarda en la ranura de su tick de vencimiento, así programar es O(1)
+ * y cada avance solo recorre las ranuras de los ticks transcurridos en lugar de todos los elementos.
+ * No admite cancelar: quien la usa debe ignorar los elementos vencidos que ya no sigan vigentes.
+ */
+public class RuedaTemporizadora<T> {
+
+    private final long tickMs;
+    private final List<ArrayDeque<Entrada<T>>> ranuras;
+    private long tickActual;
+    private int tamano;
+
+    /**
+     * @param cantidadRanuras ranuras de la rueda; una vuelta completa cubre cantidadRanuras * tickMs
+     * @param tickMs          resolución del vencimiento en milisegundos
+     * @param ahoraMs         instante de inicio en milisegundos
+     */
+    public RuedaTemporizadora(int cantidadRanuras, long tickMs, long ahoraMs) {
+        if (cantidadRanuras <= 0 || tickMs <= 0) {
+            throw new IllegalArgumentException("La cantidad de ranuras y el tick deben ser mayores a 0");
+        }
+        this.tickMs = tickMs;
+        this.ranuras = new ArrayList<>(cantidadRanuras);
+        for (int i = 0; i < cantidadRanuras; i++) {
+            ranuras.add(new ArrayDeque<>());
+        }
+        this.tickActual = ahoraMs / tickMs;
+    }
+
+    /**
+     * Programar un elemento para que venza en el instante indicado (redondeado al tick siguiente)
+     */
+    public synchronized void programar(T elemento, long vencimientoMs) {
+        long tickVencimiento = Math.max((vencimientoMs + tickMs - 1) / tickMs, tickActual + 1);
+        ranuras.get((int) (tickVencimiento % ranuras.size())).add(new Entrada<>(elemento, tickVencimiento));
+        tamano++;
+    }
+
+    /**
+     * Avanzar la rueda hasta el instante indicado y devolver los elementos vencidos.
+     * Los elementos que vencen en una vuelta posterior se quedan en su ranura.
+     */
+    public synchronized List<T> avanzar(long ahoraMs) {
+        List<T> vencidos = new ArrayList<>();
+        long tickHasta = ahoraMs / tickMs;
+        if (tickHasta <= tickActual) {
+            return vencidos;
+        }
+        // Si pasó más de una vuelta alcanza con recorrer cada ranura una vez
+        long ticks = Math.min(tickHasta - tickActual, ranuras.size());
+        for (long i = 1; i <= ticks; i++) {
+            ArrayDeque<Entrada<T>> ranura = ranuras.get((int) ((tickActual + i) % ranuras.size()));
+            Iterator<Entrada<T>> iterador = ranura.iterator();
+            while (iterador.hasNext()) {
+                Entrada<T> entrada = iterador.next();
+                if (entrada.tickVencimiento() <= tickHasta) {
+                    iterador.remove();
+                    vencidos.add(entrada.elemento());
+                    tamano--;
+                }
+            }
+        }
+        tickActual = tickHasta;
+        return vencidos;
+    }
+
+    /**
+     * Cantidad de elementos programados que todavía no vencieron
+     */
+    public synchronized int tamano() {
+        return tamano;
+    }
+
+    private record Entrada<T>(T elemento, long tickVencimiento) {
+    }
+}
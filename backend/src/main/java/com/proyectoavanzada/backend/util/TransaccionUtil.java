@@ -0,0 +1,66 @@
+package com.proyectoavanzada.backend.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Utilidades para ejecutar acciones ligadas al ciclo de vida de la transacción actual
+ */
+public final class TransaccionUtil {
+
+    private TransaccionUtil() {
+    }
+
+    /**
+     * Ejecutar una acción cuando la transacción actual confirme.
+     * Si no hay una transacción activa la acción se ejecuta de inmediato.
+     */
+    public static void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * Ejecutar una acción cuando la transacción actual termine, ya sea con commit o con rollback.
+     * Si no hay una transacción activa la acción se ejecuta de inmediato.
+     */
+    public static void despuesDeFinalizar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * Ejecutar una acción cuando la transacción actual termine, indicando si confirmó (true) o se deshizo (false).
+     * Si no hay una transacción activa la acción se ejecuta de inmediato como confirmada.
+     */
+    public static void despuesDeFinalizarConResultado(Consumer<Boolean> accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    accion.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            accion.accept(true);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.proyectoavanzada.backend.benchmark;
+
+import com.proyectoavanzada.backend.model.Categoria;
+import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import com.proyectoavanzada.backend.service.IndiceBusquedaProductos;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Benchmark del índice de búsqueda contra la búsqueda actual por LIKE '%texto%'.
+ * La consulta LIKE con comodín inicial no puede usar índices, así que se emula con un recorrido
+ * completo comparando nombres en minúsculas, que es lo que hace la base de datos por cada fila.
+ *
+ * No se ejecuta con mvn test (no termina en Test); ejecutar con:
+ * mvn test -Dtest=BusquedaProductosBenchmark -Dbenchmark.productos=100000
+ */
+class BusquedaProductosBenchmark {
+
+    private static final String[] MODELOS = {"Air Max", "Air Force", "Ultraboost", "Pegasus", "Gel Kayano",
+        "Suede", "Old Skool", "Chuck Taylor", "Fresh Foam", "Zoom Fly", "Superstar", "Clifton"};
+    private static final String[] MARCAS = {"Nike", "Adidas", "Puma", "Vans", "Converse", "New Balance", "Asics", "Hoka"};
+    private static final String[] CATEGORIAS = {"Running", "Básquetbol", "Casual", "Skate", "Trail"};
+    private static final String[] CONSULTAS = {"air", "pegasus", "ultrab", "kayano", "vans skool", "balance foam", "camion"};
+
+    @Test
+    void compararIndiceContraRecorridoCompleto() {
+        int cantidadProductos = Integer.getInteger("benchmark.productos", 50_000);
+        int iteraciones = Integer.getInteger("benchmark.iteraciones", 200);
+        List<Producto> productos = generarProductos(cantidadProductos);
+
+        ProductoRepository productoRepository = mock(ProductoRepository.class);
+        when(productoRepository.findByActivoTrue()).thenReturn(productos);
+        IndiceBusquedaProductos indice = new IndiceBusquedaProductos();
+        ReflectionTestUtils.setField(indice, "productoRepository", productoRepository);
+
+        long inicioConstruccion = System.nanoTime();
+        indice.reconstruir();
+        long construccionMs = (System.nanoTime() - inicioConstruccion) / 1_000_000;
+
+        // Calentamiento para que el JIT compile ambos caminos
+        for (int i = 0; i < iteraciones; i++) {
+            ejecutarIndice(indice);
+            ejecutarRecorrido(productos);
+        }
+
+        long inicioIndice = System.nanoTime();
+        long resultadosIndice = 0;
+        for (int i = 0; i < iteraciones; i++) {
+            resultadosIndice += ejecutarIndice(indice);
+        }
+        long nanosIndice = System.nanoTime() - inicioIndice;
+
+        long inicioRecorrido = System.nanoTime();
+        long resultadosRecorrido = 0;
+        for (int i = 0; i < iteraciones; i++) {
+            resultadosRecorrido += ejecutarRecorrido(productos);
+        }
+        long nanosRecorrido = System.nanoTime() - inicioRecorrido;
+
+        int consultasTotales = iteraciones * CONSULTAS.length;
+        System.out.printf("Productos: %d, construcción del índice: %d ms%n", cantidadProductos, construccionMs);
+        System.out.printf("Índice invertido: %.1f µs por consulta (%d resultados)%n",
+            nanosIndice / 1000.0 / consultasTotales, resultadosIndice);
+        System.out.printf("Recorrido LIKE:   %.1f µs por consulta (%d resultados)%n",
+            nanosRecorrido / 1000.0 / consultasTotales, resultadosRecorrido);
+    }
+
+    private static long ejecutarIndice(IndiceBusquedaProductos indice) {
+        long total = 0;
+        for (String consulta : CONSULTAS) {
+            total += indice.buscar(consulta, 50).size();
+        }
+        return total;
+    }
+
+    private static long ejecutarRecorrido(List<Producto> productos) {
+        long total = 0;
+        for (String consulta : CONSULTAS) {
+            String patron = consulta.toLowerCase(Locale.ROOT);
+            int encontrados = 0;
+            for (Producto producto : productos) {
+                if (producto.getNombre().toLowerCase(Locale.ROOT).contains(patron)) {
+                    encontrados++;
+                }
+            }
+            total += Math.min(encontrados, 50);
+        }
+        return total;
+    }
+
+    private static List<Producto> generarProductos(int cantidad) {
+        Random aleatorio = new Random(42);
+        List<Categoria> categorias = new ArrayList<>();
+        for (int i = 0; i < CATEGORIAS.length; i++) {
+            Categoria categoria = new Categoria();
+            categoria.setId((long) i + 1);
+            categoria.setNombre(CATEGORIAS[i]);
+            categorias.add(categoria);
+        }
+        List<Marca> marcas = new ArrayList<>();
+        for (int i = 0; i < MARCAS.length; i++) {
+            Marca marca = new Marca();
+            marca.setId((long) i + 1);
+            marca.setNombre(MARCAS[i]);
+            marcas.add(marca);
+        }
+
+        List<Producto> productos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Producto producto = new Producto();
+            producto.setId((long) i + 1);
+            producto.setNombre(MODELOS[aleatorio.nextInt(MODELOS.length)] + " " + (aleatorio.nextInt(900) + 100));
+            producto.setCodigoProducto(String.format("SKU%07d", i));
+            producto.setMarca(marcas.get(aleatorio.nextInt(marcas.size())));
+            producto.setCategoria(categorias.get(aleatorio.nextInt(categorias.size())));
+            producto.setActivo(true);
+            productos.add(producto);
+        }
+        return productos;
+    }
+}
@@ -0,0 +1,165 @@
+package com.proyectoavanzada.backend.benchmark;
+
+import com.proyectoavanzada.backend.model.Categoria;
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.model.Presentacion;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.model.Venta;
+import com.proyectoavanzada.backend.repository.CategoriaRepository;
+import com.proyectoavanzada.backend.repository.MarcaRepository;
+import com.proyectoavanzada.backend.repository.PresentacionRepository;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import com.proyectoavanzada.backend.repository.UsuarioRepository;
+import com.proyectoavanzada.backend.repository.VentaRepository;
+import com.proyectoavanzada.backend.service.VentaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark de ventas por segundo de crearVenta con los totales calculados en memoria, contra el camino
+ * anterior que después del guardado recalculaba los totales (findById, findByVenta y save) y recargaba la venta.
+ * Cada venta se crea en su propia transacción, como en POST /api/ventas.
+ *
+ * No se ejecuta con mvn test (no termina en Test); ejecutar con:
+ * mvn test -Dtest=CreacionVentasBenchmark -Dbenchmark.ventas=5000 -Dbenchmark.lineas=5
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:creacionventas;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "logging.level.org.hibernate.SQL=INFO",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@ActiveProfiles("test")
+class CreacionVentasBenchmark {
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PresentacionRepository presentacionRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private MarcaRepository marcaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compararTotalesEnMemoriaContraRecalculoYRecarga() {
+        int ventas = Integer.getInteger("benchmark.ventas", 2_000);
+        int lineas = Integer.getInteger("benchmark.lineas", 5);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Usuario usuario = new Usuario();
+        usuario.setNombre("Caja benchmark");
+        usuario.setEmail("benchmark@example.com");
+        usuario.setPassword("secreto123");
+        Long usuarioId = usuarioRepository.save(usuario).getId();
+        List<Presentacion> presentaciones = crearPresentaciones(lineas, ventas * 4);
+
+        // Calentamiento para que el JIT compile ambos caminos
+        for (int i = 0; i < ventas / 4; i++) {
+            transactionTemplate.executeWithoutResult(s -> ventaService.crearVenta(nuevaVenta(usuarioId, presentaciones)));
+            transactionTemplate.executeWithoutResult(s -> crearConRecalculo(nuevaVenta(usuarioId, presentaciones)));
+        }
+
+        long inicioRecalculo = System.nanoTime();
+        for (int i = 0; i < ventas; i++) {
+            transactionTemplate.executeWithoutResult(s -> crearConRecalculo(nuevaVenta(usuarioId, presentaciones)));
+        }
+        long nanosRecalculo = System.nanoTime() - inicioRecalculo;
+
+        long inicioEnMemoria = System.nanoTime();
+        for (int i = 0; i < ventas; i++) {
+            transactionTemplate.executeWithoutResult(s -> ventaService.crearVenta(nuevaVenta(usuarioId, presentaciones)));
+        }
+        long nanosEnMemoria = System.nanoTime() - inicioEnMemoria;
+
+        System.out.printf("Ventas: %d de %d líneas cada una%n", ventas, lineas);
+        System.out.printf("Recálculo y recarga:   %.0f ventas/s%n", ventas / (nanosRecalculo / 1e9));
+        System.out.printf("Totales en memoria:    %.0f ventas/s%n", ventas / (nanosEnMemoria / 1e9));
+    }
+
+    /**
+     * Camino anterior: después de crear la venta se recalculan los totales desde la base de datos y se recarga
+     */
+    private Venta crearConRecalculo(Venta venta) {
+        Venta ventaGuardada = ventaService.crearVenta(venta);
+        ventaRepository.flush();
+        ventaService.recalcularTotalesVenta(ventaGuardada.getId());
+        return ventaRepository.findById(ventaGuardada.getId())
+                .orElseThrow(() -> new RuntimeException("Error al recargar la venta después de guardar"));
+    }
+
+    private Venta nuevaVenta(Long usuarioId, List<Presentacion> presentaciones) {
+        Venta venta = new Venta();
+        venta.setUsuarioId(usuarioId);
+        venta.setFechaVenta(LocalDateTime.now());
+        venta.setMetodoPago("EFECTIVO");
+        venta.setSubtotal(new BigDecimal("1.00"));
+        venta.setTotal(new BigDecimal("1.00"));
+        List<DetalleVenta> detalles = new ArrayList<>();
+        for (Presentacion presentacion : presentaciones) {
+            DetalleVenta detalle = new DetalleVenta();
+            detalle.setProductoId(presentacion.getProducto().getId());
+            detalle.setPresentacionId(presentacion.getId());
+            detalle.setCantidad(1);
+            detalle.setPrecioUnitario(new BigDecimal("120.00"));
+            detalles.add(detalle);
+        }
+        venta.setDetallesVenta(detalles);
+        return venta;
+    }
+
+    private List<Presentacion> crearPresentaciones(int cantidad, int stock) {
+        Categoria categoria = new Categoria();
+        categoria.setNombre("Running benchmark");
+        categoria = categoriaRepository.save(categoria);
+        Marca marca = new Marca();
+        marca.setNombre("Nike benchmark");
+        marca = marcaRepository.save(marca);
+
+        List<Presentacion> presentaciones = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            Producto producto = new Producto();
+            producto.setNombre("Air Max " + i);
+            producto.setCodigoProducto("BENCH-" + i);
+            producto.setCategoria(categoria);
+            producto.setMarca(marca);
+            producto.setPrecioCompra(new BigDecimal("80.00"));
+            producto.setPrecioVenta(new BigDecimal("120.00"));
+            producto = productoRepository.save(producto);
+
+            Presentacion presentacion = new Presentacion();
+            presentacion.setProducto(producto);
+            presentacion.setTalla("42");
+            presentacion.setColor("Negro");
+            presentacion.setStockDisponible(stock);
+            presentaciones.add(presentacionRepository.save(presentacion));
+        }
+        return presentaciones;
+    }
+}
@@ -0,0 +1,125 @@
+package com.proyectoavanzada.backend.benchmark;
+
+import com.proyectoavanzada.backend.dto.ConsultaCuboVentas;
+import com.proyectoavanzada.backend.service.CuboVentas;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark del cubo de ventas con líneas sintéticas: tiempo de carga, memoria de las columnas y tiempo por
+ * consulta recorriendo los segmentos con todos los núcleos contra un solo hilo.
+ * Las consultas cubren agrupaciones densas (pocos grupos, en arreglos) y dispersas (muchos grupos, en un mapa).
+ *
+ * No se ejecuta con mvn test (no termina en Test); ejecutar con (10 millones de líneas ocupan unos 280 MB):
+ * mvn test -Dtest=CuboVentasBenchmark -Dbenchmark.lineas=10000000 -DargLine=-Xmx2g
+ */
+class CuboVentasBenchmark {
+
+    private static final String[] CATEGORIAS = {"Running", "Básquetbol", "Casual", "Skate", "Trail", "Fútbol",
+        "Tenis", "Sandalias"};
+    private static final String[] MARCAS = {"Nike", "Adidas", "Puma", "Vans", "Converse", "New Balance", "Asics",
+        "Hoka", "Reebok", "Fila", "Skechers", "Salomon"};
+    private static final String[] GENEROS = {"Masculino", "Femenino", "Unisex"};
+    private static final String[] TALLAS = {"34", "35", "36", "37", "38", "39", "40", "41", "42", "43", "44", "45",
+        "46", "47", "48"};
+    private static final String[] COLORES = {"Negro", "Blanco", "Rojo", "Azul", "Gris", "Verde", "Rosa", "Amarillo",
+        "Marrón", "Naranja", "Morado", "Beige"};
+    private static final String[] METODOS_PAGO = {"EFECTIVO", "TARJETA", "TRANSFERENCIA", "BILLETERA_DIGITAL"};
+    private static final int VENDEDORES = 40;
+    private static final int DIAS = 3 * 365;
+    private static final LocalDate PRIMER_DIA = LocalDate.of(2022, 1, 1);
+
+    private static final List<ConsultaCuboVentas> CONSULTAS = List.of(
+        new ConsultaCuboVentas(List.of(CuboVentas.MES, CuboVentas.CATEGORIA), null, null, Map.of(), 100),
+        new ConsultaCuboVentas(List.of(CuboVentas.MARCA, CuboVentas.METODO_PAGO),
+            PRIMER_DIA.plusDays(DIAS - 90), null, Map.of(CuboVentas.GENERO, Set.of("Femenino")), 100),
+        new ConsultaCuboVentas(List.of(CuboVentas.DIA, CuboVentas.VENDEDOR),
+            PRIMER_DIA.plusYears(1), PRIMER_DIA.plusYears(2).minusDays(1), Map.of(), 100),
+        new ConsultaCuboVentas(List.of(CuboVentas.SEMANA, CuboVentas.TALLA, CuboVentas.COLOR, CuboVentas.VENDEDOR),
+            null, null, Map.of(CuboVentas.CATEGORIA, Set.of("Running", "Trail")), 100),
+        new ConsultaCuboVentas(List.of(), null, null,
+            Map.of(CuboVentas.TALLA, Set.of("42"), CuboVentas.COLOR, Set.of("Negro", "Blanco")), 100));
+
+    @Test
+    void compararRecorridoParaleloContraUnHilo() {
+        int cantidadLineas = Integer.getInteger("benchmark.lineas", 2_000_000);
+        int iteraciones = Integer.getInteger("benchmark.iteraciones", 20);
+        int hilos = Integer.getInteger("benchmark.hilos", Runtime.getRuntime().availableProcessors());
+
+        CuboVentas cubo = new CuboVentas();
+        long inicioCarga = System.nanoTime();
+        cubo.reemplazar(cargador -> generarLineas(cargador, cantidadLineas));
+        long cargaMs = (System.nanoTime() - inicioCarga) / 1_000_000;
+        Map<String, Object> estado = cubo.estado();
+
+        ForkJoinPool unHilo = new ForkJoinPool(1);
+        ForkJoinPool paralelo = new ForkJoinPool(hilos);
+        try {
+            System.out.printf("Líneas: %d, carga: %d ms, columnas: %d MB, hilos: %d%n", cantidadLineas, cargaMs,
+                (Long) estado.get("bytes") / (1024 * 1024), hilos);
+            for (int c = 0; c < CONSULTAS.size(); c++) {
+                ConsultaCuboVentas consulta = CONSULTAS.get(c);
+                ReflectionTestUtils.setField(cubo, "pool", unHilo);
+                double msUnHilo = medir(cubo, consulta, iteraciones);
+                ReflectionTestUtils.setField(cubo, "pool", paralelo);
+                double msParalelo = medir(cubo, consulta, iteraciones);
+                var resultado = cubo.consultar(consulta);
+                System.out.printf("Consulta %d %s: %d grupos, %d líneas seleccionadas | 1 hilo: %.1f ms | %d hilos: %.1f ms%n",
+                    c + 1, consulta.agrupaciones(), resultado.grupos(), resultado.lineasSeleccionadas(),
+                    msUnHilo, hilos, msParalelo);
+            }
+        } finally {
+            unHilo.shutdown();
+            paralelo.shutdown();
+        }
+    }
+
+    private static double medir(CuboVentas cubo, ConsultaCuboVentas consulta, int iteraciones) {
+        // Calentamiento para que el JIT compile los bucles del recorrido
+        long control = 0;
+        for (int i = 0; i < Math.max(3, iteraciones / 4); i++) {
+            control += cubo.consultar(consulta).grupos();
+        }
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteraciones; i++) {
+            control += cubo.consultar(consulta).grupos();
+        }
+        long nanos = System.nanoTime() - inicio;
+        if (control < 0) {
+            System.out.println(control);
+        }
+        return nanos / 1_000_000.0 / iteraciones;
+    }
+
+    private static void generarLineas(CuboVentas.Cargador cargador, int cantidad) {
+        Random aleatorio = new Random(42);
+        LocalDate[] fechas = new LocalDate[DIAS];
+        for (int i = 0; i < DIAS; i++) {
+            fechas[i] = PRIMER_DIA.plusDays(i);
+        }
+        for (int v = 1; v <= VENDEDORES; v++) {
+            cargador.nombrarVendedor(String.valueOf(v), "Vendedor " + v);
+        }
+        String[] valores = new String[CuboVentas.DIMENSIONES.size()];
+        for (int i = 0; i < cantidad; i++) {
+            valores[0] = CATEGORIAS[aleatorio.nextInt(CATEGORIAS.length)];
+            valores[1] = MARCAS[aleatorio.nextInt(MARCAS.length)];
+            valores[2] = GENEROS[aleatorio.nextInt(GENEROS.length)];
+            valores[3] = TALLAS[aleatorio.nextInt(TALLAS.length)];
+            valores[4] = COLORES[aleatorio.nextInt(COLORES.length)];
+            valores[5] = METODOS_PAGO[aleatorio.nextInt(METODOS_PAGO.length)];
+            valores[6] = String.valueOf(aleatorio.nextInt(VENDEDORES) + 1);
+            int cantidadLinea = aleatorio.nextInt(3) + 1;
+            // Las líneas llegan en orden de venta, así que las fechas avanzan con el número de línea
+            cargador.agregar(fechas[(int) ((long) i * DIAS / cantidad)], valores, cantidadLinea,
+                cantidadLinea * (5_000L + aleatorio.nextInt(20_000)));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.proyectoavanzada.backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.proyectoavanzada.backend.dto.ProductoResumen;
+import com.proyectoavanzada.backend.model.Categoria;
+import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.model.Producto;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark de memoria asignada por producto al armar un listado del catálogo.
+ * Compara el camino anterior (entidad Producto con su Categoria y Marca, copiada a un HashMap por producto)
+ * contra el resumen inmutable que llena la proyección JPQL, incluyendo en ambos la serialización a JSON.
+ * Los bytes se miden con el contador de asignaciones del hilo actual de la JVM.
+ *
+ * No se ejecuta con mvn test (no termina en Test); ejecutar con:
+ * mvn test -Dtest=ProductoResumenBenchmark -Dbenchmark.productos=20000
+ */
+class ProductoResumenBenchmark {
+
+    private static final LocalDateTime FECHA = LocalDateTime.of(2024, 1, 15, 10, 30);
+
+    @Test
+    void compararBytesAsignadosPorProducto() throws Exception {
+        int cantidadProductos = Integer.getInteger("benchmark.productos", 20_000);
+        int iteraciones = Integer.getInteger("benchmark.iteraciones", 20);
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hiloId = Thread.currentThread().getId();
+
+        // Calentamiento para que el JIT compile ambos caminos
+        for (int i = 0; i < iteraciones; i++) {
+            listadoConMapas(objectMapper, cantidadProductos);
+            listadoConResumen(objectMapper, cantidadProductos);
+        }
+
+        long bytesMapas = 0;
+        long nanosMapas = 0;
+        long bytesResumen = 0;
+        long nanosResumen = 0;
+        for (int i = 0; i < iteraciones; i++) {
+            long bytesInicio = hilos.getThreadAllocatedBytes(hiloId);
+            long inicio = System.nanoTime();
+            listadoConMapas(objectMapper, cantidadProductos);
+            nanosMapas += System.nanoTime() - inicio;
+            bytesMapas += hilos.getThreadAllocatedBytes(hiloId) - bytesInicio;
+
+            bytesInicio = hilos.getThreadAllocatedBytes(hiloId);
+            inicio = System.nanoTime();
+            listadoConResumen(objectMapper, cantidadProductos);
+            nanosResumen += System.nanoTime() - inicio;
+            bytesResumen += hilos.getThreadAllocatedBytes(hiloId) - bytesInicio;
+        }
+
+        long productosTotales = (long) cantidadProductos * iteraciones;
+        System.out.printf("Productos por listado: %d, iteraciones: %d%n", cantidadProductos, iteraciones);
+        System.out.printf("Entidad + HashMap:  %d bytes por producto, %.2f µs por producto%n",
+            bytesMapas / productosTotales, nanosMapas / 1000.0 / productosTotales);
+        System.out.printf("ProductoResumen:    %d bytes por producto, %.2f µs por producto%n",
+            bytesResumen / productosTotales, nanosResumen / 1000.0 / productosTotales);
+    }
+
+    /**
+     * Camino anterior: hidratar la entidad con su categoría y marca y copiarla a un mapa por producto
+     */
+    private static int listadoConMapas(ObjectMapper objectMapper, int cantidad) throws Exception {
+        List<Map<String, Object>> productos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            productos.add(convertirProductoAMapa(crearProducto(i), i % 50));
+        }
+        return objectMapper.writeValueAsBytes(productos).length;
+    }
+
+    /**
+     * Camino actual: el resumen de la proyección y una copia con el stock
+     */
+    private static int listadoConResumen(ObjectMapper objectMapper, int cantidad) throws Exception {
+        List<ProductoResumen> productos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            productos.add(crearResumen(i).conStock(i % 50));
+        }
+        return objectMapper.writeValueAsBytes(productos).length;
+    }
+
+    private static Producto crearProducto(int i) {
+        Categoria categoria = new Categoria();
+        categoria.setId((long) (i % 5) + 1);
+        categoria.setNombre("Running");
+        Marca marca = new Marca();
+        marca.setId((long) (i % 8) + 1);
+        marca.setNombre("Nike");
+
+        Producto producto = new Producto();
+        producto.setId((long) i + 1);
+        producto.setNombre("Pegasus " + i);
+        producto.setDescripcion("Tenis de running con amortiguación reactiva");
+        producto.setCodigoProducto("RUNNIK" + i);
+        producto.setCategoria(categoria);
+        producto.setMarca(marca);
+        producto.setPrecioVenta(new BigDecimal("129.99"));
+        producto.setPrecioCompra(new BigDecimal("80.00"));
+        producto.setImagenPrincipal("https://cdn.example.com/p/" + i + ".jpg");
+        producto.setGenero("Unisex");
+        producto.setEdadTarget("Adulto");
+        producto.setMaterialPrincipal("Malla");
+        producto.setTipoSuela("Goma");
+        producto.setTecnologia("React");
+        producto.setPesoGramos(280);
+        producto.setGarantiaMeses(6);
+        producto.setFechaCreacion(FECHA);
+        producto.setFechaActualizacion(FECHA);
+        return producto;
+    }
+
+    private static ProductoResumen crearResumen(int i) {
+        return new ProductoResumen((long) i + 1, "Pegasus " + i, "Tenis de running con amortiguación reactiva",
+            "RUNNIK" + i, new BigDecimal("129.99"), new BigDecimal("80.00"), "https://cdn.example.com/p/" + i + ".jpg",
+            null, "Unisex", "Adulto", "Malla", "Goma", "React", 280, 6, 5, false, true, BigDecimal.ZERO, true,
+            FECHA, FECHA, (long) (i % 5) + 1, "Running", (long) (i % 8) + 1, "Nike");
+    }
+
+    /**
+     * Copia del mapeo que hacía ProductoController antes de usar ProductoResumen
+     */
+    private static Map<String, Object> convertirProductoAMapa(Producto producto, Integer stock) {
+        Map<String, Object> productoMap = new HashMap<>();
+        productoMap.put("id", producto.getId());
+        productoMap.put("nombre", producto.getNombre());
+        productoMap.put("descripcion", producto.getDescripcion());
+        productoMap.put("codigoProducto", producto.getCodigoProducto());
+        productoMap.put("categoriaId", producto.getCategoriaId());
+        productoMap.put("marcaId", producto.getMarcaId());
+        productoMap.put("precioVenta", producto.getPrecioVenta());
+        productoMap.put("precioCompra", producto.getPrecioCompra());
+        productoMap.put("imagenPrincipal", producto.getImagenPrincipal());
+        productoMap.put("imagenesAdicionales", producto.getImagenesAdicionales());
+        productoMap.put("genero", producto.getGenero());
+        productoMap.put("edadTarget", producto.getEdadTarget());
+        productoMap.put("materialPrincipal", producto.getMaterialPrincipal());
+        productoMap.put("tipoSuela", producto.getTipoSuela());
+        productoMap.put("tecnologia", producto.getTecnologia());
+        productoMap.put("pesoGramos", producto.getPesoGramos());
+        productoMap.put("garantiaMeses", producto.getGarantiaMeses());
+        productoMap.put("stockMinimo", producto.getStockMinimo());
+        productoMap.put("esDestacado", producto.getEsDestacado());
+        productoMap.put("esNuevo", producto.getEsNuevo());
+        productoMap.put("descuentoPorcentaje", producto.getDescuentoPorcentaje());
+        productoMap.put("activo", producto.getActivo());
+        productoMap.put("fechaCreacion", producto.getFechaCreacion());
+        productoMap.put("fechaActualizacion", producto.getFechaActualizacion());
+        productoMap.put("stock", stock);
+        Map<String, Object> categoriaMap = new HashMap<>();
+        categoriaMap.put("id", producto.getCategoria().getId());
+        categoriaMap.put("nombre", producto.getCategoria().getNombre());
+        productoMap.put("categoria", categoriaMap);
+        Map<String, Object> marcaMap = new HashMap<>();
+        marcaMap.put("id", producto.getMarca().getId());
+        marcaMap.put("nombre", producto.getMarca().getNombre());
+        productoMap.put("marca", marcaMap);
+        return productoMap;
+    }
+}
@@ -0,0 +1,258 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.jayway.jsonpath.JsonPath;
+import com.proyectoavanzada.backend.config.TestSecurityConfig;
+import com.proyectoavanzada.backend.model.Reporte;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.repository.ReporteRepository;
+import com.proyectoavanzada.backend.service.AlmacenReportesService;
+import com.proyectoavanzada.backend.service.AlmacenReportesService.ArchivoReporte;
+import com.proyectoavanzada.backend.service.ReporteService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Prueba del almacén de resultados de reportes: archivos comprimidos nombrados por su hash, verificación
+ * al leer, descarga completa y por rangos, resultados enviados al crear o actualizar un reporte y migración
+ * de los resultados que quedaron en la tabla.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:almacenreportes;DB_CLOSE_DELAY=-1",
+    "reportes.almacen.directorio=${java.io.tmpdir}/proyecto-avanzada-almacen-prueba"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, DatosPruebaVentas.class})
+class AlmacenReportesIntegrationTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AlmacenReportesService almacenReportesService;
+
+    @Autowired
+    private ReporteService reporteService;
+
+    @Autowired
+    private ReporteRepository reporteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        // La columna resultados de las bases creadas antes del almacén
+        jdbcTemplate.execute("ALTER TABLE reportes ADD COLUMN IF NOT EXISTS resultados CLOB");
+        int n = SECUENCIA.incrementAndGet();
+        usuario = datos.crearUsuario("Ana", "ana" + n + "@almacen.example.com");
+    }
+
+    @Test
+    void testElMismoContenidoSeGuardaUnaVezYSeVerificaAlLeer() throws Exception {
+        // Given
+        String json = "{\"prueba\":\"" + UUID.randomUUID() + "\"}";
+
+        // When
+        ArchivoReporte primero = almacenReportesService.guardar(json);
+        ArchivoReporte segundo = almacenReportesService.guardar(json);
+
+        // Then
+        assertEquals(primero.url(), segundo.url());
+        assertEquals(AlmacenReportesService.PREFIJO_URL + primero.hash() + AlmacenReportesService.EXTENSION,
+            primero.url());
+        assertEquals(Files.size(primero.ruta()), primero.tamano());
+        assertEquals(json, almacenReportesService.leer(primero.url()));
+
+        // Un archivo con otro contenido bajo el mismo nombre se detecta al leerlo
+        try (OutputStream salida = new GZIPOutputStream(Files.newOutputStream(primero.ruta()))) {
+            salida.write("{\"prueba\":\"alterado\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        assertThrows(IllegalStateException.class, () -> almacenReportesService.leer(primero.url()));
+        assertThrows(IllegalArgumentException.class,
+            () -> almacenReportesService.abrir(AlmacenReportesService.PREFIJO_URL + "../../etc/passwd"));
+    }
+
+    @Test
+    void testDescargaCompletaPorRangoYDescomprimida() throws Exception {
+        // Given
+        Reporte reporte = reporteService.generarReporteInventario(usuario, List.of("MARCA"));
+        ArchivoReporte archivo = reporteService.obtenerArchivo(reporte.getId()).orElseThrow();
+        byte[] comprimido = Files.readAllBytes(archivo.ruta());
+        String etag = "\"" + archivo.hash() + "\"";
+
+        // When - archivo completo
+        MvcResult completo = mockMvc.perform(get("/api/reportes/{id}/archivo", reporte.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().contentType("application/gzip"))
+                .andReturn();
+
+        // Then
+        assertArrayEquals(comprimido, completo.getResponse().getContentAsByteArray());
+        assertEquals(reporte.getResultados(), descomprimir(completo.getResponse().getContentAsByteArray()));
+
+        // Un rango de bytes
+        MvcResult parcial = mockMvc.perform(get("/api/reportes/{id}/archivo", reporte.getId())
+                        .header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + comprimido.length))
+                .andReturn();
+        assertArrayEquals(Arrays.copyOfRange(comprimido, 10, 20), parcial.getResponse().getContentAsByteArray());
+
+        // Rango fuera del archivo y contenido ya descargado
+        mockMvc.perform(get("/api/reportes/{id}/archivo", reporte.getId())
+                        .header(HttpHeaders.RANGE, "bytes=" + comprimido.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + comprimido.length));
+        mockMvc.perform(get("/api/reportes/{id}/archivo", reporte.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // JSON: comprimido si el cliente acepta gzip, descomprimido si no
+        MvcResult conGzip = mockMvc.perform(get("/api/reportes/{id}/resultados", reporte.getId())
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        assertArrayEquals(comprimido, conGzip.getResponse().getContentAsByteArray());
+        mockMvc.perform(get("/api/reportes/{id}/resultados", reporte.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().json(reporte.getResultados()));
+
+        // Los listados no traen los resultados
+        assertNull(reporteRepository.findById(reporte.getId()).orElseThrow().getResultados());
+    }
+
+    @Test
+    void testResultadosLegadosSeMigranEnLoteYAlDescargar() {
+        // Given - dos reportes con los resultados todavía en la columna
+        Long enLote = crearReporteLegado("{\"legado\":\"lote\"}");
+        Long alDescargar = crearReporteLegado("{\"legado\":\"descarga\"}");
+
+        // When - se migra uno en lote y el otro al pedir sus resultados
+        int migrados = reporteService.migrarResultadosLegados(1);
+        String resultados = reporteService.obtenerResultados(alDescargar).orElseThrow();
+
+        // Then
+        assertEquals(1, migrados);
+        assertEquals("{\"legado\":\"descarga\"}", resultados);
+        assertEquals("{\"legado\":\"lote\"}", reporteService.obtenerResultados(enLote).orElseThrow());
+        for (Long id : List.of(enLote, alDescargar)) {
+            Reporte reporte = reporteRepository.findById(id).orElseThrow();
+            assertTrue(reporte.getArchivoUrl().startsWith(AlmacenReportesService.PREFIJO_URL));
+            assertNull(jdbcTemplate.queryForObject("SELECT resultados FROM reportes WHERE id = ?", String.class, id));
+        }
+        assertEquals(0, reporteService.migrarResultadosLegados(100));
+    }
+
+    @Test
+    void testCrearReporteConResultadosLosGuardaEnElAlmacen() throws Exception {
+        // When
+        MvcResult creado = mockMvc.perform(post("/api/reportes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(reporte("Reporte manual", "{\\\"total\\\":10}")))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        // Then
+        Long id = idCreado(creado);
+        Reporte reporte = reporteRepository.findById(id).orElseThrow();
+        assertTrue(reporte.getArchivoUrl().startsWith(AlmacenReportesService.PREFIJO_URL));
+        assertNotNull(reporte.getTamañoArchivo());
+        assertEquals("{\"total\":10}", reporteService.obtenerResultados(id).orElseThrow());
+    }
+
+    @Test
+    void testActualizarReporteSinResultadosConservaElArchivo() throws Exception {
+        // Given
+        Long id = idCreado(mockMvc.perform(post("/api/reportes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(reporte("Reporte manual", "{\\\"total\\\":10}")))
+                .andExpect(status().isCreated())
+                .andReturn());
+        Reporte original = reporteRepository.findById(id).orElseThrow();
+
+        // When - el cuerpo no trae resultados ni archivoUrl
+        mockMvc.perform(put("/api/reportes/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(reporte("Reporte manual revisado", null)))
+                .andExpect(status().isOk());
+
+        // Then
+        Reporte actualizado = reporteRepository.findById(id).orElseThrow();
+        assertEquals("Reporte manual revisado", actualizado.getNombre());
+        assertEquals(original.getArchivoUrl(), actualizado.getArchivoUrl());
+        assertEquals(original.getTamañoArchivo(), actualizado.getTamañoArchivo());
+        assertEquals("{\"total\":10}", reporteService.obtenerResultados(id).orElseThrow());
+
+        // Con resultados nuevos se reemplaza el archivo
+        mockMvc.perform(put("/api/reportes/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(reporte("Reporte manual revisado", "{\\\"total\\\":12}")))
+                .andExpect(status().isOk());
+        assertNotEquals(original.getArchivoUrl(), reporteRepository.findById(id).orElseThrow().getArchivoUrl());
+        assertEquals("{\"total\":12}", reporteService.obtenerResultados(id).orElseThrow());
+    }
+
+    private String reporte(String nombre, String resultados) {
+        return "{\"nombre\":\"" + nombre + "\",\"tipoReporte\":\"VENTAS\",\"formato\":\"JSON\""
+                + ",\"usuario\":{\"id\":" + usuario.getId() + "}"
+                + (resultados != null ? ",\"resultados\":\"" + resultados + "\"" : "") + "}";
+    }
+
+    private static Long idCreado(MvcResult resultado) throws Exception {
+        Number id = JsonPath.read(resultado.getResponse().getContentAsString(), "$.data.id");
+        return id.longValue();
+    }
+
+    private Long crearReporteLegado(String resultados) {
+        Reporte reporte = new Reporte("Reporte anterior al almacén", "INVENTARIO", usuario);
+        reporte.setFormato("JSON");
+        Long id = reporteService.guardarReporte(reporte).getId();
+        jdbcTemplate.update("UPDATE reportes SET resultados = ? WHERE id = ?", resultados, id);
+        return id;
+    }
+
+    private static String descomprimir(byte[] comprimido) throws Exception {
+        try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(comprimido))) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.dto.ResultadoCambioEstado;
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Presentacion;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.model.Venta;
+import com.proyectoavanzada.backend.service.VentaService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de los cambios de estado en lote: tabla de transiciones, resultado por venta
+ * y stock devuelto o tomado una vez por presentación.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+@Transactional
+class CambioEstadoVentasIntegrationTest {
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Usuario usuario;
+    private Producto producto;
+    private Presentacion talla41;
+    private Presentacion talla42;
+
+    @BeforeEach
+    void setUp() {
+        usuario = datos.crearUsuario("Cajero", "cierre@example.com");
+        producto = datos.crearProducto("Air Max", "CIERRE-1", "Running", "Nike");
+        talla41 = datos.crearPresentacion(producto, "41", 10);
+        talla42 = datos.crearPresentacion(producto, "42", 10);
+        entityManager.flush();
+    }
+
+    @Test
+    void testCancelarVariasVentasDevuelveElStockAgrupado() {
+        // Given - tres ventas que toman 2 + 3 unidades de la 41 y 1 de la 42
+        Long venta1 = crearVenta(talla41, 2);
+        Long venta2 = crearVenta(talla41, 3);
+        Long venta3 = crearVenta(talla42, 1);
+        assertEquals(5, stock(talla41));
+        assertEquals(9, stock(talla42));
+
+        // When
+        ResultadoCambioEstado resultado = ventaService.cambiarEstadoVentas(
+            List.of(venta1, venta2, venta3, venta1, 999999L), "cancelada");
+
+        // Then
+        assertEquals("CANCELADA", resultado.estado());
+        assertEquals(4, resultado.solicitadas());
+        assertEquals(3, resultado.aplicadas());
+        assertEquals(1, resultado.rechazadas());
+        assertEquals("Venta no encontrada", resultado.resultados().get(3).mensaje());
+        assertEquals(10, stock(talla41));
+        assertEquals(10, stock(talla42));
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals("CANCELADA", entityManager.find(Venta.class, venta2).getEstado());
+    }
+
+    @Test
+    void testTransicionesNoPermitidasNoSeAplicanYRepetirNoMueveStock() {
+        // Given
+        Long devuelta = crearVenta(talla41, 1);
+        Long cancelada = crearVenta(talla41, 2);
+        ventaService.cambiarEstadoVentas(List.of(devuelta), "DEVUELTA");
+        ventaService.cambiarEstadoVentas(List.of(cancelada), "CANCELADA");
+        assertEquals(10, stock(talla41));
+
+        // When
+        ResultadoCambioEstado resultado = ventaService.cambiarEstadoVentas(List.of(devuelta, cancelada), "CANCELADA");
+
+        // Then - la devuelta no puede cancelarse y la cancelada queda igual, sin devolver stock otra vez
+        assertEquals(0, resultado.aplicadas());
+        assertEquals(1, resultado.sinCambios());
+        assertEquals(1, resultado.rechazadas());
+        assertEquals("No se puede pasar una venta DEVUELTA a CANCELADA", resultado.resultados().get(0).mensaje());
+        assertEquals(10, stock(talla41));
+    }
+
+    @Test
+    void testCompletarOtraVezUnaCanceladaVuelveATomarSuStock() {
+        // Given
+        Long venta = crearVenta(talla42, 4);
+        ventaService.cambiarEstadoVentas(List.of(venta), "CANCELADA");
+        assertEquals(10, stock(talla42));
+
+        // When
+        ResultadoCambioEstado resultado = ventaService.cambiarEstadoVentas(List.of(venta), "COMPLETADA");
+
+        // Then
+        assertEquals(1, resultado.aplicadas());
+        assertEquals("CANCELADA", resultado.resultados().get(0).estadoAnterior());
+        assertEquals(6, stock(talla42));
+    }
+
+    @Test
+    void testCambiosDeUnaVentaSiguenLaMismaTablaDeTransiciones() {
+        // Given
+        Long venta = crearVenta(talla41, 3);
+
+        // When - cancelar dos veces devuelve el stock una sola vez
+        ventaService.marcarComoCancelada(venta);
+        ventaService.marcarComoCancelada(venta);
+        assertEquals(10, stock(talla41));
+        ventaService.marcarComoCompletada(venta);
+        assertEquals(7, stock(talla41));
+        ventaService.marcarComoDevuelta(venta);
+
+        // Then - una venta devuelta ya no vuelve a completarse
+        assertEquals(10, stock(talla41));
+        RuntimeException error = assertThrows(RuntimeException.class, () -> ventaService.marcarComoCompletada(venta));
+        assertEquals("No se puede pasar una venta DEVUELTA a COMPLETADA", error.getMessage());
+        assertEquals(10, stock(talla41));
+        assertThrows(RuntimeException.class, () -> ventaService.marcarComoCancelada(999999L));
+    }
+
+    @Test
+    void testEstadoDesconocidoSeRechaza() {
+        assertThrows(RuntimeException.class, () -> ventaService.cambiarEstadoVentas(List.of(1L), "PERDIDA"));
+        assertThrows(RuntimeException.class, () -> ventaService.cambiarEstadoVentas(List.of(), "CANCELADA"));
+    }
+
+    private Long crearVenta(Presentacion presentacion, int cantidad) {
+        Venta venta = new Venta();
+        Usuario vendedor = new Usuario();
+        vendedor.setId(usuario.getId());
+        venta.setUsuario(vendedor);
+        venta.setFechaVenta(LocalDateTime.now());
+        venta.setMetodoPago("EFECTIVO");
+        venta.setSubtotal(new BigDecimal("1.00"));
+        venta.setTotal(new BigDecimal("1.00"));
+        List<DetalleVenta> detalles = new ArrayList<>();
+        DetalleVenta detalle = new DetalleVenta();
+        detalle.setProductoId(producto.getId());
+        detalle.setPresentacionId(presentacion.getId());
+        detalle.setCantidad(cantidad);
+        detalle.setPrecioUnitario(new BigDecimal("120.00"));
+        detalles.add(detalle);
+        venta.setDetallesVenta(detalles);
+        return ventaService.crearVenta(venta).getId();
+    }
+
+    private int stock(Presentacion presentacion) {
+        entityManager.flush();
+        return jdbcTemplate.queryForObject(
+            "SELECT stock_disponible FROM presentaciones WHERE id = ?", Integer.class, presentacion.getId());
+    }
+}
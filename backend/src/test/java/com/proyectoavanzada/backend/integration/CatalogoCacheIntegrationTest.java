@@ -0,0 +1,107 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.config.TestSecurityConfig;
+import com.proyectoavanzada.backend.model.Categoria;
+import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.service.CategoriaService;
+import com.proyectoavanzada.backend.service.MarcaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Prueba de la caché del catálogo al renombrar categorías y marcas: el listado de productos devuelve
+ * el nombre nuevo con un ETag nuevo, en lugar del resumen cacheado con el nombre anterior.
+ * Sin @Transactional en la clase, porque la caché se vacía al terminar la transacción del cambio.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:catalogocache;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, DatosPruebaVentas.class})
+class CatalogoCacheIntegrationTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoriaService categoriaService;
+
+    @Autowired
+    private MarcaService marcaService;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Categoria categoria;
+    private Marca marca;
+
+    @BeforeEach
+    void setUp() {
+        int n = SECUENCIA.incrementAndGet();
+        categoria = datos.crearCategoria("Running " + n);
+        marca = datos.crearMarca("Nike " + n);
+        datos.crearProducto("Air Max " + n, "CACHE-" + n, categoria, marca,
+            DatosPruebaVentas.PRECIO_COMPRA, DatosPruebaVentas.PRECIO_VENTA);
+    }
+
+    @Test
+    void testRenombrarCategoriaSeVeEnElListadoDeProductos() throws Exception {
+        // Given - el listado queda en la caché con el nombre actual
+        String url = "/api/productos/categoria/" + categoria.getId();
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].categoria.nombre").value(categoria.getNombre()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When
+        Categoria renombrada = categoriaService.obtenerCategoriaPorId(categoria.getId()).orElseThrow();
+        renombrada.setNombre(categoria.getNombre() + " Pro");
+        categoriaService.actualizarCategoria(renombrada);
+
+        // Then - el ETag anterior ya no coincide y el cuerpo trae el nombre nuevo
+        String etagNuevo = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].categoria.nombre").value(categoria.getNombre() + " Pro"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, etagNuevo);
+    }
+
+    @Test
+    void testRenombrarMarcaSeVeEnElListadoDeProductos() throws Exception {
+        // Given
+        String url = "/api/productos/marca/" + marca.getId();
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].marca.nombre").value(marca.getNombre()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/productos/categoria/" + categoria.getId()))
+                .andExpect(jsonPath("$.data[0].marca.nombre").value(marca.getNombre()));
+
+        // When
+        Marca renombrada = marcaService.obtenerMarcaPorId(marca.getId()).orElseThrow();
+        renombrada.setNombre(marca.getNombre() + " Sportswear");
+        marcaService.actualizarMarca(renombrada);
+
+        // Then - también cambia el nombre en el listado por categoría, que estaba cacheado con la marca anterior
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].marca.nombre").value(marca.getNombre() + " Sportswear"));
+        mockMvc.perform(get("/api/productos/categoria/" + categoria.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].marca.nombre").value(marca.getNombre() + " Sportswear"));
+    }
+}
@@ -0,0 +1,235 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.dto.ConsultaCuboVentas;
+import com.proyectoavanzada.backend.dto.ResultadoCuboVentas;
+import com.proyectoavanzada.backend.exception.BusinessException;
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Presentacion;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.model.Venta;
+import com.proyectoavanzada.backend.service.CuboVentas;
+import com.proyectoavanzada.backend.service.VentaService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba del cubo de ventas: agrupaciones por periodo y dimensiones, filtros, comparación con la suma en la
+ * base de datos, ventas nuevas agregadas por la actualización (también las confirmadas fuera de orden)
+ * y cancelaciones reflejadas al recargar.
+ * Todas las consultas filtran por el vendedor de la prueba, porque el cubo también carga las ventas de otras pruebas.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+@Transactional
+class CuboVentasIntegrationTest {
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private CuboVentas cuboVentas;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Usuario usuario;
+    private Presentacion zapatillaMujer;
+    private Presentacion botinHombre;
+
+    @BeforeEach
+    void setUp() {
+        usuario = datos.crearUsuario("Vendedora Cubo", "cubo.ventas@example.com");
+
+        zapatillaMujer = crearPresentacion("Cubo Running", "Cubo Nike", "Femenino", "CUBO-1", "38", "Negro", "100.00");
+        botinHombre = crearPresentacion("Cubo Fútbol", "Cubo Adidas", "Masculino", "CUBO-2", "42", "Blanco", "150.00");
+        entityManager.flush();
+    }
+
+    @Test
+    void testAgruparYFiltrarComoLaBaseDeDatos() {
+        // Given
+        crearVenta(LocalDateTime.of(2019, 3, 4, 10, 0), "EFECTIVO", zapatillaMujer, 2, botinHombre, 1);
+        crearVenta(LocalDateTime.of(2019, 3, 5, 11, 0), "TARJETA", zapatillaMujer, 1, null, 0);
+        crearVenta(LocalDateTime.of(2019, 4, 10, 12, 0), "EFECTIVO", botinHombre, 3, null, 0);
+        Long cancelada = crearVenta(LocalDateTime.of(2019, 4, 11, 12, 0), "TARJETA", zapatillaMujer, 5, null, 0);
+        ventaService.marcarComoCancelada(cancelada);
+        entityManager.flush();
+
+        // When
+        cuboVentas.recargar();
+        ResultadoCuboVentas porMes = consultar(List.of("MES", "categoria"), null, null, Map.of());
+
+        // Then - la venta cancelada no cuenta y los grupos salen ordenados por monto
+        assertEquals(3, porMes.grupos());
+        assertEquals(4, porMes.lineasSeleccionadas());
+        assertFila(porMes.filas().get(0), "2019-04-01", "Cubo Fútbol", 1, 3, "450.00");
+        assertFila(porMes.filas().get(1), "2019-03-01", "Cubo Running", 2, 3, "300.00");
+        assertFila(porMes.filas().get(2), "2019-03-01", "Cubo Fútbol", 1, 1, "150.00");
+        assertEquals(0, totalEnBaseDeDatos().compareTo(monto(consultar(List.of(), null, null, Map.of()))));
+
+        // Filtros sin distinguir mayúsculas, por rango de días y agrupando por talla y color
+        ResultadoCuboVentas filtrado = consultar(List.of(CuboVentas.TALLA, CuboVentas.COLOR),
+            LocalDate.of(2019, 3, 1), LocalDate.of(2019, 3, 31),
+            Map.of(CuboVentas.GENERO, Set.of("femenino"), CuboVentas.METODO_PAGO, Set.of("EFECTIVO")));
+        assertEquals(1, filtrado.grupos());
+        Map<String, Object> fila = filtrado.filas().get(0);
+        assertEquals("38", fila.get(CuboVentas.TALLA));
+        assertEquals("Negro", fila.get(CuboVentas.COLOR));
+        assertEquals(2L, fila.get("unidades"));
+        assertEquals(new BigDecimal("200.00"), fila.get("monto"));
+
+        ResultadoCuboVentas porVendedor = consultar(List.of(CuboVentas.VENDEDOR), null, null, Map.of());
+        assertEquals(usuario.getId(), porVendedor.filas().get(0).get("vendedorId"));
+        assertEquals("Vendedora Cubo", porVendedor.filas().get(0).get(CuboVentas.VENDEDOR));
+        assertEquals(0, consultar(List.of(), null, null, Map.of(CuboVentas.MARCA, Set.of("No existe"))).grupos());
+    }
+
+    @Test
+    void testLasVentasNuevasSeAgreganYLasCanceladasSalenAlRecargar() {
+        // Given
+        Long primera = crearVenta(LocalDateTime.of(2019, 7, 1, 10, 0), "EFECTIVO", zapatillaMujer, 1, null, 0);
+        entityManager.flush();
+        cuboVentas.recargar();
+        assertEquals(new BigDecimal("100.00"), monto(consultar(List.of(), null, null, Map.of())));
+
+        // When - una venta nueva se agrega sin recargar
+        crearVenta(LocalDateTime.of(2019, 7, 2, 10, 0), "TARJETA", botinHombre, 2, null, 0);
+        entityManager.flush();
+        int agregadas = cuboVentas.actualizar();
+
+        // Then
+        assertTrue(agregadas >= 1);
+        ResultadoCuboVentas porDia = consultar(List.of(CuboVentas.DIA), null, null, Map.of());
+        assertEquals(2, porDia.grupos());
+        assertEquals("2019-07-02", porDia.filas().get(0).get(CuboVentas.DIA));
+        assertEquals(new BigDecimal("400.00"), monto(consultar(List.of(), null, null, Map.of())));
+
+        // La cancelación se refleja con la recarga completa
+        ventaService.marcarComoCancelada(primera);
+        entityManager.flush();
+        cuboVentas.recargar();
+        assertEquals(new BigDecimal("300.00"), monto(consultar(List.of(), null, null, Map.of())));
+    }
+
+    @Test
+    void testUnaVentaConfirmadaDespuesDeOtraConIdMayorSeAgrega() {
+        // Given - la primera venta todavía no se ve (como si su transacción no hubiera confirmado)
+        // cuando la actualización carga la segunda, que tiene un id mayor
+        cuboVentas.recargar();
+        Long tardia = crearVenta(LocalDateTime.of(2019, 8, 1, 10, 0), "EFECTIVO", zapatillaMujer, 1, null, 0);
+        crearVenta(LocalDateTime.of(2019, 8, 2, 10, 0), "TARJETA", botinHombre, 1, null, 0);
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE ventas SET activo = FALSE WHERE id = ?", tardia);
+        cuboVentas.actualizar();
+        assertEquals(new BigDecimal("150.00"), monto(consultar(List.of(), null, null, Map.of())));
+
+        // When - la venta se confirma después
+        jdbcTemplate.update("UPDATE ventas SET activo = TRUE WHERE id = ?", tardia);
+        cuboVentas.actualizar();
+
+        // Then - se agrega sin volver a contar la que ya estaba
+        assertEquals(new BigDecimal("250.00"), monto(consultar(List.of(), null, null, Map.of())));
+        assertEquals(0, totalEnBaseDeDatos().compareTo(monto(consultar(List.of(), null, null, Map.of()))));
+    }
+
+    @Test
+    void testConsultasInvalidas() {
+        assertThrows(BusinessException.class, () -> consultar(List.of("provincia"), null, null, Map.of()));
+        assertThrows(BusinessException.class, () -> consultar(List.of("dia", "mes"), null, null, Map.of()));
+        assertThrows(BusinessException.class,
+            () -> consultar(List.of(), LocalDate.of(2019, 2, 1), LocalDate.of(2019, 1, 1), Map.of()));
+        assertThrows(BusinessException.class,
+            () -> cuboVentas.consultar(new ConsultaCuboVentas(List.of(), null, null, Map.of("dia", Set.of("1")), 10)));
+    }
+
+    private ResultadoCuboVentas consultar(List<String> agrupaciones, LocalDate desde, LocalDate hasta,
+                                          Map<String, Set<String>> filtros) {
+        Map<String, Set<String>> conVendedor = new HashMap<>(filtros);
+        conVendedor.put(CuboVentas.VENDEDOR, Set.of(String.valueOf(usuario.getId())));
+        return cuboVentas.consultar(new ConsultaCuboVentas(agrupaciones, desde, hasta, conVendedor, 100));
+    }
+
+    private BigDecimal totalEnBaseDeDatos() {
+        return jdbcTemplate.queryForObject(
+            "SELECT SUM(COALESCE(d.subtotal, d.cantidad * d.precio_unitario)) " +
+            "FROM ventas doc JOIN detalles_venta d ON d.venta_id = doc.id " +
+            "WHERE doc.usuario_id = ? AND (doc.activo IS NULL OR doc.activo = TRUE) " +
+            "AND COALESCE(doc.estado, '') NOT IN ('CANCELADA', 'DEVUELTA')",
+            BigDecimal.class, usuario.getId());
+    }
+
+    private static BigDecimal monto(ResultadoCuboVentas resultado) {
+        return resultado.filas().isEmpty() ? BigDecimal.ZERO : (BigDecimal) resultado.filas().get(0).get("monto");
+    }
+
+    private static void assertFila(Map<String, Object> fila, String mes, String categoria, long lineas,
+                                   long unidades, String monto) {
+        assertEquals(mes, fila.get(CuboVentas.MES));
+        assertEquals(categoria, fila.get(CuboVentas.CATEGORIA));
+        assertEquals(lineas, fila.get("lineas"));
+        assertEquals(unidades, fila.get("unidades"));
+        assertEquals(new BigDecimal(monto), fila.get("monto"));
+    }
+
+    private Presentacion crearPresentacion(String nombreCategoria, String nombreMarca, String genero, String codigo,
+                                           String talla, String color, String precio) {
+        Producto producto = datos.crearProducto(nombreCategoria + " " + nombreMarca, codigo, nombreCategoria,
+            nombreMarca, "50.00", precio);
+        producto.setGenero(genero);
+        return datos.crearPresentacion(producto, talla, color, 100);
+    }
+
+    private Long crearVenta(LocalDateTime fecha, String metodoPago, Presentacion primera, int cantidadPrimera,
+                            Presentacion segunda, int cantidadSegunda) {
+        Venta venta = new Venta();
+        Usuario vendedor = new Usuario();
+        vendedor.setId(usuario.getId());
+        venta.setUsuario(vendedor);
+        venta.setFechaVenta(fecha);
+        venta.setMetodoPago(metodoPago);
+        venta.setSubtotal(new BigDecimal("1.00"));
+        venta.setTotal(new BigDecimal("1.00"));
+        List<DetalleVenta> detalles = new ArrayList<>();
+        detalles.add(crearDetalle(primera, cantidadPrimera));
+        if (segunda != null) {
+            detalles.add(crearDetalle(segunda, cantidadSegunda));
+        }
+        venta.setDetallesVenta(detalles);
+        return ventaService.crearVenta(venta).getId();
+    }
+
+    private static DetalleVenta crearDetalle(Presentacion presentacion, int cantidad) {
+        DetalleVenta detalle = new DetalleVenta();
+        detalle.setProductoId(presentacion.getProducto().getId());
+        detalle.setPresentacionId(presentacion.getId());
+        detalle.setCantidad(cantidad);
+        detalle.setPrecioUnitario(presentacion.getProducto().getPrecioVenta());
+        return detalle;
+    }
+}
@@ -0,0 +1,118 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.model.Categoria;
+import com.proyectoavanzada.backend.model.Inventario;
+import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.model.Presentacion;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.Usuario;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Datos de prueba compartidos por las pruebas de integración de ventas: vendedores, categorías, marcas,
+ * productos, presentaciones e inventario. Se agrega con @Import(DatosPruebaVentas.class).
+ * Cada método se une a la transacción de la prueba si la hay (@Transactional en la clase) y si no confirma
+ * lo que crea, para las pruebas que necesitan los datos visibles desde otros hilos.
+ */
+@TestComponent
+@Transactional
+public class DatosPruebaVentas {
+
+    public static final String PRECIO_COMPRA = "80.00";
+    public static final String PRECIO_VENTA = "120.00";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Vendedor con la contraseña de prueba
+     */
+    public Usuario crearUsuario(String nombre, String email) {
+        Usuario usuario = new Usuario();
+        usuario.setNombre(nombre);
+        usuario.setEmail(email);
+        usuario.setPassword("secreto123");
+        entityManager.persist(usuario);
+        return usuario;
+    }
+
+    public Categoria crearCategoria(String nombre) {
+        Categoria categoria = new Categoria();
+        categoria.setNombre(nombre);
+        entityManager.persist(categoria);
+        return categoria;
+    }
+
+    public Marca crearMarca(String nombre) {
+        Marca marca = new Marca();
+        marca.setNombre(nombre);
+        entityManager.persist(marca);
+        return marca;
+    }
+
+    /**
+     * Producto con su propia categoría y marca, a los precios de prueba
+     */
+    public Producto crearProducto(String nombre, String codigo, String categoria, String marca) {
+        return crearProducto(nombre, codigo, crearCategoria(categoria), crearMarca(marca), PRECIO_COMPRA, PRECIO_VENTA);
+    }
+
+    /**
+     * Producto con su propia categoría y marca
+     */
+    public Producto crearProducto(String nombre, String codigo, String categoria, String marca,
+                                  String precioCompra, String precioVenta) {
+        return crearProducto(nombre, codigo, crearCategoria(categoria), crearMarca(marca), precioCompra, precioVenta);
+    }
+
+    /**
+     * Producto de una categoría y marca ya creadas
+     */
+    public Producto crearProducto(String nombre, String codigo, Categoria categoria, Marca marca,
+                                  String precioCompra, String precioVenta) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setCodigoProducto(codigo);
+        producto.setCategoria(categoria);
+        producto.setMarca(marca);
+        producto.setPrecioCompra(new BigDecimal(precioCompra));
+        producto.setPrecioVenta(new BigDecimal(precioVenta));
+        entityManager.persist(producto);
+        return producto;
+    }
+
+    /**
+     * Presentación en color negro
+     */
+    public Presentacion crearPresentacion(Producto producto, String talla, int stock) {
+        return crearPresentacion(producto, talla, "Negro", stock);
+    }
+
+    public Presentacion crearPresentacion(Producto producto, String talla, String color, int stock) {
+        Presentacion presentacion = new Presentacion();
+        presentacion.setProducto(producto);
+        presentacion.setTalla(talla);
+        presentacion.setColor(color);
+        presentacion.setStockDisponible(stock);
+        entityManager.persist(presentacion);
+        return presentacion;
+    }
+
+    /**
+     * Inventario de un producto sin presentaciones
+     */
+    public Inventario crearInventario(Producto producto, int stock) {
+        Inventario inventario = new Inventario();
+        inventario.setProducto(producto);
+        inventario.setStockActual(stock);
+        inventario.setFechaCreacion(LocalDateTime.now());
+        entityManager.persist(inventario);
+        return inventario;
+    }
+}
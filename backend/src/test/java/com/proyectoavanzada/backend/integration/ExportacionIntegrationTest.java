@@ -0,0 +1,127 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectoavanzada.backend.exception.BusinessException;
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.model.Venta;
+import com.proyectoavanzada.backend.service.ExportacionService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de la exportación por rango de fechas: orden y filtro del rango, escape de CSV,
+ * tipos de NDJSON y compresión gzip.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+@Transactional
+class ExportacionIntegrationTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2024, 3, 31, 23, 59, 59);
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    @BeforeEach
+    void setUp() {
+        Usuario usuario = datos.crearUsuario("Contador", "exportacion@example.com");
+        Producto producto = datos.crearProducto("Air Max, edición \"90\"", "EXP-1", "Running", "Nike");
+
+        // Dos ventas dentro del rango (guardadas en orden inverso) y una fuera
+        crearVenta(usuario, producto, "EXP-V-2", LocalDateTime.of(2024, 3, 20, 10, 0), "B-001, caja 2");
+        crearVenta(usuario, producto, "EXP-V-1", LocalDateTime.of(2024, 3, 5, 9, 30), null);
+        crearVenta(usuario, producto, "EXP-V-0", LocalDateTime.of(2024, 2, 28, 18, 0), null);
+        entityManager.flush();
+    }
+
+    @Test
+    void testCsvSoloIncluyeElRangoEnOrdenYEscapaLosValores() throws Exception {
+        // When
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        exportacionService.exportarVentas(INICIO, FIN, ExportacionService.CSV, false, salida);
+
+        // Then
+        List<String> lineas = salida.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, lineas.size());
+        assertTrue(lineas.get(0).startsWith("id,numeroVenta,fechaVenta,"));
+        assertTrue(lineas.get(1).contains(",EXP-V-1,2024-03-05T09:30,"));
+        assertTrue(lineas.get(2).contains(",EXP-V-2,2024-03-20T10:00,"));
+        assertTrue(lineas.get(2).contains(",\"B-001, caja 2\","));
+        assertTrue(lineas.get(2).contains(",240.00,"));
+    }
+
+    @Test
+    void testDetallesEnNdjsonComprimido() throws Exception {
+        // When
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        exportacionService.exportarDetallesVenta(INICIO, FIN, ExportacionService.NDJSON, true, salida);
+
+        // Then
+        String texto;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(salida.toByteArray()))) {
+            texto = new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lineas = texto.lines().toList();
+        assertEquals(2, lineas.size());
+        JsonNode primera = objectMapper.readTree(lineas.get(0));
+        assertEquals("EXP-V-1", primera.get("numeroVenta").asText());
+        assertEquals("Air Max, edición \"90\"", primera.get("productoNombre").asText());
+        assertTrue(primera.get("cantidad").isIntegralNumber());
+        assertEquals(2, primera.get("cantidad").asInt());
+        assertEquals(0, new BigDecimal("240.00").compareTo(primera.get("subtotal").decimalValue()));
+        assertTrue(primera.get("presentacionId").isNull());
+    }
+
+    @Test
+    void testFormatoYFechaInvalidosSeRechazanAntesDeEscribir() {
+        assertEquals(ExportacionService.NDJSON, exportacionService.validarFormato(" NDJSON "));
+        assertThrows(BusinessException.class, () -> exportacionService.validarFormato("xlsx"));
+        assertThrows(BusinessException.class, () -> exportacionService.parsearFecha("31/03/2024"));
+    }
+
+    private void crearVenta(Usuario usuario, Producto producto, String numero, LocalDateTime fecha, String comprobante) {
+        Venta venta = new Venta();
+        venta.setNumeroVenta(numero);
+        venta.setUsuario(usuario);
+        venta.setFechaVenta(fecha);
+        venta.setMetodoPago("EFECTIVO");
+        venta.setNumeroComprobante(comprobante);
+        venta.setSubtotal(new BigDecimal("240.00"));
+        venta.setTotal(new BigDecimal("240.00"));
+        List<DetalleVenta> detalles = new ArrayList<>();
+        detalles.add(new DetalleVenta(venta, producto, null, 2, new BigDecimal("120.00")));
+        venta.setDetallesVenta(detalles);
+        entityManager.persist(venta);
+    }
+}
@@ -0,0 +1,159 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.config.TestSecurityConfig;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.service.IdempotenciaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Prueba de las claves de idempotencia en POST /api/ventas: un reintento con la misma clave
+ * devuelve la respuesta original sin crear otra venta ni volver a descontar stock.
+ * Sin @Transactional en la clase, porque la clave se guarda al confirmar la transacción de la venta.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:idempotencia;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "logging.level.org.hibernate.SQL=INFO",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, DatosPruebaVentas.class})
+class IdempotenciaIntegrationTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Long usuarioId;
+    private Producto producto;
+
+    @BeforeEach
+    void setUp() {
+        int n = SECUENCIA.incrementAndGet();
+        usuarioId = datos.crearUsuario("Caja " + n, "idempotencia" + n + "@example.com").getId();
+        producto = datos.crearProducto("Air Max " + n, "IDEM-" + n, "Running " + n, "Nike " + n);
+    }
+
+    @Test
+    void testReintentoConLaMismaClaveDevuelveLaVentaOriginal() throws Exception {
+        // Given
+        Long talla = crearPresentacion(10);
+        String clave = UUID.randomUUID().toString();
+        String cuerpo = venta(talla, 2);
+
+        // When
+        MvcResult primera = mockMvc.perform(post("/api/ventas")
+                .header(IdempotenciaService.CABECERA, clave)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuerpo))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn();
+        MvcResult segunda = mockMvc.perform(post("/api/ventas")
+                .header(IdempotenciaService.CABECERA, clave)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuerpo))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn();
+
+        // Then
+        assertEquals(primera.getResponse().getContentAsString(), segunda.getResponse().getContentAsString());
+        assertEquals(8, stock(talla));
+        assertEquals(1, ventasDe(talla));
+    }
+
+    @Test
+    void testMismaClaveConOtroCuerpoSeRechaza() throws Exception {
+        // Given
+        Long talla = crearPresentacion(10);
+        String clave = UUID.randomUUID().toString();
+        mockMvc.perform(post("/api/ventas")
+                .header(IdempotenciaService.CABECERA, clave)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(venta(talla, 1)))
+                .andExpect(status().isCreated());
+
+        // When & Then
+        mockMvc.perform(post("/api/ventas")
+                .header(IdempotenciaService.CABECERA, clave)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(venta(talla, 3)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.success").value(false));
+        assertEquals(9, stock(talla));
+        assertEquals(1, ventasDe(talla));
+    }
+
+    @Test
+    void testUnaVentaFallidaNoGuardaLaClave() throws Exception {
+        // Given - la primera petición pide más stock del que hay
+        Long talla = crearPresentacion(1);
+        String clave = UUID.randomUUID().toString();
+        String cuerpo = venta(talla, 2);
+        mockMvc.perform(post("/api/ventas")
+                .header(IdempotenciaService.CABECERA, clave)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuerpo))
+                .andExpect(status().isBadRequest());
+        jdbcTemplate.update("UPDATE presentaciones SET stock_disponible = 5 WHERE id = ?", talla);
+
+        // When & Then - el reintento con la misma clave se ejecuta de nuevo
+        mockMvc.perform(post("/api/ventas")
+                .header(IdempotenciaService.CABECERA, clave)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuerpo))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        assertEquals(3, stock(talla));
+        assertEquals(1, ventasDe(talla));
+    }
+
+    private String venta(Long presentacionId, int cantidad) {
+        String total = new BigDecimal("120.00").multiply(new BigDecimal(cantidad)).toPlainString();
+        return "{\"usuarioId\":" + usuarioId + ",\"subtotal\":" + total + ",\"total\":" + total
+                + ",\"metodoPago\":\"EFECTIVO\",\"detallesVenta\":[{\"productoId\":" + producto.getId()
+                + ",\"presentacionId\":" + presentacionId + ",\"cantidad\":" + cantidad
+                + ",\"precioUnitario\":120.00}]}";
+    }
+
+    private Long crearPresentacion(int stock) {
+        return datos.crearPresentacion(producto, "42", stock).getId();
+    }
+
+    private int stock(Long presentacionId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT stock_disponible FROM presentaciones WHERE id = ?", Integer.class, presentacionId);
+    }
+
+    private int ventasDe(Long presentacionId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COUNT(DISTINCT venta_id) FROM detalles_venta WHERE presentacion_id = ?", Integer.class, presentacionId);
+    }
+}
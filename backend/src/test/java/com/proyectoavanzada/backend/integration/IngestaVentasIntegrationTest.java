@@ -0,0 +1,164 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.dto.ResultadoIngestaVentas;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.service.IngestaVentasService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de la carga en lote de ventas de los puntos de venta: bloques confirmados en su propia transacción,
+ * stock descontado por bloque y resultado individual por venta cuando un bloque se reprocesa.
+ * Sin @Transactional en la clase, porque cada bloque confirma su propia transacción.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:ingestaventas;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "logging.level.org.hibernate.SQL=INFO",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+    "ventas.ingesta.tamano-bloque=100"
+})
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+class IngestaVentasIntegrationTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    @Autowired
+    private IngestaVentasService ingestaVentasService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Long usuarioId;
+    private Producto producto;
+
+    @BeforeEach
+    void setUp() {
+        int n = SECUENCIA.incrementAndGet();
+        usuarioId = datos.crearUsuario("Caja " + n, "caja" + n + "@example.com").getId();
+        producto = datos.crearProducto("Air Max " + n, "AIRMAX-" + n, "Running " + n, "Nike " + n);
+    }
+
+    @Test
+    void testIngestaGuardaTodasLasVentasYDescuentaElStockPorBloque() {
+        // Given - 1000 ventas de una unidad repartidas entre dos tallas, en 10 bloques
+        Long talla41 = crearPresentacion("41", 600);
+        Long talla42 = crearPresentacion("42", 600);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(venta(null, i % 2 == 0 ? talla41 : talla42, 1));
+        }
+        json.append(']');
+
+        // When
+        ResultadoIngestaVentas resultado = ingerir(json.toString());
+
+        // Then
+        assertNull(resultado.errorLectura());
+        assertEquals(1000, resultado.recibidas());
+        assertEquals(1000, resultado.creadas());
+        assertEquals(0, resultado.rechazadas());
+        Set<String> numeros = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            ResultadoIngestaVentas.Linea linea = resultado.resultados().get(i);
+            assertEquals(i, linea.indice());
+            assertTrue(linea.exito());
+            assertNotNull(linea.ventaId());
+            assertTrue(numeros.add(linea.numeroVenta()));
+        }
+        assertEquals(100, stock(talla41));
+        assertEquals(100, stock(talla42));
+        assertEquals(1000, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM detalles_venta WHERE presentacion_id IN (?, ?)", Integer.class, talla41, talla42));
+    }
+
+    @Test
+    void testUnaVentaSinStockNoRechazaAlRestoDelBloque() {
+        // Given - la tercera venta pide más unidades de las que quedan
+        Long talla = crearPresentacion("42", 5);
+        String json = "[" + venta(null, talla, 2) + "," + venta(null, talla, 2) + "," + venta(null, talla, 3) + ","
+                + venta(null, talla, 1) + "]";
+
+        // When
+        ResultadoIngestaVentas resultado = ingerir(json);
+
+        // Then
+        assertEquals(3, resultado.creadas());
+        assertEquals(1, resultado.rechazadas());
+        ResultadoIngestaVentas.Linea rechazada = resultado.resultados().get(2);
+        assertFalse(rechazada.exito());
+        assertEquals("Stock insuficiente para la presentación con ID: " + talla, rechazada.mensaje());
+        assertEquals(0, stock(talla));
+        assertEquals(3, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM detalles_venta WHERE presentacion_id = ?", Integer.class, talla));
+    }
+
+    @Test
+    void testReferenciasInvalidasYCuerpoCortadoConservanLoYaLeido() {
+        // Given - un producto inexistente, un número repetido y un cuerpo que se corta después de la cuarta venta
+        Long talla = crearPresentacion("42", 10);
+        String numero = "POS-" + SECUENCIA.get();
+        String json = "[" + venta(numero, talla, 1) + "," + venta(numero, talla, 1) + ","
+                + venta(null, talla, 1).replace("\"productoId\":" + producto.getId(), "\"productoId\":999999") + ","
+                + venta(null, talla, 1) + ",{\"usuarioId\":";
+
+        // When
+        ResultadoIngestaVentas resultado = ingerir(json);
+
+        // Then
+        assertNotNull(resultado.errorLectura());
+        assertEquals(4, resultado.recibidas());
+        assertEquals(2, resultado.creadas());
+        List<ResultadoIngestaVentas.Linea> lineas = resultado.resultados();
+        assertTrue(lineas.get(0).exito());
+        assertEquals(numero, lineas.get(0).numeroVenta());
+        assertEquals("Ya existe una venta con este número", lineas.get(1).mensaje());
+        assertEquals("Producto no encontrado con ID: 999999", lineas.get(2).mensaje());
+        assertTrue(lineas.get(3).exito());
+        assertEquals(8, stock(talla));
+    }
+
+    private ResultadoIngestaVentas ingerir(String json) {
+        return ingestaVentasService.ingerirVentas(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String venta(String numeroVenta, Long presentacionId, int cantidad) {
+        String total = new BigDecimal("120.00").multiply(new BigDecimal(cantidad)).toPlainString();
+        return "{" + (numeroVenta != null ? "\"numeroVenta\":\"" + numeroVenta + "\"," : "")
+                + "\"usuarioId\":" + usuarioId + ",\"subtotal\":" + total + ",\"total\":" + total
+                + ",\"metodoPago\":\"EFECTIVO\",\"detallesVenta\":[{\"productoId\":" + producto.getId()
+                + ",\"presentacionId\":" + presentacionId + ",\"cantidad\":" + cantidad
+                + ",\"precioUnitario\":120.00}]}";
+    }
+
+    private Long crearPresentacion(String talla, int stock) {
+        return datos.crearPresentacion(producto, talla, stock).getId();
+    }
+
+    private int stock(Long presentacionId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT stock_disponible FROM presentaciones WHERE id = ?", Integer.class, presentacionId);
+    }
+}
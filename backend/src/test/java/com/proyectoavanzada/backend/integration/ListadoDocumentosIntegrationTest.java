@@ -0,0 +1,167 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.model.Compra;
+import com.proyectoavanzada.backend.model.DetalleCompra;
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.Proveedor;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.model.Venta;
+import com.proyectoavanzada.backend.service.CompraService;
+import com.proyectoavanzada.backend.service.VentaService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de regresión de la cantidad de consultas de los listados de ventas y compras.
+ * Los detalles, productos, categorías y marcas se cargan con el grafo de entidades en la misma consulta
+ * que los documentos, así que recorrerlos (como hace Jackson al serializar) no agrega consultas.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+@Transactional
+class ListadoDocumentosIntegrationTest {
+
+    private static final int DOCUMENTOS = 20;
+    private static final int LINEAS = 3;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Statistics estadisticas;
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        usuario = datos.crearUsuario("Vendedor", "listado@example.com");
+
+        Proveedor proveedor = new Proveedor();
+        proveedor.setNombre("Distribuidora");
+        proveedor.setRuc("20123456789");
+        entityManager.persist(proveedor);
+
+        // Cada producto con su propia categoría y marca, para que la carga perezosa se notara por línea
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTOS * LINEAS; i++) {
+            productos.add(datos.crearProducto("Producto " + i, "LIST-" + i, "Categoría " + i, "Marca " + i));
+        }
+
+        for (int i = 0; i < DOCUMENTOS; i++) {
+            Venta venta = new Venta();
+            venta.setNumeroVenta("LIST-V-" + i);
+            venta.setUsuario(usuario);
+            venta.setFechaVenta(LocalDateTime.now());
+            venta.setMetodoPago("EFECTIVO");
+            venta.setSubtotal(new BigDecimal("360.00"));
+            venta.setTotal(new BigDecimal("360.00"));
+            List<DetalleVenta> detallesVenta = new ArrayList<>();
+
+            Compra compra = new Compra();
+            compra.setNumeroFactura("LIST-C-" + i);
+            compra.setProveedor(proveedor);
+            compra.setUsuario(usuario);
+            compra.setFechaCompra(LocalDateTime.now());
+            compra.setSubtotal(new BigDecimal("240.00"));
+            compra.setTotal(new BigDecimal("240.00"));
+            List<DetalleCompra> detallesCompra = new ArrayList<>();
+
+            for (int j = 0; j < LINEAS; j++) {
+                Producto producto = productos.get(i * LINEAS + j);
+                DetalleVenta detalleVenta = new DetalleVenta(venta, producto, null, 1, new BigDecimal("120.00"));
+                detallesVenta.add(detalleVenta);
+                DetalleCompra detalleCompra = new DetalleCompra(compra, producto, null, 1, new BigDecimal("80.00"));
+                detallesCompra.add(detalleCompra);
+            }
+            venta.setDetallesVenta(detallesVenta);
+            compra.setDetallesCompra(detallesCompra);
+            entityManager.persist(venta);
+            entityManager.persist(compra);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas.clear();
+    }
+
+    @Test
+    void testListadoDeVentasCargaDetallesYProductosEnUnaConsulta() {
+        // When
+        List<Venta> ventas = ventaService.obtenerVentasActivas();
+        int productosRecorridos = 0;
+        for (Venta venta : ventas) {
+            for (DetalleVenta detalle : venta.getDetallesVenta()) {
+                assertNotNull(detalle.getProducto().getMarca().getNombre());
+                assertNotNull(detalle.getProducto().getCategoria().getNombre());
+                productosRecorridos++;
+            }
+        }
+
+        // Then
+        assertEquals(DOCUMENTOS, ventas.size());
+        assertEquals(DOCUMENTOS * LINEAS, productosRecorridos);
+        assertEquals(1, estadisticas.getPrepareStatementCount(),
+            "El listado de ventas ejecutó " + estadisticas.getPrepareStatementCount() + " consultas");
+    }
+
+    @Test
+    void testVentasDeUnVendedorCarganDetallesEnUnaConsulta() {
+        // When
+        List<Venta> ventas = ventaService.obtenerVentasPorUsuario(usuario);
+        ventas.forEach(venta -> venta.getDetallesVenta().forEach(detalle -> detalle.getProducto().getNombre()));
+
+        // Then
+        assertEquals(DOCUMENTOS, ventas.size());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void testListadoDeComprasCargaProveedorDetallesYProductosEnUnaConsulta() {
+        // When
+        List<Compra> compras = compraService.obtenerTodasLasCompras();
+        int productosRecorridos = 0;
+        for (Compra compra : compras) {
+            assertNotNull(compra.getProveedor().getNombre());
+            assertNotNull(compra.getUsuario().getNombre());
+            for (DetalleCompra detalle : compra.getDetallesCompra()) {
+                assertNotNull(detalle.getProducto().getMarca().getNombre());
+                productosRecorridos++;
+            }
+        }
+
+        // Then
+        assertEquals(DOCUMENTOS, compras.size());
+        assertEquals(DOCUMENTOS * LINEAS, productosRecorridos);
+        assertEquals(1, estadisticas.getPrepareStatementCount(),
+            "El listado de compras ejecutó " + estadisticas.getPrepareStatementCount() + " consultas");
+    }
+}
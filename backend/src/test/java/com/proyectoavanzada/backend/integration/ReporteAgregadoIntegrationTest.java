@@ -0,0 +1,206 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectoavanzada.backend.exception.BusinessException;
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Inventario;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.Reporte;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.model.Venta;
+import com.proyectoavanzada.backend.service.AgregacionReportesService;
+import com.proyectoavanzada.backend.service.ReporteService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de los reportes agregados: agrupación por período y dimensión en la base de datos,
+ * semanas armadas a partir de los días, ventas canceladas y fuera de rango excluidas, y stock del inventario.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+@Transactional
+class ReporteAgregadoIntegrationTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2024, 3, 1);
+    private static final LocalDate FIN = LocalDate.of(2024, 4, 30);
+
+    @Autowired
+    private AgregacionReportesService agregacionReportesService;
+
+    @Autowired
+    private ReporteService reporteService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Usuario ana;
+    private Producto airMax;
+    private Producto superstar;
+
+    @BeforeEach
+    void setUp() {
+        ana = datos.crearUsuario("Ana", "ana.reportes@example.com");
+        Usuario luis = datos.crearUsuario("Luis", "luis.reportes@example.com");
+        airMax = datos.crearProducto("Air Max", "REP-1", "Running", "Nike", "80.00", "120.00");
+        superstar = datos.crearProducto("Superstar", "REP-2", "Casual", "Adidas", "60.00", "90.00");
+
+        crearVenta(ana, LocalDateTime.of(2024, 3, 4, 10, 0), "EFECTIVO", null, airMax, 2, superstar, 1);
+        crearVenta(ana, LocalDateTime.of(2024, 3, 6, 17, 30), "TARJETA", null, airMax, 1, null, 0);
+        crearVenta(luis, LocalDateTime.of(2024, 3, 12, 9, 0), "EFECTIVO", null, superstar, 3, null, 0);
+        crearVenta(luis, LocalDateTime.of(2024, 4, 2, 12, 0), "EFECTIVO", null, airMax, 1, null, 0);
+        // Cancelada y fuera de rango: no deben sumar
+        crearVenta(ana, LocalDateTime.of(2024, 3, 5, 11, 0), "EFECTIVO", "CANCELADA", airMax, 5, null, 0);
+        crearVenta(ana, LocalDateTime.of(2024, 2, 29, 23, 59), "EFECTIVO", null, airMax, 7, null, 0);
+        entityManager.flush();
+    }
+
+    @Test
+    void testVentasPorSemanaYCategoriaSumanLosDiasDeCadaSemana() throws Exception {
+        // When
+        JsonNode resultado = objectMapper.readTree(
+            agregacionReportesService.agregarVentas(INICIO, FIN, List.of("categoria", "semana")));
+
+        // Then - el período va primero y la semana se identifica por su lunes
+        assertEquals("[\"SEMANA\",\"CATEGORIA\"]", resultado.get("agrupaciones").toString());
+        JsonNode filas = resultado.get("filas");
+        assertEquals(4, filas.size());
+        assertFila(filas.get(0), "2024-03-04", "Running", 2, 3, "360.00");
+        assertFila(filas.get(1), "2024-03-04", "Casual", 1, 1, "90.00");
+        assertFila(filas.get(2), "2024-03-11", "Casual", 1, 3, "270.00");
+        assertFila(filas.get(3), "2024-04-01", "Running", 1, 1, "120.00");
+
+        // Los totales no cuentan dos veces la venta con productos de dos categorías
+        JsonNode totales = resultado.get("totales");
+        assertEquals(4, totales.get("ventas").asLong());
+        assertEquals(8, totales.get("unidades").asLong());
+        assertEquals(0, new BigDecimal("840.00").compareTo(totales.get("monto").decimalValue()));
+    }
+
+    @Test
+    void testReporteDeVentasPorMesYVendedorSeGuardaConParametrosYTamano() throws Exception {
+        // When
+        Reporte reporte = reporteService.generarReporteVentas(INICIO, FIN, ana, List.of("MES", "VENDEDOR"));
+
+        // Then
+        assertEquals("GENERADO", reporte.getEstado());
+        assertEquals("{\"agrupaciones\": [\"MES\", \"VENDEDOR\"]}", reporte.getParametros());
+        assertTrue(reporte.getArchivoUrl().startsWith("almacen://reportes/"));
+        assertTrue(reporte.getTamañoArchivo() > 0);
+        assertEquals(reporte.getResultados(), reporteService.obtenerResultados(reporte.getId()).orElseThrow());
+
+        JsonNode filas = objectMapper.readTree(reporte.getResultados()).get("filas");
+        assertEquals(3, filas.size());
+        assertEquals("2024-03", filas.get(0).get("periodo").asText());
+        assertEquals("Ana", filas.get(0).get("vendedor").asText());
+        assertEquals(2, filas.get(0).get("ventas").asLong());
+        assertEquals(0, new BigDecimal("450.00").compareTo(filas.get(0).get("monto").decimalValue()));
+        assertEquals("Luis", filas.get(1).get("vendedor").asText());
+        assertEquals("2024-04", filas.get(2).get("periodo").asText());
+    }
+
+    @Test
+    void testVentasPorMetodoDePagoSinPeriodo() throws Exception {
+        // When
+        JsonNode filas = objectMapper.readTree(
+            agregacionReportesService.agregarVentas(INICIO, FIN, List.of("METODO_PAGO"))).get("filas");
+
+        // Then
+        assertEquals(2, filas.size());
+        assertEquals("EFECTIVO", filas.get(0).get("metodoPago").asText());
+        assertFalse(filas.get(0).has("periodo"));
+        assertEquals(3, filas.get(0).get("ventas").asLong());
+        assertEquals(7, filas.get(0).get("unidades").asLong());
+        assertEquals("TARJETA", filas.get(1).get("metodoPago").asText());
+    }
+
+    @Test
+    void testInventarioPorMarcaIncluyePresentacionesYProductosSinPresentacion() throws Exception {
+        // Given - Air Max con dos tallas (una agotada); Superstar sin presentaciones, con su stock en inventario
+        datos.crearPresentacion(airMax, "41", 4);
+        datos.crearPresentacion(airMax, "42", 0);
+        entityManager.persist(new Inventario(superstar, null, 6));
+        entityManager.flush();
+
+        // When
+        JsonNode filas = objectMapper.readTree(
+            agregacionReportesService.agregarInventario(List.of("MARCA"))).get("filas");
+
+        // Then
+        assertEquals(2, filas.size());
+        JsonNode nike = filas.get(0);
+        assertEquals("Nike", nike.get("marca").asText());
+        assertEquals(2, nike.get("registros").asLong());
+        assertEquals(4, nike.get("existencias").asLong());
+        assertEquals(1, nike.get("agotados").asLong());
+        assertEquals(0, new BigDecimal("320.00").compareTo(nike.get("valorCosto").decimalValue()));
+        assertEquals(0, new BigDecimal("480.00").compareTo(nike.get("valorVenta").decimalValue()));
+        JsonNode adidas = filas.get(1);
+        assertEquals(6, adidas.get("existencias").asLong());
+        assertEquals(0, new BigDecimal("540.00").compareTo(adidas.get("valorVenta").decimalValue()));
+    }
+
+    @Test
+    void testAgrupacionesYRangoInvalidosSeRechazan() {
+        assertEquals(List.of("DIA"), agregacionReportesService.validarAgrupaciones("VENTAS", null));
+        assertThrows(BusinessException.class,
+            () -> agregacionReportesService.validarAgrupaciones("VENTAS", List.of("HORA")));
+        assertThrows(BusinessException.class,
+            () -> agregacionReportesService.validarAgrupaciones("VENTAS", List.of("DIA", "MES")));
+        assertThrows(BusinessException.class,
+            () -> agregacionReportesService.validarAgrupaciones("COMPRAS", List.of("VENDEDOR")));
+        assertThrows(BusinessException.class,
+            () -> agregacionReportesService.agregarVentas(FIN, INICIO, List.of("DIA")));
+    }
+
+    private void assertFila(JsonNode fila, String periodo, String categoria, long ventas, long unidades, String monto) {
+        assertEquals(periodo, fila.get("periodo").asText());
+        assertEquals(categoria, fila.get("categoria").asText());
+        assertEquals(ventas, fila.get("ventas").asLong());
+        assertEquals(unidades, fila.get("unidades").asLong());
+        assertEquals(0, new BigDecimal(monto).compareTo(fila.get("monto").decimalValue()));
+    }
+
+    private void crearVenta(Usuario vendedor, LocalDateTime fecha, String metodoPago, String estado,
+                            Producto producto, int cantidad, Producto otroProducto, int otraCantidad) {
+        Venta venta = new Venta();
+        venta.setUsuario(vendedor);
+        venta.setFechaVenta(fecha);
+        venta.setMetodoPago(metodoPago);
+        if (estado != null) {
+            venta.setEstado(estado);
+        }
+        List<DetalleVenta> detalles = new ArrayList<>();
+        detalles.add(new DetalleVenta(venta, producto, null, cantidad, producto.getPrecioVenta()));
+        if (otroProducto != null) {
+            detalles.add(new DetalleVenta(venta, otroProducto, null, otraCantidad, otroProducto.getPrecioVenta()));
+        }
+        BigDecimal subtotal = detalles.stream().map(DetalleVenta::getSubtotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        venta.setSubtotal(subtotal);
+        venta.setTotal(subtotal);
+        venta.setDetallesVenta(detalles);
+        entityManager.persist(venta);
+    }
+}
@@ -0,0 +1,168 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Presentacion;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.model.Venta;
+import com.proyectoavanzada.backend.repository.VentaRepository;
+import com.proyectoavanzada.backend.service.ContadorVentasService;
+import com.proyectoavanzada.backend.service.VentaService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba del resumen diario de ventas: los totales por rango, vendedor y método de pago y los conteos
+ * por estado leídos del resumen coinciden con los de la tabla ventas después de crear, cancelar,
+ * eliminar y cambiar el total de ventas, y la reconstrucción lo vuelve a cargar.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+@Transactional
+class ResumenVentasDiarioIntegrationTest {
+
+    private static final String METODO_PAGO = "BILLETERA_DIGITAL";
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private ContadorVentasService contadorVentasService;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Usuario usuario;
+    private Producto producto;
+    private Presentacion presentacion;
+
+    @BeforeEach
+    void setUp() {
+        usuario = datos.crearUsuario("Cajero", "resumen.diario@example.com");
+        producto = datos.crearProducto("Air Max", "RESUMEN-1", "Running", "Nike", "80.00", "100.00");
+        presentacion = datos.crearPresentacion(producto, "41", 100);
+        entityManager.flush();
+    }
+
+    @Test
+    void testLosTotalesDelResumenCoincidenConLasVentas() {
+        // Given
+        long canceladasAntes = ventaService.contarVentasPorEstado("CANCELADA");
+        long activasAntes = ventaService.contarVentasActivas();
+        crearVenta(LocalDateTime.of(2019, 5, 10, 10, 0), METODO_PAGO, 1);
+        crearVenta(LocalDateTime.of(2019, 5, 10, 18, 0), "TARJETA", 2);
+        Long cancelada = crearVenta(LocalDateTime.of(2019, 5, 11, 9, 0), METODO_PAGO, 3);
+        Long eliminada = crearVenta(LocalDateTime.of(2019, 5, 12, 12, 0), METODO_PAGO, 4);
+        Long conDetalleExtra = crearVenta(LocalDateTime.of(2019, 5, 12, 23, 30), METODO_PAGO, 1);
+
+        // When - cancelar, eliminar y cambiar el total de una venta con otra línea
+        ventaService.marcarComoCancelada(cancelada);
+        ventaService.eliminarVenta(eliminada);
+        DetalleVenta detalle = new DetalleVenta();
+        detalle.setVenta(entityManager.find(Venta.class, conDetalleExtra));
+        detalle.setProducto(producto);
+        detalle.setPresentacion(presentacion);
+        detalle.setCantidad(2);
+        detalle.setPrecioUnitario(new BigDecimal("100.00"));
+        ventaService.agregarDetalleVenta(detalle);
+        entityManager.flush();
+
+        // Then - la cancelada sigue sumando en los totales (como en la tabla ventas); la eliminada no
+        LocalDateTime inicio = LocalDateTime.of(2019, 5, 10, 0, 0);
+        LocalDateTime fin = LocalDateTime.of(2019, 5, 12, 23, 59, 59);
+        assertTotal("900.00", ventaService.obtenerTotalVentasPorRangoFechas(inicio, fin));
+        assertTotal(ventaRepository.sumTotalByFechaVentaBetween(inicio, fin),
+            ventaService.obtenerTotalVentasPorRangoFechas(inicio, fin));
+
+        // Rango que corta días: las horas de los extremos salen de la tabla ventas
+        LocalDateTime desdeMediodia = LocalDateTime.of(2019, 5, 10, 12, 0);
+        LocalDateTime hastaMediodia = LocalDateTime.of(2019, 5, 12, 12, 0);
+        assertTotal("500.00", ventaService.obtenerTotalVentasPorRangoFechas(desdeMediodia, hastaMediodia));
+        assertTotal(ventaRepository.sumTotalByFechaVentaBetween(desdeMediodia, hastaMediodia),
+            ventaService.obtenerTotalVentasPorRangoFechas(desdeMediodia, hastaMediodia));
+
+        assertTotal("900.00", ventaService.obtenerTotalVentasPorUsuario(usuario));
+        assertTotal(ventaRepository.sumTotalByUsuario(usuario), ventaService.obtenerTotalVentasPorUsuario(usuario));
+        assertTotal("700.00", ventaService.obtenerTotalVentasPorMetodoPago(METODO_PAGO));
+        assertEquals(canceladasAntes + 1, ventaService.contarVentasPorEstado("CANCELADA"));
+        assertEquals(activasAntes + 4, ventaService.contarVentasActivas());
+    }
+
+    @Test
+    void testReconstruirVuelveACargarElResumenDesdeLasVentas() {
+        // Given
+        crearVenta(LocalDateTime.of(2019, 6, 3, 10, 0), METODO_PAGO, 2);
+        Long cancelada = crearVenta(LocalDateTime.of(2019, 6, 4, 10, 0), METODO_PAGO, 1);
+        ventaService.cambiarEstadoVentas(List.of(cancelada), "CANCELADA");
+        entityManager.flush();
+        List<String> antes = filasResumen();
+        jdbcTemplate.update("DELETE FROM resumen_ventas_diario");
+
+        // When
+        contadorVentasService.reconstruirContadores();
+
+        // Then
+        assertEquals(antes, filasResumen());
+        assertTotal("300.00", ventaService.obtenerTotalVentasPorRangoFechas(
+            LocalDateTime.of(2019, 6, 1, 0, 0), LocalDateTime.of(2019, 6, 30, 0, 0)));
+    }
+
+    private Long crearVenta(LocalDateTime fecha, String metodoPago, int cantidad) {
+        Venta venta = new Venta();
+        Usuario vendedor = new Usuario();
+        vendedor.setId(usuario.getId());
+        venta.setUsuario(vendedor);
+        venta.setFechaVenta(fecha);
+        venta.setMetodoPago(metodoPago);
+        venta.setSubtotal(new BigDecimal("1.00"));
+        venta.setTotal(new BigDecimal("1.00"));
+        List<DetalleVenta> detalles = new ArrayList<>();
+        DetalleVenta detalle = new DetalleVenta();
+        detalle.setProductoId(producto.getId());
+        detalle.setPresentacionId(presentacion.getId());
+        detalle.setCantidad(cantidad);
+        detalle.setPrecioUnitario(new BigDecimal("100.00"));
+        detalles.add(detalle);
+        venta.setDetallesVenta(detalles);
+        return ventaService.crearVenta(venta).getId();
+    }
+
+    private List<String> filasResumen() {
+        return jdbcTemplate.queryForList(
+            "SELECT CONCAT(fecha, '|', metodo_pago, '|', estado, '|', activo, '|', cantidad_ventas, '|', monto_total) " +
+            "FROM resumen_ventas_diario WHERE usuario_id = ? ORDER BY fecha, metodo_pago, estado, activo",
+            String.class, usuario.getId());
+    }
+
+    private static void assertTotal(String esperado, BigDecimal total) {
+        assertTotal(new BigDecimal(esperado), total);
+    }
+
+    private static void assertTotal(BigDecimal esperado, BigDecimal total) {
+        assertEquals(0, esperado.compareTo(total), "Esperado " + esperado + " y se obtuvo " + total);
+    }
+}
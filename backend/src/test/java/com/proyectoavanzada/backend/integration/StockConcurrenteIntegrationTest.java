@@ -0,0 +1,169 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.repository.CategoriaRepository;
+import com.proyectoavanzada.backend.repository.InventarioRepository;
+import com.proyectoavanzada.backend.repository.MarcaRepository;
+import com.proyectoavanzada.backend.repository.PresentacionRepository;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import com.proyectoavanzada.backend.service.InventarioService;
+import com.proyectoavanzada.backend.service.PresentacionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de estrés de las reducciones de stock concurrentes: muchos hilos compran la misma presentación
+ * (o el mismo producto sin presentación) a la vez, cada uno en su propia transacción, y nunca se puede
+ * vender más de lo que había. Sin @Transactional en la clase, porque cada hilo debe confirmar su venta.
+ * La base H2 es propia de esta clase y espera los bloqueos de fila más que el valor por defecto.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:stockconcurrente;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+class StockConcurrenteIntegrationTest {
+
+    private static final int HILOS = 16;
+
+    @Autowired
+    private PresentacionService presentacionService;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private PresentacionRepository presentacionRepository;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private MarcaRepository marcaRepository;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    private Producto producto;
+
+    @BeforeEach
+    void setUp() {
+        producto = datos.crearProducto("Air Max", "AIRMAX-01", "Running", "Nike");
+    }
+
+    @AfterEach
+    void tearDown() {
+        inventarioRepository.deleteAll();
+        presentacionRepository.deleteAll();
+        productoRepository.deleteAll();
+        marcaRepository.deleteAll();
+        categoriaRepository.deleteAll();
+    }
+
+    @Test
+    void testVentasConcurrentesDeUnaPresentacionNoVendenDeMas() throws InterruptedException {
+        // Given
+        Long presentacionId = crearPresentacion("42", 50);
+
+        // When - 200 intentos de comprar una unidad contra un stock de 50
+        int exitos = ejecutarConcurrente(200, () -> presentacionService.reducirStockEnLote(Map.of(presentacionId, 1)));
+
+        // Then
+        assertEquals(50, exitos);
+        assertEquals(0, stockPresentacion(presentacionId));
+    }
+
+    @Test
+    void testLotesConcurrentesSeAplicanCompletosONoSeAplican() throws InterruptedException {
+        // Given - la talla 41 se agota primero y corta los lotes que la incluyen
+        Long talla40 = crearPresentacion("40", 30);
+        Long talla41 = crearPresentacion("41", 20);
+        Long talla42 = crearPresentacion("42", 40);
+
+        // When - cada venta lleva una unidad de cada talla
+        int exitos = ejecutarConcurrente(100,
+            () -> presentacionService.reducirStockEnLote(Map.of(talla42, 1, talla40, 1, talla41, 1)));
+
+        // Then - las ventas rechazadas no dejan reducidas las otras tallas del lote
+        assertEquals(20, exitos);
+        assertEquals(10, stockPresentacion(talla40));
+        assertEquals(0, stockPresentacion(talla41));
+        assertEquals(20, stockPresentacion(talla42));
+    }
+
+    @Test
+    void testVentasConcurrentesDeUnProductoSinPresentacionNoVendenDeMas() throws InterruptedException {
+        // Given
+        Long inventarioId = datos.crearInventario(producto, 40).getId();
+        Long productoId = producto.getId();
+
+        // When
+        int exitos = ejecutarConcurrente(150, () -> inventarioService.reducirStockProducto(productoId, 1));
+
+        // Then
+        assertEquals(40, exitos);
+        assertEquals(0, inventarioRepository.findById(inventarioId).orElseThrow().getStockActual());
+    }
+
+    /**
+     * Lanzar los intentos a la vez desde un grupo de hilos y devolver cuántos se confirmaron.
+     * Un intento solo puede fallar por stock insuficiente; cualquier otro error hace fallar la prueba.
+     */
+    private int ejecutarConcurrente(int intentos, Runnable venta) throws InterruptedException {
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger exitos = new AtomicInteger();
+        List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < intentos; i++) {
+            hilos.submit(() -> {
+                try {
+                    largada.await();
+                    venta.run();
+                    exitos.incrementAndGet();
+                } catch (RuntimeException e) {
+                    if (e.getMessage() == null || !e.getMessage().startsWith("Stock insuficiente")) {
+                        errores.add(e);
+                    }
+                } catch (InterruptedException e) {
+                    errores.add(e);
+                }
+            });
+        }
+        largada.countDown();
+        hilos.shutdown();
+
+        assertTrue(hilos.awaitTermination(60, TimeUnit.SECONDS), "Los hilos no terminaron a tiempo");
+        assertTrue(errores.isEmpty(), "Errores inesperados: " + errores);
+        return exitos.get();
+    }
+
+    private Long crearPresentacion(String talla, int stock) {
+        return datos.crearPresentacion(producto, talla, stock).getId();
+    }
+
+    private int stockPresentacion(Long presentacionId) {
+        return presentacionRepository.findById(presentacionId).orElseThrow().getStockDisponible();
+    }
+}
@@ -0,0 +1,207 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.dto.EstadoTrabajoReporte;
+import com.proyectoavanzada.backend.exception.ConflictException;
+import com.proyectoavanzada.backend.model.Reporte;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.service.AgregacionReportesService;
+import com.proyectoavanzada.backend.service.ReporteService;
+import com.proyectoavanzada.backend.service.TrabajosReportesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Prueba de los reportes en segundo plano: respuesta inmediata en PROCESANDO, espera hasta que terminan,
+ * límite de reportes en ejecución y pendientes por usuario, orden por prioridad, cancelación y reportes que
+ * quedaron en PROCESANDO tras un reinicio.
+ * Sin @Transactional en la clase, porque los hilos de los reportes leen lo confirmado.
+ * El resultado queda en el almacén de reportes, no en la entidad.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:trabajosreportes;DB_CLOSE_DELAY=-1",
+    "reportes.trabajos.hilos=2",
+    "reportes.trabajos.maximo-por-usuario=1",
+    "reportes.trabajos.pendientes-por-usuario=2",
+    "reportes.trabajos.nodo=" + TrabajosReportesIntegrationTest.NODO
+})
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+class TrabajosReportesIntegrationTest {
+
+    static final String NODO = "nodo-1";
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    @Autowired
+    private TrabajosReportesService trabajosReportesService;
+
+    @Autowired
+    private ReporteService reporteService;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    @SpyBean
+    private AgregacionReportesService agregacionReportesService;
+
+    private Usuario ana;
+    private Usuario luis;
+
+    @BeforeEach
+    void setUp() {
+        reset(agregacionReportesService);
+        ana = crearUsuario("Ana");
+        luis = crearUsuario("Luis");
+    }
+
+    @Test
+    void testElReporteRespondeEnProcesandoYSeEsperaHastaQueTermina() throws Exception {
+        // When
+        EstadoTrabajoReporte enviado = trabajosReportesService.enviar("inventario", null, null, ana, null, null);
+        EstadoTrabajoReporte terminado = trabajosReportesService.esperar(enviado.reporteId(), 30)
+                .get(35, TimeUnit.SECONDS).orElseThrow();
+
+        // Then
+        assertEquals("PROCESANDO", enviado.estado());
+        assertEquals("GENERADO", terminado.estado());
+        assertEquals(100, terminado.progreso());
+        assertNotNull(terminado.terminado());
+        Reporte reporte = reporteService.obtenerReportePorId(enviado.reporteId()).orElseThrow();
+        assertEquals("GENERADO", reporte.getEstado());
+        assertNull(reporte.getResultados());
+        assertTrue(reporteService.obtenerResultados(enviado.reporteId()).orElseThrow().contains("\"filas\""));
+    }
+
+    @Test
+    void testLimitePorUsuarioPrioridadYCancelacion() throws Exception {
+        // Given - los reportes quedan detenidos al empezar hasta liberar el bloqueo
+        CountDownLatch bloqueo = new CountDownLatch(1);
+        doAnswer(invocacion -> {
+            bloqueo.await(30, TimeUnit.SECONDS);
+            return invocacion.callRealMethod();
+        }).when(agregacionReportesService).escribir(any(), any(), any(), anyList(), any(), any());
+
+        Long primeroAna;
+        Long segundoAna;
+        Long primeroLuis;
+        Long segundoLuis;
+        try {
+            // When - Ana ocupa un hilo; su segundo reporte espera aunque haya un hilo libre, que toma el de Luis
+            primeroAna = enviar(ana, 5);
+            esperarInicio(primeroAna);
+            segundoAna = enviar(ana, 9);
+            primeroLuis = enviar(luis, 9);
+            esperarInicio(primeroLuis);
+            segundoLuis = enviar(luis, 1);
+
+            // Then
+            EstadoTrabajoReporte enCola = consultar(segundoAna);
+            assertNull(enCola.iniciado());
+            assertEquals(0, enCola.posicionEnCola());
+            assertEquals(1, consultar(segundoLuis).posicionEnCola());
+            assertThrows(ConflictException.class,
+                () -> trabajosReportesService.enviar("INVENTARIO", null, null, ana, null, 5));
+
+            // Cancelar uno en la cola y otro en ejecución
+            assertEquals("CANCELADO", trabajosReportesService.cancelar(segundoLuis).estado());
+            assertEquals("PROCESANDO", trabajosReportesService.cancelar(primeroLuis).estado());
+        } finally {
+            bloqueo.countDown();
+        }
+
+        assertEquals("GENERADO", terminar(primeroAna).estado());
+        assertEquals("GENERADO", terminar(segundoAna).estado());
+        assertEquals("CANCELADO", terminar(primeroLuis).estado());
+        assertEquals("CANCELADO", reporteService.obtenerReportePorId(primeroLuis).orElseThrow().getEstado());
+        assertEquals("CANCELADO", reporteService.obtenerReportePorId(segundoLuis).orElseThrow().getEstado());
+        assertEquals(2, trabajosReportesService.listar(luis.getId()).size());
+    }
+
+    @Test
+    void testReportesSinTrabajoTrasUnReinicioSeCancelanOSeMarcanConError() {
+        // Given - reportes de este nodo que quedaron en PROCESANDO sin trabajo en memoria, como tras una caída
+        Long aCancelar = reporteService.registrarReporte("INVENTARIO", null, null, ana, null, NODO).getId();
+        Long interrumpido = reporteService.registrarReporte("INVENTARIO", null, null, ana, null, NODO).getId();
+        assertEquals("PROCESANDO", consultar(interrumpido).estado());
+
+        // When
+        EstadoTrabajoReporte cancelado = trabajosReportesService.cancelar(aCancelar);
+        int marcados = trabajosReportesService.marcarInterrumpidos();
+
+        // Then
+        assertEquals("CANCELADO", cancelado.estado());
+        assertEquals(1, marcados);
+        assertEquals("ERROR", consultar(interrumpido).estado());
+        assertTrue(reporteService.obtenerResultados(interrumpido).orElseThrow().contains("interrumpido"));
+        assertEquals("CANCELADO", reporteService.obtenerReportePorId(aCancelar).orElseThrow().getEstado());
+        assertEquals(0, trabajosReportesService.marcarInterrumpidos());
+        assertThrows(RuntimeException.class, () -> trabajosReportesService.cancelar(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testLosReportesDeOtroNodoNoSeMarcanNiSeCancelanDesdeEste() {
+        // Given - un reporte que otro nodo sigue generando
+        Long deOtroNodo = reporteService.registrarReporte("INVENTARIO", null, null, ana, null, "nodo-2").getId();
+
+        // When
+        trabajosReportesService.marcarInterrumpidos();
+
+        // Then
+        assertEquals("PROCESANDO", consultar(deOtroNodo).estado());
+        assertThrows(ConflictException.class, () -> trabajosReportesService.cancelar(deOtroNodo));
+        assertEquals("PROCESANDO", reporteService.obtenerReportePorId(deOtroNodo).orElseThrow().getEstado());
+    }
+
+    @Test
+    void testParametrosInvalidosNoRegistranElReporte() {
+        long antes = reporteService.contarReportesPorUsuario(ana);
+        assertThrows(RuntimeException.class,
+            () -> trabajosReportesService.enviar("INVENTARIO", null, null, ana, List.of("SEMANA"), null));
+        assertThrows(RuntimeException.class,
+            () -> trabajosReportesService.enviar("INVENTARIO", null, null, ana, null, 10));
+        assertThrows(RuntimeException.class,
+            () -> trabajosReportesService.enviar("VENTAS", null, null, ana, null, null));
+        assertEquals(antes, reporteService.contarReportesPorUsuario(ana));
+    }
+
+    private Long enviar(Usuario usuario, int prioridad) {
+        return trabajosReportesService.enviar("INVENTARIO", null, null, usuario, List.of("MARCA"), prioridad).reporteId();
+    }
+
+    private EstadoTrabajoReporte consultar(Long reporteId) {
+        return trabajosReportesService.consultar(reporteId).orElseThrow();
+    }
+
+    private void esperarInicio(Long reporteId) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (consultar(reporteId).iniciado() == null) {
+            assertTrue(System.currentTimeMillis() < limite, "El reporte " + reporteId + " no empezó");
+            Thread.sleep(10);
+        }
+    }
+
+    private EstadoTrabajoReporte terminar(Long reporteId) throws Exception {
+        return trabajosReportesService.esperar(reporteId, 30).get(35, TimeUnit.SECONDS).orElseThrow();
+    }
+
+    private Usuario crearUsuario(String nombre) {
+        int n = SECUENCIA.incrementAndGet();
+        return datos.crearUsuario(nombre, nombre.toLowerCase() + n + "@reportes.example.com");
+    }
+}
@@ -0,0 +1,174 @@
+package com.proyectoavanzada.backend.integration;
+
+import com.proyectoavanzada.backend.model.Categoria;
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.model.Presentacion;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.model.Usuario;
+import com.proyectoavanzada.backend.model.Venta;
+import com.proyectoavanzada.backend.service.VentaService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de regresión de la cantidad de sentencias SQL que ejecuta crearVenta.
+ * Productos y presentaciones se cargan con una consulta cada uno y el stock se mueve en lote,
+ * así que cada línea extra solo agrega su INSERT en detalles_venta y el UPDATE de su stock.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import(DatosPruebaVentas.class)
+@Transactional
+class VentaConsultasIntegrationTest {
+
+    // Sentencias que no dependen de la cantidad de líneas: usuario, número de venta, productos,
+    // presentaciones e INSERT de la venta; los totales se calculan en memoria, sin UPDATE ni recarga
+    private static final int SENTENCIAS_FIJAS_MAXIMAS = 10;
+
+    // INSERT del detalle y UPDATE del stock de su presentación o inventario
+    private static final int SENTENCIAS_POR_LINEA = 2;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private DatosPruebaVentas datos;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+    private Usuario usuario;
+    private final List<Producto> productos = new ArrayList<>();
+    private final List<Presentacion> presentaciones = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        usuario = datos.crearUsuario("Vendedor", "vendedor@example.com");
+        Categoria categoria = datos.crearCategoria("Running");
+        Marca marca = datos.crearMarca("Nike");
+        for (int i = 0; i < 30; i++) {
+            Producto producto = datos.crearProducto("Producto " + i, "COD-" + i, categoria, marca,
+                DatosPruebaVentas.PRECIO_COMPRA, DatosPruebaVentas.PRECIO_VENTA);
+            productos.add(producto);
+            presentaciones.add(datos.crearPresentacion(producto, "42", 100));
+            datos.crearInventario(producto, 100);
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void testLineasConPresentacionNoAgreganConsultas() {
+        // When
+        long sentenciasDiezLineas = sentenciasDeVenta(10, true);
+        long sentenciasTreintaLineas = sentenciasDeVenta(30, true);
+
+        // Then
+        assertTrue(sentenciasTreintaLineas - sentenciasDiezLineas <= 20 * SENTENCIAS_POR_LINEA,
+            "Cada línea extra ejecutó más de " + SENTENCIAS_POR_LINEA + " sentencias: "
+                + sentenciasDiezLineas + " -> " + sentenciasTreintaLineas);
+        assertTrue(sentenciasTreintaLineas <= 30 * SENTENCIAS_POR_LINEA + SENTENCIAS_FIJAS_MAXIMAS,
+            "Una venta de 30 líneas ejecutó " + sentenciasTreintaLineas + " sentencias");
+        // La primera presentación se vendió en las dos ventas; el stock se mueve con UPDATE, así que se relee
+        entityManager.clear();
+        assertEquals(98, entityManager.find(Presentacion.class, presentaciones.get(0).getId()).getStockDisponible());
+    }
+
+    @Test
+    void testLineasSinPresentacionCarganLosInventariosEnUnaConsulta() {
+        // When
+        long sentenciasDiezLineas = sentenciasDeVenta(10, false);
+        long sentenciasTreintaLineas = sentenciasDeVenta(30, false);
+
+        // Then
+        assertTrue(sentenciasTreintaLineas - sentenciasDiezLineas <= 20 * SENTENCIAS_POR_LINEA,
+            "Cada línea extra ejecutó más de " + SENTENCIAS_POR_LINEA + " sentencias: "
+                + sentenciasDiezLineas + " -> " + sentenciasTreintaLineas);
+        assertTrue(sentenciasTreintaLineas <= 30 * SENTENCIAS_POR_LINEA + SENTENCIAS_FIJAS_MAXIMAS,
+            "Una venta de 30 líneas ejecutó " + sentenciasTreintaLineas + " sentencias");
+    }
+
+    @Test
+    void testTotalesSeCalculanDesdeLasLineasAntesDelInsert() {
+        // Given - el cliente envía un subtotal que no coincide con las líneas
+        Venta venta = nuevaVenta(3, true);
+        venta.setDescuento(new BigDecimal("10.00"));
+        venta.setImpuesto(new BigDecimal("5.00"));
+        entityManager.clear();
+        estadisticas.clear();
+
+        // When
+        Venta ventaGuardada = ventaService.crearVenta(venta);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Then - el INSERT ya lleva los totales, sin UPDATE posterior de la venta
+        assertEquals(0, estadisticas.getEntityStatistics(Venta.class.getName()).getUpdateCount());
+        Venta releida = entityManager.find(Venta.class, ventaGuardada.getId());
+        assertEquals(0, new BigDecimal("360.00").compareTo(releida.getSubtotal()));
+        assertEquals(0, new BigDecimal("355.00").compareTo(releida.getTotal()));
+    }
+
+    /**
+     * Crear una venta con una línea por producto y devolver las sentencias que ejecutó Hibernate
+     */
+    private long sentenciasDeVenta(int lineas, boolean conPresentacion) {
+        Venta venta = nuevaVenta(lineas, conPresentacion);
+        entityManager.clear();
+        estadisticas.clear();
+        ventaService.crearVenta(venta);
+        entityManager.flush();
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    private Venta nuevaVenta(int lineas, boolean conPresentacion) {
+        Venta venta = new Venta();
+        Usuario vendedor = new Usuario();
+        vendedor.setId(usuario.getId());
+        venta.setUsuario(vendedor);
+        venta.setFechaVenta(LocalDateTime.now());
+        venta.setMetodoPago("EFECTIVO");
+        venta.setSubtotal(new BigDecimal("1.00"));
+        venta.setTotal(new BigDecimal("1.00"));
+
+        List<DetalleVenta> detalles = new ArrayList<>();
+        for (int i = 0; i < lineas; i++) {
+            DetalleVenta detalle = new DetalleVenta();
+            Producto producto = new Producto();
+            producto.setId(productos.get(i).getId());
+            detalle.setProducto(producto);
+            if (conPresentacion) {
+                Presentacion presentacion = new Presentacion();
+                presentacion.setId(presentaciones.get(i).getId());
+                detalle.setPresentacion(presentacion);
+            }
+            detalle.setCantidad(1);
+            detalle.setPrecioUnitario(new BigDecimal("120.00"));
+            detalles.add(detalle);
+        }
+        venta.setDetallesVenta(detalles);
+        return venta;
+    }
+}
@@ -0,0 +1,121 @@
+package com.proyectoavanzada.backend.repository;
+
+import com.proyectoavanzada.backend.dto.ProductoResumen;
+import com.proyectoavanzada.backend.model.Categoria;
+import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.model.Producto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ProductoRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private Categoria categoria;
+    private Marca marca;
+
+    @BeforeEach
+    void setUp() {
+        categoria = new Categoria();
+        categoria.setNombre("Running");
+        categoria.setActivo(true);
+        entityManager.persist(categoria);
+
+        marca = new Marca();
+        marca.setNombre("Nike");
+        marca.setActivo(true);
+        entityManager.persist(marca);
+    }
+
+    private Producto crearProducto(String nombre, boolean activo) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setCodigoProducto("COD-" + nombre);
+        producto.setCategoria(categoria);
+        producto.setMarca(marca);
+        producto.setPrecioCompra(new BigDecimal("80.00"));
+        producto.setPrecioVenta(new BigDecimal("120.00"));
+        producto.setActivo(activo);
+        return entityManager.persist(producto);
+    }
+
+    @Test
+    void testSiguientePaginaRecorreTodosLosProductosSinRepetir() {
+        for (int i = 0; i < 7; i++) {
+            crearProducto("Producto " + i, true);
+        }
+        entityManager.flush();
+
+        List<Long> vistos = new ArrayList<>();
+        Long ultimoId = 0L;
+        List<ProductoResumen> pagina;
+        do {
+            pagina = productoRepository.findSiguientePagina(ultimoId, PageRequest.of(0, 3));
+            for (ProductoResumen producto : pagina) {
+                vistos.add(producto.id());
+            }
+            if (!pagina.isEmpty()) {
+                ultimoId = pagina.get(pagina.size() - 1).id();
+            }
+        } while (pagina.size() == 3);
+
+        assertEquals(7, vistos.size());
+        assertEquals(vistos.stream().sorted().toList(), vistos);
+    }
+
+    @Test
+    void testSiguientePaginaActivosExcluyeInactivos() {
+        Producto primero = crearProducto("Activo 1", true);
+        crearProducto("Inactivo", false);
+        Producto tercero = crearProducto("Activo 2", true);
+        entityManager.flush();
+
+        List<ProductoResumen> pagina = productoRepository.findSiguientePaginaActivos(0L, PageRequest.of(0, 10));
+
+        assertEquals(2, pagina.size());
+        assertEquals(primero.getId(), pagina.get(0).id());
+        assertEquals(tercero.getId(), pagina.get(1).id());
+
+        List<ProductoResumen> siguiente = productoRepository.findSiguientePaginaActivos(primero.getId(), PageRequest.of(0, 10));
+        assertEquals(1, siguiente.size());
+        assertEquals(tercero.getId(), siguiente.get(0).id());
+    }
+
+    @Test
+    void testResumenIncluyeCategoriaYMarcaSinCargarEntidades() {
+        Producto producto = crearProducto("Pegasus", true);
+        producto.setDescuentoPorcentaje(new BigDecimal("10.00"));
+        crearProducto("Sin descuento", true);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<ProductoResumen> conDescuento = productoRepository.findResumenConDescuento();
+
+        assertEquals(1, conDescuento.size());
+        ProductoResumen resumen = conDescuento.get(0);
+        assertEquals(producto.getId(), resumen.id());
+        assertEquals("COD-Pegasus", resumen.codigoProducto());
+        assertEquals(categoria.getId(), resumen.categoriaId());
+        assertEquals(new ProductoResumen.Referencia(marca.getId(), "Nike"), resumen.marca());
+        assertEquals("Running", resumen.categoria().nombre());
+        assertEquals(Integer.valueOf(0), resumen.stock());
+        assertEquals(List.of(resumen), productoRepository.findResumenPorIds(List.of(producto.getId())));
+    }
+}
@@ -0,0 +1,123 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.model.DetalleVenta;
+import com.proyectoavanzada.backend.service.ContadorVentasService.FotoVenta;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContadorVentasServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private VersionRecursosService versionRecursosService;
+
+    @Mock
+    private ProductoService productoService;
+
+    @InjectMocks
+    private ContadorVentasService contadorVentasService;
+
+    private DetalleVenta crearDetalle(Long productoId, Long presentacionId, int cantidad, String subtotal) {
+        DetalleVenta detalle = new DetalleVenta();
+        detalle.setProductoId(productoId);
+        if (presentacionId != null) {
+            detalle.setPresentacionId(presentacionId);
+        }
+        detalle.setCantidad(cantidad);
+        detalle.setSubtotal(new BigDecimal(subtotal));
+        return detalle;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRegistrarVentaAgrupaLasLineasPorProductoYPresentacion() {
+        // Given - dos líneas de la misma presentación y una sin presentación
+        LocalDateTime fechaVenta = LocalDateTime.of(2024, 3, 15, 10, 30);
+        List<DetalleVenta> detalles = List.of(
+            crearDetalle(2L, 20L, 1, "100.00"),
+            crearDetalle(2L, 20L, 2, "200.00"),
+            crearDetalle(1L, null, 3, "90.00")
+        );
+        when(jdbcTemplate.update(startsWith("UPDATE resumen_ventas_producto"), any(Object[].class))).thenReturn(1);
+
+        // When
+        contadorVentasService.registrarVenta(fechaVenta, detalles);
+
+        // Then - un solo incremento por producto, ordenado por id
+        ArgumentCaptor<List<Object[]>> productos = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE productos"), productos.capture());
+        assertEquals(2, productos.getValue().size());
+        assertArrayEquals(new Object[]{3L, 1L}, productos.getValue().get(0));
+        assertArrayEquals(new Object[]{3L, 2L}, productos.getValue().get(1));
+
+        ArgumentCaptor<List<Object[]>> presentaciones = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE presentaciones"), presentaciones.capture());
+        assertEquals(1, presentaciones.getValue().size());
+        assertArrayEquals(new Object[]{3L, 20L}, presentaciones.getValue().get(0));
+
+        // Una fila del resumen diario por producto y presentación
+        verify(jdbcTemplate).update(startsWith("UPDATE resumen_ventas_producto"),
+            eq(3L), eq(new BigDecimal("300.00")), eq(LocalDate.of(2024, 3, 15)), eq(2L), eq(20L));
+        verify(jdbcTemplate).update(startsWith("UPDATE resumen_ventas_producto"),
+            eq(3L), eq(new BigDecimal("90.00")), eq(LocalDate.of(2024, 3, 15)), eq(1L), eq(0L));
+        verify(jdbcTemplate, never()).update(startsWith("INSERT"), any(Object[].class));
+
+        // El detalle cacheado de los productos vendidos trae las unidades vendidas anteriores
+        verify(productoService).invalidarDetallesAlFinalizar(Set.of(1L, 2L));
+    }
+
+    @Test
+    void testCambiarElEstadoMueveLaVentaEntreFilasDelResumenDiario() {
+        // Given
+        LocalDate dia = LocalDate.of(2024, 3, 15);
+        FotoVenta completada = new FotoVenta(dia, "EFECTIVO", 7L, "COMPLETADA", true, new BigDecimal("150.00"));
+        FotoVenta cancelada = new FotoVenta(dia, "EFECTIVO", 7L, "CANCELADA", true, new BigDecimal("150.00"));
+        when(jdbcTemplate.update(startsWith("UPDATE resumen_ventas_diario"), any(Object[].class))).thenReturn(1);
+
+        // When
+        contadorVentasService.actualizarResumenDiario(completada, cancelada);
+        contadorVentasService.actualizarResumenDiario(cancelada, cancelada);
+
+        // Then - sale de una fila y entra en la otra; sin cambios no se escribe nada
+        verify(jdbcTemplate).update(startsWith("UPDATE resumen_ventas_diario"),
+            eq(-1L), eq(new BigDecimal("-150.00")), eq(dia), eq("EFECTIVO"), eq(7L), eq("COMPLETADA"), eq(true));
+        verify(jdbcTemplate).update(startsWith("UPDATE resumen_ventas_diario"),
+            eq(1L), eq(new BigDecimal("150.00")), eq(dia), eq("EFECTIVO"), eq(7L), eq("CANCELADA"), eq(true));
+        verify(jdbcTemplate, times(2)).update(startsWith("UPDATE resumen_ventas_diario"), any(Object[].class));
+        verify(jdbcTemplate, never()).update(startsWith("INSERT"), any(Object[].class));
+    }
+
+    @Test
+    void testRevertirVentaRestaYCreaLaFilaDelResumenSiNoExiste() {
+        // Given
+        LocalDateTime fechaVenta = LocalDateTime.of(2024, 3, 15, 10, 30);
+        when(jdbcTemplate.update(startsWith("UPDATE resumen_ventas_producto"), any(Object[].class))).thenReturn(0);
+
+        // When
+        contadorVentasService.revertirVenta(fechaVenta, List.of(crearDetalle(1L, null, 2, "60.00")));
+
+        // Then
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE productos"), anyList());
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("UPDATE presentaciones"), anyList());
+        verify(jdbcTemplate).update(startsWith("INSERT INTO resumen_ventas_producto"),
+            eq(LocalDate.of(2024, 3, 15)), eq(1L), eq(0L), eq(-2L), eq(new BigDecimal("-60.00")));
+    }
+}
@@ -0,0 +1,154 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.model.Categoria;
+import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndiceBusquedaProductosTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @InjectMocks
+    private IndiceBusquedaProductos indiceBusqueda;
+
+    private Categoria running;
+    private Marca nike;
+    private Marca adidas;
+
+    @BeforeEach
+    void setUp() {
+        running = new Categoria();
+        running.setId(1L);
+        running.setNombre("Running");
+
+        nike = new Marca();
+        nike.setId(1L);
+        nike.setNombre("Nike");
+
+        adidas = new Marca();
+        adidas.setId(2L);
+        adidas.setNombre("Adidas");
+
+        when(productoRepository.findByActivoTrue()).thenReturn(List.of(
+            crearProducto(1L, "Air Max 90", nike, "Air"),
+            crearProducto(2L, "Ultraboost Camión", adidas, "Boost"),
+            crearProducto(3L, "Air Force 1", nike, null),
+            crearProducto(4L, "Pegasus Trail", nike, "React")
+        ));
+        indiceBusqueda.reconstruir();
+    }
+
+    private Producto crearProducto(Long id, String nombre, Marca marca, String tecnologia) {
+        Producto producto = new Producto();
+        producto.setId(id);
+        producto.setNombre(nombre);
+        producto.setCodigoProducto("RUN" + id);
+        producto.setCategoria(running);
+        producto.setMarca(marca);
+        producto.setTecnologia(tecnologia);
+        producto.setActivo(true);
+        return producto;
+    }
+
+    @Test
+    void testCoincidenciaExactaSinAcentosNiMayusculas() {
+        // When
+        List<Long> resultado = indiceBusqueda.buscar("CAMION", 10);
+
+        // Then
+        assertEquals(List.of(2L), resultado);
+    }
+
+    @Test
+    void testProductosQueCubrenTodosLosTerminosVanPrimero() {
+        // When
+        List<Long> resultado = indiceBusqueda.buscar("air max", 10);
+
+        // Then
+        assertEquals(1L, resultado.get(0));
+        assertTrue(resultado.contains(3L));
+    }
+
+    @Test
+    void testBusquedaPorPrefijoYConErrorDeEscritura() {
+        // When
+        List<Long> porPrefijo = indiceBusqueda.buscar("pega", 10);
+        List<Long> conError = indiceBusqueda.buscar("pegasos", 10);
+
+        // Then
+        assertEquals(List.of(4L), porPrefijo);
+        assertEquals(List.of(4L), conError);
+    }
+
+    @Test
+    void testActualizacionIncrementalDelIndice() {
+        // Given
+        Producto renombrado = crearProducto(3L, "Blazer Mid", nike, null);
+        Producto desactivado = crearProducto(4L, "Pegasus Trail", nike, "React");
+        desactivado.setActivo(false);
+
+        // When
+        indiceBusqueda.indexar(renombrado);
+        indiceBusqueda.indexar(desactivado);
+
+        // Then
+        assertEquals(List.of(1L), indiceBusqueda.buscar("air", 10));
+        assertEquals(List.of(3L), indiceBusqueda.buscar("blazer", 10));
+        assertTrue(indiceBusqueda.buscar("pegasus", 10).isEmpty());
+        assertEquals(3, indiceBusqueda.cantidadProductos());
+    }
+
+    @Test
+    void testReindexarTomaElNombreNuevoDeLaMarca() {
+        // Given - la marca se renombra y sus productos se vuelven a leer; el 4 ya no existe
+        nike.setNombre("Jordan");
+        when(productoRepository.findAllById(List.of(1L, 3L, 4L))).thenReturn(List.of(
+            crearProducto(1L, "Air Max 90", nike, "Air"),
+            crearProducto(3L, "Air Force 1", nike, null)
+        ));
+
+        // When
+        indiceBusqueda.reindexar(List.of(1L, 3L, 4L));
+
+        // Then
+        assertEquals(List.of(3L, 1L), indiceBusqueda.buscar("jordan", 10));
+        assertTrue(indiceBusqueda.buscar("nike", 10).isEmpty());
+        assertEquals(3, indiceBusqueda.cantidadProductos());
+    }
+
+    @Test
+    void testCambioDuranteLaReconstruccionNoSePierde() {
+        // Given - mientras se leen los productos, otro hilo renombra el 2
+        Producto renombrado = crearProducto(2L, "Samba OG", adidas, null);
+        when(productoRepository.findByActivoTrue()).thenAnswer(invocacion -> {
+            indiceBusqueda.indexar(renombrado);
+            return List.of(
+                crearProducto(1L, "Air Max 90", nike, "Air"),
+                crearProducto(2L, "Ultraboost Camión", adidas, "Boost")
+            );
+        });
+        when(productoRepository.findAllById(Set.of(2L))).thenReturn(List.of(renombrado));
+
+        // When
+        indiceBusqueda.reconstruir();
+
+        // Then - la lectura anterior al cambio no lo deshace
+        assertEquals(List.of(2L), indiceBusqueda.buscar("samba", 10));
+        assertTrue(indiceBusqueda.buscar("ultraboost", 10).isEmpty());
+    }
+}
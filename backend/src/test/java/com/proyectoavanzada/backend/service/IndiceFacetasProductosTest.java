@@ -0,0 +1,153 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.dto.ConsultaFacetas;
+import com.proyectoavanzada.backend.dto.ResultadoFacetas;
+import com.proyectoavanzada.backend.model.Categoria;
+import com.proyectoavanzada.backend.model.Marca;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndiceFacetasProductosTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @InjectMocks
+    private IndiceFacetasProductos indiceFacetas;
+
+    private Categoria running;
+    private Marca nike;
+    private Marca adidas;
+
+    @BeforeEach
+    void setUp() {
+        running = new Categoria();
+        running.setId(1L);
+        running.setNombre("Running");
+
+        nike = new Marca();
+        nike.setId(1L);
+        nike.setNombre("Nike");
+
+        adidas = new Marca();
+        adidas.setId(2L);
+        adidas.setNombre("Adidas");
+
+        when(productoRepository.findByActivoTrue()).thenReturn(List.of(
+            crearProducto(1L, "Masculino", nike, "120.00", 300),
+            crearProducto(2L, "Femenino", nike, "90.00", 250),
+            crearProducto(3L, "Masculino", adidas, "150.00", 320),
+            crearProducto(4L, "Unisex", adidas, "60.00", null)
+        ));
+        indiceFacetas.reconstruir();
+    }
+
+    private Producto crearProducto(Long id, String genero, Marca marca, String precio, Integer peso) {
+        Producto producto = new Producto();
+        producto.setId(id);
+        producto.setNombre("Producto " + id);
+        producto.setGenero(genero);
+        producto.setCategoria(running);
+        producto.setMarca(marca);
+        producto.setPrecioVenta(new BigDecimal(precio));
+        producto.setPesoGramos(peso);
+        producto.setActivo(true);
+        return producto;
+    }
+
+    @Test
+    void testValoresDeUnaFacetaSeCombinanConOrYFacetasConAnd() {
+        // Given
+        Map<String, Set<String>> filtros = Map.of(
+            IndiceFacetasProductos.GENERO, Set.of("masculino", "Femenino"),
+            IndiceFacetasProductos.MARCA, Set.of("1")
+        );
+
+        // When
+        ResultadoFacetas resultado = indiceFacetas.buscar(new ConsultaFacetas(filtros, null, null, null, null));
+
+        // Then
+        assertEquals(List.of(1L, 2L), resultado.productoIds());
+        // El conteo de marca ignora su propio filtro pero respeta el de género
+        assertEquals(Map.of("1", 2, "2", 1), resultado.conteos().get(IndiceFacetasProductos.MARCA));
+        // El conteo de género ignora su propio filtro pero respeta el de marca
+        assertEquals(Map.of("Masculino", 1, "Femenino", 1), resultado.conteos().get(IndiceFacetasProductos.GENERO));
+    }
+
+    @Test
+    void testRangosDePrecioYPeso() {
+        // When
+        ResultadoFacetas porPrecio = indiceFacetas.buscar(
+            new ConsultaFacetas(Map.of(), new BigDecimal("90.00"), new BigDecimal("120.00"), null, null));
+        ResultadoFacetas porPeso = indiceFacetas.buscar(
+            new ConsultaFacetas(Map.of(), null, null, 260, null));
+
+        // Then
+        assertEquals(List.of(1L, 2L), porPrecio.productoIds());
+        assertEquals(List.of(1L, 3L), porPeso.productoIds());
+    }
+
+    @Test
+    void testActualizacionIncrementalDelIndice() {
+        // Given - el producto 4 cambia de marca y el producto 2 se desactiva
+        Producto actualizado = crearProducto(4L, "Unisex", nike, "60.00", null);
+        Producto desactivado = crearProducto(2L, "Femenino", nike, "90.00", 250);
+        desactivado.setActivo(false);
+
+        // When
+        indiceFacetas.indexar(actualizado);
+        indiceFacetas.indexar(desactivado);
+        ResultadoFacetas resultado = indiceFacetas.buscar(
+            new ConsultaFacetas(Map.of(IndiceFacetasProductos.MARCA, Set.of("1")), null, null, null, null));
+
+        // Then
+        assertEquals(List.of(1L, 4L), resultado.productoIds());
+        assertEquals(3, indiceFacetas.cantidadProductos());
+        assertFalse(resultado.conteos().get(IndiceFacetasProductos.GENERO).containsKey("Femenino"));
+    }
+
+    @Test
+    void testBusquedaPorPrecioNoVeRangosDesactualizadosMientrasCambiaElIndice() throws Exception {
+        // Given - los productos 10 (en el rango) y 11 (fuera) se alternan reutilizando el mismo ordinal
+        Producto enRango = crearProducto(10L, "Unisex", nike, "110.00", null);
+        Producto fueraDeRango = crearProducto(11L, "Unisex", nike, "500.00", null);
+        ConsultaFacetas consulta = new ConsultaFacetas(Map.of(), new BigDecimal("100.00"), new BigDecimal("200.00"), null, null);
+        AtomicBoolean terminado = new AtomicBoolean(false);
+        Thread escritor = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                indiceFacetas.indexar(enRango);
+                indiceFacetas.eliminar(10L);
+                indiceFacetas.indexar(fueraDeRango);
+                indiceFacetas.eliminar(11L);
+            }
+            terminado.set(true);
+        });
+
+        // When
+        escritor.start();
+        int busquedas = 0;
+        while (!terminado.get() || busquedas == 0) {
+            // Then - el producto de 500.00 nunca aparece en el rango 100.00 - 200.00
+            assertFalse(indiceFacetas.buscar(consulta).productoIds().contains(11L));
+            busquedas++;
+        }
+        escritor.join();
+        assertEquals(List.of(1L, 3L), indiceFacetas.buscar(consulta).productoIds());
+    }
+}
@@ -0,0 +1,104 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.repository.InventarioRepository;
+import com.proyectoavanzada.backend.repository.PresentacionRepository;
+import com.proyectoavanzada.backend.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MonitorStockBajoTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private PresentacionRepository presentacionRepository;
+
+    @Mock
+    private InventarioRepository inventarioRepository;
+
+    @InjectMocks
+    private MonitorStockBajo monitor;
+
+    @BeforeEach
+    void setUp() {
+        // Producto 1 con stock mínimo 5 y dos presentaciones que suman 8; producto 2 sin presentaciones
+        List<Object[]> productos = new ArrayList<>();
+        productos.add(new Object[]{1L, 5, true});
+        productos.add(new Object[]{2L, 5, true});
+        List<Object[]> presentaciones = new ArrayList<>();
+        presentaciones.add(new Object[]{10L, 1L, 6, true});
+        presentaciones.add(new Object[]{11L, 1L, 2, true});
+        when(productoRepository.findEstadoStockMinimo()).thenReturn(productos);
+        when(presentacionRepository.findEstadoStock()).thenReturn(presentaciones);
+        when(inventarioRepository.findIdsInventariosConStockBajo()).thenReturn(List.of(100L));
+        monitor.reconciliar();
+    }
+
+    @Test
+    void testEstadoInicialUsaLosMismosCriteriosQueLasConsultas() {
+        // Then
+        assertEquals(List.of(2L), monitor.obtenerProductosConStockBajo());
+        assertEquals(List.of(11L), monitor.obtenerPresentacionesConStockBajo());
+        assertEquals(List.of(100L), monitor.obtenerInventariosConStockBajo());
+    }
+
+    @Test
+    void testDetectaCrucesDelUmbralAlCambiarElStock() {
+        // When - la presentación 10 baja de 6 a 1: el producto suma 3 y queda bajo su mínimo
+        monitor.registrarPresentacion(10L, 1L, 1, true);
+        monitor.registrarInventario(100L, 20, 5, true);
+
+        // Then
+        assertEquals(List.of(1L, 2L), monitor.obtenerProductosConStockBajo());
+        assertEquals(List.of(10L, 11L), monitor.obtenerPresentacionesConStockBajo());
+        assertTrue(monitor.obtenerInventariosConStockBajo().isEmpty());
+
+        // When - se repone el stock de la presentación 10
+        monitor.registrarPresentacion(10L, 1L, 30, true);
+
+        // Then
+        assertEquals(List.of(2L), monitor.obtenerProductosConStockBajo());
+        assertEquals(List.of(11L), monitor.obtenerPresentacionesConStockBajo());
+    }
+
+    @Test
+    void testCambioDeStockMinimoReevaluaLasPresentaciones() {
+        // When
+        monitor.registrarProducto(1L, 1, true);
+
+        // Then
+        assertTrue(monitor.obtenerPresentacionesConStockBajo().isEmpty());
+        assertFalse(monitor.obtenerProductosConStockBajo().contains(1L));
+    }
+
+    @Test
+    void testReconciliacionCorrigeDesvios() {
+        // Given - un cambio que no se avisó al monitor
+        List<Object[]> presentaciones = new ArrayList<>();
+        presentaciones.add(new Object[]{10L, 1L, 0, true});
+        presentaciones.add(new Object[]{11L, 1L, 2, true});
+        when(presentacionRepository.findEstadoStock()).thenReturn(presentaciones);
+
+        // When
+        int correcciones = monitor.reconciliar();
+
+        // Then - entran el producto 1 y la presentación 10
+        assertEquals(2, correcciones);
+        assertEquals(List.of(1L, 2L), monitor.obtenerProductosConStockBajo());
+        Map<String, Object> estadisticas = monitor.obtenerEstadisticas();
+        assertEquals(2, estadisticas.get("correccionesUltimaReconciliacion"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.proyectoavanzada.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NumeracionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private NumeracionService numeracionService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(numeracionService, "tamanoBloque", 3);
+        numeracionService.inicializar();
+    }
+
+    @Test
+    void testEntregaLosNumerosDelBloqueSinConsultarLaBaseDeDatos() {
+        // Given - la secuencia ya existe y cada reserva avanza 3 números
+        when(jdbcTemplate.update(startsWith("UPDATE"), ArgumentMatchers.<Object>any(), ArgumentMatchers.<Object>any())).thenReturn(1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any())).thenReturn(13L, 16L);
+
+        // When
+        long[] numeros = new long[4];
+        for (int i = 0; i < numeros.length; i++) {
+            numeros[i] = numeracionService.siguiente(NumeracionService.VENTAS, () -> 1L);
+        }
+
+        // Then - una reserva para 10..12 y otra al agotarse el bloque
+        assertArrayEquals(new long[]{10L, 11L, 12L, 13L}, numeros);
+        verify(jdbcTemplate, times(2)).update(startsWith("UPDATE"), ArgumentMatchers.<Object>any(), ArgumentMatchers.<Object>any());
+    }
+
+    @Test
+    void testCreaLaSecuenciaDesdeElValorInicial() {
+        // Given - la secuencia todavía no existe
+        when(jdbcTemplate.update(startsWith("UPDATE"), ArgumentMatchers.<Object>any(), ArgumentMatchers.<Object>any())).thenReturn(0);
+        when(jdbcTemplate.update(startsWith("INSERT"), ArgumentMatchers.<Object>any(), ArgumentMatchers.<Object>any())).thenReturn(1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any())).thenReturn(10L);
+
+        // When
+        long numero = numeracionService.siguiente(NumeracionService.COMPRAS, () -> 7L);
+
+        // Then
+        assertEquals(7L, numero);
+        verify(jdbcTemplate).update(startsWith("INSERT"), eq(NumeracionService.COMPRAS), eq(10L));
+    }
+
+    @Test
+    void testHilosConcurrentesNoRecibenNumerosRepetidos() throws InterruptedException {
+        // Given - la tabla avanza como lo haría la base de datos
+        AtomicLong fila = new AtomicLong(1);
+        when(jdbcTemplate.update(startsWith("UPDATE"), ArgumentMatchers.<Object>any(), ArgumentMatchers.<Object>any()))
+            .thenAnswer(invocacion -> {
+                fila.addAndGet(3);
+                return 1;
+            });
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any())).thenAnswer(invocacion -> fila.get());
+
+        // When
+        Set<Long> numeros = ConcurrentHashMap.newKeySet();
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            hilos.submit(() -> {
+                for (int j = 0; j < 100; j++) {
+                    numeros.add(numeracionService.siguiente(NumeracionService.VENTAS, () -> 1L));
+                }
+            });
+        }
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(800, numeros.size());
+    }
+
+    @Test
+    void testMayorNumeroIgnoraOtrosFormatos() {
+        // When
+        long mayor = NumeracionService.mayorNumero(List.of("VENT-000007", "VENT-000123", "VENT-ESPECIAL", "COMP-000999"), "VENT-");
+
+        // Then
+        assertEquals(123L, mayor);
+    }
+}
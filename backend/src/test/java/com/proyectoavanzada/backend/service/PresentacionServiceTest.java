@@ -0,0 +1,116 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.dto.MatrizDisponibilidad;
+import com.proyectoavanzada.backend.model.Presentacion;
+import com.proyectoavanzada.backend.model.Producto;
+import com.proyectoavanzada.backend.repository.PresentacionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresentacionServiceTest {
+
+    @Mock
+    private PresentacionRepository presentacionRepository;
+
+    @Mock
+    private MonitorStockBajo monitorStockBajo;
+
+    @Mock
+    private MovimientoStockService movimientoStockService;
+
+    @Mock
+    private ReservaStockService reservaStockService;
+
+    @InjectMocks
+    private PresentacionService presentacionService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(presentacionService, "tamanoMaximoCacheMatriz", 100);
+        ReflectionTestUtils.setField(presentacionService, "ttlCacheMatrizSegundos", 300L);
+        presentacionService.inicializarCache();
+    }
+
+    private List<Object[]> filasMatriz() {
+        List<Object[]> filas = new ArrayList<>();
+        filas.add(new Object[]{10L, "40", "Negro", 5, null});
+        filas.add(new Object[]{11L, "40", "Blanco", 0, new BigDecimal("99.90")});
+        filas.add(new Object[]{12L, "41", "Negro", 3, null});
+        return filas;
+    }
+
+    @Test
+    void testMatrizDisponibilidadAgrupaPorTallaYColor() {
+        // Given
+        when(presentacionRepository.findMatrizDisponibilidadPorProducto(1L)).thenReturn(filasMatriz());
+
+        // When
+        MatrizDisponibilidad matriz = presentacionService.obtenerMatrizDisponibilidad(1L);
+
+        // Then
+        assertEquals(List.of("40", "41"), matriz.tallas());
+        assertEquals(List.of("Blanco", "Negro"), matriz.colores());
+        MatrizDisponibilidad.Celda celda = matriz.celdas().get("40").get("Blanco");
+        assertEquals(11L, celda.presentacionId());
+        assertEquals(0, celda.stockDisponible());
+        assertEquals(new BigDecimal("99.90"), celda.precioEspecial());
+        assertNull(matriz.celdas().get("41").get("Blanco"));
+    }
+
+    @Test
+    void testMatrizSeCacheaYSeInvalidaAlCambiarElStock() {
+        // Given
+        Producto producto = new Producto();
+        producto.setId(1L);
+        Presentacion presentacion = new Presentacion();
+        presentacion.setId(10L);
+        presentacion.setProducto(producto);
+        presentacion.setStockDisponible(3);
+        List<Object[]> estadoDespues = new ArrayList<>();
+        estadoDespues.add(new Object[]{10L, 1L, 3, true});
+        when(presentacionRepository.findMatrizDisponibilidadPorProducto(1L)).thenReturn(filasMatriz());
+        when(movimientoStockService.reducirPresentaciones(Map.of(10L, 2))).thenReturn(null);
+        when(presentacionRepository.findEstadoStockPorIds(any())).thenReturn(estadoDespues);
+        when(presentacionRepository.findById(10L)).thenReturn(Optional.of(presentacion));
+
+        // When
+        presentacionService.obtenerMatrizDisponibilidad(1L);
+        presentacionService.obtenerMatrizDisponibilidad(1L);
+        presentacionService.reducirStock(10L, 2);
+        presentacionService.obtenerMatrizDisponibilidad(1L);
+
+        // Then - una consulta al llenar la caché y otra después de invalidarla
+        verify(presentacionRepository, times(2)).findMatrizDisponibilidadPorProducto(1L);
+        verify(monitorStockBajo).registrarPresentacionAlConfirmar(10L, 1L, 3, true);
+    }
+
+    @Test
+    void testReducirStockEnLoteSinStockSuficienteLanzaExcepcion() {
+        // Given
+        when(movimientoStockService.reducirPresentaciones(Map.of(10L, 2, 11L, 5))).thenReturn(11L);
+        when(presentacionRepository.existsById(11L)).thenReturn(true);
+
+        // When / Then
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> presentacionService.reducirStockEnLote(Map.of(10L, 2, 11L, 5)));
+        assertEquals("Stock insuficiente para la presentación con ID: 11", error.getMessage());
+        verify(presentacionRepository, never()).findEstadoStockPorIds(any());
+        verifyNoInteractions(monitorStockBajo);
+    }
+}
@@ -0,0 +1,175 @@
+package com.proyectoavanzada.backend.service;
+
+import com.proyectoavanzada.backend.dto.ReservaStock;
+import com.proyectoavanzada.backend.dto.SolicitudReserva;
+import com.proyectoavanzada.backend.repository.InventarioRepository;
+import com.proyectoavanzada.backend.repository.PresentacionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservaStockServiceTest {
+
+    @Mock
+    private PresentacionRepository presentacionRepository;
+
+    @Mock
+    private InventarioRepository inventarioRepository;
+
+    @InjectMocks
+    private ReservaStockService reservaStockService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reservaStockService, "ttlPorDefectoSegundos", 600L);
+        ReflectionTestUtils.setField(reservaStockService, "ttlMaximoSegundos", 1800L);
+        ReflectionTestUtils.setField(reservaStockService, "cantidadFranjas", 16);
+        ReflectionTestUtils.setField(reservaStockService, "tickMs", 10L);
+        ReflectionTestUtils.setField(reservaStockService, "vigenciaStockSegundos", 60L);
+        reservaStockService.inicializar();
+    }
+
+    private void stockPresentacion(Long id, int stock) {
+        List<Object[]> filas = new ArrayList<>();
+        filas.add(new Object[]{id, 1L, stock, true});
+        when(presentacionRepository.findEstadoStockPorIds(List.of(id))).thenReturn(filas);
+    }
+
+    private static SolicitudReserva solicitud(Long presentacionId, int cantidad, Long ttlSegundos) {
+        return new SolicitudReserva(List.of(new SolicitudReserva.Linea(null, presentacionId, cantidad)), ttlSegundos);
+    }
+
+    @Test
+    void testReservarDescuentaDelDisponibleSinVolverALeerElStock() {
+        // Given
+        stockPresentacion(10L, 5);
+
+        // When
+        reservaStockService.reservar(solicitud(10L, 3, null));
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> reservaStockService.reservar(solicitud(10L, 3, null)));
+        reservaStockService.reservar(solicitud(10L, 2, null));
+
+        // Then
+        assertEquals("Stock insuficiente para reservar la presentación con ID: 10", error.getMessage());
+        verify(presentacionRepository, times(1)).findEstadoStockPorIds(any());
+        assertEquals(2, reservaStockService.obtenerEstadisticas().get("reservasVigentes"));
+    }
+
+    @Test
+    void testLiberarDevuelveLasUnidades() {
+        // Given
+        stockPresentacion(10L, 5);
+        ReservaStock reserva = reservaStockService.reservar(solicitud(10L, 5, null));
+
+        // When
+        boolean liberada = reservaStockService.liberar(reserva.id());
+
+        // Then
+        assertTrue(liberada);
+        assertFalse(reservaStockService.liberar(reserva.id()));
+        assertNotNull(reservaStockService.reservar(solicitud(10L, 5, null)));
+    }
+
+    @Test
+    void testLasReservasVencidasSeLiberanEnElTick() throws InterruptedException {
+        // Given
+        stockPresentacion(10L, 5);
+        ReservaStock reserva = reservaStockService.reservar(solicitud(10L, 5, 1L));
+
+        // When
+        Thread.sleep(1100);
+        int liberadas = reservaStockService.expirarVencidas();
+
+        // Then
+        assertEquals(1, liberadas);
+        assertTrue(reservaStockService.obtenerReserva(reserva.id()).isEmpty());
+        assertNotNull(reservaStockService.reservar(solicitud(10L, 5, null)));
+    }
+
+    @Test
+    void testVentaSinReservaNoTomaUnidadesReservadas() {
+        // Given - de 5 unidades hay 4 reservadas por otro cliente
+        stockPresentacion(10L, 5);
+        reservaStockService.reservar(solicitud(10L, 4, null));
+
+        // When / Then
+        assertDoesNotThrow(() -> reservaStockService.prepararVenta(null, Map.of(10L, 1), Map.of()));
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> reservaStockService.prepararVenta(null, Map.of(10L, 2), Map.of()));
+        assertEquals("Stock insuficiente para la presentación con ID: 10", error.getMessage());
+    }
+
+    @Test
+    void testLaReservaVuelveAEstarVigenteSiLaVentaSeDeshace() {
+        // Given
+        stockPresentacion(10L, 5);
+        ReservaStock reserva = reservaStockService.reservar(solicitud(10L, 5, null));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When - la venta consume la reserva y la transacción se deshace
+            reservaStockService.prepararVenta(reserva.id(), Map.of(10L, 5), Map.of());
+            assertThrows(RuntimeException.class, () -> reservaStockService.liberar(reserva.id()));
+            for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+                sincronizacion.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Then - la reserva se puede usar en otra venta, que al confirmar la termina
+        assertTrue(reservaStockService.obtenerReserva(reserva.id()).isPresent());
+        reservaStockService.prepararVenta(reserva.id(), Map.of(10L, 5), Map.of());
+        assertTrue(reservaStockService.obtenerReserva(reserva.id()).isEmpty());
+    }
+
+    @Test
+    void testReservasConcurrentesNoSuperanElStock() throws InterruptedException {
+        // Given
+        stockPresentacion(10L, 50);
+        reservaStockService.reservar(solicitud(10L, 1, null));
+
+        // When - 16 hilos intentan 199 reservas más de una unidad
+        ExecutorService hilos = Executors.newFixedThreadPool(16);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger exitos = new AtomicInteger(1);
+        for (int i = 0; i < 199; i++) {
+            hilos.submit(() -> {
+                try {
+                    largada.await();
+                    reservaStockService.reservar(solicitud(10L, 1, null));
+                    exitos.incrementAndGet();
+                } catch (RuntimeException | InterruptedException e) {
+                    // Stock insuficiente
+                }
+            });
+        }
+        largada.countDown();
+        hilos.shutdown();
+        assertTrue(hilos.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(50, exitos.get());
+    }
+}
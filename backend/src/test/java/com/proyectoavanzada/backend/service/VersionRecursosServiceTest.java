@@ -0,0 +1,89 @@
+package com.proyectoavanzada.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pruebas sin Spring Boot: cada servicio hace de un nodo del backend sobre la misma base H2 en memoria
+class VersionRecursosServiceTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    private DriverManagerDataSource dataSource;
+    private VersionRecursosService versionRecursosService;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:versiones" + SECUENCIA.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        new JdbcTemplate(dataSource).execute(
+            "CREATE TABLE versiones_recursos (coleccion VARCHAR(50) PRIMARY KEY, version BIGINT NOT NULL)");
+        versionRecursosService = crearNodo(0);
+    }
+
+    private VersionRecursosService crearNodo(long refrescoMs) {
+        VersionRecursosService nodo = new VersionRecursosService();
+        ReflectionTestUtils.setField(nodo, "jdbcTemplate", new JdbcTemplate(dataSource));
+        ReflectionTestUtils.setField(nodo, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(nodo, "refrescoMs", refrescoMs);
+        nodo.inicializar();
+        return nodo;
+    }
+
+    @Test
+    void testEtagCambiaSoloConEscriturasDeSuColeccion() {
+        // Given
+        String etagCategorias = versionRecursosService.obtenerEtag(VersionRecursosService.CATEGORIAS);
+        String etagMarcas = versionRecursosService.obtenerEtag(VersionRecursosService.MARCAS);
+
+        // When - sin transacción activa el incremento es inmediato
+        versionRecursosService.incrementarAlFinalizar(VersionRecursosService.CATEGORIAS);
+
+        // Then
+        assertNotEquals(etagCategorias, versionRecursosService.obtenerEtag(VersionRecursosService.CATEGORIAS));
+        assertEquals(etagMarcas, versionRecursosService.obtenerEtag(VersionRecursosService.MARCAS));
+        assertTrue(etagCategorias.startsWith("\"") && etagCategorias.endsWith("\""));
+    }
+
+    @Test
+    void testIfNoneMatchAceptaListasEtagsDebilesYComodin() {
+        String etag = versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS);
+
+        assertTrue(versionRecursosService.coincideConIfNoneMatch(etag, etag));
+        assertTrue(versionRecursosService.coincideConIfNoneMatch("\"otro\", W/" + etag, etag));
+        assertTrue(versionRecursosService.coincideConIfNoneMatch("*", etag));
+        assertFalse(versionRecursosService.coincideConIfNoneMatch("\"productos-0\"", etag));
+        assertFalse(versionRecursosService.coincideConIfNoneMatch(null, etag));
+    }
+
+    @Test
+    void testOtroNodoVeLaEscrituraAlRefrescarYVaciaSuCache() {
+        // Given - un segundo nodo que vuelve a leer la versión siempre y otro que la guarda una hora
+        VersionRecursosService otroNodo = crearNodo(0);
+        VersionRecursosService nodoSinRefresco = crearNodo(3_600_000);
+        List<String> cambiosExternos = new ArrayList<>();
+        otroNodo.alCambiarEnOtroNodo(cambiosExternos::add);
+        String etag = otroNodo.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        assertEquals(etag, nodoSinRefresco.obtenerEtag(VersionRecursosService.PRODUCTOS));
+
+        // When
+        versionRecursosService.incrementar(VersionRecursosService.PRODUCTOS);
+
+        // Then - el ETag viejo ya no coincide en el otro nodo, que además avisa para vaciar su caché
+        String etagNuevo = otroNodo.obtenerEtag(VersionRecursosService.PRODUCTOS);
+        assertEquals(versionRecursosService.obtenerEtag(VersionRecursosService.PRODUCTOS), etagNuevo);
+        assertFalse(otroNodo.coincideConIfNoneMatch(etag, etagNuevo));
+        assertEquals(List.of(VersionRecursosService.PRODUCTOS), cambiosExternos);
+        // El nodo que no refresca sigue con la versión anterior hasta que venza su intervalo
+        assertEquals(etag, nodoSinRefresco.obtenerEtag(VersionRecursosService.PRODUCTOS));
+    }
+}
@@ -0,0 +1,75 @@
+package com.proyectoavanzada.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pruebas unitarias simples - no necesita Spring Boot
+class CacheLocalTest {
+
+    @Test
+    void testLecturaCuentaAciertosYFallos() {
+        CacheLocal<String, String> cache = new CacheLocal<>("prueba", 10, Duration.ofMinutes(5));
+        AtomicInteger cargas = new AtomicInteger();
+
+        // When
+        cache.obtener("a", k -> "valor-" + cargas.incrementAndGet());
+        String segundaLectura = cache.obtener("a", k -> "valor-" + cargas.incrementAndGet());
+
+        // Then
+        assertEquals("valor-1", segundaLectura);
+        assertEquals(1, cargas.get());
+        Map<String, Object> estadisticas = cache.obtenerEstadisticas();
+        assertEquals(1L, estadisticas.get("aciertos"));
+        assertEquals(1L, estadisticas.get("fallos"));
+    }
+
+    @Test
+    void testDesalojaLaEntradaMenosUsadaAlSuperarElTamano() {
+        CacheLocal<String, String> cache = new CacheLocal<>("prueba", 2, Duration.ofMinutes(5));
+        cache.obtener("a", k -> "A");
+        cache.obtener("b", k -> "B");
+        cache.obtener("a", k -> "A");
+
+        // When
+        cache.obtener("c", k -> "C");
+
+        // Then - "b" era la entrada usada hace más tiempo
+        assertEquals(2, cache.tamano());
+        assertEquals(1L, cache.obtenerEstadisticas().get("desalojos"));
+        assertEquals("B2", cache.obtener("b", k -> "B2"));
+    }
+
+    @Test
+    void testEntradaExpiradaSeVuelveACargar() {
+        CacheLocal<String, String> cache = new CacheLocal<>("prueba", 10, Duration.ZERO);
+        cache.obtener("a", k -> "viejo");
+
+        // When
+        String valor = cache.obtener("a", k -> "nuevo");
+
+        // Then
+        assertEquals("nuevo", valor);
+        assertEquals(1L, cache.obtenerEstadisticas().get("expiraciones"));
+    }
+
+    @Test
+    void testInvalidacionDuranteLaCargaNoGuardaElValor() {
+        CacheLocal<String, String> cache = new CacheLocal<>("prueba", 10, Duration.ofMinutes(5));
+
+        // When - otra escritura invalida la clave mientras se carga
+        cache.obtener("a", k -> {
+            cache.invalidar(List.of("a"));
+            return "desactualizado";
+        });
+
+        // Then
+        assertEquals(0, cache.tamano());
+        assertEquals("actual", cache.obtener("a", k -> "actual"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.proyectoavanzada.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pruebas unitarias simples - no necesita Spring Boot
+class RuedaTemporizadoraTest {
+
+    @Test
+    void testEntregaLosElementosAlLlegarSuTick() {
+        RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(8, 100, 0);
+        rueda.programar("a", 250);
+        rueda.programar("b", 700);
+
+        // When
+        List<String> antes = rueda.avanzar(200);
+        List<String> vencidos = rueda.avanzar(300);
+
+        // Then - 250 se redondea al tick de 300
+        assertTrue(antes.isEmpty());
+        assertEquals(List.of("a"), vencidos);
+        assertEquals(1, rueda.tamano());
+    }
+
+    @Test
+    void testLosElementosDeUnaVueltaPosteriorEsperanSuTurno() {
+        // Una vuelta completa son 4 ticks de 100 ms
+        RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(4, 100, 0);
+        rueda.programar("lejano", 1000);
+
+        // When - el tick 6 comparte ranura con el tick 10
+        List<String> primeraVuelta = rueda.avanzar(600);
+        List<String> vencidos = rueda.avanzar(1000);
+
+        // Then
+        assertTrue(primeraVuelta.isEmpty());
+        assertEquals(List.of("lejano"), vencidos);
+    }
+
+    @Test
+    void testAvanceLargoRecorreCadaRanuraUnaVez() {
+        RuedaTemporizadora<Integer> rueda = new RuedaTemporizadora<>(4, 100, 0);
+        for (int i = 1; i <= 10; i++) {
+            rueda.programar(i, i * 100L);
+        }
+
+        // When - pasan varias vueltas sin avanzar la rueda
+        List<Integer> vencidos = rueda.avanzar(5000);
+
+        // Then
+        assertEquals(10, vencidos.size());
+        assertEquals(0, rueda.tamano());
+    }
+}
@@ -0,0 +1,7 @@
+-- Script para agregar índices de paginación por cursor en productos
+-- La paginación por cursor filtra por id > ultimoId (y activo = true) ordenando por id,
+-- con este índice compuesto la consulta lee solo las filas de la página solicitada
+
+USE sneakershop;
+
+CREATE INDEX idx_productos_activo_id ON productos(activo, id);
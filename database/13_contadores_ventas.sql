@@ -0,0 +1,39 @@
+-- Script para mantener los contadores de más vendidos
+-- Cada venta suma sus unidades en productos.unidades_vendidas y presentaciones.unidades_vendidas,
+-- y en un resumen diario por producto y presentación para consultar los más vendidos de un periodo
+
+USE sneakershop;
+
+ALTER TABLE productos ADD COLUMN unidades_vendidas BIGINT DEFAULT 0;
+ALTER TABLE presentaciones ADD COLUMN unidades_vendidas BIGINT DEFAULT 0;
+
+CREATE INDEX idx_productos_activo_vendidos ON productos(activo, unidades_vendidas);
+CREATE INDEX idx_presentaciones_activo_vendidos ON presentaciones(activo, unidades_vendidas);
+
+-- presentacion_id = 0 cuando la línea se vendió sin presentación
+CREATE TABLE IF NOT EXISTS resumen_ventas_producto (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    fecha DATE NOT NULL,
+    producto_id BIGINT NOT NULL,
+    presentacion_id BIGINT NOT NULL DEFAULT 0,
+    unidades_vendidas BIGINT NOT NULL DEFAULT 0,
+    monto_vendido DECIMAL(14,2) NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_resumen_ventas_producto (fecha, producto_id, presentacion_id),
+    INDEX idx_resumen_ventas_producto_fecha (fecha, producto_id)
+);
+
+-- Cargar los contadores con las ventas existentes (activas y no canceladas ni devueltas), con la misma
+-- condición que ContadorVentasService.reconstruirContadores: las ventas sin estado o sin activo cuentan
+UPDATE productos p SET unidades_vendidas = (
+    SELECT COALESCE(SUM(dv.cantidad), 0) FROM detalles_venta dv JOIN ventas v ON v.id = dv.venta_id
+    WHERE dv.producto_id = p.id AND (v.activo IS NULL OR v.activo = TRUE) AND COALESCE(v.estado, '') NOT IN ('CANCELADA', 'DEVUELTA'));
+
+UPDATE presentaciones pr SET unidades_vendidas = (
+    SELECT COALESCE(SUM(dv.cantidad), 0) FROM detalles_venta dv JOIN ventas v ON v.id = dv.venta_id
+    WHERE dv.presentacion_id = pr.id AND (v.activo IS NULL OR v.activo = TRUE) AND COALESCE(v.estado, '') NOT IN ('CANCELADA', 'DEVUELTA'));
+
+INSERT INTO resumen_ventas_producto (fecha, producto_id, presentacion_id, unidades_vendidas, monto_vendido)
+SELECT DATE(v.fecha_venta), dv.producto_id, COALESCE(dv.presentacion_id, 0), SUM(dv.cantidad), COALESCE(SUM(dv.subtotal), 0)
+FROM detalles_venta dv JOIN ventas v ON v.id = dv.venta_id
+WHERE v.fecha_venta IS NOT NULL AND (v.activo IS NULL OR v.activo = TRUE) AND COALESCE(v.estado, '') NOT IN ('CANCELADA', 'DEVUELTA')
+GROUP BY DATE(v.fecha_venta), dv.producto_id, COALESCE(dv.presentacion_id, 0);
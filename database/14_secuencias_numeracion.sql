@@ -0,0 +1,26 @@
+-- Script para la numeración de ventas y compras por bloques
+-- Cada nodo del backend reserva un bloque de números avanzando la fila de su secuencia
+-- y los entrega desde memoria; siguiente es el primer número que todavía no se reservó
+
+USE sneakershop;
+
+CREATE TABLE IF NOT EXISTS secuencias_numeracion (
+    nombre VARCHAR(50) PRIMARY KEY,
+    siguiente BIGINT NOT NULL
+);
+
+-- Continuar después del mayor número generado hasta ahora (VENT-000123, COMP-000123).
+-- Se puede volver a ejecutar: si la secuencia ya existe solo avanza, nunca retrocede por debajo de lo reservado
+INSERT INTO secuencias_numeracion (nombre, siguiente)
+SELECT * FROM (
+    SELECT 'ventas' AS nombre, COALESCE(MAX(CAST(SUBSTRING(numero_venta, 6) AS UNSIGNED)), 0) + 1 AS siguiente
+    FROM ventas WHERE numero_venta REGEXP '^VENT-[0-9]+$'
+) AS nueva
+ON DUPLICATE KEY UPDATE siguiente = GREATEST(secuencias_numeracion.siguiente, nueva.siguiente);
+
+INSERT INTO secuencias_numeracion (nombre, siguiente)
+SELECT * FROM (
+    SELECT 'compras' AS nombre, COALESCE(MAX(CAST(SUBSTRING(numero_factura, 6) AS UNSIGNED)), 0) + 1 AS siguiente
+    FROM compras WHERE numero_factura REGEXP '^COMP-[0-9]+$'
+) AS nueva
+ON DUPLICATE KEY UPDATE siguiente = GREATEST(secuencias_numeracion.siguiente, nueva.siguiente);
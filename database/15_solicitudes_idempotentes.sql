@@ -0,0 +1,15 @@
+-- Script para las claves de idempotencia de POST /api/ventas y POST /api/compras
+-- Cada fila guarda la respuesta de una creación enviada con la cabecera Idempotency-Key;
+-- se inserta en la misma transacción que la venta o compra, y se borra al vencer
+
+USE sneakershop;
+
+CREATE TABLE IF NOT EXISTS solicitudes_idempotentes (
+    clave VARCHAR(150) PRIMARY KEY,
+    huella VARCHAR(64) NOT NULL,
+    estado_http INT,
+    respuesta LONGTEXT,
+    fecha_creacion DATETIME NOT NULL,
+    expira_en DATETIME NOT NULL,
+    INDEX idx_solicitudes_idempotentes_expira (expira_en)
+);
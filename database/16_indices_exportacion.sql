@@ -0,0 +1,8 @@
+-- Script para agregar índices de la exportación de ventas y compras por rango de fechas
+-- La exportación filtra por fecha y ordena por fecha e id; con estos índices compuestos el cursor
+-- recorre solo el rango pedido y en orden, sin ordenar el resultado completo antes de la primera fila
+
+USE sneakershop;
+
+CREATE INDEX idx_ventas_fecha_id ON ventas(fecha_venta, id);
+CREATE INDEX idx_compras_fecha_id ON compras(fecha_compra, id);
@@ -0,0 +1,8 @@
+-- Script para agregar índices de los reportes agregados de ventas y compras
+-- Los reportes toman las ventas y compras del rango con idx_ventas_fecha_id e idx_compras_fecha_id y suman
+-- sus líneas; con estos índices cubrientes las líneas se leen del índice sin ir a la fila completa
+
+USE sneakershop;
+
+CREATE INDEX idx_detalles_venta_reporte ON detalles_venta(venta_id, producto_id, cantidad, precio_unitario, subtotal);
+CREATE INDEX idx_detalles_compra_reporte ON detalles_compra(compra_id, producto_id, cantidad, precio_unitario, subtotal);
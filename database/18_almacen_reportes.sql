@@ -0,0 +1,9 @@
+-- Script para quitar la columna resultados de la tabla reportes
+-- Los resultados de los reportes se guardan comprimidos en el almacén de reportes (reportes.almacen.directorio)
+-- y la tabla solo guarda archivo_url y tamaño_archivo, así los listados no leen los LONGTEXT.
+-- Antes de ejecutarlo, migrar los reportes existentes llamando a POST /api/reportes/almacen/migrar
+-- hasta que responda 0 migrados; mientras la columna exista, los reportes sin migrar se migran al descargarlos.
+
+USE sneakershop;
+
+ALTER TABLE reportes DROP COLUMN resultados;
@@ -0,0 +1,28 @@
+-- Script para crear el resumen diario de ventas por método de pago, vendedor y estado
+-- Cada venta suma una fila por día, método de pago, vendedor, estado y si está activa; los cambios de estado,
+-- de total y las eliminaciones la mueven de fila en la misma transacción. Los totales de ventas por rango,
+-- vendedor y método de pago y las estadísticas leen estas filas en lugar de la tabla ventas.
+-- metodo_pago y estado = '' cuando la venta no los tiene
+
+USE sneakershop;
+
+CREATE TABLE IF NOT EXISTS resumen_ventas_diario (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    fecha DATE NOT NULL,
+    metodo_pago VARCHAR(255) NOT NULL DEFAULT '',
+    usuario_id BIGINT NOT NULL,
+    estado VARCHAR(255) NOT NULL DEFAULT '',
+    activo BOOLEAN NOT NULL DEFAULT TRUE,
+    cantidad_ventas BIGINT NOT NULL DEFAULT 0,
+    monto_total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_resumen_ventas_diario (fecha, metodo_pago, usuario_id, estado, activo),
+    INDEX idx_resumen_ventas_diario_usuario (usuario_id, fecha)
+);
+
+-- Cargar el resumen con las ventas existentes (también se puede reconstruir con POST /api/productos/mas-vendidos/reconstruir)
+INSERT INTO resumen_ventas_diario (fecha, metodo_pago, usuario_id, estado, activo, cantidad_ventas, monto_total)
+SELECT DATE(COALESCE(v.fecha_venta, CURRENT_TIMESTAMP)), COALESCE(v.metodo_pago, ''), COALESCE(v.usuario_id, 0),
+       COALESCE(v.estado, ''), CASE WHEN v.activo = TRUE THEN TRUE ELSE FALSE END, COUNT(*), COALESCE(SUM(v.total), 0)
+FROM ventas v
+GROUP BY DATE(COALESCE(v.fecha_venta, CURRENT_TIMESTAMP)), COALESCE(v.metodo_pago, ''), COALESCE(v.usuario_id, 0),
+         COALESCE(v.estado, ''), CASE WHEN v.activo = TRUE THEN TRUE ELSE FALSE END;
@@ -0,0 +1,11 @@
+-- Script para las versiones compartidas de las colecciones del catálogo
+-- Cada escritura avanza la fila de las colecciones que afecta y todos los nodos del backend arman
+-- sus ETags con ella, así un cambio hecho en un nodo no deja a otro respondiendo 304 con datos viejos.
+-- Las filas se crean al primer uso, empezando en la hora en milisegundos.
+
+USE sneakershop;
+
+CREATE TABLE IF NOT EXISTS versiones_recursos (
+    coleccion VARCHAR(50) PRIMARY KEY,
+    version BIGINT NOT NULL
+);
@@ -0,0 +1,10 @@
+-- Script para guardar en cada reporte el nodo del backend que lo genera en segundo plano
+-- Al iniciar, cada nodo marca con error solo sus reportes que quedaron en PROCESANDO (reportes.trabajos.nodo),
+-- así no interrumpe los que otros nodos siguen generando. Los reportes anteriores quedan sin nodo:
+-- ningún nodo los marca al iniciar y se pueden cancelar desde cualquiera.
+
+USE sneakershop;
+
+ALTER TABLE reportes ADD COLUMN nodo VARCHAR(100) NULL;
+
+CREATE INDEX idx_reportes_estado_nodo ON reportes(estado, nodo);